@@ -4,6 +4,8 @@ package com.telcobright.rtc.domainmodel.mysqlentity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.Date;
 import java.util.Set;
@@ -127,19 +129,27 @@ public class Partner {
     @Column(name = "paymentAdvice", length = 1000)
     private String paymentAdvice;
 
+    // the child collections are not part of a partner's value: partners are compared and hashed
+    // without initializing them, and the partner keyed maps are built from their tables directly
     @OneToMany(fetch = FetchType.LAZY)
     @JoinColumn(name = "idPartner")
     @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<PartnerPrefix> partnerPrefixes;
 
     @OneToMany(fetch = FetchType.LAZY)
     @JoinColumn(name = "idPartner")
     @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<Route> routes;
 
 
     @OneToMany(fetch = FetchType.LAZY)
     @JoinColumn(name = "partner_id")
     @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<DidAssignment> didAssignments;
 }
\ No newline at end of file
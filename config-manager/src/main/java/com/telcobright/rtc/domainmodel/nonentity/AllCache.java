@@ -1,24 +1,38 @@
 package com.telcobright.rtc.domainmodel.nonentity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import freeswitch.config.dynamic.ReloadStats;
 import freeswitch.config.dynamic.core.AllCacheLoader;
+import freeswitch.config.dynamic.core.PackageAccountSelection;
 import com.telcobright.rtc.domainmodel.mysqlentity.PackageAccount;
 import lombok.Getter;
-import org.springframework.stereotype.Component;
 
 import java.util.*;
 
-@Component
 @Getter
 public final class AllCache {
-    private final Map<Long, List<PackageAccount>> partnerIdWisePackageAccounts;
+    // kept current per partner after the cache is published: expired purchases drop out on a timer and
+    // partners are refreshed through AllCacheLoader#refreshPartners, each partner's list swapped as a whole.
+    // One per tenant database, held by PackageAccountCaches
+    @JsonIgnore
+    private final PackageAccountSelection packageAccounts;
     @JsonIgnore
     private final AllCacheLoader cacheLoader;
 
     public AllCache(AllCacheLoader cacheLoader) {
         this.cacheLoader = cacheLoader;
-        this.partnerIdWisePackageAccounts = Collections.unmodifiableMap(
-                cacheLoader.loadPartnerIdWisePackageAccounts()
-        );
+        this.packageAccounts = ReloadStats.time("allCache.partnerIdWisePackageAccounts",
+                cacheLoader::loadPackageAccountSelection);
+    }
+
+    public Map<Long, List<PackageAccount>> getPartnerIdWisePackageAccounts() {
+        return packageAccounts.getPartnerIdWisePackageAccounts();
+    }
+
+    /**
+     * Stops the upkeep of a cache that has been replaced.
+     */
+    public void close() {
+        packageAccounts.close();
     }
 }
@@ -1,7 +1,10 @@
 package com.telcobright.rtc.domainmodel.nonentity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.telcobright.rtc.domainmodel.mysqlentity.*;
+import freeswitch.config.dynamic.ReloadStats;
+import freeswitch.config.dynamic.core.ContextMap;
 import freeswitch.config.dynamic.core.DataLoader;
 import com.telcobright.rtc.domainmodel.mysqlentity.sms.Campaign;
 import com.telcobright.rtc.domainmodel.mysqlentity.sms.SmsQueue;
@@ -9,11 +12,16 @@ import lombok.Getter;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 @Component
 @Getter
 public final class DynamicContext {
 
+    // maps built from the partnerprefix rows, loaded once when any of them is rebuilt
+    private static final Set<ContextMap> PARTNER_PREFIX_MAPS = EnumSet.of(ContextMap.PREFIX_WISE_PARTNERS,
+            ContextMap.CALLER_ID_WISE_PARTNERS, ContextMap.PREFIX_VS_PARTNERS);
+
     @JsonIgnore
     private final DataLoader dataLoader;
 
@@ -25,22 +33,31 @@ public final class DynamicContext {
     private final Map<Integer, Partner> partners;
 
 //    private final Map<Integer, Route> routes;
+    // partner keyed index maps hold the instances of the partners map and are serialized as idPartner
+    // references into it, see ContextMap#holdsPartnerReferences
+    @JsonSerialize(contentUsing = PartnerIdSerializer.class)
     private final Map<String, Partner> prefixWisePartners;
     private final Map<String, PartnerPrefix> prefixWisePartnerPrefixes;
     private final Map<Integer, List<DialplanMapping>> dppWiseDialplanMapping;
+    @JsonSerialize(contentUsing = PartnerIdSerializer.class)
     private final Map<String, Partner> routeWisePartners;
+    @JsonSerialize(contentUsing = PartnerIdSerializer.class)
     private final Map<String, Partner> callerIdWisePartners;
+    @JsonSerialize(contentUsing = PartnerIdSerializer.class)
     private final Map<String, Partner> prefixVsPartners;
+    @JsonSerialize(contentUsing = PartnerIdSerializer.class)
     private final Map<String, Partner> sipAccountWisePartners;
     private final Map<Integer, List<String>> partnerWiseDidNumbers;
     private final Map<String, DialplanPrefix> prefixWiseDialplanPrefixes;
     private final Map<Integer, Dialplan> idVsDialplan;
     private final Map<String, List<DidAssignment>> rPartnerVsDidAssignments;
+    @JsonSerialize(contentUsing = PartnerIdSerializer.class)
     private final Map<String, Partner> didNumbVsPartners;
     private final Map<String, List<RetailPartner>> didNumVsRpartners;
     private final Map<String, List<RatePlan>> partnerWiseRatePlans;
     private final Map<Integer, RatePlan> ratePlans;
-    private final Map<Integer, Map<String, Rate>> ratePlanWiseTodaysRates;
+    // current and future dated rates per plan, each row with its validity interval (name kept for the wire format)
+    private final Map<Integer, RateTable> ratePlanWiseTodaysRates;
     private final List<RateAssign> rateAssignsCustomer;
     private final List<RateAssign> rateAssignsSupplier;
     private final Map<Integer, List<Route>> partnerVsRoutes;
@@ -50,74 +67,124 @@ public final class DynamicContext {
     private HashMap<Integer, SmsQueue> smsQueue = new HashMap<>();
     private HashMap<String, Integer> enumJobStatus = new HashMap<>();
 
+    // version each map was last rebuilt in, keyed by map property name
+    private final Map<String, Long> mapVersions;
+
 
     public DynamicContext(DataLoader dataLoader) {
+        this(dataLoader, null, EnumSet.allOf(ContextMap.class), 0);
+    }
+
+    /**
+     * Builds a context that reloads only the {@code stale} maps from the current database and
+     * carries every other map over from {@code previous}. With a null {@code previous} all maps are loaded.
+     * Reloaded maps are stamped with {@code version}, carried over maps keep theirs.
+     */
+    public DynamicContext(DataLoader dataLoader, DynamicContext previous, Set<ContextMap> stale, long version) {
         this.dataLoader = dataLoader;
+        Set<ContextMap> reload = previous == null ? EnumSet.allOf(ContextMap.class) : stale;
+
+        Map<String, Long> versions = new LinkedHashMap<>();
+        for (ContextMap map : ContextMap.values()) {
+            versions.put(map.getPropertyName(), reload.contains(map)
+                    ? version
+                    : previous.mapVersions.getOrDefault(map.getPropertyName(), version));
+        }
+        this.mapVersions = Collections.unmodifiableMap(versions);
+
         // Load all data during construction
-        this.partners = Collections.unmodifiableMap(dataLoader.loadPartner());
-        this.callSourceMap = Collections.unmodifiableMap(dataLoader.loadCallSrc());
-        this.partnerWiseDidNumbers = Collections.unmodifiableMap(
-                dataLoader.loadPartnerVsDidNumbers(new HashMap<>()));
-        this.dppWiseDialplanMapping = Collections.unmodifiableMap(
-                dataLoader.loadDppVsDialplanMapping(new HashMap<>()));
-        this.prefixWiseDialplanPrefixes = Collections.unmodifiableMap(
-                dataLoader.loadPrefixVsDialplanPrefix(new HashMap<>()));
-        this.rPartnerVsDidAssignments = Collections.unmodifiableMap(
-                dataLoader.loadRPartnerVsDidAssignment(new HashMap<>()));
-
-        // Build derived maps
-        this.prefixWisePartners = buildPrefixWisePartners(partners);
-        this.routeWisePartners = buildRouteWisePartners(partners);
-        this.callerIdWisePartners = Collections.unmodifiableMap(
-                dataLoader.getCallerIdWisePartner());
-        this.prefixVsPartners = Collections.unmodifiableMap(
-                dataLoader.getPrefixWisePartner1());
-        this.sipAccountWisePartners = Collections.unmodifiableMap(
-                dataLoader.getSipAccountWisePartner());
-        this.prefixWisePartnerPrefixes = Collections.unmodifiableMap(
-                dataLoader.getPrefixWisePartnerPrefixes());
-        this.idVsDialplan = Collections.unmodifiableMap(
-                dataLoader.getIdVsDialplan());
-        this.rateAssignsCustomer = Collections.unmodifiableList(
-                dataLoader.getRateAssignsCustomer());
-        this.rateAssignsSupplier = Collections.unmodifiableList(
-                dataLoader.getRateAssignsSupplier());
-        this.partnerWiseRatePlans = Collections.unmodifiableMap(
-                dataLoader.getPartnerWiseRatePlans());
-        this.ratePlans = Collections.unmodifiableMap(
-                dataLoader.getRatePlans());
-        this.ratePlanWiseTodaysRates = Collections.unmodifiableMap(
-                dataLoader.getRatePlanWiseTodaysRates());
-        this.didNumbVsPartners = Collections.unmodifiableMap(
-                dataLoader.getDidVsPartner());
-        this.didNumVsRpartners = Collections.unmodifiableMap(
-                dataLoader.getDidVsRetailPartners());
-        this.partnerVsRoutes = Collections.unmodifiableMap(
-                dataLoader.getPartnerVsRoutes());
+        this.partners = reload.contains(ContextMap.PARTNERS)
+                ? timed(ContextMap.PARTNERS, () -> Collections.unmodifiableMap(dataLoader.loadPartner()))
+                : previous.partners;
+        this.callSourceMap = reload.contains(ContextMap.CALL_SOURCES)
+                ? timed(ContextMap.CALL_SOURCES, () -> Collections.unmodifiableMap(dataLoader.loadCallSrc()))
+                : previous.callSourceMap;
+        this.partnerWiseDidNumbers = reload.contains(ContextMap.PARTNER_WISE_DID_NUMBERS)
+                ? timed(ContextMap.PARTNER_WISE_DID_NUMBERS, () -> Collections.unmodifiableMap(dataLoader.loadPartnerVsDidNumbers(new HashMap<>())))
+                : previous.partnerWiseDidNumbers;
+        this.dppWiseDialplanMapping = reload.contains(ContextMap.DPP_WISE_DIALPLAN_MAPPING)
+                ? timed(ContextMap.DPP_WISE_DIALPLAN_MAPPING, () -> Collections.unmodifiableMap(dataLoader.loadDppVsDialplanMapping(new HashMap<>())))
+                : previous.dppWiseDialplanMapping;
+        this.prefixWiseDialplanPrefixes = reload.contains(ContextMap.PREFIX_WISE_DIALPLAN_PREFIXES)
+                ? timed(ContextMap.PREFIX_WISE_DIALPLAN_PREFIXES, () -> Collections.unmodifiableMap(dataLoader.loadPrefixVsDialplanPrefix(new HashMap<>())))
+                : previous.prefixWiseDialplanPrefixes;
+        this.rPartnerVsDidAssignments = reload.contains(ContextMap.RPARTNER_VS_DID_ASSIGNMENTS)
+                ? timed(ContextMap.RPARTNER_VS_DID_ASSIGNMENTS, () -> Collections.unmodifiableMap(dataLoader.loadRPartnerVsDidAssignment(new HashMap<>())))
+                : previous.rPartnerVsDidAssignments;
+
+        // Build derived maps: partner keyed maps join the partners above with one query per child table
+        List<PartnerPrefix> partnerPrefixes = Collections.disjoint(reload, PARTNER_PREFIX_MAPS)
+                ? List.of()
+                : ReloadStats.time("partnerPrefixes", dataLoader::loadPartnerPrefixes);
+        this.prefixWisePartners = reload.contains(ContextMap.PREFIX_WISE_PARTNERS)
+                ? timed(ContextMap.PREFIX_WISE_PARTNERS, () -> buildPrefixWisePartners(partners, partnerPrefixes))
+                : previous.prefixWisePartners;
+        this.routeWisePartners = reload.contains(ContextMap.ROUTE_WISE_PARTNERS)
+                ? timed(ContextMap.ROUTE_WISE_PARTNERS, () -> Collections.unmodifiableMap(dataLoader.getField5WisePartners(partners)))
+                : previous.routeWisePartners;
+        this.callerIdWisePartners = reload.contains(ContextMap.CALLER_ID_WISE_PARTNERS)
+                ? timed(ContextMap.CALLER_ID_WISE_PARTNERS, () -> Collections.unmodifiableMap(dataLoader.getCallerIdWisePartner(partners, partnerPrefixes)))
+                : previous.callerIdWisePartners;
+        this.prefixVsPartners = reload.contains(ContextMap.PREFIX_VS_PARTNERS)
+                ? timed(ContextMap.PREFIX_VS_PARTNERS, () -> Collections.unmodifiableMap(dataLoader.getPrefixWisePartner1(partners, partnerPrefixes)))
+                : previous.prefixVsPartners;
+        this.sipAccountWisePartners = reload.contains(ContextMap.SIP_ACCOUNT_WISE_PARTNERS)
+                ? timed(ContextMap.SIP_ACCOUNT_WISE_PARTNERS, () -> Collections.unmodifiableMap(dataLoader.getSipAccountWisePartner(partners)))
+                : previous.sipAccountWisePartners;
+        this.prefixWisePartnerPrefixes = reload.contains(ContextMap.PREFIX_WISE_PARTNER_PREFIXES)
+                ? timed(ContextMap.PREFIX_WISE_PARTNER_PREFIXES, () -> Collections.unmodifiableMap(dataLoader.getPrefixWisePartnerPrefixes()))
+                : previous.prefixWisePartnerPrefixes;
+        this.idVsDialplan = reload.contains(ContextMap.ID_VS_DIALPLAN)
+                ? timed(ContextMap.ID_VS_DIALPLAN, () -> Collections.unmodifiableMap(dataLoader.getIdVsDialplan()))
+                : previous.idVsDialplan;
+        this.rateAssignsCustomer = reload.contains(ContextMap.RATE_ASSIGNS_CUSTOMER)
+                ? timed(ContextMap.RATE_ASSIGNS_CUSTOMER, () -> Collections.unmodifiableList(dataLoader.getRateAssignsCustomer()))
+                : previous.rateAssignsCustomer;
+        this.rateAssignsSupplier = reload.contains(ContextMap.RATE_ASSIGNS_SUPPLIER)
+                ? timed(ContextMap.RATE_ASSIGNS_SUPPLIER, () -> Collections.unmodifiableList(dataLoader.getRateAssignsSupplier()))
+                : previous.rateAssignsSupplier;
+        this.partnerWiseRatePlans = reload.contains(ContextMap.PARTNER_WISE_RATE_PLANS)
+                ? timed(ContextMap.PARTNER_WISE_RATE_PLANS, () -> Collections.unmodifiableMap(dataLoader.getPartnerWiseRatePlans()))
+                : previous.partnerWiseRatePlans;
+        this.ratePlans = reload.contains(ContextMap.RATE_PLANS)
+                ? timed(ContextMap.RATE_PLANS, () -> Collections.unmodifiableMap(dataLoader.getRatePlans()))
+                : previous.ratePlans;
+        // rates are looked up for the rate plans assigned above, so pass them explicitly
+        this.ratePlanWiseTodaysRates = reload.contains(ContextMap.RATE_PLAN_WISE_TODAYS_RATES)
+                ? timed(ContextMap.RATE_PLAN_WISE_TODAYS_RATES, () -> Collections.unmodifiableMap(dataLoader.getRatePlanWiseTodaysRates(partnerWiseRatePlans)))
+                : previous.ratePlanWiseTodaysRates;
+        this.didNumbVsPartners = reload.contains(ContextMap.DID_NUMB_VS_PARTNERS)
+                ? timed(ContextMap.DID_NUMB_VS_PARTNERS, () -> Collections.unmodifiableMap(dataLoader.getDidVsPartner(partners)))
+                : previous.didNumbVsPartners;
+        this.didNumVsRpartners = reload.contains(ContextMap.DID_NUM_VS_RPARTNERS)
+                ? timed(ContextMap.DID_NUM_VS_RPARTNERS, () -> Collections.unmodifiableMap(dataLoader.getDidVsRetailPartners()))
+                : previous.didNumVsRpartners;
+        this.partnerVsRoutes = reload.contains(ContextMap.PARTNER_VS_ROUTES)
+                ? timed(ContextMap.PARTNER_VS_ROUTES, () -> Collections.unmodifiableMap(dataLoader.getPartnerVsRoutes()))
+                : previous.partnerVsRoutes;
 
         //todo sms------------
-        this.campaigns = new HashMap<>(dataLoader.getCampaigns());
-        this.enumJobStatus = new HashMap<>(dataLoader.getEnumJobStatus());
-        this.smsQueue = new HashMap<>(dataLoader.getSmsQueue());
+        this.campaigns = reload.contains(ContextMap.CAMPAIGNS)
+                ? timed(ContextMap.CAMPAIGNS, () -> new HashMap<>(dataLoader.getCampaigns()))
+                : previous.campaigns;
+        this.enumJobStatus = reload.contains(ContextMap.ENUM_JOB_STATUS)
+                ? timed(ContextMap.ENUM_JOB_STATUS, () -> new HashMap<>(dataLoader.getEnumJobStatus()))
+                : previous.enumJobStatus;
+        this.smsQueue = reload.contains(ContextMap.SMS_QUEUE)
+                ? timed(ContextMap.SMS_QUEUE, () -> new HashMap<>(dataLoader.getSmsQueue()))
+                : previous.smsQueue;
     }
 
-    private Map<String, Partner> buildPrefixWisePartners(Map<Integer, Partner> partners) {
-        Map<String, Partner> map = new HashMap<>();
-        for (Partner partner : partners.values()) {
-            Set<PartnerPrefix> prefixes = partner.getPartnerPrefixes();
-            if (prefixes != null) {
-                prefixes.forEach(prefix -> map.put(prefix.getPrefix(), partner));
-            }
-        }
-        return Collections.unmodifiableMap(map);
+    private static <T> T timed(ContextMap map, Supplier<T> load) {
+        return ReloadStats.time(map.getPropertyName(), load);
     }
 
-    private Map<String, Partner> buildRouteWisePartners(Map<Integer, Partner> partners) {
+    private Map<String, Partner> buildPrefixWisePartners(Map<Integer, Partner> partners, List<PartnerPrefix> partnerPrefixes) {
         Map<String, Partner> map = new HashMap<>();
-        for (Partner partner : partners.values()) {
-            Set<Route> routes = partner.getRoutes();
-            if (routes != null) {
-                routes.forEach(route -> map.put(route.getField5(), partner));
+        for (PartnerPrefix prefix : partnerPrefixes) {
+            Partner partner = partners.get(prefix.getIdPartner());
+            if (partner != null) {
+                map.put(prefix.getPrefix(), partner);
             }
         }
         return Collections.unmodifiableMap(map);
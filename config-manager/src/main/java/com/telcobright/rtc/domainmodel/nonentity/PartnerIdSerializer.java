@@ -0,0 +1,25 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.telcobright.rtc.domainmodel.mysqlentity.Partner;
+
+import java.io.IOException;
+
+/**
+ * Writes a partner as a reference to the {@code partners} map of the same context, i.e. as its idPartner.
+ * Used on the partner keyed index maps of {@link DynamicContext}, so each partner is serialized once
+ * and consumers resolve every index entry to that one instance.
+ */
+public class PartnerIdSerializer extends JsonSerializer<Partner> {
+
+    @Override
+    public void serialize(Partner partner, JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        if (partner.getIdPartner() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(partner.getIdPartner());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import freeswitch.dto.RateRow;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Rates of one rate plan held column-wise in primitive arrays, one row per rate, rows sorted by prefix
+ * and start date. Only the columns rating needs are kept; a Rate entity with its ~60 boxed fields costs
+ * an order of magnitude more heap per row than a row here.
+ *
+ * Rows keep their validity interval: the table carries current and future dated rates, and the consumer
+ * picks the row valid at call time.
+ *
+ * Encodings, shared with the routesphere copy of this class:
+ * <pre>
+ * amounts       scaled longs with {@link #AMOUNT_SCALE} decimals (the scale of the rate columns)
+ * dates         LocalDateTime as epoch seconds read at UTC, {@link #OPEN_END} for a null end date
+ * week days     1..7 as in WeekDayStart/WeekDayEnd
+ * times of day  seconds of day parsed from starttime/endtime, -1 if not set
+ * </pre>
+ */
+public final class RateTable {
+    public static final int AMOUNT_SCALE = 8;
+    public static final long OPEN_END = Long.MAX_VALUE;
+
+    @JsonProperty("prefixes")
+    private final String[] prefixes;
+    @JsonProperty("ids")
+    private final long[] ids;
+    @JsonProperty("rateAmounts")
+    private final long[] rateAmounts;
+    @JsonProperty("resolutions")
+    private final int[] resolutions;
+    @JsonProperty("minDurationsSec")
+    private final float[] minDurationsSec;
+    @JsonProperty("surchargeTimes")
+    private final int[] surchargeTimes;
+    @JsonProperty("surchargeAmounts")
+    private final long[] surchargeAmounts;
+    @JsonProperty("startDates")
+    private final long[] startDates;
+    @JsonProperty("endDates")
+    private final long[] endDates;
+    @JsonProperty("weekDayStarts")
+    private final byte[] weekDayStarts;
+    @JsonProperty("weekDayEnds")
+    private final byte[] weekDayEnds;
+    @JsonProperty("startTimes")
+    private final int[] startTimes;
+    @JsonProperty("endTimes")
+    private final int[] endTimes;
+
+    @JsonCreator
+    RateTable(@JsonProperty("prefixes") String[] prefixes,
+              @JsonProperty("ids") long[] ids,
+              @JsonProperty("rateAmounts") long[] rateAmounts,
+              @JsonProperty("resolutions") int[] resolutions,
+              @JsonProperty("minDurationsSec") float[] minDurationsSec,
+              @JsonProperty("surchargeTimes") int[] surchargeTimes,
+              @JsonProperty("surchargeAmounts") long[] surchargeAmounts,
+              @JsonProperty("startDates") long[] startDates,
+              @JsonProperty("endDates") long[] endDates,
+              @JsonProperty("weekDayStarts") byte[] weekDayStarts,
+              @JsonProperty("weekDayEnds") byte[] weekDayEnds,
+              @JsonProperty("startTimes") int[] startTimes,
+              @JsonProperty("endTimes") int[] endTimes) {
+        this.prefixes = prefixes;
+        this.ids = ids;
+        this.rateAmounts = rateAmounts;
+        this.resolutions = resolutions;
+        this.minDurationsSec = minDurationsSec;
+        this.surchargeTimes = surchargeTimes;
+        this.surchargeAmounts = surchargeAmounts;
+        this.startDates = startDates;
+        this.endDates = endDates;
+        this.weekDayStarts = weekDayStarts;
+        this.weekDayEnds = weekDayEnds;
+        this.startTimes = startTimes;
+        this.endTimes = endTimes;
+    }
+
+    /**
+     * Builds the table of one rate plan from its rate rows, in any order.
+     */
+    public static RateTable of(List<RateRow> rows) {
+        List<RateRow> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(RateRow::getPrefix)
+                .thenComparing(RateRow::getStartDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+        Builder builder = new Builder(sorted.size());
+        sorted.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Appends rows straight into the columns, for rows streamed from the database already in
+     * prefix, start date order. No per-row object outlives {@link #add(RateRow)}.
+     */
+    public static final class Builder {
+        private int size;
+        private String[] prefixes;
+        private long[] ids;
+        private long[] rateAmounts;
+        private int[] resolutions;
+        private float[] minDurationsSec;
+        private int[] surchargeTimes;
+        private long[] surchargeAmounts;
+        private long[] startDates;
+        private long[] endDates;
+        private byte[] weekDayStarts;
+        private byte[] weekDayEnds;
+        private int[] startTimes;
+        private int[] endTimes;
+
+        public Builder(int expectedRows) {
+            resize(Math.max(16, expectedRows));
+        }
+
+        public Builder add(RateRow row) {
+            if (size == ids.length) resize(size * 2);
+            int i = size++;
+            // rows of the same prefix share one String instance
+            prefixes[i] = i > 0 && row.getPrefix().equals(prefixes[i - 1]) ? prefixes[i - 1] : row.getPrefix();
+            ids[i] = row.getId() == null ? 0 : row.getId();
+            rateAmounts[i] = scale(row.getRateAmount());
+            resolutions[i] = row.getResolution() == null ? 1 : row.getResolution();
+            minDurationsSec[i] = row.getMinDurationSec() == null ? 0f : row.getMinDurationSec();
+            surchargeTimes[i] = row.getSurchargeTime() == null ? 0 : row.getSurchargeTime();
+            surchargeAmounts[i] = scale(row.getSurchargeAmount());
+            startDates[i] = row.getStartDate() == null ? 0 : toEpochSecond(row.getStartDate());
+            endDates[i] = row.getEndDate() == null ? OPEN_END : toEpochSecond(row.getEndDate());
+            weekDayStarts[i] = (byte) (row.getWeekDayStart() == null ? 1 : row.getWeekDayStart());
+            weekDayEnds[i] = (byte) (row.getWeekDayEnd() == null ? 7 : row.getWeekDayEnd());
+            startTimes[i] = secondOfDay(row.getStartTime());
+            endTimes[i] = secondOfDay(row.getEndTime());
+            return this;
+        }
+
+        public RateTable build() {
+            resize(size);
+            return new RateTable(prefixes, ids, rateAmounts, resolutions, minDurationsSec, surchargeTimes,
+                    surchargeAmounts, startDates, endDates, weekDayStarts, weekDayEnds, startTimes, endTimes);
+        }
+
+        private void resize(int capacity) {
+            prefixes = prefixes == null ? new String[capacity] : Arrays.copyOf(prefixes, capacity);
+            ids = ids == null ? new long[capacity] : Arrays.copyOf(ids, capacity);
+            rateAmounts = rateAmounts == null ? new long[capacity] : Arrays.copyOf(rateAmounts, capacity);
+            resolutions = resolutions == null ? new int[capacity] : Arrays.copyOf(resolutions, capacity);
+            minDurationsSec = minDurationsSec == null ? new float[capacity] : Arrays.copyOf(minDurationsSec, capacity);
+            surchargeTimes = surchargeTimes == null ? new int[capacity] : Arrays.copyOf(surchargeTimes, capacity);
+            surchargeAmounts = surchargeAmounts == null ? new long[capacity] : Arrays.copyOf(surchargeAmounts, capacity);
+            startDates = startDates == null ? new long[capacity] : Arrays.copyOf(startDates, capacity);
+            endDates = endDates == null ? new long[capacity] : Arrays.copyOf(endDates, capacity);
+            weekDayStarts = weekDayStarts == null ? new byte[capacity] : Arrays.copyOf(weekDayStarts, capacity);
+            weekDayEnds = weekDayEnds == null ? new byte[capacity] : Arrays.copyOf(weekDayEnds, capacity);
+            startTimes = startTimes == null ? new int[capacity] : Arrays.copyOf(startTimes, capacity);
+            endTimes = endTimes == null ? new int[capacity] : Arrays.copyOf(endTimes, capacity);
+        }
+    }
+
+    public int size() {
+        return prefixes.length;
+    }
+
+    public static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long scale(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Parses "HHmm", "HHmmss", "HH:mm" or "HH:mm:ss" into seconds of day, -1 for blank or unreadable values.
+     */
+    static int secondOfDay(String time) {
+        if (time == null) return -1;
+        String digits = time.replace(":", "").trim();
+        if (digits.length() != 4 && digits.length() != 6) return -1;
+        try {
+            int hours = Integer.parseInt(digits.substring(0, 2));
+            int minutes = Integer.parseInt(digits.substring(2, 4));
+            int seconds = digits.length() == 6 ? Integer.parseInt(digits.substring(4, 6)) : 0;
+            return hours * 3600 + minutes * 60 + seconds;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RateTable that)) return false;
+        return Arrays.equals(ids, that.ids)
+                && Arrays.equals(prefixes, that.prefixes)
+                && Arrays.equals(rateAmounts, that.rateAmounts)
+                && Arrays.equals(resolutions, that.resolutions)
+                && Arrays.equals(minDurationsSec, that.minDurationsSec)
+                && Arrays.equals(surchargeTimes, that.surchargeTimes)
+                && Arrays.equals(surchargeAmounts, that.surchargeAmounts)
+                && Arrays.equals(startDates, that.startDates)
+                && Arrays.equals(endDates, that.endDates)
+                && Arrays.equals(weekDayStarts, that.weekDayStarts)
+                && Arrays.equals(weekDayEnds, that.weekDayEnds)
+                && Arrays.equals(startTimes, that.startTimes)
+                && Arrays.equals(endTimes, that.endTimes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(ids) + Arrays.hashCode(rateAmounts);
+    }
+}
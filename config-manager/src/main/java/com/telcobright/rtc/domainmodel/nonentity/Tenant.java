@@ -14,7 +14,8 @@ public class Tenant {
     private String dbName;
     private String parent;
     private Map<String, Tenant> children = new HashMap<>();
-    private DynamicContext context;
+    // set before the tree is published, reloads publish a new tree instead of swapping contexts of a published one
+    private volatile DynamicContext context;
 
     @JsonCreator
     public Tenant(@JsonProperty("dbName") String dbName) {
@@ -7,7 +7,8 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class DynamicRoutingDataSource extends AbstractRoutingDataSource {
-    private static final ThreadLocal<String> currentDatabase = new InheritableThreadLocal<>();
+    // not inheritable: tenant contexts are built on pooled threads that must never pick up the submitter's database
+    private static final ThreadLocal<String> currentDatabase = new ThreadLocal<>();
     private static final Map<Object, Object> globalDataSources = new ConcurrentHashMap<>();
 
     @Override
@@ -19,11 +20,15 @@ public class DynamicRoutingDataSource extends AbstractRoutingDataSource {
         currentDatabase.set(database);
     }
 
+    public static String getDatabase() {
+        return currentDatabase.get();
+    }
+
     public static void clearDatabase() {
         currentDatabase.remove();
     }
 
-    public void addTargetDataSource(String dbName, DataSource dataSource) {
+    public synchronized void addTargetDataSource(String dbName, DataSource dataSource) {
         globalDataSources.put(dbName, dataSource);
         super.setTargetDataSources(globalDataSources);
         super.afterPropertiesSet(); // Refresh the data source map
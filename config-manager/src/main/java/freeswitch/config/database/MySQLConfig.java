@@ -1,6 +1,8 @@
 package freeswitch.config.database;
 
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -9,7 +11,6 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -33,17 +34,15 @@ public class MySQLConfig {
     @Primary
     @Bean(name = "mysqlDataSource")
     @ConfigurationProperties(prefix = "spring.datasource")
-    public DataSource dataSource() {
+    public DataSource dataSource(TenantDataSourceFactory dataSourceFactory) {
         DynamicRoutingDataSource dynamicRoutingDataSource = new DynamicRoutingDataSource();
 
         Map<Object, Object> targetDataSources = new HashMap<>();
 
         // Default MySQL database (used at startup)
-        DriverManagerDataSource defaultDataSource = new DriverManagerDataSource();
-        defaultDataSource.setDriverClassName(Objects.requireNonNull(env.getProperty("spring.datasource.driver-class-name")));
-        defaultDataSource.setUrl(env.getProperty("spring.datasource.url"));
-        defaultDataSource.setUsername(env.getProperty("spring.datasource.username"));
-        defaultDataSource.setPassword(env.getProperty("spring.datasource.password"));
+        HikariConfig defaultConfig = dataSourceFactory.baseConfig("default", env.getProperty("spring.datasource.url"));
+        defaultConfig.setMaximumPoolSize(env.getProperty("datasource.default-pool.maximum-pool-size", Integer.class, 10));
+        HikariDataSource defaultDataSource = new HikariDataSource(defaultConfig);
 
         targetDataSources.put("default", defaultDataSource);
         dynamicRoutingDataSource.setTargetDataSources(targetDataSources);
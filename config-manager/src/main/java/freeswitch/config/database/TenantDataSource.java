@@ -0,0 +1,99 @@
+package freeswitch.config.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import freeswitch.dto.PoolStats;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Data source of one tenant database backed by a Hikari pool.
+ *
+ * The pool is either owned by the tenant, or shared by many tenants in which case every borrowed
+ * connection is switched to the tenant's catalog ({@code USE <db>}). A connection goes back to the shared
+ * pool still on the catalog of the last tenant that used it: Hikari only resets a changed catalog to the
+ * one configured on the pool, and the shared pool configures none. Setting the catalog on every borrow is
+ * what keeps tenants apart, so no connection of a shared pool may be handed out without it.
+ * Time spent waiting for a connection is recorded per tenant.
+ */
+public class TenantDataSource extends DelegatingDataSource {
+    private final String dbName;
+    private final HikariDataSource pool;
+    private final boolean sharedPool;
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+
+    public TenantDataSource(String dbName, HikariDataSource pool, boolean sharedPool) {
+        super(pool);
+        this.dbName = dbName;
+        this.pool = pool;
+        this.sharedPool = sharedPool;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long startedAt = System.nanoTime();
+        Connection connection = super.getConnection();
+        recordWait(System.nanoTime() - startedAt);
+        return switchCatalog(connection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long startedAt = System.nanoTime();
+        Connection connection = super.getConnection(username, password);
+        recordWait(System.nanoTime() - startedAt);
+        return switchCatalog(connection);
+    }
+
+    private Connection switchCatalog(Connection connection) throws SQLException {
+        if (sharedPool) {
+            try {
+                connection.setCatalog(dbName);
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+        }
+        return connection;
+    }
+
+    private void recordWait(long waitNanos) {
+        acquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+    }
+
+    public boolean isSharedPool() {
+        return sharedPool;
+    }
+
+    public PoolStats getStats() {
+        HikariPoolMXBean poolBean = pool.getHikariPoolMXBean();
+        long count = acquisitions.get();
+        return new PoolStats(
+                dbName,
+                pool.getPoolName(),
+                poolBean == null ? 0 : poolBean.getActiveConnections(),
+                poolBean == null ? 0 : poolBean.getIdleConnections(),
+                poolBean == null ? 0 : poolBean.getTotalConnections(),
+                poolBean == null ? 0 : poolBean.getThreadsAwaitingConnection(),
+                count,
+                count == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / count,
+                maxWaitNanos.get() / 1_000_000.0
+        );
+    }
+
+    /**
+     * Closes the underlying pool unless other tenants share it.
+     */
+    public void close() {
+        if (!sharedPool) pool.close();
+    }
+}
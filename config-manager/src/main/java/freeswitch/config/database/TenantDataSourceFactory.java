@@ -0,0 +1,83 @@
+package freeswitch.config.database;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Creates the pooled data sources for tenant (res_*) databases.
+ *
+ * datasource.tenant-pool.mode=per-tenant (default) gives every tenant its own small pool that shrinks to
+ * nothing when idle; mode=shared serves all tenants from one pool and switches the catalog per connection,
+ * which suits hundreds of small tenants better.
+ */
+@Component
+public class TenantDataSourceFactory {
+    public static final String MODE_SHARED = "shared";
+
+    private final Environment env;
+    private final boolean sharedMode;
+    private volatile HikariDataSource sharedPool;
+
+    public TenantDataSourceFactory(Environment env) {
+        this.env = env;
+        this.sharedMode = MODE_SHARED.equalsIgnoreCase(env.getProperty("datasource.tenant-pool.mode", "per-tenant"));
+    }
+
+    public TenantDataSource create(String databaseName) {
+        if (sharedMode) {
+            return new TenantDataSource(databaseName, getSharedPool(), true);
+        }
+        HikariConfig config = tenantConfig("tenant-" + databaseName, env.getProperty("datasource.url-base") + databaseName);
+        config.setMaximumPoolSize(env.getProperty("datasource.tenant-pool.maximum-pool-size", Integer.class, 4));
+        config.setMinimumIdle(env.getProperty("datasource.tenant-pool.minimum-idle", Integer.class, 0));
+        return new TenantDataSource(databaseName, new HikariDataSource(config), false);
+    }
+
+    private synchronized HikariDataSource getSharedPool() {
+        if (sharedPool == null) {
+            HikariConfig config = tenantConfig("tenant-shared", env.getProperty("datasource.url-base"));
+            config.setMaximumPoolSize(env.getProperty("datasource.tenant-pool.shared.maximum-pool-size", Integer.class, 20));
+            config.setMinimumIdle(env.getProperty("datasource.tenant-pool.shared.minimum-idle", Integer.class, 2));
+            sharedPool = new HikariDataSource(config);
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Pool settings shared by the admin pool and the tenant pools.
+     */
+    public HikariConfig baseConfig(String poolName, String jdbcUrl) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setDriverClassName(Objects.requireNonNull(env.getProperty("spring.datasource.driver-class-name")));
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(env.getProperty("spring.datasource.username"));
+        config.setPassword(env.getProperty("spring.datasource.password"));
+        config.setIdleTimeout(env.getProperty("datasource.tenant-pool.idle-timeout-ms", Long.class, 60_000L));
+        config.setMaxLifetime(env.getProperty("datasource.tenant-pool.max-lifetime-ms", Long.class, 1_800_000L));
+        config.setConnectionTimeout(env.getProperty("datasource.tenant-pool.connection-timeout-ms", Long.class, 30_000L));
+        // pools are created lazily at reload time, don't fail the reload because one tenant db is briefly unreachable
+        config.setInitializationFailTimeout(-1);
+        return config;
+    }
+
+    /**
+     * Base settings plus the ones only the tenant pools need.
+     */
+    private HikariConfig tenantConfig(String poolName, String jdbcUrl) {
+        HikariConfig config = baseConfig(poolName, jdbcUrl);
+        // honour the fetch size of the streamed reload queries with a server side cursor instead of buffering whole results
+        config.addDataSourceProperty("useCursorFetch", "true");
+        return config;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (sharedPool != null) sharedPool.close();
+    }
+}
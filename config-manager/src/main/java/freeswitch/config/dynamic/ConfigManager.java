@@ -1,21 +1,48 @@
 package freeswitch.config.dynamic;
 
 import freeswitch.config.dynamic.core.AllCacheLoader;
+import freeswitch.config.dynamic.core.ContextDiff;
+import freeswitch.config.dynamic.core.ContextMap;
 import freeswitch.config.dynamic.core.DataLoader;
 import freeswitch.config.dynamic.core.TenantManager;
+import freeswitch.dto.ContextDelta;
+import freeswitch.dto.DeltaResponse;
+import freeswitch.dto.ReloadReport;
 import freeswitch.service.database.DynamicDatabaseService;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import com.telcobright.rtc.domainmodel.nonentity.DynamicContext;
 import com.telcobright.rtc.domainmodel.nonentity.Tenant;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Owns the published tenant tree. Reloads are double-buffered: a full reload builds a new tree, a partial reload a
+ * copy of the current tree with the refreshed contexts of its tenants, both off to the side of the published one.
+ * Only a validated tree is published, together with its version as one {@link Generation}, so readers never block
+ * on a reload and a request that took a generation keeps reading it consistently while the next one is built.
+ */
 @Component
 public class ConfigManager {
 
-    private final AtomicReference<Tenant> rootTenant;
+    // the version is bumped on every change of the published tree, carried by snapshots and deltas so consumers can
+    // tell them apart. Seeded from the clock so versions keep growing across restarts and a consumer never mistakes
+    // an old tree for current.
+    private final AtomicReference<Generation> current = new AtomicReference<>(new Generation(null, System.currentTimeMillis()));
     private final TenantManager tenantManager;
+    private final DeltaLog deltaLog;
+    private final DidDirectory didDirectory;
+    private final ReloadStats reloadStats;
 
     @Value("${admin.db}")
     private final String adminDb;
@@ -24,23 +51,176 @@ public class ConfigManager {
                          DataLoader dataLoader,
                          AllCacheLoader cacheLoader,
                          @Value("${admin.db}") String adminDb,
-                         GlobalTenantRegistry registry) {
+                         GlobalTenantRegistry registry,
+                         DeltaLog deltaLog,
+                         DidDirectory didDirectory,
+                         ReloadStats reloadStats,
+                         @Value("${config.reload.tenant-parallelism:8}") int tenantParallelism,
+                         @Value("${config.reload.virtual-threads:false}") boolean virtualThreads) {
         this.adminDb = adminDb;
-        this.tenantManager = new TenantManager(databaseService, dataLoader, cacheLoader, registry);
-        this.rootTenant = new AtomicReference<>();
+        this.tenantManager = new TenantManager(databaseService, dataLoader, cacheLoader, registry,
+                tenantParallelism, virtualThreads);
+        this.deltaLog = deltaLog;
+        this.didDirectory = didDirectory;
+        this.reloadStats = reloadStats;
     }
     @PostConstruct
     public void init() {
         loadConfigurations();
     }
 
+    @PreDestroy
+    public void shutdown() {
+        tenantManager.shutdown();
+    }
+
+    /**
+     * @return the published tree and its version, read both from it when they must match
+     */
+    public Generation getGeneration() {
+        return current.get();
+    }
+
     public Tenant getRootTenant() {
-        return rootTenant.get();
+        return current.get().getRoot();
+    }
+
+    public long getVersion() {
+        return current.get().getVersion();
+    }
+
+    /**
+     * @return the context changes published after {@code sinceVersion}, see {@link DeltaLog#since(long)}
+     */
+    public DeltaResponse getDeltasSince(long sinceVersion) {
+        return deltaLog.since(sinceVersion);
     }
 
     public synchronized void loadConfigurations() {
         // Rebuild the complete tenant tree with fresh profiles
-        Tenant newRoot = tenantManager.buildTenantTree(adminDb);
-        rootTenant.set(newRoot);
+        long next = getVersion() + 1;
+        ReloadStats.Recorder stats = reloadStats.start("full", next);
+        boolean failed = true;
+        try {
+            Tenant newRoot = tenantManager.buildTenantTree(adminDb, next, stats);
+            validate(newRoot);
+            deltaLog.reset(next);
+            current.set(new Generation(newRoot, next));
+            failed = false;
+        } finally {
+            stats.finish(failed);
+        }
+    }
+
+    /**
+     * Reloads only the context maps that depend on the changed table of one tenant database and publishes
+     * a copy of the tree with the rebuilt context in that tenant. Falls back to a full reload when the database is not part
+     * of the current tree or the table is not mapped to any context map.
+     */
+    public void reloadTable(String dbName, String tableName) {
+        Map<String, Set<String>> dbWiseTables = new HashMap<>();
+        dbWiseTables.put(dbName, Set.of(tableName));
+        reloadTables(dbWiseTables);
+    }
+
+    /**
+     * Same as {@link #reloadTable(String, String)} for a batch of changes: every tenant in the batch is
+     * rebuilt once for all of its changed tables, or the whole tree is rebuilt once if any change needs it.
+     *
+     * @return the number of rebuilds executed, a full reload counts as one
+     */
+    public synchronized int reloadTables(Map<String, Set<String>> dbWiseTables) {
+        dbWiseTables.forEach((dbName, tables) -> {
+            if (dbName != null && tables.contains(DidDirectory.SOURCE_TABLE)) didDirectory.reloadTenant(dbName);
+        });
+        Tenant root = getRootTenant();
+        Map<String, Tenant> tenants = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : dbWiseTables.entrySet()) {
+            Tenant tenant = root == null || entry.getKey() == null ? null : findTenant(root, entry.getKey());
+            boolean untracked = entry.getValue().stream().anyMatch(table -> !ContextMap.isTracked(table));
+            if (tenant == null || tenant.getContext() == null || untracked) {
+                loadConfigurations();
+                return 1;
+            }
+            tenants.put(entry.getKey(), tenant);
+        }
+        long next = getVersion() + 1;
+        ReloadStats.Recorder stats = reloadStats.start("partial", next);
+        boolean failed = true;
+        try {
+            List<ContextDelta> deltas = new ArrayList<>();
+            Map<String, DynamicContext> refreshedContexts = new HashMap<>();
+            tenants.forEach((dbName, tenant) -> {
+                Set<ContextMap> staleMaps = ContextMap.affectedBy(dbWiseTables.get(dbName));
+                DynamicContext refreshed = tenantManager.refreshDynamicContext(tenant, staleMaps, next, stats);
+                deltas.add(ContextDiff.diff(dbName, tenant.getContext(), refreshed, staleMaps, next));
+                refreshedContexts.put(dbName, refreshed);
+            });
+            Map<String, Tenant> copies = new HashMap<>();
+            Tenant newRoot = copyTree(root, refreshedContexts, copies);
+            validate(newRoot);
+            Map<String, Tenant> refreshedTenants = new LinkedHashMap<>();
+            tenants.keySet().forEach(dbName -> refreshedTenants.put(dbName, copies.get(dbName)));
+            stats.run(null, ReloadStats.REGISTRY, () -> tenantManager.refreshRegistry(refreshedTenants, dbWiseTables));
+            // logged before the new generation is published, so a consumer that sees its version can always fetch the delta
+            deltaLog.append(next, deltas);
+            current.set(new Generation(newRoot, next));
+            failed = false;
+        } finally {
+            stats.finish(failed);
+        }
+        return tenants.size();
+    }
+
+    /**
+     * @return up to {@code limit} of the last reloads with their per-stage breakdown, newest first
+     */
+    public List<ReloadReport> getReloadStats(int limit) {
+        return reloadStats.recent(limit);
+    }
+
+    /**
+     * Copies the tree nodes, taking the refreshed context where there is one and sharing every other context.
+     * The published tree is never modified, readers holding it keep a consistent view.
+     */
+    private Tenant copyTree(Tenant tenant, Map<String, DynamicContext> refreshed, Map<String, Tenant> copies) {
+        Tenant copy = new Tenant(tenant.getDbName());
+        copy.setParent(tenant.getParent());
+        copy.setContext(refreshed.getOrDefault(tenant.getDbName(), tenant.getContext()));
+        if (tenant.getChildren() != null) {
+            tenant.getChildren().forEach((dbName, child) -> copy.addChild(dbName, copyTree(child, refreshed, copies)));
+        }
+        copies.put(copy.getDbName(), copy);
+        return copy;
+    }
+
+    /**
+     * Refuses to publish a tree with a tenant that has no context, the current generation stays in place.
+     */
+    private void validate(Tenant tenant) {
+        if (tenant.getContext() == null) {
+            throw new IllegalStateException("Tenant " + tenant.getDbName() + " has no context, reload not published");
+        }
+        if (tenant.getChildren() != null) tenant.getChildren().values().forEach(this::validate);
+    }
+
+    private Tenant findTenant(Tenant tenant, String dbName) {
+        if (dbName.equals(tenant.getDbName())) return tenant;
+        if (tenant.getChildren() == null) return null;
+        for (Tenant child : tenant.getChildren().values()) {
+            Tenant found = findTenant(child, dbName);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    /**
+     * A published tenant tree with the version it was published as.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Generation {
+        private final Tenant root;
+        private final long version;
     }
 }
@@ -0,0 +1,64 @@
+package freeswitch.config.dynamic;
+
+import freeswitch.dto.ContextDelta;
+import freeswitch.dto.DeltaResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps the context deltas of the last {@code retainedVersions} partial reloads so consumers holding
+ * an older copy of the tenant tree can catch up without downloading a new snapshot.
+ *
+ * A full reload has no delta, it starts a new log: anything older than it must resync from the snapshot.
+ */
+@Component
+public class DeltaLog {
+
+    private final int retainedVersions;
+
+    // guarded by this
+    private final NavigableMap<Long, List<ContextDelta>> versionWiseDeltas = new TreeMap<>();
+    private long baseVersion;
+    private long latestVersion;
+
+    public DeltaLog(@Value("${config.delta.retained-versions:1000}") int retainedVersions) {
+        this.retainedVersions = Math.max(1, retainedVersions);
+    }
+
+    /**
+     * Drops all deltas, called when the whole tree was rebuilt in the given version.
+     */
+    public synchronized void reset(long version) {
+        versionWiseDeltas.clear();
+        baseVersion = version;
+        latestVersion = version;
+    }
+
+    public synchronized void append(long version, List<ContextDelta> deltas) {
+        versionWiseDeltas.put(version, deltas);
+        latestVersion = version;
+        while (versionWiseDeltas.size() > retainedVersions) {
+            Map.Entry<Long, List<ContextDelta>> evicted = versionWiseDeltas.pollFirstEntry();
+            baseVersion = evicted.getKey();
+        }
+    }
+
+    /**
+     * @return the deltas a consumer at version {@code since} has to apply to reach the latest version,
+     * or a response flagged fullResyncRequired if the log does not reach back that far
+     */
+    public synchronized DeltaResponse since(long since) {
+        if (since < baseVersion || since > latestVersion) {
+            return new DeltaResponse(since, latestVersion, true, List.of());
+        }
+        List<ContextDelta> deltas = new ArrayList<>();
+        versionWiseDeltas.tailMap(since, false).values().forEach(deltas::addAll);
+        return new DeltaResponse(since, latestVersion, false, deltas);
+    }
+}
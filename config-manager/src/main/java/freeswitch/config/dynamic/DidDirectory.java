@@ -0,0 +1,438 @@
+package freeswitch.config.dynamic;
+
+import freeswitch.config.dynamic.core.StreamingLoader;
+import freeswitch.dto.DidOwner;
+import freeswitch.repository.mysqlrepository.DidAssignmentRepository;
+import freeswitch.service.database.DynamicDatabaseService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Directory of the DID numbers of all reseller databases, resolving a number to its tenant database,
+ * partner and retail partners without keeping an object per number on the heap.
+ *
+ * Numbers are packed into longs and kept with their owners as fixed size records, sorted by number, in a
+ * memory-mapped file:
+ * <pre>
+ * packed number   long  bit 62 leading '+', bits 57..61 digit count, bits 0..56 digits as a number
+ * tenant          int   index into the tenant names kept on the heap
+ * idPartner       int   {@link #NONE} for null
+ * idRetailPartner int   {@link #NONE} for null
+ * </pre>
+ * A number assigned more than once has one record per assignment, next to each other; across tenant databases
+ * the one loaded last owns it. Lookups binary search
+ * a small on-heap fence array holding every {@link #FENCE_STRIDE}th number, then the block of the file it
+ * points at. The few numbers that don't pack (over 17 digits, non digits) are kept in a map on the heap.
+ *
+ * Every change writes a new generation file and swaps it in atomically, readers never lock. A CDC event on
+ * {@link #SOURCE_TABLE} reloads only the changed tenant and merges its rows into the previous generation.
+ */
+@Component
+public class DidDirectory {
+
+    public static final String SOURCE_TABLE = "did_assignment";
+    static final int NONE = 0;
+    private static final int NO_TENANT = -1;
+
+    private static final int RECORD_BYTES = 20;
+    // records per mapped buffer, a single mapping can't exceed 2GB
+    private static final int SEGMENT_RECORDS = Integer.MAX_VALUE / RECORD_BYTES;
+    private static final int FENCE_STRIDE = 256;
+    private static final int MAX_DIGITS = 17;
+    private static final String FILE_PREFIX = "did-directory-";
+
+    private final DynamicDatabaseService databaseService;
+    private final DidAssignmentRepository didAssignmentRepository;
+    private final StreamingLoader streamingLoader;
+    private final Path directory;
+
+    // index = tenant number stored in the records, only ever appended to; tenants are indexed in the order
+    // getResellerDbs lists them on the first rebuild, so the highest index is the db loaded last
+    private final List<String> tenants = new CopyOnWriteArrayList<>();
+    private volatile Generation current = Generation.EMPTY;
+    private long generationCount;
+
+    public DidDirectory(DynamicDatabaseService databaseService,
+                        DidAssignmentRepository didAssignmentRepository,
+                        StreamingLoader streamingLoader,
+                        @Value("${config.did-directory.path:${java.io.tmpdir}/did-directory}") String directory) {
+        this.databaseService = databaseService;
+        this.didAssignmentRepository = didAssignmentRepository;
+        this.streamingLoader = streamingLoader;
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Loads the DID numbers of every reseller database into a fresh generation.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        deleteGenerationFiles();
+        Rows rows = new Rows();
+        for (String dbName : databaseService.getResellerDbs()) {
+            load(dbName, tenantIndex(dbName), rows);
+        }
+        rows.sort();
+        publish(merge(Generation.EMPTY, -1, rows));
+    }
+
+    /**
+     * Replaces the numbers of one tenant database with its current did assignments.
+     */
+    public synchronized void reloadTenant(String dbName) {
+        int tenant = tenantIndex(dbName);
+        Rows rows = new Rows();
+        load(dbName, tenant, rows);
+        rows.sort();
+        publish(merge(current, tenant, rows));
+    }
+
+    /**
+     * @return the tenant database the number is assigned in, null if it is not assigned anywhere
+     */
+    public String dbNameOf(String didNumber) {
+        DidOwner owner = lookup(didNumber);
+        return owner == null ? null : owner.getDbName();
+    }
+
+    /**
+     * @return owner of the number, null if it is not assigned anywhere. A number found in several tenant
+     * databases resolves to the one loaded last, as the number to db map this directory replaced did.
+     */
+    public DidOwner lookup(String didNumber) {
+        if (didNumber == null) return null;
+        Generation generation = current;
+        long key = pack(didNumber);
+        DidOwner owner = null;
+        if (key < 0) {
+            int[] owners = generation.overflow.get(didNumber);
+            if (owners == null) return null;
+            int tenant = NO_TENANT;
+            for (int i = 0; i < owners.length; i += 3) tenant = Math.max(tenant, owners[i]);
+            for (int i = 0; i < owners.length; i += 3) {
+                if (owners[i] == tenant) owner = addOwner(owner, didNumber, tenant, owners[i + 1], owners[i + 2]);
+            }
+            return owner;
+        }
+        long first = generation.lowerBound(key);
+        long end = first;
+        int tenant = NO_TENANT;
+        for (; end < generation.size && generation.key(end) == key; end++) tenant = Math.max(tenant, generation.tenant(end));
+        for (long row = first; row < end; row++) {
+            if (generation.tenant(row) == tenant) {
+                owner = addOwner(owner, didNumber, tenant, generation.idPartner(row), generation.idRetailPartner(row));
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * @return number of did assignments in the directory
+     */
+    public long size() {
+        Generation generation = current;
+        return generation.size + generation.overflow.values().stream().mapToLong(owners -> owners.length / 3).sum();
+    }
+
+    private DidOwner addOwner(DidOwner owner, String didNumber, int tenant, int idPartner, int idRetailPartner) {
+        if (owner == null) owner = new DidOwner(didNumber, tenants.get(tenant), null, new ArrayList<>());
+        if (owner.getIdPartner() == null && idPartner != NONE) owner.setIdPartner(idPartner);
+        if (idRetailPartner != NONE) owner.getRetailPartnerIds().add(idRetailPartner);
+        return owner;
+    }
+
+    private int tenantIndex(String dbName) {
+        int index = tenants.indexOf(dbName);
+        if (index >= 0) return index;
+        tenants.add(dbName);
+        return tenants.size() - 1;
+    }
+
+    private void load(String dbName, int tenant, Rows rows) {
+        databaseService.runInDatabase(dbName, () -> streamingLoader.forEach(didAssignmentRepository::streamDidNumberOwners,
+                row -> rows.add((String) row[0], tenant, (Integer) row[1], (Integer) row[2])));
+    }
+
+    /**
+     * Writes the next generation: the records of {@code base} except those of {@code replacedTenant},
+     * merged with the sorted {@code rows}.
+     */
+    private Generation merge(Generation base, int replacedTenant, Rows rows) {
+        Path file = directory.resolve(FILE_PREFIX + (++generationCount) + ".bin");
+        long size = 0;
+        LongArray fences = new LongArray();
+        try {
+            Files.createDirectories(directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+                long row = 0;
+                int next = 0;
+                while (row < base.size || next < rows.size) {
+                    if (row < base.size && base.tenant(row) == replacedTenant) {
+                        row++;
+                        continue;
+                    }
+                    boolean fromBase = next == rows.size || (row < base.size && base.key(row) <= rows.keys[next]);
+                    long key = fromBase ? base.key(row) : rows.keys[next];
+                    if (size % FENCE_STRIDE == 0) fences.add(key);
+                    out.writeLong(key);
+                    if (fromBase) {
+                        out.writeInt(base.tenant(row));
+                        out.writeInt(base.idPartner(row));
+                        out.writeInt(base.idRetailPartner(row));
+                        row++;
+                    } else {
+                        out.writeInt(rows.tenants[next]);
+                        out.writeInt(rows.idPartners[next]);
+                        out.writeInt(rows.idRetailPartners[next]);
+                        next++;
+                    }
+                    size++;
+                }
+            }
+            return new Generation(file, map(file, size), size, fences.toArray(), mergeOverflow(base, replacedTenant, rows));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write DID directory " + file, e);
+        }
+    }
+
+    private static Map<String, int[]> mergeOverflow(Generation base, int replacedTenant, Rows rows) {
+        Map<String, int[]> overflow = new HashMap<>();
+        base.overflow.forEach((didNumber, owners) -> {
+            for (int i = 0; i < owners.length; i += 3) {
+                if (owners[i] != replacedTenant) appendOwner(overflow, didNumber, owners[i], owners[i + 1], owners[i + 2]);
+            }
+        });
+        rows.overflow.forEach((didNumber, owners) -> {
+            for (int i = 0; i < owners.length; i += 3) {
+                appendOwner(overflow, didNumber, owners[i], owners[i + 1], owners[i + 2]);
+            }
+        });
+        return overflow;
+    }
+
+    private static void appendOwner(Map<String, int[]> overflow, String didNumber, int tenant, int idPartner, int idRetailPartner) {
+        int[] owners = overflow.get(didNumber);
+        int[] grown = owners == null ? new int[3] : Arrays.copyOf(owners, owners.length + 3);
+        grown[grown.length - 3] = tenant;
+        grown[grown.length - 2] = idPartner;
+        grown[grown.length - 1] = idRetailPartner;
+        overflow.put(didNumber, grown);
+    }
+
+    private static ByteBuffer[] map(Path file, long size) throws IOException {
+        int segmentCount = (int) ((size + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS);
+        ByteBuffer[] segments = new ByteBuffer[segmentCount];
+        // the mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < segmentCount; i++) {
+                long records = Math.min(SEGMENT_RECORDS, size - (long) i * SEGMENT_RECORDS);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, (long) i * SEGMENT_RECORDS * RECORD_BYTES,
+                        records * RECORD_BYTES);
+            }
+        }
+        return segments;
+    }
+
+    private void publish(Generation generation) {
+        Generation previous = current;
+        current = generation;
+        System.out.println("DID directory: " + size() + " numbers of " + tenants.size() + " tenant dbs in " + generation.file);
+        if (previous.file != null) {
+            // readers still holding the previous generation keep their mapping, the file is gone once they drop it
+            try {
+                Files.deleteIfExists(previous.file);
+            } catch (IOException e) {
+                System.err.println("Could not delete " + previous.file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void deleteGenerationFiles() {
+        if (!Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*.bin")) {
+            for (Path file : files) {
+                if (!file.equals(current.file)) Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not clean " + directory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number packed into a non-negative long, -1 if it doesn't fit (see class comment)
+     */
+    static long pack(String didNumber) {
+        int start = didNumber.startsWith("+") ? 1 : 0;
+        int digits = didNumber.length() - start;
+        if (digits == 0 || digits > MAX_DIGITS) return -1;
+        long value = 0;
+        for (int i = start; i < didNumber.length(); i++) {
+            char c = didNumber.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return ((long) start << 62) | ((long) digits << 57) | value;
+    }
+
+    /**
+     * One immutable, mapped version of the directory.
+     */
+    private static final class Generation {
+        static final Generation EMPTY = new Generation(null, new ByteBuffer[0], 0, new long[0], Collections.emptyMap());
+
+        final Path file;
+        final ByteBuffer[] segments;
+        final long size;
+        // key of every FENCE_STRIDE-th record
+        final long[] fences;
+        final Map<String, int[]> overflow;
+
+        Generation(Path file, ByteBuffer[] segments, long size, long[] fences, Map<String, int[]> overflow) {
+            this.file = file;
+            this.segments = segments;
+            this.size = size;
+            this.fences = fences;
+            this.overflow = overflow;
+        }
+
+        /**
+         * @return first record with a key not below {@code key}, {@link #size} if there is none
+         */
+        long lowerBound(long key) {
+            int block = Arrays.binarySearch(fences, key);
+            // fences hold the first key of each block: the first match lies in the block before the first fence >= key
+            if (block < 0) block = -block - 1;
+            else while (block > 0 && fences[block - 1] == key) block--;
+            long lo = block == 0 ? 0 : (long) (block - 1) * FENCE_STRIDE;
+            long hi = Math.min(size, (long) block * FENCE_STRIDE);
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                if (key(mid) < key) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        long key(long row) {
+            return segment(row).getLong(offset(row));
+        }
+
+        int tenant(long row) {
+            return segment(row).getInt(offset(row) + 8);
+        }
+
+        int idPartner(long row) {
+            return segment(row).getInt(offset(row) + 12);
+        }
+
+        int idRetailPartner(long row) {
+            return segment(row).getInt(offset(row) + 16);
+        }
+
+        private ByteBuffer segment(long row) {
+            return segments[(int) (row / SEGMENT_RECORDS)];
+        }
+
+        private static int offset(long row) {
+            return (int) (row % SEGMENT_RECORDS) * RECORD_BYTES;
+        }
+    }
+
+    /**
+     * Did assignments of a load, column-wise so that a large tenant costs a few arrays instead of an object per row.
+     */
+    private static final class Rows {
+        long[] keys = new long[1024];
+        int[] tenants = new int[1024];
+        int[] idPartners = new int[1024];
+        int[] idRetailPartners = new int[1024];
+        int size;
+        final Map<String, int[]> overflow = new HashMap<>();
+
+        void add(String didNumber, int tenant, Integer idPartner, Integer idRetailPartner) {
+            if (didNumber == null) return;
+            int partner = idPartner == null ? NONE : idPartner;
+            int retailPartner = idRetailPartner == null ? NONE : idRetailPartner;
+            long key = pack(didNumber);
+            if (key < 0) {
+                appendOwner(overflow, didNumber, tenant, partner, retailPartner);
+                return;
+            }
+            if (size == keys.length) {
+                int grown = size * 2;
+                keys = Arrays.copyOf(keys, grown);
+                tenants = Arrays.copyOf(tenants, grown);
+                idPartners = Arrays.copyOf(idPartners, grown);
+                idRetailPartners = Arrays.copyOf(idRetailPartners, grown);
+            }
+            keys[size] = key;
+            tenants[size] = tenant;
+            idPartners[size] = partner;
+            idRetailPartners[size] = retailPartner;
+            size++;
+        }
+
+        void sort() {
+            sort(0, size - 1);
+        }
+
+        // quicksort over the parallel columns by key, recursing into the smaller half only
+        private void sort(int lo, int hi) {
+            while (hi - lo > 16) {
+                long pivot = keys[(lo + hi) >>> 1];
+                int i = lo, j = hi;
+                while (i <= j) {
+                    while (keys[i] < pivot) i++;
+                    while (keys[j] > pivot) j--;
+                    if (i <= j) swap(i++, j--);
+                }
+                if (j - lo < hi - i) {
+                    sort(lo, j);
+                    lo = i;
+                } else {
+                    sort(i, hi);
+                    hi = j;
+                }
+            }
+            for (int i = lo + 1; i <= hi; i++) {
+                for (int j = i; j > lo && keys[j - 1] > keys[j]; j--) swap(j, j - 1);
+            }
+        }
+
+        private void swap(int a, int b) {
+            long key = keys[a]; keys[a] = keys[b]; keys[b] = key;
+            int tenant = tenants[a]; tenants[a] = tenants[b]; tenants[b] = tenant;
+            int partner = idPartners[a]; idPartners[a] = idPartners[b]; idPartners[b] = partner;
+            int retailPartner = idRetailPartners[a]; idRetailPartners[a] = idRetailPartners[b]; idRetailPartners[b] = retailPartner;
+        }
+    }
+
+    private static final class LongArray {
+        private long[] values = new long[64];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -1,27 +1,157 @@
 package freeswitch.config.dynamic;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.telcobright.rtc.domainmodel.mysqlentity.Partner;
-import lombok.Data;
+import com.telcobright.rtc.domainmodel.mysqlentity.RetailPartner;
+import com.telcobright.rtc.domainmodel.mysqlentity.Route;
+import lombok.Getter;
 import org.springframework.stereotype.Component;
 import com.telcobright.rtc.domainmodel.nonentity.DynamicContext;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
-@Data
+/**
+ * Cross tenant lookups (partners, route IPs, SIP accounts) merged from the contexts of all tenants.
+ *
+ * The registry is an immutable {@link Snapshot} behind one atomic reference: a reload builds the next snapshot
+ * from the per-tenant entries and swaps it in, so readers see either the old or the new registry, never a mix,
+ * and entries removed from a tenant database disappear with the next snapshot. Readers that need several maps
+ * should take {@link #snapshot()} once and read them from it.
+ */
 @Component
 public class GlobalTenantRegistry {
-    private final Map<Integer, String> partnerIds = new ConcurrentHashMap<>();
-    private final Map<String, Integer> partnerNames = new ConcurrentHashMap<>();
-    private final Map<String, Integer> routeIps = new ConcurrentHashMap<>();
-    private final Map<String, Integer> retailPartnerUsernames = new ConcurrentHashMap<>();
-    private final Map<String, Partner> sipAccountWisePartners = new ConcurrentHashMap<>();
-    private final Map<String, Partner> routeWisePartners = new ConcurrentHashMap<>();
-
-    public void setSipAccountWisePartners(DynamicContext context){
-        sipAccountWisePartners.putAll(context.getSipAccountWisePartners());
-    }
-    public void setRouteWisePartners(DynamicContext context){
-        routeWisePartners.putAll(context.getRouteWisePartners());
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public Map<Integer, String> getPartnerIds() {
+        return current.get().getPartnerIds();
+    }
+
+    public Map<String, Integer> getPartnerNames() {
+        return current.get().getPartnerNames();
+    }
+
+    public Map<String, Integer> getRouteIps() {
+        return current.get().getRouteIps();
+    }
+
+    public Map<String, Integer> getRetailPartnerUsernames() {
+        return current.get().getRetailPartnerUsernames();
+    }
+
+    public Map<String, Partner> getSipAccountWisePartners() {
+        return current.get().getSipAccountWisePartners();
+    }
+
+    public Map<String, Partner> getRouteWisePartners() {
+        return current.get().getRouteWisePartners();
+    }
+
+    /**
+     * @return the entries the current snapshot holds for a tenant database, null if none
+     */
+    public TenantEntries tenantEntries(String dbName) {
+        return current.get().tenants.get(dbName);
+    }
+
+    /**
+     * Replaces the whole registry with the entries of the given tenants, in iteration order: on key clashes
+     * between tenant databases the later tenant wins.
+     */
+    public void publish(Map<String, TenantEntries> tenants) {
+        current.set(new Snapshot(new LinkedHashMap<>(tenants)));
+    }
+
+    /**
+     * Replaces the entries of the given tenants and keeps those of every other tenant.
+     */
+    public void publishTenants(Map<String, TenantEntries> changed) {
+        current.updateAndGet(previous -> {
+            Map<String, TenantEntries> tenants = new LinkedHashMap<>(previous.tenants);
+            tenants.putAll(changed);
+            return new Snapshot(tenants);
+        });
+    }
+
+    /**
+     * Registry entries contributed by one tenant database.
+     */
+    @Getter
+    public static final class TenantEntries {
+        private final Map<Integer, String> partnerIds = new HashMap<>();
+        private final Map<String, Integer> partnerNames = new HashMap<>();
+        private final Map<String, Integer> routeIps = new HashMap<>();
+        private final Map<String, Integer> retailPartnerUsernames;
+        private final Map<String, Partner> sipAccountWisePartners;
+        private final Map<String, Partner> routeWisePartners;
+
+        private TenantEntries(DynamicContext context, Map<String, Integer> retailPartnerUsernames) {
+            context.getPartners().values().forEach(partner -> {
+                if (partner.getIdPartner() == null || partner.getPartnerName() == null) return;
+                partnerIds.put(partner.getIdPartner(), partner.getPartnerName());
+                partnerNames.put(partner.getPartnerName().toLowerCase(), partner.getIdPartner());
+            });
+            context.getPartnerVsRoutes().values().forEach(routes -> routes.forEach((Route route) -> {
+                if (route.getField5() != null) routeIps.put(route.getField5(), route.getIdroute());
+            }));
+            this.retailPartnerUsernames = retailPartnerUsernames;
+            this.sipAccountWisePartners = context.getSipAccountWisePartners();
+            this.routeWisePartners = context.getRouteWisePartners();
+        }
+
+        public static TenantEntries of(DynamicContext context, Map<String, Integer> retailPartnerUsernames) {
+            return new TenantEntries(context, retailPartnerUsernames);
+        }
+
+        public static Map<String, Integer> retailPartnerUsernames(List<RetailPartner> retailPartners) {
+            Map<String, Integer> usernames = new HashMap<>();
+            retailPartners.forEach(retailPartner -> {
+                if (retailPartner.getUserName() != null) usernames.put(retailPartner.getUserName(), retailPartner.getId());
+            });
+            return Collections.unmodifiableMap(usernames);
+        }
+    }
+
+    /**
+     * One immutable version of the registry, the per-tenant entries merged into global maps.
+     */
+    @Getter
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyMap());
+
+        private final Map<Integer, String> partnerIds;
+        private final Map<String, Integer> partnerNames;
+        private final Map<String, Integer> routeIps;
+        private final Map<String, Integer> retailPartnerUsernames;
+        private final Map<String, Partner> sipAccountWisePartners;
+        private final Map<String, Partner> routeWisePartners;
+        @JsonIgnore
+        private final Map<String, TenantEntries> tenants;
+
+        private Snapshot(Map<String, TenantEntries> tenants) {
+            this.tenants = Collections.unmodifiableMap(tenants);
+            this.partnerIds = merge(TenantEntries::getPartnerIds);
+            this.partnerNames = merge(TenantEntries::getPartnerNames);
+            this.routeIps = merge(TenantEntries::getRouteIps);
+            this.retailPartnerUsernames = merge(TenantEntries::getRetailPartnerUsernames);
+            this.sipAccountWisePartners = merge(TenantEntries::getSipAccountWisePartners);
+            this.routeWisePartners = merge(TenantEntries::getRouteWisePartners);
+        }
+
+        private <K, V> Map<K, V> merge(Function<TenantEntries, Map<K, V>> entries) {
+            Map<K, V> merged = new HashMap<>();
+            BiConsumer<K, V> put = (key, value) -> {
+                if (key != null && value != null) merged.put(key, value);
+            };
+            tenants.values().forEach(tenant -> entries.apply(tenant).forEach(put));
+            return Collections.unmodifiableMap(merged);
+        }
     }
 }
@@ -0,0 +1,78 @@
+package freeswitch.config.dynamic;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.PackageAccount;
+import com.telcobright.rtc.domainmodel.nonentity.AllCache;
+import freeswitch.config.dynamic.core.AllCacheLoader;
+import freeswitch.service.database.DynamicDatabaseService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Package account caches of the tenant databases, each loaded on first use and then kept current from CDC events:
+ * a change on {@link #PACKAGE_PURCHASE} or {@link #PACKAGE_ACCOUNT} refreshes only the partners it touches,
+ * through {@link AllCacheLoader#refreshPartners}, instead of reloading the tenant's configuration.
+ */
+@Component
+public class PackageAccountCaches {
+
+    public static final String PACKAGE_PURCHASE = "packagepurchase";
+    public static final String PACKAGE_ACCOUNT = "packageaccount";
+    public static final Set<String> SOURCE_TABLES = Set.of(PACKAGE_PURCHASE, PACKAGE_ACCOUNT);
+
+    private final DynamicDatabaseService databaseService;
+    private final AllCacheLoader cacheLoader;
+    private final Map<String, AllCache> caches = new ConcurrentHashMap<>();
+
+    public PackageAccountCaches(DynamicDatabaseService databaseService, AllCacheLoader cacheLoader) {
+        this.databaseService = databaseService;
+        this.cacheLoader = cacheLoader;
+    }
+
+    /**
+     * @return accounts of the partner in selection order, empty if it has no active purchase
+     */
+    public List<PackageAccount> getPackageAccounts(String dbName, Long idPartner) {
+        return get(dbName).getPartnerIdWisePackageAccounts().getOrDefault(idPartner, List.of());
+    }
+
+    /**
+     * @return cache of the tenant database, loaded on the first call
+     */
+    public AllCache get(String dbName) {
+        return caches.computeIfAbsent(dbName, db -> databaseService.runInDatabase(db, () -> new AllCache(cacheLoader)));
+    }
+
+    /**
+     * Reloads the active purchases of {@code idPartners} in the tenant's cache. A cache not loaded yet is left
+     * alone, it reads the current rows when it is first used.
+     */
+    public void refreshPartners(String dbName, Set<Long> idPartners) {
+        AllCache cache = caches.get(dbName);
+        if (cache == null || idPartners.isEmpty()) return;
+        databaseService.runInDatabase(dbName, () -> {
+            cacheLoader.refreshPartners(cache.getPackageAccounts(), idPartners);
+            return null;
+        });
+    }
+
+    /**
+     * @return partner of an active purchase held in the tenant's cache, null if the cache isn't loaded or
+     * doesn't hold the purchase
+     */
+    public Long partnerOfPurchase(String dbName, Long idPackagePurchase) {
+        AllCache cache = caches.get(dbName);
+        return cache == null || idPackagePurchase == null
+                ? null
+                : cache.getPackageAccounts().partnerOfPurchase(idPackagePurchase);
+    }
+
+    @PreDestroy
+    public void close() {
+        // stops the expiry timer of every selection
+        caches.values().forEach(AllCache::close);
+        caches.clear();
+    }
+}
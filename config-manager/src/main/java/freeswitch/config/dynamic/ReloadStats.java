@@ -0,0 +1,263 @@
+package freeswitch.config.dynamic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telcobright.rtc.domainmodel.nonentity.RateTable;
+import freeswitch.dto.ReloadReport;
+import freeswitch.dto.StageStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-stage timing and sizes of the last reloads, kept in memory for the {@code /reload/stats} endpoint.
+ *
+ * A reload opens a {@link Recorder}; every tenant context built for it runs inside
+ * {@link Recorder#inTenant(String, Supplier)}, which binds the recorder to the building thread so the loader
+ * calls of the context can report through the static {@link #time(String, Supplier)} without the recorder being
+ * threaded through DataLoader. Outside of a bound reload {@code time} only runs the work.
+ *
+ * Rows count the entries of the built map (elements of list values and rows of rate tables included). Bytes are the
+ * JSON encoded size of up to {@link #BYTE_SAMPLE} entries extrapolated to the whole map, an estimate of what the map
+ * costs on the wire rather than on the heap.
+ *
+ * Every stage is also exported to Micrometer, tagged with its stage and tenant ({@code none} for stages outside a
+ * tenant): a {@value #STAGE_TIMER} timer and {@value #STAGE_ROWS} and {@value #STAGE_BYTES} counters, plus a
+ * {@value #RELOAD_TIMER} timer per reload tagged with its kind and outcome. The meters go to the application's
+ * MeterRegistry when there is one, to Micrometer's global registry otherwise.
+ */
+@Component
+public class ReloadStats {
+
+    public static final String TENANT_CONTEXT = "tenant-context";
+    public static final String REGISTRY = "registry";
+
+    public static final String STAGE_TIMER = "config.reload.stage";
+    public static final String STAGE_ROWS = "config.reload.stage.rows";
+    public static final String STAGE_BYTES = "config.reload.stage.bytes";
+    public static final String RELOAD_TIMER = "config.reload";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReloadStats.class);
+    private static final String NO_TENANT = "none";
+
+    private static final int BYTE_SAMPLE = 32;
+    private static final ThreadLocal<Binding> CURRENT = new ThreadLocal<>();
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int retained;
+    // newest first, guarded by this
+    private final Deque<ReloadReport> reports = new ArrayDeque<>();
+
+    @Autowired
+    public ReloadStats(ObjectMapper objectMapper, ObjectProvider<MeterRegistry> meterRegistry,
+                       @Value("${config.reload.stats-retained:20}") int retained) {
+        this(objectMapper, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), retained);
+    }
+
+    ReloadStats(ObjectMapper objectMapper, MeterRegistry meterRegistry, int retained) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.retained = Math.max(1, retained);
+    }
+
+    public Recorder start(String kind, long version) {
+        return new Recorder(kind, version);
+    }
+
+    /**
+     * @return up to {@code limit} of the retained reports, newest first
+     */
+    public synchronized List<ReloadReport> recent(int limit) {
+        return reports.stream().limit(Math.max(0, limit)).toList();
+    }
+
+    /**
+     * Runs one stage of the tenant context being built on this thread and records its duration and result size.
+     */
+    public static <T> T time(String stage, Supplier<T> work) {
+        Binding binding = CURRENT.get();
+        if (binding == null) return work.get();
+        long startedAt = System.nanoTime();
+        T result = work.get();
+        binding.record(stage, System.nanoTime() - startedAt, result);
+        return result;
+    }
+
+    private synchronized void retain(ReloadReport report) {
+        reports.addFirst(report);
+        while (reports.size() > retained) reports.removeLast();
+    }
+
+    private void export(StageStats stage, long nanos) {
+        String tenant = stage.getDbName() == null ? NO_TENANT : stage.getDbName();
+        Timer.builder(STAGE_TIMER)
+                .tags("stage", stage.getStage(), "tenant", tenant)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder(STAGE_ROWS)
+                .tags("stage", stage.getStage(), "tenant", tenant)
+                .register(meterRegistry)
+                .increment(stage.getRows());
+        if (stage.getBytesEstimate() > 0) {
+            Counter.builder(STAGE_BYTES)
+                    .tags("stage", stage.getStage(), "tenant", tenant)
+                    .register(meterRegistry)
+                    .increment(stage.getBytesEstimate());
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    private static long rows(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            long rows = 0;
+            for (Object entry : map.values()) rows += entry instanceof Collection<?> || entry instanceof RateTable ? rows(entry) : 1;
+            return rows;
+        }
+        if (value instanceof Collection<?> collection) return collection.size();
+        if (value instanceof RateTable table) return table.size();
+        return value == null ? 0 : 1;
+    }
+
+    private long bytesEstimate(Object value) {
+        Collection<?> entries = value instanceof Map<?, ?> map ? map.values()
+                : value instanceof Collection<?> collection ? collection : null;
+        if (entries == null || entries.isEmpty()) return 0;
+        CountingStream counter = new CountingStream();
+        int sampled = 0;
+        try {
+            for (Object entry : entries) {
+                if (sampled == BYTE_SAMPLE) break;
+                objectMapper.writeValue(counter, entry);
+                sampled++;
+            }
+        } catch (Exception e) {
+            return -1;
+        }
+        return counter.count * entries.size() / sampled;
+    }
+
+    /**
+     * Stages of one reload, filled concurrently by the tenant builders.
+     */
+    public final class Recorder {
+        private final String kind;
+        private final long version;
+        private final long startedAt = System.currentTimeMillis();
+        private final long startedNanos = System.nanoTime();
+        private final Queue<StageStats> stages = new ConcurrentLinkedQueue<>();
+
+        private Recorder(String kind, long version) {
+            this.kind = kind;
+            this.version = version;
+        }
+
+        /**
+         * Builds a tenant context with its loader stages recorded against {@code dbName}, then records the whole
+         * build as a {@link #TENANT_CONTEXT} stage with the rows and bytes of all of them.
+         */
+        public <T> T inTenant(String dbName, Supplier<T> build) {
+            Binding previous = CURRENT.get();
+            Binding binding = new Binding(this, dbName);
+            CURRENT.set(binding);
+            long startedAt = System.nanoTime();
+            try {
+                T context = build.get();
+                long nanos = System.nanoTime() - startedAt;
+                add(new StageStats(TENANT_CONTEXT, dbName, millis(nanos), binding.rows, binding.bytes), nanos);
+                return context;
+            } finally {
+                if (previous == null) CURRENT.remove();
+                else CURRENT.set(previous);
+            }
+        }
+
+        /**
+         * Records a stage that does not build a map, such as the registry swap.
+         */
+        public void run(String dbName, String stage, Runnable work) {
+            long startedAt = System.nanoTime();
+            work.run();
+            long nanos = System.nanoTime() - startedAt;
+            add(new StageStats(stage, dbName, millis(nanos), 0, 0), nanos);
+        }
+
+        /**
+         * Closes the reload and retains its report. Stages of a failed reload are kept as far as they got.
+         */
+        public ReloadReport finish(boolean failed) {
+            List<StageStats> recorded = new ArrayList<>(stages);
+            Map<String, Double> totals = new HashMap<>();
+            recorded.forEach(stage -> totals.merge(stage.getStage(), stage.getDurationMs(), Double::sum));
+            Map<String, Double> slowestFirst = new LinkedHashMap<>();
+            totals.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                    .forEach(total -> slowestFirst.put(total.getKey(), total.getValue()));
+
+            long nanos = System.nanoTime() - startedNanos;
+            ReloadReport report = new ReloadReport(version, kind, startedAt, millis(nanos), failed, recorded, slowestFirst);
+            retain(report);
+            Timer.builder(RELOAD_TIMER)
+                    .tags("kind", kind, "outcome", failed ? "failed" : "success")
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            logger.debug("Reload {} ({}{}) took {} ms over {} stages", version, kind, failed ? ", failed" : "",
+                    Math.round(report.getDurationMs()), recorded.size());
+            return report;
+        }
+
+        private void add(StageStats stage, long nanos) {
+            stages.add(stage);
+            export(stage, nanos);
+        }
+    }
+
+    private final class Binding {
+        private final Recorder recorder;
+        private final String dbName;
+        private long rows;
+        private long bytes;
+
+        private Binding(Recorder recorder, String dbName) {
+            this.recorder = recorder;
+            this.dbName = dbName;
+        }
+
+        private void record(String stage, long nanos, Object result) {
+            long stageRows = rows(result);
+            long stageBytes = bytesEstimate(result);
+            rows += stageRows;
+            if (stageBytes > 0) bytes += stageBytes;
+            recorder.add(new StageStats(stage, dbName, millis(nanos), stageRows, stageBytes), nanos);
+        }
+    }
+
+    private static final class CountingStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package freeswitch.config.dynamic;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.telcobright.rtc.domainmodel.nonentity.Tenant;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the tenant tree as a versioned binary snapshot for routesphere startup.
+ *
+ * Layout, optionally gzip compressed as a whole:
+ * <pre>
+ * Smile header value : {"format":"tenant-snapshot","formatVersion":1,"version":N,"createdAt":millis,"tenantCount":K}
+ * K tenant values    : {"dbName":..,"parent":..,"context":{ DynamicContext fields }}, parents before children
+ * </pre>
+ * Every tenant is a separate root value written straight to the output, so neither side ever holds
+ * the encoded tree in memory. The context fields are the same as in the /get-tenant-root JSON.
+ */
+@Component
+public class TenantSnapshotWriter {
+    public static final String FORMAT = "tenant-snapshot";
+    public static final int FORMAT_VERSION = 1;
+    public static final String CONTENT_TYPE = "application/x-jackson-smile";
+
+    private final ObjectMapper smileMapper;
+
+    public TenantSnapshotWriter(ObjectMapper objectMapper) {
+        // same modules and settings as the JSON endpoints, binary encoding
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+    }
+
+    public void write(Tenant root, long version, boolean gzip, OutputStream out) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        try (JsonGenerator generator = smileMapper.getFactory().createGenerator(target)) {
+            generator.writeStartObject();
+            generator.writeStringField("format", FORMAT);
+            generator.writeNumberField("formatVersion", FORMAT_VERSION);
+            generator.writeNumberField("version", version);
+            generator.writeNumberField("createdAt", System.currentTimeMillis());
+            generator.writeNumberField("tenantCount", countTenants(root));
+            generator.writeEndObject();
+
+            Deque<Tenant> pending = new ArrayDeque<>();
+            if (root != null) pending.add(root);
+            while (!pending.isEmpty()) {
+                Tenant tenant = pending.poll();
+                generator.writeStartObject();
+                generator.writeStringField("dbName", tenant.getDbName());
+                generator.writeStringField("parent", tenant.getParent());
+                generator.writeFieldName("context");
+                smileMapper.writeValue(generator, tenant.getContext());
+                generator.writeEndObject();
+                if (tenant.getChildren() != null) pending.addAll(tenant.getChildren().values());
+            }
+        } // closing the generator finishes the gzip stream as well
+    }
+
+    private int countTenants(Tenant tenant) {
+        if (tenant == null) return 0;
+        int count = 1;
+        if (tenant.getChildren() != null) {
+            for (Tenant child : tenant.getChildren().values()) count += countTenants(child);
+        }
+        return count;
+    }
+}
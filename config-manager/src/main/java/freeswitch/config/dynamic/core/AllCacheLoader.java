@@ -1,75 +1,68 @@
 package freeswitch.config.dynamic.core;
 
-import com.telcobright.rtc.domainmodel.mysqlentity.PackageAccount;
 import com.telcobright.rtc.domainmodel.mysqlentity.PackagePurchase;
 import freeswitch.repository.mysqlrepository.PackagePurchaseRepository;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class AllCacheLoader {
     private final PackagePurchaseRepository packagePurchaseRepository;
-    private final Map<Long, List<PackageAccount>> partnerIdWisePackageAccounts = new HashMap<>();
+    // drops expired purchases from the selections it loaded, one timer per selection at its next expiry
+    private final ScheduledExecutorService expiryTimer =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("package-expiry").daemon().factory());
 
     public AllCacheLoader(PackagePurchaseRepository packagePurchaseRepository) {
         this.packagePurchaseRepository = packagePurchaseRepository;
     }
 
-    public Map<Long, List<PackageAccount>> loadPartnerIdWisePackageAccounts() {
-        List<PackagePurchase> purchases = packagePurchaseRepository.findPkgPurchase();
-        return buildPartnerAccountMap(purchases);
+    @PreDestroy
+    public void shutdown() {
+        expiryTimer.shutdownNow();
     }
 
-    private Comparator<PackagePurchase> comparePurchases() {
-        return (p1, p2) -> {
-            // --- Compare onSelectPriority ---
-            int prio1;
-            if (p1.getOnSelectPriority() != null && p1.getOnSelectPriority() > 0) {
-                prio1 = p1.getOnSelectPriority();
-            } else {
-                prio1 = Integer.MAX_VALUE;
-            }
-
-            int prio2;
-            if (p2.getOnSelectPriority() != null && p2.getOnSelectPriority() > 0) {
-                prio2 = p2.getOnSelectPriority();
-            } else {
-                prio2 = Integer.MAX_VALUE;
-            }
-
-            if (prio1 != prio2) {
-                return Integer.compare(prio1, prio2);
-            }
-
-            // --- Compare expireDate ---
-            if (!p1.getExpireDate().equals(p2.getExpireDate())) {
-                return p1.getExpireDate().compareTo(p2.getExpireDate());
-            }
-
-            // --- Compare purchaseDate (descending) ---
-            return p2.getPurchaseDate().compareTo(p1.getPurchaseDate());
-        };
+    /**
+     * Loads the active purchases of the current database into a selection that drops them when they expire.
+     */
+    public PackageAccountSelection loadPackageAccountSelection() {
+        List<PackagePurchase> purchases = packagePurchaseRepository.findPkgPurchase(LocalDateTime.now());
+        PackageAccountSelection selection = PackageAccountSelection.of(purchases);
+        scheduleExpiry(selection);
+        return selection;
     }
 
-    public Map<Long, List<PackageAccount>> buildPartnerAccountMap(List<PackagePurchase> purchases) {
-        LocalDateTime now = LocalDateTime.now();
-        Map<Long, List<PackageAccount>> partnerIdVsPackageAccountsMapCache = purchases.stream()
-                .filter(p -> p.getExpireDate().isAfter(now))
-                .sorted(comparePurchases())
-                .flatMap(purchase -> purchase.getPackageAccounts().stream()
-                        .map(account -> new AbstractMap.SimpleEntry<>(purchase.getIdPartner(), account)))
-                .collect(Collectors.groupingBy(
-                        Map.Entry::getKey,
-                        LinkedHashMap::new,
-                        Collectors.mapping(Map.Entry::getValue, Collectors.toList())
-                ));
-        return partnerIdVsPackageAccountsMapCache;
+    /**
+     * Reloads the active purchases of the given partners from the current database into {@code selection},
+     * leaving every other partner as it is.
+     */
+    public void refreshPartners(PackageAccountSelection selection, Set<Long> idPartners) {
+        if (idPartners.isEmpty()) return;
+        List<PackagePurchase> purchases = packagePurchaseRepository.findPkgPurchaseOfPartners(idPartners, LocalDateTime.now());
+        selection.replacePartners(idPartners, purchases);
+        // a refreshed purchase may expire before the one the timer is set for
+        scheduleExpiry(selection);
     }
 
-    public Map<Long, List<PackageAccount>> getPartnerIdWisePackageAccounts() {
-        return partnerIdWisePackageAccounts;
+    private void scheduleExpiry(PackageAccountSelection selection) {
+        LocalDateTime next = selection.nextExpiry();
+        if (next == null || selection.isClosed() || expiryTimer.isShutdown()) return;
+        long delayMs = Math.max(0, Duration.between(LocalDateTime.now(), next).toMillis());
+        selection.setExpiryTask(expiryTimer.schedule(() -> {
+            try {
+                if (selection.expire(LocalDateTime.now())) {
+                    System.out.println("Dropped expired package purchases, next expiry at " + selection.nextExpiry());
+                }
+            } catch (Exception e) {
+                System.err.println("Package purchase expiry failed: " + e.getMessage());
+            }
+            scheduleExpiry(selection);
+        }, delayMs, TimeUnit.MILLISECONDS));
     }
 }
@@ -16,7 +16,9 @@ public class ConfigurationReloader {
         this.configManager = configManager;
     }
 
-    @Scheduled(cron = "0 0 0 * * *")//reloads at 12:00am everyday
+    // Off by default ("-"): rates and rate plan assignments are published with their validity intervals and
+    // picked by the consumer at call time, so neither needs the daily 00:00 full reload
+    @Scheduled(cron = "${config.reload.full-reload-cron:-}")
     public void reloadConfigurations() {
         System.out.println("🔥 [SCHEDULED] Reloading configurations at: " + LocalDateTime.now());
         configManager.loadConfigurations(); // call your actual reload method
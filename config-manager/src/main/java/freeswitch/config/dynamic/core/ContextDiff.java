@@ -0,0 +1,67 @@
+package freeswitch.config.dynamic.core;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.Partner;
+import com.telcobright.rtc.domainmodel.nonentity.DynamicContext;
+import freeswitch.dto.ContextDelta;
+import freeswitch.dto.MapDelta;
+
+import java.util.*;
+
+/**
+ * Computes the entries that changed between two versions of a tenant's context.
+ * Entities compare by value, so a reloaded map only contributes the rows that really changed.
+ */
+public final class ContextDiff {
+
+    private ContextDiff() {
+    }
+
+    /**
+     * @return the changes of the given maps from {@code before} to {@code after}, maps without changes are left out
+     */
+    public static ContextDelta diff(String dbName, DynamicContext before, DynamicContext after,
+                                    Set<ContextMap> maps, long version) {
+        List<MapDelta> mapDeltas = new ArrayList<>();
+        for (ContextMap map : maps) {
+            Object beforeValue = map.valueOf(before);
+            Object afterValue = map.valueOf(after);
+            if (map.holdsPartnerReferences()) {
+                // diff what goes over the wire: a changed partner is shipped once in the partners map,
+                // an index entry only changes when it points at another partner
+                beforeValue = partnerIds(beforeValue);
+                afterValue = partnerIds(afterValue);
+            }
+            MapDelta mapDelta = diff(map, beforeValue, afterValue);
+            if (mapDelta != null) mapDeltas.add(mapDelta);
+        }
+        return new ContextDelta(version, dbName, mapDeltas);
+    }
+
+    private static Map<Object, Integer> partnerIds(Object partnerMap) {
+        if (!(partnerMap instanceof Map<?, ?> map)) return null;
+        Map<Object, Integer> ids = new HashMap<>();
+        map.forEach((key, partner) -> ids.put(key, partner instanceof Partner p ? p.getIdPartner() : null));
+        return ids;
+    }
+
+    private static MapDelta diff(ContextMap map, Object before, Object after) {
+        if (after instanceof Map<?, ?> afterMap) {
+            Map<?, ?> beforeMap = before instanceof Map<?, ?> m ? m : Collections.emptyMap();
+            Map<Object, Object> upserts = new LinkedHashMap<>();
+            afterMap.forEach((key, value) -> {
+                if (!beforeMap.containsKey(key) || !Objects.equals(beforeMap.get(key), value)) {
+                    upserts.put(key, value);
+                }
+            });
+            List<Object> deletes = new ArrayList<>();
+            beforeMap.keySet().forEach(key -> {
+                if (!afterMap.containsKey(key)) deletes.add(key);
+            });
+            if (upserts.isEmpty() && deletes.isEmpty()) return null;
+            return new MapDelta(map.getPropertyName(), upserts, deletes, null);
+        }
+        // lists can't be patched by key, ship them whole when they changed
+        if (Objects.equals(before, after)) return null;
+        return new MapDelta(map.getPropertyName(), null, null, after);
+    }
+}
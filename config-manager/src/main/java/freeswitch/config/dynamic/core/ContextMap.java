@@ -0,0 +1,135 @@
+package freeswitch.config.dynamic.core;
+
+import com.telcobright.rtc.domainmodel.nonentity.DynamicContext;
+
+import java.util.*;
+
+/**
+ * Dependency map between the maps held by a {@link DynamicContext}
+ * and the MySQL tables they are built from. A CDC event on one table only needs to
+ * rebuild the maps listed against it; every other map of the tenant is carried over as is.
+ *
+ * Maps that hold {@link com.telcobright.rtc.domainmodel.mysqlentity.Partner} instances list the whole
+ * partner graph (partner, prefixes, routes, did assignments) so that they are always rebuilt together
+ * and never point at partner instances from different loads.
+ */
+public enum ContextMap {
+    CALL_SOURCES("callSourceMap", "call_src", "dialplan_prefix", "dialplan_mapping"),
+    PARTNERS("partners", "partner", "partnerprefix", "route", "did_assignment"),
+    PARTNER_WISE_DID_NUMBERS("partnerWiseDidNumbers", "did_assignment"),
+    DPP_WISE_DIALPLAN_MAPPING("dppWiseDialplanMapping", "dialplan_mapping"),
+    PREFIX_WISE_DIALPLAN_PREFIXES("prefixWiseDialplanPrefixes", "dialplan_prefix", "dialplan_mapping"),
+    RPARTNER_VS_DID_ASSIGNMENTS("rPartnerVsDidAssignments", "didassignment_retailpartner_mapping", "retailpartner", "did_assignment", "partner"),
+    PREFIX_WISE_PARTNERS("prefixWisePartners", "partner", "partnerprefix", "route", "did_assignment"),
+    ROUTE_WISE_PARTNERS("routeWisePartners", "partner", "partnerprefix", "route", "did_assignment"),
+    CALLER_ID_WISE_PARTNERS("callerIdWisePartners", "partner", "partnerprefix", "route", "did_assignment"),
+    PREFIX_VS_PARTNERS("prefixVsPartners", "partner", "partnerprefix", "route", "did_assignment"),
+    SIP_ACCOUNT_WISE_PARTNERS("sipAccountWisePartners", "retailpartner", "partner", "partnerprefix", "route", "did_assignment"),
+    PREFIX_WISE_PARTNER_PREFIXES("prefixWisePartnerPrefixes", "partnerprefix"),
+    ID_VS_DIALPLAN("idVsDialplan", "dialplan", "dialplanroute"),
+    RATE_ASSIGNS_CUSTOMER("rateAssignsCustomer", "rateassign", "rateplan", "rateplanassignmenttuple"),
+    RATE_ASSIGNS_SUPPLIER("rateAssignsSupplier", "rateassign", "rateplan", "rateplanassignmenttuple"),
+    PARTNER_WISE_RATE_PLANS("partnerWiseRatePlans", "rateassign", "rateplan", "rateplanassignmenttuple"),
+    RATE_PLANS("ratePlans", "rateplan", "timezone", "uom"),
+    RATE_PLAN_WISE_TODAYS_RATES("ratePlanWiseTodaysRates", "rate", "rateassign", "rateplan", "rateplanassignmenttuple"),
+    DID_NUMB_VS_PARTNERS("didNumbVsPartners", "did_assignment", "partner", "partnerprefix", "route"),
+    DID_NUM_VS_RPARTNERS("didNumVsRpartners", "did_assignment", "retailpartner", "partner"),
+    PARTNER_VS_ROUTES("partnerVsRoutes", "route", "route_metadata"),
+    CAMPAIGNS("campaigns", "campaign", "policy", "retry_cause_code", "retry_interval", "time_band"),
+    SMS_QUEUE("smsQueue", "smsqueue"),
+    ENUM_JOB_STATUS("enumJobStatus", "enumjobstatus");
+
+    private static final Map<String, Set<ContextMap>> TABLE_WISE_MAPS = new HashMap<>();
+
+    static {
+        for (ContextMap map : values()) {
+            for (String table : map.sourceTables) {
+                TABLE_WISE_MAPS.computeIfAbsent(table, k -> EnumSet.noneOf(ContextMap.class)).add(map);
+            }
+        }
+    }
+
+    private static final Set<ContextMap> PARTNER_REFERENCES = EnumSet.of(PREFIX_WISE_PARTNERS, ROUTE_WISE_PARTNERS,
+            CALLER_ID_WISE_PARTNERS, PREFIX_VS_PARTNERS, SIP_ACCOUNT_WISE_PARTNERS, DID_NUMB_VS_PARTNERS);
+
+    private final String propertyName;
+    private final Set<String> sourceTables;
+
+    ContextMap(String propertyName, String... sourceTables) {
+        this.propertyName = propertyName;
+        this.sourceTables = Set.of(sourceTables);
+    }
+
+    /**
+     * @return name of the map in DynamicContext, also its name in deltas and map versions
+     */
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * @return true for index maps whose values are partners of the PARTNERS map; they go over the wire
+     * as idPartner references and consumers resolve them against their own partners map
+     */
+    public boolean holdsPartnerReferences() {
+        return PARTNER_REFERENCES.contains(this);
+    }
+
+    /**
+     * @return this map (or list) of the given context
+     */
+    public Object valueOf(DynamicContext context) {
+        return switch (this) {
+            case CALL_SOURCES -> context.getCallSourceMap();
+            case PARTNERS -> context.getPartners();
+            case PARTNER_WISE_DID_NUMBERS -> context.getPartnerWiseDidNumbers();
+            case DPP_WISE_DIALPLAN_MAPPING -> context.getDppWiseDialplanMapping();
+            case PREFIX_WISE_DIALPLAN_PREFIXES -> context.getPrefixWiseDialplanPrefixes();
+            case RPARTNER_VS_DID_ASSIGNMENTS -> context.getRPartnerVsDidAssignments();
+            case PREFIX_WISE_PARTNERS -> context.getPrefixWisePartners();
+            case ROUTE_WISE_PARTNERS -> context.getRouteWisePartners();
+            case CALLER_ID_WISE_PARTNERS -> context.getCallerIdWisePartners();
+            case PREFIX_VS_PARTNERS -> context.getPrefixVsPartners();
+            case SIP_ACCOUNT_WISE_PARTNERS -> context.getSipAccountWisePartners();
+            case PREFIX_WISE_PARTNER_PREFIXES -> context.getPrefixWisePartnerPrefixes();
+            case ID_VS_DIALPLAN -> context.getIdVsDialplan();
+            case RATE_ASSIGNS_CUSTOMER -> context.getRateAssignsCustomer();
+            case RATE_ASSIGNS_SUPPLIER -> context.getRateAssignsSupplier();
+            case PARTNER_WISE_RATE_PLANS -> context.getPartnerWiseRatePlans();
+            case RATE_PLANS -> context.getRatePlans();
+            case RATE_PLAN_WISE_TODAYS_RATES -> context.getRatePlanWiseTodaysRates();
+            case DID_NUMB_VS_PARTNERS -> context.getDidNumbVsPartners();
+            case DID_NUM_VS_RPARTNERS -> context.getDidNumVsRpartners();
+            case PARTNER_VS_ROUTES -> context.getPartnerVsRoutes();
+            case CAMPAIGNS -> context.getCampaigns();
+            case SMS_QUEUE -> context.getSmsQueue();
+            case ENUM_JOB_STATUS -> context.getEnumJobStatus();
+        };
+    }
+
+    public Set<String> getSourceTables() {
+        return sourceTables;
+    }
+
+    /**
+     * @return true if at least one DynamicContext map is built from the given table
+     */
+    public static boolean isTracked(String tableName) {
+        return tableName != null && TABLE_WISE_MAPS.containsKey(tableName.toLowerCase());
+    }
+
+    /**
+     * @return the maps that have to be rebuilt after a change on the given table, empty if none
+     */
+    public static Set<ContextMap> affectedBy(String tableName) {
+        if (tableName == null) return EnumSet.noneOf(ContextMap.class);
+        Set<ContextMap> maps = TABLE_WISE_MAPS.get(tableName.toLowerCase());
+        return maps == null ? EnumSet.noneOf(ContextMap.class) : EnumSet.copyOf(maps);
+    }
+
+    public static Set<ContextMap> affectedBy(Collection<String> tableNames) {
+        Set<ContextMap> maps = EnumSet.noneOf(ContextMap.class);
+        tableNames.forEach(tableName -> maps.addAll(affectedBy(tableName)));
+        return maps;
+    }
+}
@@ -4,6 +4,9 @@ import com.telcobright.rtc.domainmodel.mysqlentity.*;
 import com.telcobright.rtc.domainmodel.mysqlentity.sms.Campaign;
 import com.telcobright.rtc.domainmodel.mysqlentity.sms.SmsQueue;
 import com.telcobright.rtc.domainmodel.nonentity.DynamicContext;
+import com.telcobright.rtc.domainmodel.nonentity.RateTable;
+import freeswitch.repository.mysqlrepository.DialplanPrefixRepository;
+import freeswitch.repository.mysqlrepository.DidAssignmentRepository;
 import freeswitch.repository.mysqlrepository.RPartnerDidAssignmentRepo;
 import freeswitch.repository.mysqlrepository.RetailPartnerRepository;
 import freeswitch.service.*;
@@ -12,6 +15,7 @@ import freeswitch.service.sms.CampaignService;
 import freeswitch.service.sms.EnumJobStatusService;
 import freeswitch.service.sms.TopicService;
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -41,6 +45,9 @@ public class DataLoader {
     private final RateAssignService rateAssignService;
     private final RatePlanService ratePlanService;
     private final RouteService routeService;
+    private final StreamingLoader streamingLoader;
+    private final DidAssignmentRepository didAssignmentRepository;
+    private final DialplanPrefixRepository dialplanPrefixRepository;
 
 
 
@@ -58,9 +65,7 @@ public class DataLoader {
     private HashMap<String, DialplanPrefix> prefixWiseDialplanPrefixes = new HashMap<>();
     private HashMap<Integer, Dialplan> idVsDialplan = new HashMap<>();
     private HashMap<String, List<DidAssignment>> rPartnerVsDidAssignments = new HashMap<>();
-    private HashMap<String,List<RatePlan>> partnerWiseRatePlans =  new HashMap<>();;
     private HashMap<Integer, RatePlan> ratePlans = new HashMap<>();
-    private HashMap<Integer, Map<String, Rate>> ratePlanWisetodaysRates = new HashMap<Integer, Map<String, Rate>>();
     private final PackagePurchaseService packagePurchaseService;
 
     //todo:sms-----------------------------------------
@@ -77,7 +82,9 @@ public class DataLoader {
                       RPartnerDidAssignmentRepo rPartnerDidAssignmentRepo,
                       CampaignService campaignService,
                       EnumJobStatusService enumJobStatusService,
-                      TopicService topicService, RateAssignService rateAssignService, RatePlanService ratePlanService, PackagePurchaseService packagePurchaseService, RateService rateService, RouteService routeService) {
+                      TopicService topicService, RateAssignService rateAssignService, RatePlanService ratePlanService, PackagePurchaseService packagePurchaseService, RateService rateService, RouteService routeService,
+                      StreamingLoader streamingLoader, DidAssignmentRepository didAssignmentRepository,
+                      DialplanPrefixRepository dialplanPrefixRepository) {
         this.callSrcService = callSrcService;
         this.partnerService = partnerService;
         this.partnerPrefixService = partnerPrefixService;
@@ -95,11 +102,17 @@ public class DataLoader {
         this.packagePurchaseService = packagePurchaseService;
         this.rateService = rateService;
         this.routeService = routeService;
+        this.streamingLoader = streamingLoader;
+        this.didAssignmentRepository = didAssignmentRepository;
+        this.dialplanPrefixRepository = dialplanPrefixRepository;
     }
 
+    // column positions of DidAssignmentRepository.streamDidNumberOwners rows
+    private static final int DID_NUMBER = 0, ID_PARTNER = 1, ID_RETAIL_PARTNER = 2;
+
 
     public HashMap<String, List<DidAssignment>> loadRPartnerVsDidAssignment(HashMap<String, List<DidAssignment>> newRPartnerVsDidAssignments) {
-        rPartnerDidAssignmentRepo.findAll().forEach(mapping -> {
+        streamingLoader.forEach(rPartnerDidAssignmentRepo::streamAllWithAssignments, mapping -> {
             newRPartnerVsDidAssignments
                     .computeIfAbsent(mapping.getRetailPartner().getUserName(), k -> new ArrayList<>())
                     .add(mapping.getDidAssignment());
@@ -108,7 +121,7 @@ public class DataLoader {
     }
 
     public HashMap<String, DialplanPrefix> loadPrefixVsDialplanPrefix(HashMap<String, DialplanPrefix> newPrefixWiseDialplanPrefixes) {
-        dialplanPrefixService.getDialplanPrefixEntities().forEach(dialplanPrefix ->
+        streamingLoader.forEach(dialplanPrefixRepository::streamAll, dialplanPrefix ->
                 newPrefixWiseDialplanPrefixes.put(dialplanPrefix.getPrefix(), dialplanPrefix));
 //        prefixWiseDialplanPrefixes = newPrefixWiseDialplanPrefixes;
         return newPrefixWiseDialplanPrefixes;
@@ -131,10 +144,10 @@ public class DataLoader {
     }
 
     public HashMap<Integer, List<String>> loadPartnerVsDidNumbers(HashMap<Integer, List<String>> newPartnerWiseDidNumbers) {
-        didAssignmentService.getDidAssignmentEntities().forEach(didAssignment ->
+        streamingLoader.forEach(didAssignmentRepository::streamDidNumberOwners, row ->
                 newPartnerWiseDidNumbers
-                        .computeIfAbsent(didAssignment.getIdPartner(), k -> new ArrayList<>())
-                        .add(didAssignment.getDidNumberId())
+                        .computeIfAbsent((Integer) row[ID_PARTNER], k -> new ArrayList<>())
+                        .add((String) row[DID_NUMBER])
         );
 //        partnerWiseDidNumbers = newPartnerWiseDidNumbers;
         return newPartnerWiseDidNumbers;
@@ -173,44 +186,55 @@ public class DataLoader {
         }
         return routeWisePartners;
     }
-    public HashMap<String, Partner> getCallerIdWisePartner() {
-        for(Integer key : partners.keySet()) {
-            Partner partner = partners.get(key);
-            Set<PartnerPrefix> partnerCallerIds = partner.getPartnerPrefixes();
-            partnerCallerIds.forEach(partnerCallerId -> {
-                if(partnerCallerId.getPrefixType().toString().equals("2"))
-                    callerIdWisePartners.put(partnerCallerId.getPrefix(), partner);
-            });
-        }
-        return callerIdWisePartners;
+    /**
+     * Partner prefixes of the current database in one query. The prefix keyed partner maps are assembled
+     * from these rows and the loaded partners instead of walking the lazy prefixes of every partner.
+     */
+    public List<PartnerPrefix> loadPartnerPrefixes() {
+        return partnerPrefixService.getPartnerPrefixEntities();
     }
-    public HashMap<String, Partner> getPrefixWisePartner1() {
-        for(Integer key : partners.keySet()) {
-            Partner partner = partners.get(key);
-            Set<PartnerPrefix> partnerCallerIds = partner.getPartnerPrefixes();
-            partnerCallerIds.forEach(partnerCallerId -> {
-                if(partnerCallerId.getPrefixType().toString().equals("1"))
-                    prefixVsPartners.put(partnerCallerId.getPrefix(), partner);
-            });
-        }
-        LinkedHashMap<String, Partner> prefixesSortedByLength = prefixVsPartners.entrySet()
-                .stream()
-                .sorted((entry1, entry2) -> Integer.compare(entry2.getKey().length(), entry1.getKey().length()))  // Compare key lengths in reverse order
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new  // Collect into LinkedHashMap to maintain order
-                ));
-        return prefixesSortedByLength;
+
+    public HashMap<String, Partner> getCallerIdWisePartner(Map<Integer, Partner> partners, List<PartnerPrefix> partnerPrefixes) {
+        // local result: tenant contexts are built concurrently on the same DataLoader
+        return prefixWisePartners(partners, partnerPrefixes, "2");
+    }
+    public HashMap<String, Partner> getPrefixWisePartner1(Map<Integer, Partner> partners, List<PartnerPrefix> partnerPrefixes) {
+        // no longest-first ordering needed, consumers resolve prefixes through a prefix trie built from this map
+        return prefixWisePartners(partners, partnerPrefixes, "1");
+    }
+
+    private HashMap<String, Partner> prefixWisePartners(Map<Integer, Partner> partners, List<PartnerPrefix> partnerPrefixes,
+                                                        String prefixType) {
+        HashMap<String, Partner> prefixWisePartners = new HashMap<>();
+        partnerPrefixes.forEach(partnerPrefix -> {
+            Partner partner = partners.get(partnerPrefix.getIdPartner());
+            if (partner != null && partnerPrefix.getPrefixType().toString().equals(prefixType))
+                prefixWisePartners.put(partnerPrefix.getPrefix(), partner);
+        });
+        return prefixWisePartners;
+    }
+
+    /**
+     * @return partners by the field5 of their routes, from one projection over the route table
+     */
+    public HashMap<String, Partner> getField5WisePartners(Map<Integer, Partner> partners) {
+        HashMap<String, Partner> field5WisePartners = new HashMap<>();
+        routeService.getField5WisePartnerIds().forEach((field5, idPartner) -> {
+            Partner partner = partners.get(idPartner);
+            if (partner != null) field5WisePartners.put(field5, partner);
+        });
+        return field5WisePartners;
     }
 
-    public HashMap<String, Partner> getSipAccountWisePartner() {
+    public HashMap<String, Partner> getSipAccountWisePartner(Map<Integer, Partner> partners) {
         List<RetailPartner> retailPartners = retailPartnerRepository.findAll();
-        sipAccountWisePartners = new HashMap<>();
+        HashMap<String, Partner> sipAccountWisePartners = new HashMap<>();
         retailPartners.forEach(retailPartner ->
         {
-            sipAccountWisePartners.put(retailPartner.getUserName(), retailPartner.getPartner());
+            // share the instance of the partners map, the context serializes this map by partner reference
+            Partner partner = retailPartner.getPartner();
+            sipAccountWisePartners.put(retailPartner.getUserName(),
+                    partner == null ? null : partners.getOrDefault(partner.getIdPartner(), partner));
         });
 
         return sipAccountWisePartners;
@@ -228,14 +252,15 @@ public class DataLoader {
                         RateAssign::getCountryCode,
                         HashMap::new,
                         Collectors.mapping(rateAssign -> {
-                            RatePlan ratePlan = rateAssign.getRatePlan();
-                            // Set the start and end dates from RateAssign to RatePlan
+                            // one copy per assignment, a plan assigned over several intervals keeps each of them;
+                            // the consumer picks the one valid at call time, see DynamicContext.ratePlanAt
+                            RatePlan ratePlan = new RatePlan();
+                            BeanUtils.copyProperties(rateAssign.getRatePlan(), ratePlan);
                             ratePlan.setStartDate(rateAssign.getStartDate());
                             ratePlan.setEndDate(rateAssign.getEndDate());
                             return ratePlan;
                         }, Collectors.toList())
                 ));
-        this.partnerWiseRatePlans = ratePlanByPartnerId;
         return ratePlanByPartnerId;
     }
 
@@ -243,18 +268,16 @@ public class DataLoader {
     public HashMap<Integer, RatePlan> getRatePlans() {
         return ratePlanService.getRatePlans();
     }
-    public HashMap<Integer, Map<String, Rate>> getRatePlanWiseTodaysRates() {
+    public HashMap<Integer, RateTable> getRatePlanWiseTodaysRates(Map<String, List<RatePlan>> partnerWiseRatePlans) {
         List<Long> ratePlanIds = new ArrayList<>();
-        this.partnerWiseRatePlans
+        partnerWiseRatePlans
                 .forEach((key, value) -> {
                     value.forEach(ratePlan -> {
                         ratePlanIds.add(ratePlan.getId().longValue());
                     });
                 });
-        HashMap<Integer, Map<String, Rate>> todaysRatesByRatePlanId = rateService.getRatesByRatePlanId(ratePlanIds.stream().distinct().toList(),
-                                                                                                LocalDateTime.now());
-        this.ratePlanWisetodaysRates = todaysRatesByRatePlanId;
-        return todaysRatesByRatePlanId;
+        return rateService.getRateTablesByRatePlanId(ratePlanIds.stream().distinct().toList(),
+                                                LocalDateTime.now());
     }
 
 
@@ -317,9 +340,10 @@ public class DataLoader {
     }
 
     public List<String> getDidNumbers() {
-        return didAssignmentService.getDidAssignmentEntities().stream()
-                .map(DidAssignment::getDidNumberId) // Extracts the didNumberId from each DidAssignment
-                .collect(Collectors.toList()); // Collects them into a List
+        List<String> didNumbers = new ArrayList<>();
+        streamingLoader.forEach(didAssignmentRepository::streamDidNumberOwners,
+                row -> didNumbers.add((String) row[DID_NUMBER]));
+        return didNumbers;
     }
 
     public Map<Integer, SmsQueue> getSmsQueue() {
@@ -360,29 +384,16 @@ public class DataLoader {
         return oldMap;
 }
 
-    public HashMap<String, Partner> getDidVsPartner() {
-        List<DidAssignment> listOfDidAssignment = didAssignmentService.getDidAssignments().getBody()
-                .stream()
-                .filter(didAssignment -> didAssignment.getIdRetailPartner()==null)
-                .toList();
-        return createDidVsPartnerMap(listOfDidAssignment,loadPartner());
-    }
-    private HashMap<String, Partner> createDidVsPartnerMap(List<DidAssignment>didAssignmentList, HashMap<Integer, Partner> partners) {
-        return didAssignmentList.stream()
-                .filter(didAssignment -> didAssignment.getIdPartner()!=null)
-                .filter(didAssignment -> partners.containsKey(didAssignment.getIdPartner()))
-                .collect(Collectors.toMap(
-                        DidAssignment::getDidNumberId,
-                        didAssignment -> partners.get(didAssignment.getIdPartner()),
-                        (existing,replacement)->existing,
-                        HashMap::new
-                ));
+    public HashMap<String, Partner> getDidVsPartner(Map<Integer, Partner> partners) {
+        HashMap<String, Partner> didVsPartner = new HashMap<>();
+        streamingLoader.forEach(didAssignmentRepository::streamDidNumberOwners, row -> {
+            if (row[ID_RETAIL_PARTNER] != null || row[ID_PARTNER] == null) return;
+            Partner partner = partners.get((Integer) row[ID_PARTNER]);
+            if (partner != null) didVsPartner.putIfAbsent((String) row[DID_NUMBER], partner);
+        });
+        return didVsPartner;
     }
     public HashMap<String, List<RetailPartner>> getDidVsRetailPartners() {
-        List<DidAssignment> listOfDidAssignment = didAssignmentService.getDidAssignments().getBody()
-                .stream()
-                .filter(didAssignment -> didAssignment.getIdRetailPartner()!=null)
-                .toList();
         Map<Integer, RetailPartner> retailPartnerMap = retailPartnerRepository.findAllEntities()
                 .stream()
                 .collect(Collectors.toMap(
@@ -393,10 +404,11 @@ public class DataLoader {
 
         HashMap<String, List<RetailPartner>> result = new HashMap<>();
 
-        listOfDidAssignment.forEach(didAssignment -> {
-            RetailPartner partner = retailPartnerMap.get(didAssignment.getIdRetailPartner());
-            if (partner != null && didAssignment.getDidNumberId() != null) {
-                result.computeIfAbsent(didAssignment.getDidNumberId(), k -> new ArrayList<>())
+        streamingLoader.forEach(didAssignmentRepository::streamDidNumberOwners, row -> {
+            if (row[ID_RETAIL_PARTNER] == null) return;
+            RetailPartner partner = retailPartnerMap.get((Integer) row[ID_RETAIL_PARTNER]);
+            if (partner != null && row[DID_NUMBER] != null) {
+                result.computeIfAbsent((String) row[DID_NUMBER], k -> new ArrayList<>())
                         .add(partner);
             }
         });
@@ -420,7 +432,11 @@ public class DataLoader {
      * Load DynamicContext for a specific database
      */
     public DynamicContext loadDynamicContext(String databaseName) {
+        return loadDynamicContext(databaseName, 0);
+    }
+
+    public DynamicContext loadDynamicContext(String databaseName, long version) {
         // DynamicContext constructor will call the necessary load methods
-        return new DynamicContext(this);
+        return new DynamicContext(this, null, EnumSet.allOf(ContextMap.class), version);
     }
 }
\ No newline at end of file
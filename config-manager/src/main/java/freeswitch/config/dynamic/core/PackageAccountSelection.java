@@ -0,0 +1,182 @@
+package freeswitch.config.dynamic.core;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.PackageAccount;
+import com.telcobright.rtc.domainmodel.mysqlentity.PackagePurchase;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Package accounts of every partner in the order they are drawn from: purchases by on-select priority (unset or
+ * non-positive last), then earliest expiry, then latest purchase, each purchase contributing its accounts in turn.
+ *
+ * The order is kept per partner in a sorted map under a key computed once per purchase, so a change re-sorts only
+ * the partners it touches: {@link #replacePartners} swaps in the current purchases of some partners and
+ * {@link #expire} drops the purchases that ran out, both republishing the account list of those partners only.
+ * Readers get an immutable list per partner from a concurrent map and never wait on an update.
+ */
+public final class PackageAccountSelection {
+
+    // purchases of each partner in selection order, guarded by this
+    private final Map<Long, TreeMap<SelectionKey, PackagePurchase>> partnerPurchases = new HashMap<>();
+    // partners with a purchase expiring at the key (epoch seconds), guarded by this. Entries of purchases replaced
+    // in the meantime stay until they fire and then find nothing to drop.
+    private final TreeMap<Long, Set<Long>> expiringPartners = new TreeMap<>();
+    // partner of every held purchase, guarded by this
+    private final Map<Long, Long> purchasePartners = new HashMap<>();
+    private final Map<Long, List<PackageAccount>> partnerAccounts = new ConcurrentHashMap<>();
+    private final Map<Long, List<PackageAccount>> partnerAccountsView = Collections.unmodifiableMap(partnerAccounts);
+
+    private ScheduledFuture<?> expiryTask;
+    private boolean closed;
+
+    public static PackageAccountSelection of(List<PackagePurchase> activePurchases) {
+        PackageAccountSelection selection = new PackageAccountSelection();
+        Set<Long> idPartners = new HashSet<>();
+        activePurchases.forEach(purchase -> idPartners.add(purchase.getIdPartner()));
+        selection.replacePartners(idPartners, activePurchases);
+        return selection;
+    }
+
+    /**
+     * @return accounts of each partner with an active purchase, in selection order
+     */
+    public Map<Long, List<PackageAccount>> getPartnerIdWisePackageAccounts() {
+        return partnerAccountsView;
+    }
+
+    /**
+     * Replaces everything held for {@code idPartners} with {@code activePurchases}, which must be all active
+     * purchases of those partners. Partners without any left are removed.
+     */
+    public synchronized void replacePartners(Set<Long> idPartners, List<PackagePurchase> activePurchases) {
+        for (Long idPartner : idPartners) {
+            TreeMap<SelectionKey, PackagePurchase> replaced = partnerPurchases.remove(idPartner);
+            if (replaced != null) replaced.values().forEach(purchase -> purchasePartners.remove(purchase.getId()));
+        }
+        for (PackagePurchase purchase : activePurchases) {
+            if (!idPartners.contains(purchase.getIdPartner())) continue;
+            SelectionKey key = new SelectionKey(purchase);
+            partnerPurchases.computeIfAbsent(purchase.getIdPartner(), id -> new TreeMap<>()).put(key, purchase);
+            purchasePartners.put(purchase.getId(), purchase.getIdPartner());
+            expiringPartners.computeIfAbsent(key.expiresAt, at -> new HashSet<>()).add(purchase.getIdPartner());
+        }
+        idPartners.forEach(this::publish);
+    }
+
+    /**
+     * Drops the purchases expired at {@code now}.
+     *
+     * @return whether any partner lost a purchase
+     */
+    public synchronized boolean expire(LocalDateTime now) {
+        long nowEpoch = epochSecond(now);
+        SortedMap<Long, Set<Long>> due = expiringPartners.headMap(nowEpoch, true);
+        Set<Long> idPartners = new HashSet<>();
+        due.values().forEach(idPartners::addAll);
+        due.clear();
+
+        boolean dropped = false;
+        for (Long idPartner : idPartners) {
+            TreeMap<SelectionKey, PackagePurchase> purchases = partnerPurchases.get(idPartner);
+            if (purchases == null || !purchases.entrySet().removeIf(entry -> expired(entry, nowEpoch))) continue;
+            if (purchases.isEmpty()) partnerPurchases.remove(idPartner);
+            publish(idPartner);
+            dropped = true;
+        }
+        return dropped;
+    }
+
+    private boolean expired(Map.Entry<SelectionKey, PackagePurchase> entry, long nowEpoch) {
+        if (entry.getKey().expiresAt > nowEpoch) return false;
+        purchasePartners.remove(entry.getValue().getId());
+        return true;
+    }
+
+    /**
+     * @return partner of the held purchase, null if the purchase isn't held (expired, inactive or not loaded yet)
+     */
+    public synchronized Long partnerOfPurchase(Long idPackagePurchase) {
+        return purchasePartners.get(idPackagePurchase);
+    }
+
+    /**
+     * @return when the next held purchase expires, null if none
+     */
+    public synchronized LocalDateTime nextExpiry() {
+        return expiringPartners.isEmpty()
+                ? null
+                : LocalDateTime.ofEpochSecond(expiringPartners.firstKey(), 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Stops the expiry timer, the held accounts stay readable.
+     */
+    public synchronized void close() {
+        closed = true;
+        if (expiryTask != null) expiryTask.cancel(false);
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Sets the task that fires at {@link #nextExpiry()}, cancelling the one it replaces.
+     */
+    synchronized void setExpiryTask(ScheduledFuture<?> task) {
+        if (expiryTask != null && expiryTask != task) expiryTask.cancel(false);
+        if (closed) {
+            task.cancel(false);
+        }
+        expiryTask = task;
+    }
+
+    private void publish(Long idPartner) {
+        TreeMap<SelectionKey, PackagePurchase> purchases = partnerPurchases.get(idPartner);
+        if (purchases == null) {
+            partnerAccounts.remove(idPartner);
+            return;
+        }
+        List<PackageAccount> accounts = new ArrayList<>();
+        purchases.values().forEach(purchase -> {
+            if (purchase.getPackageAccounts() != null) accounts.addAll(purchase.getPackageAccounts());
+        });
+        partnerAccounts.put(idPartner, List.copyOf(accounts));
+    }
+
+    // LocalDateTime columns compared as they are stored, the zone only has to be the same on both sides
+    static long epochSecond(LocalDateTime dateTime) {
+        return dateTime == null ? 0 : dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Sort key of a purchase, computed once when it is added instead of on every comparison.
+     */
+    private static final class SelectionKey implements Comparable<SelectionKey> {
+        private final int priority;
+        private final long expiresAt;
+        private final long purchasedAt;
+        private final long id;
+
+        private SelectionKey(PackagePurchase purchase) {
+            Integer onSelectPriority = purchase.getOnSelectPriority();
+            this.priority = onSelectPriority != null && onSelectPriority > 0 ? onSelectPriority : Integer.MAX_VALUE;
+            this.expiresAt = epochSecond(purchase.getExpireDate());
+            this.purchasedAt = epochSecond(purchase.getPurchaseDate());
+            this.id = purchase.getId() == null ? 0 : purchase.getId();
+        }
+
+        @Override
+        public int compareTo(SelectionKey other) {
+            if (priority != other.priority) return Integer.compare(priority, other.priority);
+            if (expiresAt != other.expiresAt) return Long.compare(expiresAt, other.expiresAt);
+            // latest purchase first
+            if (purchasedAt != other.purchasedAt) return Long.compare(other.purchasedAt, purchasedAt);
+            return Long.compare(id, other.id);
+        }
+    }
+}
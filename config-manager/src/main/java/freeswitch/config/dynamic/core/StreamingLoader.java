@@ -0,0 +1,66 @@
+package freeswitch.config.dynamic.core;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Feeds the rows of a streaming repository query to a map builder one at a time.
+ *
+ * The queries are declared with {@link #FETCH_SIZE} and read-only hints, and the tenant pools open their
+ * connections with {@code useCursorFetch=true}, so MySQL hands rows over in fetch-size chunks from a server
+ * side cursor instead of buffering the whole result in the driver. The persistence context is cleared every
+ * {@code clearEvery} rows: loaded entities end up in the map being built and nowhere else, so a reload peaks
+ * at about the size of the maps it builds rather than maps plus a full copy held by Hibernate.
+ */
+@Component
+public class StreamingLoader {
+
+    // fetch size hint of the streaming repository queries, must be a constant to be usable in annotations
+    public static final String FETCH_SIZE = "1000";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final int clearEvery;
+
+    public StreamingLoader(@Qualifier("mysqlTransactionManager") PlatformTransactionManager transactionManager,
+                           @Value("${config.reload.stream-clear-every:1000}") int clearEvery) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.clearEvery = Math.max(1, clearEvery);
+    }
+
+    /**
+     * Runs the query in a read-only transaction on the currently selected tenant database and hands
+     * every row to {@code rowHandler} while the result is still streaming.
+     *
+     * @return number of rows handled
+     */
+    public <T> long forEach(Supplier<Stream<T>> query, Consumer<? super T> rowHandler) {
+        Long rows = readOnlyTransaction.execute(status -> {
+            long count = 0;
+            try (Stream<T> stream = query.get()) {
+                Iterator<T> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    rowHandler.accept(iterator.next());
+                    if (++count % clearEvery == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+            return count;
+        });
+        return rows == null ? 0 : rows;
+    }
+}
@@ -1,34 +1,81 @@
 package freeswitch.config.dynamic.core;
 
 import freeswitch.config.dynamic.GlobalTenantRegistry;
+import freeswitch.config.dynamic.GlobalTenantRegistry.TenantEntries;
+import freeswitch.config.dynamic.ReloadStats;
 import com.telcobright.rtc.domainmodel.nonentity.Tenant;
 import com.telcobright.rtc.domainmodel.nonentity.DynamicContext;
 import freeswitch.service.database.DynamicDatabaseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
 public class TenantManager {
+    private static final Logger logger = LoggerFactory.getLogger(TenantManager.class);
+
     private final DynamicDatabaseService databaseService;
     private final DataLoader dataLoader;
     private final AllCacheLoader cacheLoader;
     private final GlobalTenantRegistry registry;
+    private final ExecutorService contextBuilder;
+    // bounds in-flight context builds, also when contextBuilder is an unbounded virtual-thread executor
+    private final Semaphore buildPermits;
+    private final int parallelism;
 
     public TenantManager(DynamicDatabaseService databaseService,
                          DataLoader dataLoader,
                          AllCacheLoader cacheLoader,
                          GlobalTenantRegistry globalTenantRegistry) {
+        this(databaseService, dataLoader, cacheLoader, globalTenantRegistry, 1, false);
+    }
+
+    public TenantManager(DynamicDatabaseService databaseService,
+                         DataLoader dataLoader,
+                         AllCacheLoader cacheLoader,
+                         GlobalTenantRegistry globalTenantRegistry,
+                         int parallelism,
+                         boolean virtualThreads) {
         this.databaseService = databaseService;
         this.dataLoader = dataLoader;
         this.cacheLoader = cacheLoader;
         this.registry = globalTenantRegistry;
+        int permits = Math.max(1, parallelism);
+        this.parallelism = permits;
+        this.buildPermits = new Semaphore(permits);
+        this.contextBuilder = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tenant-context-", 0).factory())
+                : Executors.newFixedThreadPool(permits, Thread.ofPlatform().name("tenant-context-", 0).daemon().factory());
     }
 
-    public Tenant buildTenantTree(String rootDbName) {
+    /**
+     * Builds the contexts of all tenants concurrently and links them into a tree, every map stamped with {@code version},
+     * and publishes a fresh {@link GlobalTenantRegistry} snapshot of all of them. Every tenant build is recorded in {@code stats}.
+     */
+    public Tenant buildTenantTree(String rootDbName, long version, ReloadStats.Recorder stats) {
+        long startedAt = System.currentTimeMillis();
+        List<String> databases = databaseService.getResellerDbs();
+
+        // register all target data sources up front, the routing data source is not safe to extend mid-build
+        databaseService.registerDatabase(rootDbName);
+        databases.forEach(databaseService::registerDatabase);
+
+        Map<String, CompletableFuture<DynamicContext>> contexts = new LinkedHashMap<>();
+        Map<String, Map<String, Integer>> retailPartnerUsernames = new ConcurrentHashMap<>();
+        contexts.put(rootDbName, buildAsync(rootDbName, () -> load(rootDbName, version, retailPartnerUsernames, stats)));
+        databases.forEach(db -> contexts.put(db, buildAsync(db, () -> load(db, version, retailPartnerUsernames, stats))));
+
         Tenant root = new Tenant(rootDbName);
-        root.setContext(createDynamicContext(rootDbName));
+        root.setContext(await(contexts.get(rootDbName)));
 
-        List<String> databases = databaseService.getResellerDbs();
-        Map<String, Tenant> tenantMap = new HashMap<>();
+        Map<String, Tenant> tenantMap = new LinkedHashMap<>();
         tenantMap.put(rootDbName, root);
 
         databases.stream()
@@ -36,7 +83,7 @@ public class TenantManager {
                 .forEach(db -> {
                     String[] parts = db.split("_");
                     Tenant tenant = new Tenant(db);
-                    tenant.setContext(createDynamicContext(db));
+                    tenant.setContext(await(contexts.get(db)));
 
                     if (parts.length == 2) {
                         root.addChild(db, tenant);
@@ -52,12 +99,75 @@ public class TenantManager {
                     tenantMap.put(db, tenant);
                 });
 
+        Map<String, TenantEntries> registryEntries = new LinkedHashMap<>();
+        tenantMap.forEach((db, tenant) ->
+                registryEntries.put(db, TenantEntries.of(tenant.getContext(), retailPartnerUsernames.get(db))));
+        stats.run(null, ReloadStats.REGISTRY, () -> registry.publish(registryEntries));
+
+        logger.info("Built tenant tree of {} tenants with {} parallel builders in {} ms",
+                databases.size() + 1, parallelism, System.currentTimeMillis() - startedAt);
         return root;
     }
 
-    private DynamicContext createDynamicContext(String dbName) {
-        // Switch to the target database and load the context data
-        databaseService.switchDatabase(dbName);
-        return dataLoader.loadDynamicContext(dbName);
+    /**
+     * Rebuilds only the given maps of a tenant's context from its database, reusing every other map
+     * of the current context. The caller is responsible for publishing the returned context.
+     */
+    public DynamicContext refreshDynamicContext(Tenant tenant, Set<ContextMap> staleMaps, long version,
+                                                ReloadStats.Recorder stats) {
+        return databaseService.runInDatabase(tenant.getDbName(), () -> stats.inTenant(tenant.getDbName(),
+                () -> new DynamicContext(dataLoader, tenant.getContext(), staleMaps, version)));
+    }
+
+    /**
+     * Swaps the registry entries of the given refreshed tenants into the {@link GlobalTenantRegistry}. Retail
+     * partners are read again only for tenants whose retailpartner table changed.
+     */
+    public void refreshRegistry(Map<String, Tenant> tenants, Map<String, Set<String>> dbWiseTables) {
+        Map<String, TenantEntries> changed = new LinkedHashMap<>();
+        tenants.forEach((db, tenant) -> {
+            TenantEntries previous = registry.tenantEntries(db);
+            Map<String, Integer> retailPartnerUsernames = previous != null
+                    && !dbWiseTables.getOrDefault(db, Set.of()).contains("retailpartner")
+                    ? previous.getRetailPartnerUsernames()
+                    : databaseService.runInDatabase(db, () -> TenantEntries.retailPartnerUsernames(dataLoader.getRetailPartners()));
+            changed.put(db, TenantEntries.of(tenant.getContext(), retailPartnerUsernames));
+        });
+        registry.publishTenants(changed);
+    }
+
+    public void shutdown() {
+        contextBuilder.shutdownNow();
+    }
+
+    private DynamicContext load(String dbName, long version, Map<String, Map<String, Integer>> retailPartnerUsernames,
+                                ReloadStats.Recorder stats) {
+        return stats.inTenant(dbName, () -> {
+            retailPartnerUsernames.put(dbName, TenantEntries.retailPartnerUsernames(
+                    ReloadStats.time("retailPartners", dataLoader::getRetailPartners)));
+            return dataLoader.loadDynamicContext(dbName, version);
+        });
+    }
+
+    private CompletableFuture<DynamicContext> buildAsync(String dbName, Supplier<DynamicContext> build) {
+        return CompletableFuture.supplyAsync(() -> {
+            buildPermits.acquireUninterruptibly();
+            try {
+                // the database is selected on the worker thread itself, never inherited from the caller
+                return databaseService.runInDatabase(dbName, build);
+            } finally {
+                buildPermits.release();
+            }
+        }, contextBuilder);
+    }
+
+    private DynamicContext await(CompletableFuture<DynamicContext> context) {
+        try {
+            return context.join();
+        } catch (CompletionException e) {
+            // keep the failure of the tenant itself, not the wrapper
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
     }
-}
\ No newline at end of file
+}
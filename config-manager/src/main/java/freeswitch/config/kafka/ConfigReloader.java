@@ -4,12 +4,14 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import freeswitch.config.AppConfig;
-import freeswitch.config.dynamic.ConfigManager;
+import freeswitch.config.dynamic.PackageAccountCaches;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 
@@ -17,14 +19,14 @@ import java.util.Set;
 public class ConfigReloader {
 
 
-    private final ConfigManager configManager;
-    private final ConfigUpdateNotifier configUpdateNotifier;
+    private final ReloadScheduler reloadScheduler;
     private final AppConfig appConfig;
+    private final PackageAccountCaches packageAccountCaches;
 
-    public ConfigReloader(ConfigManager configManager, ConfigUpdateNotifier configUpdateNotifier, AppConfig appConfig) {
-        this.configManager = configManager;
-        this.configUpdateNotifier = configUpdateNotifier;
+    public ConfigReloader(ReloadScheduler reloadScheduler, AppConfig appConfig, PackageAccountCaches packageAccountCaches) {
+        this.reloadScheduler = reloadScheduler;
         this.appConfig = appConfig;
+        this.packageAccountCaches = packageAccountCaches;
     }
 
 
@@ -32,43 +34,94 @@ public class ConfigReloader {
     public void listenDbChanges(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
 
         Set<String> excludedTables = appConfig.configReloadExclusionTables;
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
 
         try {
-            String tableName = getTableNameFromRecord(record);
+            String[] dbAndTable = getDbAndTableFromRecord(record);
+            String dbName = dbAndTable[0];
+            String tableName = dbAndTable[1];
             if(tableName.startsWith("sip_capture") ||
                     tableName.startsWith("rtcp_capture") ||
                     tableName.startsWith("report_capture") ||
-                    tableName.startsWith("logs_capture"))
+                    tableName.startsWith("logs_capture")) {
+                reloadScheduler.skip(partition, acknowledgment);
                 return;
+            }
+
+            if (PackageAccountCaches.SOURCE_TABLES.contains(tableName)) {
+                submitPackageChange(record, dbName, tableName, partition, acknowledgment);
+                return;
+            }
 
             if (tableName != null && !excludedTables.contains(tableName)) {
-                //System.out.println("Reloading configurations for table: " + tableName);
-                configManager.loadConfigurations();
-                configUpdateNotifier.publish();
+                //System.out.println("Reloading configurations for table: " + dbName + "." + tableName);
+                // coalesced with the rest of the burst, acknowledged once the covering reload is done
+                reloadScheduler.submit(dbName, tableName, partition, acknowledgment);
+                return;
             }
 
         } catch (Exception e) {
             e.printStackTrace(); // Use proper logging in production
         }
-        acknowledgment.acknowledge();
+        reloadScheduler.skip(partition, acknowledgment);
     }
 
-    private String getTableNameFromRecord(ConsumerRecord<String, String> record) throws JsonProcessingException {
-        String tableName = null;
+    /**
+     * @return {dbName, tableName} of the changed row, dbName may be null if the event doesn't carry it
+     */
+    private String[] getDbAndTableFromRecord(ConsumerRecord<String, String> record) throws JsonProcessingException {
         ObjectMapper objectMapper = new ObjectMapper();
         if (record.value() == null) {
-            // DELETE event: extract table from key
+            // DELETE event: extract db and table from key
             JsonNode keyNode = objectMapper.readTree(record.key());
             String fullIdentifier = keyNode.path("payload").path("__dbz__physicalTableIdentifier").asText();
-            tableName = extractTableName(fullIdentifier);
-            //System.out.println("DELETE event for table: " + tableName);
+            //System.out.println("DELETE event for table: " + fullIdentifier);
+            return new String[]{extractDbName(fullIdentifier), extractTableName(fullIdentifier)};
         } else {
-            // INSERT/UPDATE event: extract table from value
-            JsonNode valueNode = objectMapper.readTree(record.value());
-            tableName = valueNode.path("payload").path("source").path("table").asText();
+            // INSERT/UPDATE event: extract db and table from value
+            JsonNode sourceNode = objectMapper.readTree(record.value()).path("payload").path("source");
+            String dbName = sourceNode.path("db").asText(null);
+            String tableName = sourceNode.path("table").asText();
             //System.out.println("INSERT/UPDATE event for table: " + tableName);
+            return new String[]{dbName, tableName};
+        }
+    }
+
+    /**
+     * Refreshes the partners whose purchases the changed row belongs to, read from the row before and after the
+     * change so that a purchase moved between partners refreshes both.
+     */
+    private void submitPackageChange(ConsumerRecord<String, String> record, String dbName, String tableName,
+                                     TopicPartition partition, Acknowledgment acknowledgment) throws JsonProcessingException {
+        if (record.value() == null || dbName == null) {
+            // tombstone of a delete, the delete event before it carried the row
+            reloadScheduler.skip(partition, acknowledgment);
+            return;
         }
-        return tableName;
+        JsonNode payload = new ObjectMapper().readTree(record.value()).path("payload");
+        Set<Long> idPartners = new LinkedHashSet<>();
+        for (JsonNode row : new JsonNode[]{payload.path("before"), payload.path("after")}) {
+            Long idPartner = PackageAccountCaches.PACKAGE_PURCHASE.equals(tableName)
+                    ? longOrNull(row.path("id_Partner"))
+                    : packageAccountCaches.partnerOfPurchase(dbName, longOrNull(row.path("id_PackagePurchase")));
+            if (idPartner != null) idPartners.add(idPartner);
+        }
+        // an account of a purchase that isn't held is either inactive or new in this batch, where the
+        // purchase's own event refreshes its partner
+        if (idPartners.isEmpty()) {
+            reloadScheduler.skip(partition, acknowledgment);
+            return;
+        }
+        reloadScheduler.submitPackageChange(dbName, idPartners, partition, acknowledgment);
+    }
+
+    private static Long longOrNull(JsonNode node) {
+        return node.isNumber() ? node.asLong() : null;
+    }
+
+    private String extractDbName(String fullIdentifier) {
+        String[] parts = fullIdentifier.split("\\.");
+        return parts.length == 3 ? parts[1] : null;
     }
 
     private String extractTableName(String fullIdentifier) {
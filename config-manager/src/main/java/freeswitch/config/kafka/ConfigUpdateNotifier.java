@@ -23,7 +23,12 @@ public class ConfigUpdateNotifier {
         this.adminClient = adminClient;
     }
 
-    public void publish() {
+    /**
+     * Announces a new version of the tenant tree. The version is sent as the record key, so a consumer
+     * can fetch only the changes since the version it holds from /get-context-delta.
+     */
+    public void publish(long version) {
+        String key = String.valueOf(version);
         try {
             Set<String> existingTopics = adminClient.listTopics().names().get();
 
@@ -33,12 +38,12 @@ public class ConfigUpdateNotifier {
                 System.out.println("Topic created: " + TOPIC);
             }
 
-            System.out.println(MESSAGE);
-            kafkaTemplate.send(TOPIC, MESSAGE);
+            System.out.println(MESSAGE + " v" + key);
+            kafkaTemplate.send(TOPIC, key, MESSAGE);
 
         } catch (ExecutionException e) {
             if (e.getCause() instanceof TopicExistsException) {
-                kafkaTemplate.send(TOPIC, MESSAGE);
+                kafkaTemplate.send(TOPIC, key, MESSAGE);
             } else {
                 System.err.println("Failed to check or create topic");
                 e.printStackTrace();
@@ -0,0 +1,210 @@
+package freeswitch.config.kafka;
+
+import freeswitch.config.dynamic.ConfigManager;
+import freeswitch.config.dynamic.PackageAccountCaches;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces CDC events from all-mysql-changes into a few reloads.
+ *
+ * Events are collected per (database, table) until no new event arrived for {@code quietWindowMs}
+ * or the oldest pending event is {@code maxLatencyMs} old, whichever comes first. Every database in the
+ * batch is then rebuilt once through {@link ConfigManager#reloadTables(Map)}, routesphere is notified once,
+ * and the offsets of all records covered by the batch are acknowledged (latest record per partition).
+ * Package purchase changes are collected per (database, partner) in the same batch and refresh only
+ * those partners in {@link PackageAccountCaches}, without a reload or a notification.
+ *
+ * Flushes run on a single thread, so there is never more than one rebuild in flight per tenant.
+ */
+@Service
+public class ReloadScheduler {
+
+    private final ConfigManager configManager;
+    private final ConfigUpdateNotifier configUpdateNotifier;
+    private final PackageAccountCaches packageAccountCaches;
+    private final long quietWindowMs;
+    private final long maxLatencyMs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "config-reload-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // guarded by this
+    private final Map<String, Set<String>> pendingDbWiseTables = new LinkedHashMap<>();
+    private final Map<String, Set<Long>> pendingDbWisePartners = new LinkedHashMap<>();
+    private final Map<TopicPartition, Acknowledgment> pendingAcks = new HashMap<>();
+    private long firstPendingAt;
+    private long lastPendingAt;
+    private boolean flushScheduled;
+    private boolean flushing;
+
+    private final AtomicLong eventsReceived = new AtomicLong();
+    private final AtomicLong eventsCoalesced = new AtomicLong();
+    private final AtomicLong reloadsExecuted = new AtomicLong();
+    private final AtomicLong flushesExecuted = new AtomicLong();
+
+    public ReloadScheduler(ConfigManager configManager,
+                           ConfigUpdateNotifier configUpdateNotifier,
+                           PackageAccountCaches packageAccountCaches,
+                           @Value("${config.reload.quiet-window-ms:500}") long quietWindowMs,
+                           @Value("${config.reload.max-latency-ms:5000}") long maxLatencyMs) {
+        this.configManager = configManager;
+        this.configUpdateNotifier = configUpdateNotifier;
+        this.packageAccountCaches = packageAccountCaches;
+        this.quietWindowMs = quietWindowMs;
+        this.maxLatencyMs = Math.max(maxLatencyMs, quietWindowMs);
+    }
+
+    /**
+     * Registers a changed table. The acknowledgment is held back until the reload covering the change is done.
+     */
+    public synchronized void submit(String dbName, String tableName, TopicPartition partition, Acknowledgment acknowledgment) {
+        eventsReceived.incrementAndGet();
+        markPending();
+        if (!pendingDbWiseTables.computeIfAbsent(dbName, k -> new LinkedHashSet<>()).add(tableName)) {
+            eventsCoalesced.incrementAndGet();
+        }
+        acknowledgeLater(partition, acknowledgment);
+        scheduleFlush();
+    }
+
+    /**
+     * Registers a package purchase change of some partners, refreshed in the tenant's package account cache
+     * with the rest of the batch. The acknowledgment is held back like that of {@link #submit}.
+     */
+    public synchronized void submitPackageChange(String dbName, Set<Long> idPartners, TopicPartition partition,
+                                                 Acknowledgment acknowledgment) {
+        eventsReceived.incrementAndGet();
+        markPending();
+        if (!pendingDbWisePartners.computeIfAbsent(dbName, k -> new LinkedHashSet<>()).addAll(idPartners)) {
+            eventsCoalesced.incrementAndGet();
+        }
+        acknowledgeLater(partition, acknowledgment);
+        scheduleFlush();
+    }
+
+    private void markPending() {
+        long now = System.currentTimeMillis();
+        if (nothingPending()) firstPendingAt = now;
+        lastPendingAt = now;
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(this::flushIfDue, quietWindowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean nothingPending() {
+        return pendingDbWiseTables.isEmpty() && pendingDbWisePartners.isEmpty();
+    }
+
+    /**
+     * Holds back the acknowledgment of a record that needs no reload, so that it is not committed
+     * ahead of earlier records of the same partition that are still waiting for theirs.
+     */
+    public synchronized void skip(TopicPartition partition, Acknowledgment acknowledgment) {
+        if (nothingPending() && !flushing) {
+            acknowledgment.acknowledge();
+        } else {
+            acknowledgeLater(partition, acknowledgment);
+        }
+    }
+
+    private void acknowledgeLater(TopicPartition partition, Acknowledgment acknowledgment) {
+        // acknowledging the latest record of a partition commits every earlier one as well
+        if (acknowledgment != null) pendingAcks.put(partition, acknowledgment);
+    }
+
+    private void flushIfDue() {
+        Map<String, Set<String>> batch;
+        Map<String, Set<Long>> partnerBatch;
+        Collection<Acknowledgment> acks;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            long quietDeadline = lastPendingAt + quietWindowMs;
+            long latencyDeadline = firstPendingAt + maxLatencyMs;
+            if (now < quietDeadline && now < latencyDeadline) {
+                executor.schedule(this::flushIfDue, Math.min(quietDeadline, latencyDeadline) - now, TimeUnit.MILLISECONDS);
+                return;
+            }
+            batch = new LinkedHashMap<>(pendingDbWiseTables);
+            partnerBatch = new LinkedHashMap<>(pendingDbWisePartners);
+            acks = new ArrayList<>(pendingAcks.values());
+            pendingDbWiseTables.clear();
+            pendingDbWisePartners.clear();
+            pendingAcks.clear();
+            flushScheduled = false;
+            flushing = true;
+        }
+
+        try {
+            if (!batch.isEmpty()) {
+                reloadsExecuted.addAndGet(configManager.reloadTables(batch));
+                flushesExecuted.incrementAndGet();
+                configUpdateNotifier.publish(configManager.getVersion());
+            }
+        } catch (Exception e) {
+            e.printStackTrace(); // Use proper logging in production
+        }
+        partnerBatch.forEach((dbName, idPartners) -> {
+            try {
+                packageAccountCaches.refreshPartners(dbName, idPartners);
+            } catch (Exception e) {
+                e.printStackTrace(); // Use proper logging in production
+            }
+        });
+        acks.forEach(Acknowledgment::acknowledge);
+
+        synchronized (this) {
+            flushing = false;
+            // records skipped during the flush have no later flush to carry their acknowledgment
+            if (nothingPending()) {
+                pendingAcks.values().forEach(Acknowledgment::acknowledge);
+                pendingAcks.clear();
+            }
+        }
+    }
+
+    public long getEventsReceived() {
+        return eventsReceived.get();
+    }
+
+    public long getEventsCoalesced() {
+        return eventsCoalesced.get();
+    }
+
+    public long getReloadsExecuted() {
+        return reloadsExecuted.get();
+    }
+
+    public long getFlushesExecuted() {
+        return flushesExecuted.get();
+    }
+
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("eventsReceived", getEventsReceived());
+        counters.put("eventsCoalesced", getEventsCoalesced());
+        counters.put("reloadsExecuted", getReloadsExecuted());
+        counters.put("flushesExecuted", getFlushesExecuted());
+        return counters;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -2,22 +2,51 @@ package freeswitch.controller;
 
 
 import freeswitch.config.dynamic.ConfigManager;
+import freeswitch.config.dynamic.DidDirectory;
 import freeswitch.config.dynamic.GlobalTenantRegistry;
+import freeswitch.config.dynamic.PackageAccountCaches;
+import freeswitch.config.dynamic.TenantSnapshotWriter;
+import freeswitch.config.kafka.ReloadScheduler;
+import freeswitch.dto.DeltaResponse;
+import freeswitch.dto.DidOwner;
+import freeswitch.dto.PoolStats;
+import freeswitch.dto.ReloadReport;
+import freeswitch.service.database.DynamicDatabaseService;
+import com.telcobright.rtc.domainmodel.mysqlentity.PackageAccount;
 import com.telcobright.rtc.domainmodel.nonentity.Tenant;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.Map;
 
 @RestController
 public class FsController {
 
     private final ConfigManager configManager;
     private final GlobalTenantRegistry registry;
+    private final ReloadScheduler reloadScheduler;
+    private final DynamicDatabaseService databaseService;
+    private final TenantSnapshotWriter snapshotWriter;
+    private final DidDirectory didDirectory;
+    private final PackageAccountCaches packageAccountCaches;
 
-    public FsController(ConfigManager configManager, GlobalTenantRegistry registry) {
+    public FsController(ConfigManager configManager, GlobalTenantRegistry registry, ReloadScheduler reloadScheduler,
+                        DynamicDatabaseService databaseService, TenantSnapshotWriter snapshotWriter,
+                        DidDirectory didDirectory, PackageAccountCaches packageAccountCaches) {
         this.configManager = configManager;
         this.registry = registry;
+        this.reloadScheduler = reloadScheduler;
+        this.databaseService = databaseService;
+        this.snapshotWriter = snapshotWriter;
+        this.didDirectory = didDirectory;
+        this.packageAccountCaches = packageAccountCaches;
     }
 
     @PostMapping("/get-tenant-root")
@@ -25,9 +54,54 @@ public class FsController {
         return configManager.getRootTenant();
     }
 
+    @PostMapping("/get-tenant-snapshot")
+    public ResponseEntity<StreamingResponseBody> getTenantSnapshot(@RequestParam(defaultValue = "false") boolean gzip){
+        // tree and version of one generation: the streamed tree is exactly the version it is advertised with
+        ConfigManager.Generation generation = configManager.getGeneration();
+        long version = generation.getVersion();
+        Tenant root = generation.getRoot();
+        StreamingResponseBody body = out -> snapshotWriter.write(root, version, gzip, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TenantSnapshotWriter.CONTENT_TYPE))
+                .header("X-Snapshot-Version", String.valueOf(version))
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(body);
+    }
+
+    @PostMapping("/get-context-delta")
+    public ResponseEntity<DeltaResponse> getContextDelta(@RequestParam long since){
+        return new ResponseEntity<>(configManager.getDeltasSince(since), HttpStatus.OK);
+    }
+
     @PostMapping("/get-global-tenant-registry")
-    public ResponseEntity<GlobalTenantRegistry> getRegistry(){
-        return new ResponseEntity<>(registry, HttpStatus.OK);
+    public ResponseEntity<GlobalTenantRegistry.Snapshot> getRegistry(){
+        return new ResponseEntity<>(registry.snapshot(), HttpStatus.OK);
+    }
+
+    @PostMapping("/get-reload-counters")
+    public ResponseEntity<Map<String, Long>> getReloadCounters(){
+        return new ResponseEntity<>(reloadScheduler.getCounters(), HttpStatus.OK);
+    }
+
+    @PostMapping("/get-datasource-pool-stats")
+    public ResponseEntity<List<PoolStats>> getDatasourcePoolStats(){
+        return new ResponseEntity<>(databaseService.getPoolStats(), HttpStatus.OK);
+    }
+
+    @PostMapping("/get-did-owner")
+    public ResponseEntity<DidOwner> getDidOwner(@RequestParam String didNumber){
+        DidOwner owner = didDirectory.lookup(didNumber);
+        return owner == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND) : new ResponseEntity<>(owner, HttpStatus.OK);
+    }
+
+    @PostMapping("/get-package-accounts")
+    public ResponseEntity<List<PackageAccount>> getPackageAccounts(@RequestParam String dbName, @RequestParam Long idPartner){
+        return new ResponseEntity<>(packageAccountCaches.getPackageAccounts(dbName, idPartner), HttpStatus.OK);
+    }
+
+    @PostMapping("/reload/stats")
+    public ResponseEntity<List<ReloadReport>> getReloadStats(@RequestParam(defaultValue = "20") int limit){
+        return new ResponseEntity<>(configManager.getReloadStats(limit), HttpStatus.OK);
     }
 
 }
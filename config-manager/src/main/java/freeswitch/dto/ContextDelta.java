@@ -0,0 +1,17 @@
+package freeswitch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ContextDelta {
+    // version the tenant's context was rebuilt in
+    private long version;
+    private String dbName;
+    private List<MapDelta> maps;
+}
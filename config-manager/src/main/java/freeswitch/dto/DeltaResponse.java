@@ -0,0 +1,19 @@
+package freeswitch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeltaResponse {
+    private long fromVersion;
+    private long toVersion;
+    // the requested version is no longer covered by the delta log, the caller has to reload the snapshot
+    private boolean fullResyncRequired;
+    // oldest first, applying them in order brings a tree at fromVersion to toVersion
+    private List<ContextDelta> deltas;
+}
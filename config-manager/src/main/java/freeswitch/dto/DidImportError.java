@@ -0,0 +1,15 @@
+package freeswitch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DidImportError {
+    // 1-based row of the uploaded file, header included
+    private int row;
+    private String didNumberId;
+    private String error;
+}
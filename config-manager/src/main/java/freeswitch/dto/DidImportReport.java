@@ -0,0 +1,18 @@
+package freeswitch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DidImportReport {
+    private long rowsRead;
+    private long imported;
+    private long rejected;
+    // the first rejected rows, at most DidAssignmentImport.MAX_REPORTED_ERRORS of them
+    private List<DidImportError> errors;
+}
@@ -0,0 +1,18 @@
+package freeswitch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DidOwner {
+    private String didNumber;
+    // tenant database the number is assigned in
+    private String dbName;
+    private Integer idPartner;
+    private List<Integer> retailPartnerIds;
+}
@@ -0,0 +1,21 @@
+package freeswitch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MapDelta {
+    // property name of the map in DynamicContext
+    private String map;
+    // entries added or changed, keyed like the map itself
+    private Map<Object, Object> upserts;
+    private List<Object> deletes;
+    // whole new value of list-valued fields (rate assigns), which have no key to patch by
+    private Object replacement;
+}
@@ -0,0 +1,22 @@
+package freeswitch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PoolStats {
+    private String dbName;
+    private String poolName;
+    // connections of the pool backing this tenant, shared by all tenants in shared-pool mode
+    private int activeConnections;
+    private int idleConnections;
+    private int totalConnections;
+    private int threadsAwaitingConnection;
+    // connection acquisitions made for this tenant only
+    private long acquisitions;
+    private double avgWaitMs;
+    private double maxWaitMs;
+}
@@ -0,0 +1,31 @@
+package freeswitch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a rate that rating needs, selected straight into this projection instead of a full Rate entity.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RateRow {
+    private Long id;
+    private Integer idRatePlan;
+    private String prefix;
+    private BigDecimal rateAmount;
+    private Integer resolution;
+    private Float minDurationSec;
+    private Integer surchargeTime;
+    private BigDecimal surchargeAmount;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private Integer weekDayStart;
+    private Integer weekDayEnd;
+    private String startTime;
+    private String endTime;
+}
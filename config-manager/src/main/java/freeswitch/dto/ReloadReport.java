@@ -0,0 +1,23 @@
+package freeswitch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReloadReport {
+    private long version;
+    // "full" for a rebuild of the whole tree, "partial" for a per-tenant map reload
+    private String kind;
+    private long startedAt;
+    private double durationMs;
+    private boolean failed;
+    private List<StageStats> stages;
+    // stage durations summed over all tenants, slowest stage first
+    private Map<String, Double> stageTotalsMs;
+}
@@ -0,0 +1,19 @@
+package freeswitch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StageStats {
+    // context map property name, or one of the ReloadStats stage names
+    private String stage;
+    private String dbName;
+    private double durationMs;
+    // entries of the built map, list elements counted for maps of lists
+    private long rows;
+    // JSON encoded size extrapolated from a sample of the entries, -1 if it could not be estimated
+    private long bytesEstimate;
+}
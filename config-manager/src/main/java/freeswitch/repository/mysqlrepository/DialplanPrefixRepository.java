@@ -1,7 +1,14 @@
 package freeswitch.repository.mysqlrepository;
 
 import com.telcobright.rtc.domainmodel.mysqlentity.DialplanPrefix;
+import freeswitch.config.dynamic.core.StreamingLoader;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.stream.Stream;
 
 public interface DialplanPrefixRepository extends JpaRepository<DialplanPrefix, Integer> {
 
@@ -9,4 +16,9 @@ public interface DialplanPrefixRepository extends JpaRepository<DialplanPrefix,
 
 //    @Query("SELECT dp FROM DialplanPrefix dp WHERE dp.dialPlan.id = :id")
 //    List<DialplanPrefix> findDialplanPrefixByDialplanId(@Param("id") Integer id);
+
+    @Query("SELECT dp FROM DialplanPrefix dp")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingLoader.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<DialplanPrefix> streamAll();
 }
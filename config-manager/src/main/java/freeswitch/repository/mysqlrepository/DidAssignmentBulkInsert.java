@@ -0,0 +1,19 @@
+package freeswitch.repository.mysqlrepository;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.DidAssignment;
+
+import java.util.List;
+
+/**
+ * Bulk insert of DID assignments with MySQL extended INSERT syntax, mixed into {@link DidAssignmentRepository}.
+ */
+public interface DidAssignmentBulkInsert {
+
+    /**
+     * Inserts the assignments with one {@code INSERT INTO ... VALUES (...), (...)} statement per {@code batchSize}
+     * rows, all in one transaction. Generated ids are not read back into the entities.
+     *
+     * @return number of rows inserted
+     */
+    int insertExtendedToMysql(List<DidAssignment> assignments, int batchSize);
+}
@@ -0,0 +1,59 @@
+package freeswitch.repository.mysqlrepository;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.DidAssignment;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Same statement shape as the db-util MySqlOptimizedRepository, written against the did_assignment columns:
+ * that library is built on javax.persistence and reflects over every entity field, neither fits this service.
+ * Unlike it, a failing statement is not retried row by row through save, the caller gets the exception.
+ */
+public class DidAssignmentBulkInsertImpl implements DidAssignmentBulkInsert {
+
+    private static final String INSERT = "INSERT INTO did_assignment "
+            + "(did_number_id, start_date, expiry_date, description, partner_id, idRetailPartner) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional("mysqlTransactionManager")
+    public int insertExtendedToMysql(List<DidAssignment> assignments, int batchSize) {
+        if (assignments == null || assignments.isEmpty()) return 0;
+        int rowsPerStatement = Math.max(1, batchSize);
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            int inserted = 0;
+            for (int from = 0; from < assignments.size(); from += rowsPerStatement) {
+                List<DidAssignment> batch = assignments.subList(from, Math.min(from + rowsPerStatement, assignments.size()));
+                String sql = INSERT + String.join(", ", Collections.nCopies(batch.size(), ROW));
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    int parameter = 1;
+                    for (DidAssignment assignment : batch) {
+                        statement.setString(parameter++, assignment.getDidNumberId());
+                        statement.setDate(parameter++, toSqlDate(assignment.getStartDate()));
+                        statement.setDate(parameter++, toSqlDate(assignment.getExpiryDate()));
+                        statement.setString(parameter++, assignment.getDescription());
+                        statement.setObject(parameter++, assignment.getIdPartner(), Types.INTEGER);
+                        statement.setObject(parameter++, assignment.getIdRetailPartner(), Types.INTEGER);
+                    }
+                    inserted += statement.executeUpdate();
+                }
+            }
+            return inserted;
+        });
+    }
+
+    private static Date toSqlDate(java.util.Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+}
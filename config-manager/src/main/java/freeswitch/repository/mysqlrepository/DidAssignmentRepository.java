@@ -1,16 +1,39 @@
 package freeswitch.repository.mysqlrepository;
 
 import com.telcobright.rtc.domainmodel.mysqlentity.DidAssignment;
+import freeswitch.config.dynamic.core.StreamingLoader;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface DidAssignmentRepository extends JpaRepository<DidAssignment, Integer> {
+public interface DidAssignmentRepository extends JpaRepository<DidAssignment, Integer>, DidAssignmentBulkInsert {
 
 
     Optional<DidAssignment> findByDidNumberId(String didNumberId);
 
 //    DidAssignment[] findByDidPoolId(Integer id);
+
+    // {didNumberId, idPartner, idRetailPartner} per assignment, streamed without materializing entities
+    @Query("SELECT d.didNumberId, d.idPartner, d.idRetailPartner FROM DidAssignment d")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingLoader.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<Object[]> streamDidNumberOwners();
+
+    // {didNumberId, startDate, expiryDate} of the assignments of the given DID numbers still running after
+    // startDate, the only ones a new assignment starting then can overlap
+    @Query("SELECT d.didNumberId, d.startDate, d.expiryDate FROM DidAssignment d " +
+            "WHERE d.didNumberId IN :didNumberIds AND (d.expiryDate IS NULL OR d.expiryDate > :startDate)")
+    List<Object[]> findAssignmentsRunningAfter(@Param("didNumberIds") Collection<String> didNumberIds,
+                                               @Param("startDate") Date startDate);
 }
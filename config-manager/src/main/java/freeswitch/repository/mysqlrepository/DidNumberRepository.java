@@ -4,7 +4,9 @@ package freeswitch.repository.mysqlrepository;
 import com.telcobright.rtc.domainmodel.mysqlentity.DidNumber;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface DidNumberRepository extends JpaRepository<DidNumber, String> {
@@ -16,4 +18,8 @@ public interface DidNumberRepository extends JpaRepository<DidNumber, String> {
     List<DidNumber> findUnassignedDidNumbers();
 
     List<DidNumber> findByDidPoolId(Integer didPoolId);
+
+    // ids among the given ones that exist, without loading the numbers
+    @Query("SELECT dn.id FROM DidNumber dn WHERE dn.id IN :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
 }
\ No newline at end of file
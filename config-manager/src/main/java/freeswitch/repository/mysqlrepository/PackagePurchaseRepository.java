@@ -4,8 +4,11 @@ import com.telcobright.rtc.domainmodel.mysqlentity.PackagePurchase;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,9 +20,14 @@ public interface PackagePurchaseRepository extends JpaRepository<PackagePurchase
             "Left join fetch pkg.packageItems"
     )
     List<PackagePurchase> findAllEntities();
+    // purchases not expired at now with their accounts, expired ones stay in the table as history
     @EntityGraph(attributePaths = "packageAccounts")
-//    @Query("SELECT pp FROM PackagePurchase pp WHERE pp.expireDate > CURRENT_TIMESTAMP")
-    @Query("SELECT pp FROM PackagePurchase pp")
-    List<PackagePurchase> findPkgPurchase();
+    @Query("SELECT DISTINCT pp FROM PackagePurchase pp WHERE pp.expireDate > :now")
+    List<PackagePurchase> findPkgPurchase(@Param("now") LocalDateTime now);
+
+    @EntityGraph(attributePaths = "packageAccounts")
+    @Query("SELECT DISTINCT pp FROM PackagePurchase pp WHERE pp.expireDate > :now AND pp.idPartner IN :idPartners")
+    List<PackagePurchase> findPkgPurchaseOfPartners(@Param("idPartners") Collection<Long> idPartners,
+                                                    @Param("now") LocalDateTime now);
 }
 
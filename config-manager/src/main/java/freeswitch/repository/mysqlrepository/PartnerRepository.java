@@ -3,8 +3,10 @@ package freeswitch.repository.mysqlrepository;
 import com.telcobright.rtc.domainmodel.mysqlentity.Partner;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,10 +14,7 @@ public interface PartnerRepository extends JpaRepository<Partner, Integer > {
 
     List<Partner> findByPartnerType(int i);
 
-    @Query("SELECT p FROM Partner p " +
-            "LEFT JOIN FETCH p.partnerPrefixes " +
-            "LEFT JOIN FETCH p.routes " +
-            "LEFT JOIN FETCH p.didAssignments"
-    )
-    List<Partner> findPartnerWithPrefixes();
+    // ids among the given ones that exist, without loading the partners
+    @Query("SELECT p.idPartner FROM Partner p WHERE p.idPartner IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 }
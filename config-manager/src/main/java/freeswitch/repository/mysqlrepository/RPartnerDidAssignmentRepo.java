@@ -1,9 +1,21 @@
 package freeswitch.repository.mysqlrepository;
 
 import com.telcobright.rtc.domainmodel.mysqlentity.DidAssignmentRetailPartnerMapping;
+import freeswitch.config.dynamic.core.StreamingLoader;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 @Repository
 public interface RPartnerDidAssignmentRepo extends JpaRepository<DidAssignmentRetailPartnerMapping, Integer> {
+
+    @Query("SELECT m FROM DidAssignmentRetailPartnerMapping m JOIN FETCH m.retailPartner JOIN FETCH m.didAssignment")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingLoader.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<DidAssignmentRetailPartnerMapping> streamAllWithAssignments();
 }
@@ -11,10 +11,10 @@ import java.util.List;
 
 @Repository
 public interface RateAssignRepository extends JpaRepository<RateAssign, String> {
+    // current and future dated assignments, every one not ended yet; the consumer picks the one valid at call time
     @Query("SELECT r FROM RateAssign r " +
             "LEFT JOIN r.ratePlanAssignmentTuple rt " +
-            "WHERE r.startDate <= :currentTime " +
-            "AND (r.endDate IS NULL OR r.endDate >= :currentTime) " +
+            "WHERE (r.endDate IS NULL OR r.endDate >= :currentTime) " +
             "AND rt.idService = 10 " +
             "AND rt.assignDirection = :direction " +
             "ORDER BY rt.priority")
@@ -1,12 +1,18 @@
 package freeswitch.repository.mysqlrepository;
 
 import com.telcobright.rtc.domainmodel.mysqlentity.Rate;
+import freeswitch.config.dynamic.core.StreamingLoader;
+import freeswitch.dto.RateRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface  RateRepository extends JpaRepository<Rate, String> {
     @Query("SELECT r FROM Rate r " +
@@ -18,4 +24,14 @@ public interface  RateRepository extends JpaRepository<Rate, String> {
             "WHERE r.startDate <= :currentTime " +
             "AND (r.endDate IS NULL OR r.endDate >= :currentTime)")
     List<Rate> findRatePlansWithValidRates(@Param("currentTime") LocalDateTime currentTime);
+    // rating columns of the rates not expired at currentTime, ordered the way RateTable stores them
+    @Query("SELECT new freeswitch.dto.RateRow(r.id, r.idRatePlan, r.prefix, r.rateAmount, r.resolution, " +
+            "r.minDurationSec, r.surchargeTime, r.surchargeAmount, r.startDate, r.endDate, " +
+            "r.weekDayStart, r.weekDayEnd, r.startTime, r.endTime) FROM Rate r " +
+            "WHERE (r.endDate IS NULL OR r.endDate >= :currentTime) " +
+            "AND r.idRatePlan IN :ratePlanIds " +
+            "ORDER BY r.idRatePlan, r.prefix, r.startDate")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = StreamingLoader.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<RateRow> streamCurrentAndFutureRateRowsByRatePlanIds(@Param("ratePlanIds") List<Long> ratePlanIds, @Param("currentTime") LocalDateTime currentTime);
 }
\ No newline at end of file
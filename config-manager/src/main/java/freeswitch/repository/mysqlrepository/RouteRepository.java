@@ -13,4 +13,8 @@ public interface RouteRepository extends JpaRepository<Route, Integer> {
     @Query("SELECT r FROM Route r " +
             " LEFT JOIN FETCH r.routeMetaData" )
     List<Route> findAllRouteEntity();
+
+    // {field5, idPartner} of every route, for the route keyed partner map
+    @Query("SELECT r.field5, r.idPartner FROM Route r")
+    List<Object[]> findField5AndPartnerIds();
 }
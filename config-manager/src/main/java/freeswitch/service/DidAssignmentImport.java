@@ -0,0 +1,173 @@
+package freeswitch.service;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.DidAssignment;
+import freeswitch.dto.DidAssignmentDto;
+import freeswitch.dto.DidImportError;
+import freeswitch.dto.DidImportReport;
+import freeswitch.repository.mysqlrepository.DidAssignmentRepository;
+import freeswitch.repository.mysqlrepository.DidNumberRepository;
+import freeswitch.repository.mysqlrepository.PartnerRepository;
+
+import java.util.*;
+
+/**
+ * One bulk import of DID assignments, fed row by row while the upload is parsed.
+ *
+ * Rows are validated in chunks of {@code chunkSize}: the partners, DID numbers and existing assignments a chunk refers
+ * to are fetched with one IN query each, the rows are checked in memory and the valid ones written with one extended
+ * insert per {@link #INSERT_BATCH} rows. Only the current chunk is held, and a DID repeated in a later chunk is caught
+ * as already assigned since the earlier chunk is in the database by then.
+ *
+ * A DID number may be assigned again for a period that doesn't overlap its other assignments: a row is rejected only
+ * if an assignment of the same number is still running when it starts, and starts before it expires.
+ */
+final class DidAssignmentImport {
+    static final int MAX_REPORTED_ERRORS = 10_000;
+    private static final int INSERT_BATCH = 1000;
+
+    private final DidAssignmentRepository didAssignmentRepository;
+    private final PartnerRepository partnerRepository;
+    private final DidNumberRepository didNumberRepository;
+    private final int chunkSize;
+
+    private final List<PendingRow> chunk = new ArrayList<>();
+    // partner ids repeat across the chunks of a file, each is looked up once per import
+    private final Map<Integer, Boolean> knownPartners = new HashMap<>();
+    private final List<DidImportError> errors = new ArrayList<>();
+    private long rowsRead;
+    private long imported;
+    private long rejected;
+
+    DidAssignmentImport(DidAssignmentRepository didAssignmentRepository, PartnerRepository partnerRepository,
+                        DidNumberRepository didNumberRepository, int chunkSize) {
+        this.didAssignmentRepository = didAssignmentRepository;
+        this.partnerRepository = partnerRepository;
+        this.didNumberRepository = didNumberRepository;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    void add(int row, DidAssignmentDto didAssignmentDto) {
+        rowsRead++;
+        chunk.add(new PendingRow(row, didAssignmentDto));
+        if (chunk.size() >= chunkSize) flush();
+    }
+
+    /**
+     * Records a row that could not even be parsed.
+     */
+    void reject(int row, String didNumberId, String error) {
+        rowsRead++;
+        rejectRow(row, didNumberId, error);
+    }
+
+    DidImportReport finish() {
+        flush();
+        return new DidImportReport(rowsRead, imported, rejected, errors);
+    }
+
+    private void flush() {
+        if (chunk.isEmpty()) return;
+        Set<String> didNumberIds = new HashSet<>();
+        Set<Integer> unknownPartnerIds = new HashSet<>();
+        Date earliestStart = null;
+        for (PendingRow pending : chunk) {
+            if (pending.dto.getDidNumberId() != null) didNumberIds.add(pending.dto.getDidNumberId());
+            Date startDate = pending.dto.getStartDate();
+            if (startDate != null && (earliestStart == null || startDate.before(earliestStart))) earliestStart = startDate;
+            Integer idPartner = pending.dto.getIdPartner();
+            if (idPartner != null && !knownPartners.containsKey(idPartner)) unknownPartnerIds.add(idPartner);
+        }
+        if (!unknownPartnerIds.isEmpty()) {
+            Set<Integer> existing = new HashSet<>(partnerRepository.findExistingIds(unknownPartnerIds));
+            unknownPartnerIds.forEach(id -> knownPartners.put(id, existing.contains(id)));
+        }
+        Set<String> existingNumbers = didNumberIds.isEmpty()
+                ? Set.of()
+                : new HashSet<>(didNumberRepository.findExistingIds(didNumberIds));
+        // assignments that can overlap a row of the chunk, those ending before the earliest start can't
+        Map<String, List<Period>> assignedPeriods = new HashMap<>();
+        if (!didNumberIds.isEmpty() && earliestStart != null) {
+            for (Object[] assignment : didAssignmentRepository.findAssignmentsRunningAfter(didNumberIds, earliestStart)) {
+                assignedPeriods.computeIfAbsent((String) assignment[0], k -> new ArrayList<>())
+                        .add(new Period((Date) assignment[1], (Date) assignment[2]));
+            }
+        }
+
+        Map<String, List<Period>> seen = new HashMap<>();
+        List<PendingRow> validRows = new ArrayList<>();
+        List<DidAssignment> assignments = new ArrayList<>();
+        for (PendingRow pending : chunk) {
+            DidAssignmentDto dto = pending.dto;
+            String error = validate(dto, existingNumbers, assignedPeriods, seen);
+            if (error != null) {
+                rejectRow(pending.row, dto.getDidNumberId(), error);
+                continue;
+            }
+            validRows.add(pending);
+            assignments.add(new DidAssignment(dto.getIdPartner(), dto.getDidNumberId(), dto.getStartDate(),
+                    dto.getExpiryDate(), dto.getDescription()));
+        }
+        chunk.clear();
+
+        try {
+            imported += didAssignmentRepository.insertExtendedToMysql(assignments, INSERT_BATCH);
+        } catch (RuntimeException e) {
+            // the chunk is inserted in one transaction, none of its rows made it
+            System.err.println("DID import chunk of " + assignments.size() + " rows failed: " + e.getMessage());
+            validRows.forEach(pending -> rejectRow(pending.row, pending.dto.getDidNumberId(),
+                    "Insert failed: " + e.getMessage()));
+        }
+    }
+
+    private String validate(DidAssignmentDto dto, Set<String> existingNumbers, Map<String, List<Period>> assignedPeriods,
+                            Map<String, List<Period>> seen) {
+        if (dto.getDidNumberId() == null || dto.getDidNumberId().isBlank()) return "Missing DID number";
+        if (dto.getIdPartner() == null) return "Missing partner";
+        if (dto.getStartDate() == null) return "Missing start date";
+        if (dto.getExpiryDate() != null && dto.getExpiryDate().before(dto.getStartDate())) {
+            return "Expiry date before start date";
+        }
+        if (!knownPartners.getOrDefault(dto.getIdPartner(), false)) return "Could not find partner " + dto.getIdPartner();
+        if (!existingNumbers.contains(dto.getDidNumberId())) return "Could not find did number";
+        Period period = new Period(dto.getStartDate(), dto.getExpiryDate());
+        if (period.overlapsAny(assignedPeriods.get(dto.getDidNumberId()))) return "DID number is already assigned";
+        List<Period> seenPeriods = seen.computeIfAbsent(dto.getDidNumberId(), k -> new ArrayList<>());
+        if (period.overlapsAny(seenPeriods)) return "DID number appears more than once in the file";
+        seenPeriods.add(period);
+        return null;
+    }
+
+    private void rejectRow(int row, String didNumberId, String error) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) errors.add(new DidImportError(row, didNumberId, error));
+    }
+
+    /**
+     * Assignment period from {@code start} until {@code expiry}, open ended if expiry is null.
+     */
+    private record Period(Date start, Date expiry) {
+
+        boolean overlapsAny(List<Period> others) {
+            if (others == null) return false;
+            for (Period other : others) {
+                if (overlaps(other)) return true;
+            }
+            return false;
+        }
+
+        private boolean overlaps(Period other) {
+            return (other.expiry == null || other.expiry.after(start))
+                    && (expiry == null || other.start == null || other.start.before(expiry));
+        }
+    }
+
+    private static final class PendingRow {
+        private final int row;
+        private final DidAssignmentDto dto;
+
+        private PendingRow(int row, DidAssignmentDto dto) {
+            this.row = row;
+            this.dto = dto;
+        }
+    }
+}
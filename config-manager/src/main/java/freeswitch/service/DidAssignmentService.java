@@ -1,6 +1,8 @@
 package freeswitch.service;
 
 import freeswitch.dto.DidAssignmentDto;
+import freeswitch.dto.DidImportError;
+import freeswitch.dto.DidImportReport;
 import com.telcobright.rtc.domainmodel.mysqlentity.DidAssignment;
 import com.telcobright.rtc.domainmodel.mysqlentity.DidNumber;
 import com.telcobright.rtc.domainmodel.mysqlentity.Partner;
@@ -8,6 +10,7 @@ import freeswitch.repository.mysqlrepository.DidAssignmentRepository;
 import freeswitch.repository.mysqlrepository.DidNumberRepository;
 import freeswitch.repository.mysqlrepository.PartnerRepository;
 import org.apache.poi.ss.usermodel.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.expression.ExpressionException;
 import org.springframework.expression.ParseException;
 import org.springframework.http.HttpStatus;
@@ -19,7 +22,6 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -28,12 +30,16 @@ public class DidAssignmentService extends GenericCrudService<DidAssignment, Inte
     private final DidAssignmentRepository didAssignmentRepository;
     private final PartnerRepository partnerRepository;
     private final DidNumberRepository didNumberRepository;
+    // rows validated and inserted together by a bulk import
+    private final int importChunkSize;
 
-    public DidAssignmentService(DidAssignmentRepository didAssignmentRepository, PartnerRepository partnerRepository, DidNumberRepository didNumberRepository) {
+    public DidAssignmentService(DidAssignmentRepository didAssignmentRepository, PartnerRepository partnerRepository, DidNumberRepository didNumberRepository,
+                                @Value("${config.did-import.chunk-size:5000}") int importChunkSize) {
         super(didAssignmentRepository);
         this.didAssignmentRepository = didAssignmentRepository;
         this.partnerRepository = partnerRepository;
         this.didNumberRepository = didNumberRepository;
+        this.importChunkSize = importChunkSize;
     }
 
     public ResponseEntity<DidAssignment> createDidAssignment(DidAssignmentDto didAssignmentDto) {
@@ -105,72 +111,106 @@ public class DidAssignmentService extends GenericCrudService<DidAssignment, Inte
         return getEntities();
     }
 
-    public ResponseEntity<String> createDidAssignmentsFromCsv(MultipartFile file) {
+    /**
+     * Imports the assignments of a CSV or Excel upload, see {@link DidAssignmentImport}. Rows that cannot be
+     * parsed or fail validation are skipped and listed in the report with the reason, all others are inserted.
+     */
+    public ResponseEntity<DidImportReport> createDidAssignmentsFromCsv(MultipartFile file) {
         try{
             if (file.isEmpty()) throw new Exception("File is empty!");
-            String fileName = file.getOriginalFilename();
-            List<DidAssignmentDto> didAssignments = parseCsvFile(file);
+            String fileName = file.getOriginalFilename() == null ? "" : file.getOriginalFilename();
+            DidAssignmentImport didImport = new DidAssignmentImport(didAssignmentRepository, partnerRepository,
+                    didNumberRepository, importChunkSize);
             if (fileName.endsWith(".csv")) {
-                didAssignments = parseCsvFile(file);
-            } else if (fileName.endsWith(".xls") || fileName.endsWith(".xlsx")) {
-                didAssignments = parseExcelFile(file);
+                parseCsvFile(file, didImport);
+            } else if (fileName.endsWith(".xlsx")) {
+                parseXlsxFile(file, didImport);
+            } else if (fileName.endsWith(".xls")) {
+                parseExcelFile(file, didImport);
             } else {
-                return ResponseEntity.badRequest().body("Unsupported file type. Please upload a CSV or Excel file.");
+                return ResponseEntity.badRequest().body(new DidImportReport(0, 0, 0, List.of(new DidImportError(0, null,
+                        "Unsupported file type. Please upload a CSV or Excel file."))));
             }
-
-            for (DidAssignmentDto didAssignmentDto : didAssignments) {
-                createDidAssignment(didAssignmentDto);
-            }
-            return ResponseEntity.ok("Ok");
+            DidImportReport report = didImport.finish();
+            System.out.println("Imported " + report.getImported() + " of " + report.getRowsRead()
+                    + " DID assignments from " + fileName);
+            return ResponseEntity.ok(report);
         }catch (Exception e) {
             System.err.println(e.getMessage());
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-    private List<DidAssignmentDto> parseCsvFile(MultipartFile file) throws Exception {
-        List<DidAssignmentDto> didAssignments = new ArrayList<>();
-
+    private void parseCsvFile(MultipartFile file, DidAssignmentImport didImport) throws Exception {
         // Create a BufferedReader to read the CSV file
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
             String line;
-            boolean firstLine = true;
+            int rowNumber = 0;
 
-            // Read each line from the CSV
+            // Read each line from the CSV, handing every row over as soon as it is parsed
             while ((line = reader.readLine()) != null) {
                 // Skip the header row
-                if (firstLine) {
-                    firstLine = false;
-                    continue;
-                }
+                if (++rowNumber == 1) continue;
 
                 // Split the line by commas
                 String[] fields = line.split(",");
 
                 // Check if the number of fields is correct
                 if (fields.length != 6) {
-                    System.out.println("Skipping invalid row: " + line);
+                    didImport.reject(rowNumber, null, "Expected 6 fields, found " + fields.length);
                     continue;
                 }
 
                 // Create a new DidAssignmentDto object and set the values from the CSV
                 DidAssignmentDto didAssignmentDto = new DidAssignmentDto();
                 didAssignmentDto.setDidNumberId('0'+ fields[0].trim());  // Remove any extra spaces
-                didAssignmentDto.setIdPartner(Integer.parseInt(fields[1].trim()));
-                didAssignmentDto.setStartDate(parseDate(fields[2].trim()));
-                didAssignmentDto.setExpiryDate(parseDate(fields[3].trim()));
+                try {
+                    didAssignmentDto.setIdPartner(Integer.parseInt(fields[1].trim()));
+                    didAssignmentDto.setStartDate(parseDate(fields[2].trim()));
+                    didAssignmentDto.setExpiryDate(parseDate(fields[3].trim()));
+                } catch (NumberFormatException | java.text.ParseException e) {
+                    didImport.reject(rowNumber, didAssignmentDto.getDidNumberId(), "Unreadable value: " + e.getMessage());
+                    continue;
+                }
                 didAssignmentDto.setDescription(fields[4].trim());
 
-                // Add the DidAssignmentDto to the list
-                didAssignments.add(didAssignmentDto);
+                didImport.add(rowNumber, didAssignmentDto);
             }
         }
-        return didAssignments;
     }
 
-    private List<DidAssignmentDto> parseExcelFile(MultipartFile file) throws Exception {
-        List<DidAssignmentDto> didAssignments = new ArrayList<>();
+    private void parseXlsxFile(MultipartFile file, DidAssignmentImport didImport) throws Exception {
+        try (InputStream inputStream = file.getInputStream()) {
+            XlsxRowReader.read(inputStream, row -> {
+                // Skip the header row
+                if (row.getRowNumber() == 1) return;
+
+                DidAssignmentDto didAssignmentDto = new DidAssignmentDto();
+                // Column 0: did_number, typed as text or as a number
+                if (row.isNumeric(0)) {
+                    didAssignmentDto.setDidNumberId("0" + row.getNumber(0).longValue());
+                } else if (!row.isBlank(0)) {
+                    didAssignmentDto.setDidNumberId("0" + row.getString(0).trim());
+                }
+                // Column 1: partner_ic, missing or invalid values are rejected by the import
+                Double idPartner = row.getNumber(1);
+                didAssignmentDto.setIdPartner(idPartner == null ? null : idPartner.intValue());
+                // Column 2, 3: start_date, expiry_date
+                didAssignmentDto.setStartDate(row.getDate(2));
+                didAssignmentDto.setExpiryDate(row.getDate(3));
+                // Column 4: description
+                if (row.isNumeric(4)) {
+                    didAssignmentDto.setDescription(String.valueOf(row.getNumber(4)));
+                } else if (row.getString(4) != null) {
+                    didAssignmentDto.setDescription(row.getString(4).trim());
+                }
+                didImport.add(row.getRowNumber(), didAssignmentDto);
+            });
+        }
+    }
 
+    // legacy binary .xls workbooks, read whole; uploads large enough to matter come as .xlsx
+    private void parseExcelFile(MultipartFile file, DidAssignmentImport didImport) throws Exception {
         try (InputStream inputStream = file.getInputStream()) {
             Workbook workbook = WorkbookFactory.create(inputStream);
             Sheet sheet = workbook.getSheetAt(0);
@@ -192,31 +232,22 @@ public class DidAssignmentService extends GenericCrudService<DidAssignment, Inte
                         }
                     }
 
-                    // Column 1: partner_ic (as Integer)
+                    // Column 1: partner_ic (as Integer), missing or invalid values are rejected by the import
                     Cell partnerCell = row.getCell(1);
                     if (partnerCell != null && partnerCell.getCellType() == CellType.NUMERIC) {
                         didAssignmentDto.setIdPartner((int) partnerCell.getNumericCellValue());
-                    } else {
-                        // Handle missing or invalid partner_ic
-                        didAssignmentDto.setIdPartner(null); // or throw an exception
                     }
 
                     // Column 2: start_date (as Date)
                     Cell startDateCell = row.getCell(2);
                     if (startDateCell != null && startDateCell.getCellType() == CellType.NUMERIC) {
                         didAssignmentDto.setStartDate(startDateCell.getDateCellValue());
-                    } else {
-                        // Handle missing or invalid start_date
-                        didAssignmentDto.setStartDate(null); // or throw an exception
                     }
 
                     // Column 3: expiry_da (as Date)
                     Cell expiryDateCell = row.getCell(3);
                     if (expiryDateCell != null && expiryDateCell.getCellType() == CellType.NUMERIC) {
                         didAssignmentDto.setExpiryDate(expiryDateCell.getDateCellValue());
-                    } else {
-                        // Handle missing or invalid expiry_date
-                        didAssignmentDto.setExpiryDate(null); // or throw an exception
                     }
 
                     // Column 4: descriptio (as String)
@@ -229,24 +260,13 @@ public class DidAssignmentService extends GenericCrudService<DidAssignment, Inte
                         }
                     }
 
-//                    // Column 5: pool_id (as Integer)
-//                    Cell poolIdCell = row.getCell(5);
-//                    if (poolIdCell != null && poolIdCell.getCellType() == CellType.NUMERIC) {
-//                        didAssignmentDto.setDidPoolId((int) poolIdCell.getNumericCellValue());
-//                    } else {
-//                        // Handle missing or invalid pool_id
-//                        didAssignmentDto.setDidPoolId(null); // or throw an exception
-//                    }
-
-                    // Add the DTO to the list
-                    didAssignments.add(didAssignmentDto);
+                    // rows are numbered 1-based like in the spreadsheet
+                    didImport.add(i + 1, didAssignmentDto);
                 }
             }
 
             workbook.close();
         }
-
-        return didAssignments;
     }
 
 
@@ -16,7 +16,11 @@ public class PartnerService extends GenericCrudService<Partner, Integer> {
     }
 
 
+    /**
+     * Partners without their child collections; joining prefixes, routes and did assignments in one
+     * fetch multiplied the rows per partner. Maps that need the children read those tables separately.
+     */
     public List<Partner> getPartnerEntities() {
-        return partnerRepository.findPartnerWithPrefixes();
+        return partnerRepository.findAll();
     }
 }
@@ -1,32 +1,49 @@
 package freeswitch.service;
 
-import com.telcobright.rtc.domainmodel.mysqlentity.Rate;
+import com.telcobright.rtc.domainmodel.nonentity.RateTable;
+import freeswitch.config.dynamic.core.StreamingLoader;
 import freeswitch.repository.mysqlrepository.RateRepository;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 public class RateService {
     private final RateRepository rateRepository;
+    private final StreamingLoader streamingLoader;
 
-    public RateService(RateRepository rateRepository) {
+    public RateService(RateRepository rateRepository, StreamingLoader streamingLoader) {
         this.rateRepository = rateRepository;
+        this.streamingLoader = streamingLoader;
     }
-    public HashMap<Integer, Map<String, Rate>> getRatesByRatePlanId(List<Long> ratePlanIds, LocalDateTime datetime) {
-        List<Rate> Rates = rateRepository.findRatePlansWithValidRatesByIds(ratePlanIds, datetime);
-        return new HashMap<>(Rates.stream()
-                .collect(Collectors.groupingBy(
-                        Rate::getIdRatePlan,
-                        Collectors.toMap(
-                                Rate::getPrefix,    // key: prefix
-                                rate -> rate //,       // value: the Rate itself
-//                                (existing, replacement) -> existing // handle duplicate prefixes
-                        )
-                )));
+
+    /**
+     * Loads the rates not yet expired at {@code datetime}, current and future dated ones, as one columnar
+     * {@link RateTable} per rate plan, reading only the columns rating needs. Which rate applies is decided
+     * by the consumer against the validity of each row at call time.
+     *
+     * Rows are streamed ordered by rate plan, prefix and start date and appended to the table of their plan
+     * as they arrive, so no list of all rows is held next to the tables being built.
+     */
+    public HashMap<Integer, RateTable> getRateTablesByRatePlanId(List<Long> ratePlanIds, LocalDateTime datetime) {
+        HashMap<Integer, RateTable> rateTables = new HashMap<>();
+        if (ratePlanIds.isEmpty()) return rateTables;
+
+        Integer[] currentPlan = {null};
+        RateTable.Builder[] builder = {null};
+        streamingLoader.forEach(
+                () -> rateRepository.streamCurrentAndFutureRateRowsByRatePlanIds(ratePlanIds, datetime),
+                row -> {
+                    if (!row.getIdRatePlan().equals(currentPlan[0])) {
+                        if (builder[0] != null) rateTables.put(currentPlan[0], builder[0].build());
+                        currentPlan[0] = row.getIdRatePlan();
+                        builder[0] = new RateTable.Builder(0);
+                    }
+                    builder[0].add(row);
+                });
+        if (builder[0] != null) rateTables.put(currentPlan[0], builder[0].build());
+        return rateTables;
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ import com.telcobright.rtc.domainmodel.mysqlentity.Route;
 import freeswitch.repository.mysqlrepository.RouteRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
 
 @Service
@@ -18,4 +19,15 @@ public class RouteService {
     public List<Route> getRouteEntities() {
         return routeRepository.findAllRouteEntity();
     }
+
+    /**
+     * @return idPartner of every route by its field5, routes without field5 left out
+     */
+    public HashMap<String, Integer> getField5WisePartnerIds() {
+        HashMap<String, Integer> field5WisePartnerIds = new HashMap<>();
+        routeRepository.findField5AndPartnerIds().forEach(row -> {
+            if (row[0] != null) field5WisePartnerIds.put((String) row[0], (Integer) row[1]);
+        });
+        return field5WisePartnerIds;
+    }
 }
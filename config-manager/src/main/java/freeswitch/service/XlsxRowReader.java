@@ -0,0 +1,240 @@
+package freeswitch.service;
+
+import org.apache.poi.UnsupportedFileFormatException;
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Reads the rows of an XLSX upload one at a time with a SAX parser over the sheet XML, for bulk uploads too large
+ * for a {@code WorkbookFactory} DOM.
+ *
+ * The upload is spooled to a temp file so the zip entries are read from disk on demand instead of being inflated
+ * into memory. Besides the shared strings table, which XLSX keeps per workbook, memory does not grow with the number
+ * of rows: every row is handed to the callback in the same reused {@link XlsxRow} and is gone when the callback
+ * returns, so callers copy out what they keep.
+ */
+public final class XlsxRowReader {
+
+    private XlsxRowReader() {
+    }
+
+    /**
+     * Hands every non-empty row of the first sheet to {@code rowHandler}, in sheet order, header row included.
+     */
+    public static void read(InputStream upload, Consumer<XlsxRow> rowHandler) throws IOException {
+        Path spooled = Files.createTempFile("upload-", ".xlsx");
+        try {
+            Files.copy(upload, spooled, StandardCopyOption.REPLACE_EXISTING);
+            try (OPCPackage pkg = OPCPackage.open(spooled.toFile(), PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(pkg);
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+                Iterator<InputStream> sheets = reader.getSheetsData();
+                if (!sheets.hasNext()) return;
+                try (InputStream sheet = sheets.next()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new SheetHandler(strings, rowHandler));
+                    parser.parse(new InputSource(sheet));
+                }
+            } catch (OpenXML4JException | SAXException | ParserConfigurationException | POIXMLException
+                     | UnsupportedFileFormatException e) {
+                throw new IOException("Unreadable XLSX file: " + e.getMessage(), e);
+            }
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    /**
+     * The cells of the current row by 0-based column. Values are the raw cell contents: shared and inline strings
+     * resolved, numbers and dates as Excel stores them (dates are day serials, read them with {@link #getDate(int)}).
+     */
+    public static final class XlsxRow {
+        private int rowNumber;
+        private int cellCount;
+        private String[] values = new String[16];
+        private boolean[] numeric = new boolean[16];
+
+        /**
+         * @return 1-based row number as shown in Excel
+         */
+        public int getRowNumber() {
+            return rowNumber;
+        }
+
+        /**
+         * @return one past the last column holding a value
+         */
+        public int getCellCount() {
+            return cellCount;
+        }
+
+        public boolean isBlank(int column) {
+            String value = getString(column);
+            return value == null || value.isBlank();
+        }
+
+        public boolean isNumeric(int column) {
+            return column < cellCount && numeric[column] && values[column] != null;
+        }
+
+        /**
+         * @return the cell text, null for an empty cell
+         */
+        public String getString(int column) {
+            return column < cellCount ? values[column] : null;
+        }
+
+        /**
+         * @return the value of a numeric cell, null for empty and text cells
+         */
+        public Double getNumber(int column) {
+            if (!isNumeric(column)) return null;
+            try {
+                return Double.parseDouble(values[column]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        /**
+         * @return the value of a numeric cell read as an Excel date, null for empty and text cells
+         */
+        public Date getDate(int column) {
+            Double serial = getNumber(column);
+            return serial == null ? null : DateUtil.getJavaDate(serial);
+        }
+
+        private void reset(int rowNumber) {
+            this.rowNumber = rowNumber;
+            Arrays.fill(values, 0, cellCount, null);
+            Arrays.fill(numeric, 0, cellCount, false);
+            cellCount = 0;
+        }
+
+        private void set(int column, String value, boolean isNumeric) {
+            if (column >= values.length) {
+                int capacity = Math.max(column + 1, values.length * 2);
+                values = Arrays.copyOf(values, capacity);
+                numeric = Arrays.copyOf(numeric, capacity);
+            }
+            values[column] = value;
+            numeric[column] = isNumeric;
+            cellCount = Math.max(cellCount, column + 1);
+        }
+    }
+
+    private static final class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable strings;
+        private final Consumer<XlsxRow> rowHandler;
+        private final XlsxRow row = new XlsxRow();
+        private final StringBuilder text = new StringBuilder();
+
+        private int rowCount;
+        private int column;
+        private int nextColumn;
+        private String cellType;
+        private String cellValue;
+        private boolean collecting;
+
+        private SheetHandler(ReadOnlySharedStringsTable strings, Consumer<XlsxRow> rowHandler) {
+            this.strings = strings;
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    String number = attributes.getValue("r");
+                    // the r attribute is optional, rows without it follow the previous one
+                    rowCount = number == null ? rowCount + 1 : Integer.parseInt(number);
+                    row.reset(rowCount);
+                    nextColumn = 0;
+                }
+                case "c" -> {
+                    String reference = attributes.getValue("r");
+                    column = reference == null ? nextColumn : columnIndex(reference);
+                    nextColumn = column + 1;
+                    cellType = attributes.getValue("t");
+                    cellValue = null;
+                }
+                case "v", "t" -> {
+                    // inline strings may be split into rich text runs, each with its own t element
+                    if (!collecting) text.setLength(0);
+                    collecting = true;
+                }
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v", "t" -> {
+                    cellValue = text.toString();
+                    if ("v".equals(localName)) collecting = false;
+                }
+                case "is" -> collecting = false;
+                case "c" -> {
+                    if (cellValue != null) row.set(column, resolve(cellType, cellValue), isNumeric(cellType));
+                    collecting = false;
+                }
+                case "row" -> {
+                    if (row.getCellCount() > 0) rowHandler.accept(row);
+                }
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) text.append(ch, start, length);
+        }
+
+        private String resolve(String type, String value) {
+            if ("s".equals(type)) {
+                return strings.getItemAt(Integer.parseInt(value.trim())).getString();
+            }
+            return value;
+        }
+
+        private static boolean isNumeric(String type) {
+            return type == null || "n".equals(type);
+        }
+
+        // "AB12" -> 27
+        private static int columnIndex(String reference) {
+            int index = 0;
+            for (int i = 0; i < reference.length(); i++) {
+                char c = reference.charAt(i);
+                if (c < 'A' || c > 'Z') break;
+                index = index * 26 + (c - 'A' + 1);
+            }
+            return index - 1;
+        }
+    }
+}
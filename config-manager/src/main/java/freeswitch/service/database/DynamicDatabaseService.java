@@ -1,8 +1,11 @@
 package freeswitch.service.database;
 
 import freeswitch.config.database.DynamicRoutingDataSource;
-import freeswitch.config.dynamic.core.DataLoader;
+import freeswitch.config.database.TenantDataSource;
+import freeswitch.config.database.TenantDataSourceFactory;
+import freeswitch.dto.PoolStats;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -10,12 +13,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Component
@@ -25,13 +28,11 @@ public class DynamicDatabaseService {
     private final DataSource dataSource;
     @Autowired
     private Environment env;
-    private final Map<String, DataSource> dataSourceCache = new ConcurrentHashMap<>();
-    private final DataLoader dataLoader;
+    private final Map<String, TenantDataSource> dataSourceCache = new ConcurrentHashMap<>();
+    private final TenantDataSourceFactory dataSourceFactory;
     @Value("${admin.db}")
     String adminDb;
 
-    @Getter
-    private final HashMap<String, String> didNumberVsDbName = new HashMap<>();
     @Autowired
     private JdbcTemplate jdbcTemplate;
     @Getter
@@ -39,40 +40,64 @@ public class DynamicDatabaseService {
 
 
     @Autowired
-    public DynamicDatabaseService(@Autowired @Qualifier("mysqlDataSource") DataSource dataSource, DataLoader dataLoader) {
+    public DynamicDatabaseService(@Autowired @Qualifier("mysqlDataSource") DataSource dataSource,
+                                  TenantDataSourceFactory dataSourceFactory) {
         this.dataSource = dataSource;
-        this.dataLoader = dataLoader;
+        this.dataSourceFactory = dataSourceFactory;
     }
 
     public void switchDatabase(String databaseName) {
+        registerDatabase(databaseName);
+        DynamicRoutingDataSource.setDatabase(databaseName);
+    }
+
+    /**
+     * Makes sure a target data source exists for the database without selecting it on the calling thread.
+     */
+    public synchronized void registerDatabase(String databaseName) {
         DynamicRoutingDataSource dynamicDataSource = (DynamicRoutingDataSource) this.dataSource;
 
         if (!dataSourceCache.containsKey(databaseName)) {
-            DriverManagerDataSource newDataSource = new DriverManagerDataSource();
-            newDataSource.setDriverClassName(Objects.requireNonNull(env.getProperty("spring.datasource.driver-class-name")));
-            newDataSource.setUrl(env.getProperty("datasource.url-base") + databaseName);
-            newDataSource.setUsername(env.getProperty("spring.datasource.username"));
-            newDataSource.setPassword(env.getProperty("spring.datasource.password"));
+            // pooled, so reload queries reuse connections instead of opening one per query
+            TenantDataSource newDataSource = dataSourceFactory.create(databaseName);
 
             dataSourceCache.put(databaseName, newDataSource);
             dynamicDataSource.addTargetDataSource(databaseName, newDataSource);
         }
+    }
 
+    /**
+     * Runs the work against the given database on the calling thread only and restores the thread's
+     * previous selection afterwards, so pooled worker threads can load different tenants side by side.
+     */
+    public <T> T runInDatabase(String databaseName, Supplier<T> work) {
+        registerDatabase(databaseName);
+        String previous = DynamicRoutingDataSource.getDatabase();
         DynamicRoutingDataSource.setDatabase(databaseName);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) DynamicRoutingDataSource.clearDatabase();
+            else DynamicRoutingDataSource.setDatabase(previous);
+        }
     }
 
+    // DID number to tenant db lookups moved to the memory-mapped DidDirectory
     @PostConstruct
-    public void loadDbVsDidNumberMap() {
+    public void loadResellerDbs() {
         this.allValidDbs = getResellerDbs();
-        for(String dbName: this.allValidDbs) {
-            switchDatabase(dbName);
-            dataLoader.getDidNumbers().forEach(didNumber -> {
-                if (this.didNumberVsDbName.containsKey(dbName)) {
-                    System.out.println(this.didNumberVsDbName.get(dbName)+ " is duplicate on db-> "+dbName);
-                }
-                this.didNumberVsDbName.put(didNumber, dbName);
-            });
-        }
+    }
+
+    public List<PoolStats> getPoolStats() {
+        return dataSourceCache.values().stream()
+                .map(TenantDataSource::getStats)
+                .sorted(Comparator.comparing(PoolStats::getDbName))
+                .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void closePools() {
+        dataSourceCache.values().forEach(TenantDataSource::close);
     }
 
     public List<String> getResellerDbs() {
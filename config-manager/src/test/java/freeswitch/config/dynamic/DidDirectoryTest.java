@@ -0,0 +1,161 @@
+package freeswitch.config.dynamic;
+
+import freeswitch.config.dynamic.core.StreamingLoader;
+import freeswitch.dto.DidOwner;
+import freeswitch.repository.mysqlrepository.DidAssignmentRepository;
+import freeswitch.service.database.DynamicDatabaseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * DidDirectory over mocked tenant databases: each db's did_assignment rows are served from a list.
+ */
+public class DidDirectoryTest {
+
+    @TempDir
+    Path directoryPath;
+
+    private final Map<String, List<Object[]>> rowsByDb = new HashMap<>();
+    private String currentDb;
+    private DidDirectory directory;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        DynamicDatabaseService databaseService = mock(DynamicDatabaseService.class);
+        DidAssignmentRepository repository = mock(DidAssignmentRepository.class);
+        StreamingLoader streamingLoader = mock(StreamingLoader.class);
+
+        rowsByDb.put("res_a", new ArrayList<>());
+        rowsByDb.put("res_b", new ArrayList<>());
+        when(databaseService.getResellerDbs()).thenReturn(List.of("res_a", "res_b"));
+        when(databaseService.runInDatabase(anyString(), any())).thenAnswer(invocation -> {
+            currentDb = invocation.getArgument(0);
+            return ((Supplier<?>) invocation.getArgument(1)).get();
+        });
+        when(repository.streamDidNumberOwners()).thenAnswer(invocation -> rowsByDb.get(currentDb).stream());
+        when(streamingLoader.forEach(any(), any())).thenAnswer(invocation -> {
+            Supplier<Stream<Object>> query = invocation.getArgument(0);
+            Consumer<Object> rowHandler = invocation.getArgument(1);
+            long count = 0;
+            try (Stream<Object> rows = query.get()) {
+                for (Object row : (Iterable<Object>) rows::iterator) {
+                    rowHandler.accept(row);
+                    count++;
+                }
+            }
+            return count;
+        });
+
+        directory = new DidDirectory(databaseService, repository, streamingLoader, directoryPath.toString());
+    }
+
+    @Test
+    @DisplayName("Number resolves to its db, partner and all of its retail partners")
+    void testLookup() {
+        assign("res_a", "8801711000001", 5, 10);
+        assign("res_a", "8801711000001", 5, 11);
+        assign("res_b", "8801711000002", 7, null);
+        directory.rebuild();
+
+        DidOwner owner = directory.lookup("8801711000001");
+        assertEquals("res_a", owner.getDbName());
+        assertEquals(5, owner.getIdPartner());
+        assertEquals(Set.of(10, 11), new HashSet<>(owner.getRetailPartnerIds()));
+
+        DidOwner other = directory.lookup("8801711000002");
+        assertEquals("res_b", other.getDbName());
+        assertEquals(7, other.getIdPartner());
+        assertTrue(other.getRetailPartnerIds().isEmpty());
+
+        assertNull(directory.lookup("8801711000003"));
+        assertNull(directory.lookup(null));
+        assertEquals(3, directory.size());
+    }
+
+    @Test
+    @DisplayName("Number assigned in several dbs resolves to the db loaded last")
+    void testDuplicateAcrossDbsLastWins() {
+        assign("res_a", "8801711000001", 1, 10);
+        assign("res_b", "8801711000001", 2, 20);
+        assign("res_a", "+88017110000009999", 1, null);   // 17 digits with '+', still packed
+        assign("res_a", "sip-trunk-1", 1, null);          // doesn't pack, kept on the heap
+        assign("res_b", "sip-trunk-1", 2, 21);
+        directory.rebuild();
+
+        DidOwner owner = directory.lookup("8801711000001");
+        assertEquals("res_b", owner.getDbName());
+        assertEquals(2, owner.getIdPartner());
+        assertEquals(List.of(20), owner.getRetailPartnerIds());
+
+        DidOwner overflow = directory.lookup("sip-trunk-1");
+        assertEquals("res_b", overflow.getDbName());
+        assertEquals(List.of(21), overflow.getRetailPartnerIds());
+
+        assertEquals("res_a", directory.dbNameOf("+88017110000009999"));
+        assertNull(directory.lookup("88017110000009999"), "leading '+' is part of the number");
+    }
+
+    @Test
+    @DisplayName("Reloading one tenant replaces only its numbers")
+    void testReloadTenant() {
+        assign("res_a", "8801711000001", 1, null);
+        assign("res_a", "8801711000002", 1, null);
+        assign("res_b", "8801711000003", 2, null);
+        directory.rebuild();
+
+        rowsByDb.get("res_a").clear();
+        assign("res_a", "8801711000002", 3, null);
+        assign("res_a", "8801711000004", 3, null);
+        directory.reloadTenant("res_a");
+
+        assertNull(directory.lookup("8801711000001"));
+        assertEquals(3, directory.lookup("8801711000002").getIdPartner());
+        assertEquals("res_b", directory.dbNameOf("8801711000003"));
+        assertEquals("res_a", directory.dbNameOf("8801711000004"));
+        assertEquals(3, directory.size());
+    }
+
+    @Test
+    @DisplayName("Every number is found across many fence blocks")
+    void testManyNumbers() {
+        int count = 10_000;
+        // interleave the two dbs and insert out of order, the directory sorts them
+        for (int i = count - 1; i >= 0; i--) {
+            assign(i % 2 == 0 ? "res_a" : "res_b", String.valueOf(8801700000000L + i * 7L), i + 1, null);
+        }
+        directory.rebuild();
+
+        assertEquals(count, directory.size());
+        for (int i = 0; i < count; i++) {
+            DidOwner owner = directory.lookup(String.valueOf(8801700000000L + i * 7L));
+            assertNotNull(owner, "number " + i);
+            assertEquals(i + 1, owner.getIdPartner());
+            assertEquals(i % 2 == 0 ? "res_a" : "res_b", owner.getDbName());
+            assertNull(directory.lookup(String.valueOf(8801700000000L + i * 7L + 1)));
+        }
+    }
+
+    private void assign(String dbName, String didNumber, Integer idPartner, Integer idRetailPartner) {
+        rowsByDb.get(dbName).add(new Object[]{didNumber, idPartner, idRetailPartner});
+    }
+}
@@ -0,0 +1,128 @@
+package freeswitch.config.dynamic;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.PackageAccount;
+import com.telcobright.rtc.domainmodel.mysqlentity.PackagePurchase;
+import freeswitch.config.dynamic.core.AllCacheLoader;
+import freeswitch.repository.mysqlrepository.PackagePurchaseRepository;
+import freeswitch.service.database.DynamicDatabaseService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Package account caches over mocked tenant databases: each db's active purchases are served from a list.
+ */
+public class PackageAccountCachesTest {
+
+    private final Map<String, List<PackagePurchase>> purchasesByDb = new HashMap<>();
+    private String currentDb;
+    private PackagePurchaseRepository repository;
+    private AllCacheLoader cacheLoader;
+    private PackageAccountCaches caches;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        DynamicDatabaseService databaseService = mock(DynamicDatabaseService.class);
+        repository = mock(PackagePurchaseRepository.class);
+
+        purchasesByDb.put("res_a", new ArrayList<>());
+        purchasesByDb.put("res_b", new ArrayList<>());
+        when(databaseService.runInDatabase(anyString(), any())).thenAnswer(invocation -> {
+            currentDb = invocation.getArgument(0);
+            return ((Supplier<?>) invocation.getArgument(1)).get();
+        });
+        when(repository.findPkgPurchase(any())).thenAnswer(invocation -> List.copyOf(purchasesByDb.get(currentDb)));
+        when(repository.findPkgPurchaseOfPartners(any(), any())).thenAnswer(invocation -> {
+            Collection<Long> idPartners = invocation.getArgument(0);
+            return purchasesByDb.get(currentDb).stream()
+                    .filter(purchase -> idPartners.contains(purchase.getIdPartner()))
+                    .toList();
+        });
+
+        cacheLoader = new AllCacheLoader(repository);
+        caches = new PackageAccountCaches(databaseService, cacheLoader);
+    }
+
+    @AfterEach
+    void tearDown() {
+        caches.close();
+        cacheLoader.shutdown();
+    }
+
+    @Test
+    @DisplayName("Refreshing a partner replaces its accounts and leaves the other partners and dbs alone")
+    void testRefreshPartners() {
+        purchase("res_a", 1, 5, 100);
+        purchase("res_a", 2, 6, 200);
+        purchase("res_b", 3, 5, 300);
+        assertEquals(List.of(100L), accountIds("res_a", 5));
+        assertEquals(List.of(200L), accountIds("res_a", 6));
+        assertEquals(List.of(300L), accountIds("res_b", 5));
+
+        purchase("res_a", 4, 5, 101);
+        purchase("res_a", 7, 6, 201);
+        caches.refreshPartners("res_a", Set.of(5L));
+
+        assertEquals(List.of(100L, 101L), accountIds("res_a", 5));
+        assertEquals(List.of(200L), accountIds("res_a", 6), "partner 6 was not refreshed");
+        assertEquals(List.of(300L), accountIds("res_b", 5));
+        assertEquals(5L, caches.partnerOfPurchase("res_a", 4L));
+        assertNull(caches.partnerOfPurchase("res_a", 7L));
+    }
+
+    @Test
+    @DisplayName("A purchase moved to another partner is dropped from the first and indexed under the second")
+    void testPurchaseMovedBetweenPartners() {
+        PackagePurchase purchase = purchase("res_a", 1, 5, 100);
+        assertEquals(List.of(100L), accountIds("res_a", 5));
+        assertEquals(5L, caches.partnerOfPurchase("res_a", 1L));
+
+        purchase.setIdPartner(6L);
+        caches.refreshPartners("res_a", Set.of(5L, 6L));
+
+        assertTrue(accountIds("res_a", 5).isEmpty());
+        assertEquals(List.of(100L), accountIds("res_a", 6));
+        assertEquals(6L, caches.partnerOfPurchase("res_a", 1L));
+    }
+
+    @Test
+    @DisplayName("Changes before a tenant's cache is loaded don't touch the database")
+    void testRefreshBeforeLoad() {
+        purchase("res_a", 1, 5, 100);
+        caches.refreshPartners("res_a", Set.of(5L));
+        assertNull(caches.partnerOfPurchase("res_a", 1L));
+        verifyNoInteractions(repository);
+
+        assertEquals(List.of(100L), accountIds("res_a", 5));
+    }
+
+    private List<Long> accountIds(String dbName, long idPartner) {
+        return caches.getPackageAccounts(dbName, idPartner).stream().map(PackageAccount::getId).toList();
+    }
+
+    private PackagePurchase purchase(String dbName, long id, long idPartner, long idAccount) {
+        PackageAccount account = new PackageAccount();
+        account.setId(idAccount);
+        account.setIdpackagePurchase(id);
+
+        PackagePurchase purchase = new PackagePurchase();
+        purchase.setId(id);
+        purchase.setIdPartner(idPartner);
+        purchase.setPurchaseDate(LocalDateTime.now().minusDays(1));
+        purchase.setExpireDate(LocalDateTime.now().plusDays(30 + id));
+        purchase.setPackageAccounts(List.of(account));
+        purchasesByDb.get(dbName).add(purchase);
+        return purchase;
+    }
+}
@@ -0,0 +1,69 @@
+package freeswitch.config.dynamic;
+
+import freeswitch.config.AppConfig;
+import freeswitch.dto.ReloadReport;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stages recorded for a reload, in its report and as meters per stage and tenant.
+ */
+public class ReloadStatsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReloadStats reloadStats = new ReloadStats(new AppConfig().objectMapper(), meterRegistry, 2);
+
+    @Test
+    @DisplayName("Loader stages are reported and exported per tenant")
+    void testTenantStages() {
+        ReloadStats.Recorder recorder = reloadStats.start("full", 7);
+        recorder.inTenant("tenant_a", () -> ReloadStats.time("partners", () -> Map.of(1, "a", 2, "b")));
+        recorder.inTenant("tenant_b", () -> ReloadStats.time("partners", () -> Map.of(1, List.of("a", "b", "c"))));
+        recorder.run(null, ReloadStats.REGISTRY, () -> { });
+        ReloadReport report = recorder.finish(false);
+
+        assertEquals(5, report.getStages().size());
+        assertEquals(2, meterRegistry.get(ReloadStats.STAGE_ROWS).tags("stage", "partners", "tenant", "tenant_a")
+                .counter().count());
+        assertEquals(3, meterRegistry.get(ReloadStats.STAGE_ROWS).tags("stage", "partners", "tenant", "tenant_b")
+                .counter().count());
+        assertEquals(3, meterRegistry.get(ReloadStats.STAGE_ROWS)
+                .tags("stage", ReloadStats.TENANT_CONTEXT, "tenant", "tenant_b").counter().count());
+        assertTrue(meterRegistry.get(ReloadStats.STAGE_BYTES).tags("stage", "partners", "tenant", "tenant_a")
+                .counter().count() > 0);
+        assertEquals(1, meterRegistry.get(ReloadStats.STAGE_TIMER)
+                .tags("stage", ReloadStats.REGISTRY, "tenant", "none").timer().count());
+        assertEquals(1, meterRegistry.get(ReloadStats.RELOAD_TIMER).tags("kind", "full", "outcome", "success")
+                .timer().count());
+    }
+
+    @Test
+    @DisplayName("Repeated reloads add to the same meters, only the last reports are retained")
+    void testRepeatedReloads() {
+        for (int version = 1; version <= 3; version++) {
+            ReloadStats.Recorder recorder = reloadStats.start("partial", version);
+            recorder.inTenant("tenant_a", () -> ReloadStats.time("partners", () -> Map.of(1, "a")));
+            recorder.finish(version == 3);
+        }
+
+        Timer stage = meterRegistry.get(ReloadStats.STAGE_TIMER).tags("stage", "partners", "tenant", "tenant_a").timer();
+        assertEquals(3, stage.count());
+        assertEquals(2, meterRegistry.get(ReloadStats.RELOAD_TIMER).tags("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get(ReloadStats.RELOAD_TIMER).tags("outcome", "failed").timer().count());
+        assertEquals(List.of(3L, 2L), reloadStats.recent(5).stream().map(ReloadReport::getVersion).toList());
+    }
+
+    @Test
+    @DisplayName("Outside of a reload a stage only runs its work")
+    void testUnbound() {
+        assertEquals("done", ReloadStats.time("partners", () -> "done"));
+        assertTrue(meterRegistry.getMeters().isEmpty());
+    }
+}
@@ -0,0 +1,148 @@
+package freeswitch.config.dynamic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.telcobright.rtc.domainmodel.mysqlentity.Partner;
+import com.telcobright.rtc.domainmodel.mysqlentity.PartnerPrefix;
+import com.telcobright.rtc.domainmodel.nonentity.DynamicContext;
+import com.telcobright.rtc.domainmodel.nonentity.Tenant;
+import freeswitch.config.AppConfig;
+import freeswitch.config.dynamic.core.DataLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Round trip of the tenant snapshot: every tenant read back from the Smile stream must equal the
+ * /get-tenant-root JSON of the same context.
+ */
+public class TenantSnapshotWriterTest {
+
+    private static final int PARTNERS = 2000;
+
+    private final ObjectMapper jsonMapper = new AppConfig().objectMapper();
+    private final ObjectMapper smileMapper = jsonMapper.copyWith(new SmileFactory());
+    private final TenantSnapshotWriter writer = new TenantSnapshotWriter(jsonMapper);
+
+    private Tenant root;
+
+    @BeforeEach
+    void setUp() {
+        root = tenant("root", null, 0);
+        Tenant reseller = tenant("reseller1", "root", PARTNERS);
+        root.addChild("reseller1", reseller);
+        reseller.addChild("retail1", tenant("retail1", "reseller1", PARTNERS * 2));
+    }
+
+    @Test
+    @DisplayName("Smile snapshot reads back equal to the JSON of every tenant context")
+    void testRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(root, 7, false, out);
+
+        assertSnapshot(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    @DisplayName("Gzip snapshot reads back equal to the plain one")
+    void testGzipRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(root, 7, true, out);
+
+        assertSnapshot(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    @DisplayName("Smile snapshot is smaller than the JSON tree, gzip smaller still")
+    void testSizeAgainstJson() throws IOException {
+        byte[] json = jsonMapper.writeValueAsBytes(root);
+
+        ByteArrayOutputStream smile = new ByteArrayOutputStream();
+        writer.write(root, 7, false, smile);
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        writer.write(root, 7, true, gzip);
+
+        assertTrue(smile.size() < json.length,
+                "Smile snapshot should be smaller than JSON: " + smile.size() + " vs " + json.length);
+        assertTrue(gzip.size() < smile.size(),
+                "gzip snapshot should be smaller than Smile: " + gzip.size() + " vs " + smile.size());
+    }
+
+    private void assertSnapshot(InputStream in) throws IOException {
+        try (MappingIterator<JsonNode> values = smileMapper.readerFor(JsonNode.class).readValues(in)) {
+            JsonNode header = values.next();
+            assertEquals(TenantSnapshotWriter.FORMAT, header.get("format").asText());
+            assertEquals(TenantSnapshotWriter.FORMAT_VERSION, header.get("formatVersion").asInt());
+            assertEquals(7, header.get("version").asLong());
+            assertEquals(3, header.get("tenantCount").asInt());
+
+            Map<String, Tenant> expected = new HashMap<>();
+            collect(root, expected);
+            List<String> order = new ArrayList<>();
+            while (values.hasNext()) {
+                JsonNode tenant = values.next();
+                String dbName = tenant.get("dbName").asText();
+                order.add(dbName);
+                Tenant source = expected.get(dbName);
+                assertNotNull(source, "unexpected tenant " + dbName);
+                assertEquals(source.getParent(), tenant.get("parent").isNull() ? null : tenant.get("parent").asText());
+                JsonNode json = jsonMapper.readTree(jsonMapper.writeValueAsBytes(source.getContext()));
+                assertEquals(json, tenant.get("context"), "context of " + dbName);
+            }
+            // parents are written before their children
+            assertEquals(List.of("root", "reseller1", "retail1"), order);
+        }
+    }
+
+    private void collect(Tenant tenant, Map<String, Tenant> tenants) {
+        tenants.put(tenant.getDbName(), tenant);
+        tenant.getChildren().values().forEach(child -> collect(child, tenants));
+    }
+
+    private Tenant tenant(String dbName, String parent, int partnerCount) {
+        Map<Integer, Partner> partners = new HashMap<>();
+        List<PartnerPrefix> prefixes = new ArrayList<>();
+        for (int id = 1; id <= partnerCount; id++) {
+            Partner partner = new Partner();
+            partner.setIdPartner(id);
+            partner.setPartnerName(dbName + "-partner-" + id);
+            partner.setCustomerPrePaid(id % 2);
+            partner.setPartnerType(1 + id % 3);
+            partner.setCallSrcId(id % 10);
+            partners.put(id, partner);
+
+            PartnerPrefix prefix = new PartnerPrefix();
+            prefix.setId(id);
+            prefix.setIdPartner(id);
+            prefix.setPrefixType(1);
+            prefix.setPrefix("880" + id);
+            prefixes.add(prefix);
+        }
+
+        DataLoader dataLoader = mock(DataLoader.class);
+        when(dataLoader.loadPartner()).thenReturn(new HashMap<>(partners));
+        when(dataLoader.loadPartnerPrefixes()).thenReturn(prefixes);
+
+        Tenant tenant = new Tenant(dbName);
+        tenant.setParent(parent);
+        tenant.setContext(new DynamicContext(dataLoader));
+        return tenant;
+    }
+}
@@ -0,0 +1,167 @@
+package freeswitch.config.dynamic.core;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.DidAssignment;
+import com.telcobright.rtc.domainmodel.mysqlentity.Partner;
+import com.telcobright.rtc.domainmodel.mysqlentity.PartnerPrefix;
+import com.telcobright.rtc.domainmodel.mysqlentity.Route;
+import com.telcobright.rtc.domainmodel.mysqlentity.RouteMetadata;
+import freeswitch.repository.mysqlrepository.PartnerPrefixRepository;
+import freeswitch.repository.mysqlrepository.PartnerRepository;
+import freeswitch.repository.mysqlrepository.RouteRepository;
+import freeswitch.service.PartnerPrefixService;
+import freeswitch.service.PartnerService;
+import freeswitch.service.RouteService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the statement count of a tenant's partner graph: partners, partner prefixes and the route projection
+ * are one statement each, whatever the number of partners, and hashing or printing the partners of the
+ * resulting maps must not initialize their lazy child collections.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:partners;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class DataLoaderQueryCountTest {
+
+    private static final int PARTNER_GRAPH_STATEMENTS = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PartnerRepository partnerRepository;
+
+    @Autowired
+    private PartnerPrefixRepository partnerPrefixRepository;
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    private DataLoader dataLoader;
+    private Statistics statistics;
+
+    @SpringBootConfiguration
+    @EnableJpaRepositories(
+        basePackageClasses = PartnerRepository.class,
+        includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+            classes = {PartnerRepository.class, PartnerPrefixRepository.class, RouteRepository.class})
+    )
+    static class TestConfig {
+        // only the partner graph, the other entities need MySQL specific columns
+        @Bean
+        PersistenceManagedTypes persistenceManagedTypes() {
+            return PersistenceManagedTypes.of(Partner.class.getName(), PartnerPrefix.class.getName(),
+                    Route.class.getName(), RouteMetadata.class.getName(), DidAssignment.class.getName());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        dataLoader = new DataLoader(null, new PartnerService(partnerRepository),
+                new PartnerPrefixService(partnerPrefixRepository), null, null, null, null, null, null, null,
+                null, null, null, null, null, null, new RouteService(routeRepository), null, null, null);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    @DisplayName("Partner graph costs the same statements for any number of partners")
+    void testPartnerGraphStatementCount(int partnerCount) {
+        int firstId = persistPartners(partnerCount);
+        statistics.clear();
+
+        Map<Integer, Partner> partners = dataLoader.loadPartner();
+        List<PartnerPrefix> partnerPrefixes = dataLoader.loadPartnerPrefixes();
+        HashMap<String, Partner> prefixWisePartners = dataLoader.getPrefixWisePartner1(partners, partnerPrefixes);
+        HashMap<String, Partner> callerIdWisePartners = dataLoader.getCallerIdWisePartner(partners, partnerPrefixes);
+        HashMap<String, Partner> field5WisePartners = dataLoader.getField5WisePartners(partners);
+
+        // ids keep counting across the rolled back runs, so the rows are addressed from the first id
+        assertEquals(partnerCount, partners.size());
+        assertEquals(partnerCount, prefixWisePartners.size());
+        assertEquals(partnerCount, callerIdWisePartners.size());
+        assertEquals(partnerCount, field5WisePartners.size());
+        assertSame(partners.get(firstId), prefixWisePartners.get("880" + firstId));
+        assertSame(partners.get(firstId), field5WisePartners.get("trunk-" + firstId));
+
+        // value comparison of the partners must leave the lazy collections alone
+        partners.values().forEach(partner -> {
+            partner.hashCode();
+            partner.toString();
+            assertEquals(partner, partners.get(partner.getIdPartner()));
+        });
+
+        assertEquals(PARTNER_GRAPH_STATEMENTS, statistics.getPrepareStatementCount(),
+                "statements for " + partnerCount + " partners");
+        assertEquals(0, statistics.getCollectionLoadCount());
+    }
+
+    /**
+     * @return idPartner of the first partner persisted
+     */
+    private int persistPartners(int partnerCount) {
+        Integer firstId = null;
+        for (int i = 1; i <= partnerCount; i++) {
+            Partner partner = new Partner();
+            partner.setPartnerName("partner-" + i);
+            partner.setCustomerPrePaid(1);
+            partner.setPartnerType(1);
+            partner.setDefaultCurrency(1);
+            entityManager.persist(partner);
+            if (firstId == null) firstId = partner.getIdPartner();
+
+            for (int prefixType = 1; prefixType <= 2; prefixType++) {
+                PartnerPrefix prefix = new PartnerPrefix();
+                prefix.setIdPartner(partner.getIdPartner());
+                prefix.setPrefixType(prefixType);
+                prefix.setPrefix((prefixType == 1 ? "880" : "0") + partner.getIdPartner());
+                entityManager.persist(prefix);
+            }
+
+            for (int routeNo = 1; routeNo <= 3; routeNo++) {
+                Route route = new Route();
+                route.setRouteName("route-" + i + "-" + routeNo);
+                route.setSwitchId(1);
+                route.setIdPartner(partner.getIdPartner());
+                // one field5 per partner, the other routes have none
+                route.setField5(routeNo == 1 ? "trunk-" + partner.getIdPartner() : null);
+                entityManager.persist(route);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return firstId;
+    }
+}
@@ -0,0 +1,228 @@
+package freeswitch.service;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.DidAssignment;
+import com.telcobright.rtc.domainmodel.mysqlentity.DidNumber;
+import com.telcobright.rtc.domainmodel.mysqlentity.Partner;
+import com.telcobright.rtc.domainmodel.mysqlentity.PartnerPrefix;
+import com.telcobright.rtc.domainmodel.mysqlentity.Route;
+import com.telcobright.rtc.domainmodel.mysqlentity.RouteMetadata;
+import freeswitch.dto.DidAssignmentDto;
+import freeswitch.dto.DidImportReport;
+import freeswitch.repository.mysqlrepository.DidAssignmentRepository;
+import freeswitch.repository.mysqlrepository.DidNumberRepository;
+import freeswitch.repository.mysqlrepository.PartnerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A synthetic DID assignment upload of 1M rows imported through {@link DidAssignmentService} into H2 in MySQL
+ * mode, against the row by row createDidAssignment path the upload used before on a smaller file. Every import
+ * commits as it goes, the way the upload request runs; the row by row path runs in one transaction, standing in for
+ * the request's open session. Not part of the regular test run:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=DidAssignmentImportBenchmark [-Dbenchmark.rows=1000000 -Dbenchmark.row-by-row-rows=20000
+ *     -Dbenchmark.chunk-size=5000]
+ * </pre>
+ * One row in a hundred names an unknown partner and one in a hundred repeats the DID of the row before it, so the
+ * error report is filled too. MySQL indexes did_assignment.did_number_id through its foreign key, the schema H2
+ * creates from the entity gets the index added here. H2 checks a row found through an IN list index lookup against
+ * the list one value at a time, so its IN queries cost chunk size squared where MySQL's cost the chunk size.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:didimport;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DidAssignmentImportBenchmark {
+
+    private static final int PARTNERS = 50;
+
+    private final int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+    private final int rowByRowRows = Integer.getInteger("benchmark.row-by-row-rows", 20_000);
+    // config.did-import.chunk-size
+    private final int chunkSize = Integer.getInteger("benchmark.chunk-size", 5000);
+
+    @Autowired
+    private PartnerRepository partnerRepository;
+
+    @Autowired
+    private DidNumberRepository didNumberRepository;
+
+    @Autowired
+    private DidAssignmentRepository didAssignmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private DidAssignmentService service;
+    private Statistics statistics;
+    private final List<Integer> partnerIds = new ArrayList<>();
+
+    @SpringBootConfiguration
+    @EnableJpaRepositories(
+        basePackageClasses = PartnerRepository.class,
+        includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+            classes = {PartnerRepository.class, DidNumberRepository.class, DidAssignmentRepository.class})
+    )
+    static class TestConfig {
+        @Bean
+        PersistenceManagedTypes persistenceManagedTypes() {
+            return PersistenceManagedTypes.of(Partner.class.getName(), PartnerPrefix.class.getName(),
+                    Route.class.getName(), RouteMetadata.class.getName(), DidAssignment.class.getName(),
+                    DidNumber.class.getName());
+        }
+
+        // the repositories' default and the name the bulk insert's @Transactional asks for
+        @Bean({"transactionManager", "mysqlTransactionManager"})
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_did_assignment_did_number ON did_assignment (did_number_id)");
+        jdbcTemplate.execute("DELETE FROM did_assignment");
+        jdbcTemplate.execute("DELETE FROM did_number");
+        partnerRepository.findAll().forEach(partner -> partnerIds.add(partner.getIdPartner()));
+        for (int i = partnerIds.size() + 1; i <= PARTNERS; i++) {
+            Partner partner = new Partner();
+            partner.setPartnerName("partner-" + i);
+            partner.setCustomerPrePaid(1);
+            partner.setPartnerType(1);
+            partner.setDefaultCurrency(1);
+            partnerIds.add(partnerRepository.save(partner).getIdPartner());
+        }
+        service = new DidAssignmentService(didAssignmentRepository, partnerRepository, didNumberRepository, chunkSize);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @DisplayName("Bulk import of a 1M row upload")
+    void testBulkImport() {
+        seedDidNumbers(rows);
+        byte[] csv = csv(rows);
+        statistics.clear();
+
+        long startedAt = System.nanoTime();
+        ResponseEntity<DidImportReport> response = service.createDidAssignmentsFromCsv(
+                new MockMultipartFile("file", "dids.csv", "text/csv", csv));
+        long tookNanos = System.nanoTime() - startedAt;
+
+        DidImportReport report = response.getBody();
+        assertNotNull(report);
+        report("bulk import in chunks of " + chunkSize, rows, tookNanos);
+        System.out.println("imported:      " + report.getImported() + ", rejected: " + report.getRejected());
+
+        assertEquals(rows, report.getRowsRead());
+        assertEquals(rows / 50, report.getRejected(), "unknown partners and repeated DIDs");
+        assertEquals(report.getImported(), didAssignmentRepository.count());
+    }
+
+    @Test
+    @DisplayName("Row by row createDidAssignment, as the upload did before")
+    void testRowByRow() throws Exception {
+        seedDidNumbers(rowByRowRows);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("MM/dd/yyyy");
+        List<DidAssignmentDto> dtos = new ArrayList<>(rowByRowRows);
+        for (String line : new String(csv(rowByRowRows), StandardCharsets.UTF_8).split("\n")) {
+            String[] fields = line.split(",");
+            if (fields[0].equals("did_number")) continue;
+            dtos.add(new DidAssignmentDto('0' + fields[0], Integer.parseInt(fields[1]), null,
+                    dateFormat.parse(fields[2]), dateFormat.parse(fields[3]), fields[4]));
+        }
+        statistics.clear();
+
+        long startedAt = System.nanoTime();
+        int[] created = {0};
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> dtos.forEach(dto -> {
+            if (service.createDidAssignment(dto).getStatusCode().is2xxSuccessful()) created[0]++;
+        }));
+        long tookNanos = System.nanoTime() - startedAt;
+
+        report("row by row", rowByRowRows, tookNanos);
+        System.out.println("created:       " + created[0] + " (no overlap check on this path)");
+        assertEquals(created[0], didAssignmentRepository.count());
+    }
+
+    private void report(String name, int rowCount, long tookNanos) {
+        System.out.println("\n=== DID upload, " + name + ": " + rowCount + " rows ===");
+        System.out.println("took:          " + TimeUnit.NANOSECONDS.toMillis(tookNanos) + " ms, "
+                + rowCount * 1_000_000_000L / tookNanos + " rows/s");
+        System.out.println("statements:    " + statistics.getPrepareStatementCount() + " through Hibernate, "
+                + statistics.getQueryExecutionCount() + " of them queries");
+        System.out.println("==========================================\n");
+    }
+
+    private void seedDidNumbers(int count) {
+        List<Object[]> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) numbers.add(new Object[]{"0" + didNumber(i), 1});
+        jdbcTemplate.batchUpdate("INSERT INTO did_number (id, did_pool_id) VALUES (?, ?)", numbers);
+    }
+
+    /**
+     * An upload in the CSV layout: did_number (without its leading 0), partner_id, start_date, expiry_date,
+     * description and a trailing column.
+     */
+    private byte[] csv(int rowCount) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("MM/dd/yyyy");
+        String start = dateFormat.format(new Date());
+        String expiry = dateFormat.format(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(365)));
+        StringBuilder csv = new StringBuilder(rowCount * 64).append("did_number,partner_id,start_date,expiry_date,description,x\n");
+        for (int i = 0; i < rowCount; i++) {
+            // every 100th row an unknown partner, every 100th (offset by 50) the DID of the row before
+            int partnerId = i % 100 == 99 ? -1 : partnerIds.get(i % PARTNERS);
+            long did = i % 100 == 50 ? didNumber(i - 1) : didNumber(i);
+            csv.append(did).append(',').append(partnerId).append(',').append(start).append(',').append(expiry)
+                    .append(",bulk import batch ").append(i / 10_000).append(",-\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long didNumber(int i) {
+        return 1711000000L + i;
+    }
+}
@@ -0,0 +1,114 @@
+package freeswitch.service;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.DidAssignment;
+import freeswitch.dto.DidAssignmentDto;
+import freeswitch.dto.DidImportError;
+import freeswitch.dto.DidImportReport;
+import freeswitch.repository.mysqlrepository.DidAssignmentRepository;
+import freeswitch.repository.mysqlrepository.DidNumberRepository;
+import freeswitch.repository.mysqlrepository.PartnerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * DID assignment import over mocked repositories: existing assignments are served from a list, filtered the way
+ * the repository query filters them.
+ */
+public class DidAssignmentImportTest {
+
+    private final List<DidAssignment> existing = new ArrayList<>();
+    private DidAssignmentImport didImport;
+
+    @BeforeEach
+    void setUp() {
+        DidAssignmentRepository didAssignmentRepository = mock(DidAssignmentRepository.class);
+        PartnerRepository partnerRepository = mock(PartnerRepository.class);
+        DidNumberRepository didNumberRepository = mock(DidNumberRepository.class);
+
+        when(partnerRepository.findExistingIds(any())).thenReturn(List.of(5));
+        when(didNumberRepository.findExistingIds(any())).thenAnswer(invocation -> new ArrayList<>(invocation.getArgument(0)));
+        when(didAssignmentRepository.findAssignmentsRunningAfter(any(), any())).thenAnswer(invocation -> {
+            Collection<String> didNumberIds = invocation.getArgument(0);
+            Date startDate = invocation.getArgument(1);
+            return existing.stream()
+                    .filter(a -> didNumberIds.contains(a.getDidNumberId()))
+                    .filter(a -> a.getExpiryDate() == null || a.getExpiryDate().after(startDate))
+                    .map(a -> new Object[]{a.getDidNumberId(), a.getStartDate(), a.getExpiryDate()})
+                    .toList();
+        });
+        when(didAssignmentRepository.insertExtendedToMysql(any(), anyInt())).thenAnswer(invocation -> {
+            List<DidAssignment> assignments = invocation.getArgument(0);
+            existing.addAll(assignments);
+            return assignments.size();
+        });
+
+        didImport = new DidAssignmentImport(didAssignmentRepository, partnerRepository, didNumberRepository, 2);
+    }
+
+    @Test
+    @DisplayName("A number whose earlier assignment expired can be assigned again")
+    void testReassignAfterExpiry() {
+        existing.add(new DidAssignment(5, "8801711000001", date(2025, 1, 1), date(2025, 12, 31), null));
+
+        didImport.add(1, row("8801711000001", date(2026, 1, 1), null));
+        DidImportReport report = didImport.finish();
+
+        assertEquals(1, report.getImported());
+        assertEquals(0, report.getRejected());
+    }
+
+    @Test
+    @DisplayName("A number still assigned when the new assignment starts is rejected")
+    void testOverlapRejected() {
+        existing.add(new DidAssignment(5, "8801711000001", date(2025, 1, 1), null, null));
+        existing.add(new DidAssignment(5, "8801711000002", date(2025, 1, 1), date(2026, 6, 30), null));
+        // starts after the new one expires, no overlap
+        existing.add(new DidAssignment(5, "8801711000003", date(2027, 1, 1), null, null));
+
+        didImport.add(1, row("8801711000001", date(2026, 1, 1), null));
+        didImport.add(2, row("8801711000002", date(2026, 1, 1), date(2026, 3, 1)));
+        didImport.add(3, row("8801711000003", date(2026, 1, 1), date(2026, 12, 31)));
+        DidImportReport report = didImport.finish();
+
+        assertEquals(1, report.getImported());
+        assertEquals(List.of(1, 2), report.getErrors().stream().map(DidImportError::getRow).toList());
+        report.getErrors().forEach(error -> assertEquals("DID number is already assigned", error.getError()));
+    }
+
+    @Test
+    @DisplayName("A number repeated in the file is rejected only where its periods overlap")
+    void testRepeatedInFile() {
+        // chunks of two rows
+        didImport.add(1, row("8801711000001", date(2026, 1, 1), date(2026, 3, 31)));
+        didImport.add(2, row("8801711000001", date(2026, 4, 1), null));
+        didImport.add(3, row("8801711000002", date(2026, 1, 1), null));
+        didImport.add(4, row("8801711000002", date(2026, 2, 1), null));
+        // checked against the rows the first chunk wrote
+        didImport.add(5, row("8801711000001", date(2026, 5, 1), null));
+        DidImportReport report = didImport.finish();
+
+        assertEquals(3, report.getImported());
+        assertEquals(List.of(4, 5), report.getErrors().stream().map(DidImportError::getRow).toList());
+        assertEquals("DID number appears more than once in the file", report.getErrors().get(0).getError());
+        assertEquals("DID number is already assigned", report.getErrors().get(1).getError());
+    }
+
+    private static DidAssignmentDto row(String didNumberId, Date startDate, Date expiryDate) {
+        return new DidAssignmentDto(didNumberId, 5, null, startDate, expiryDate, null);
+    }
+
+    private static Date date(int year, int month, int day) {
+        return Date.from(LocalDate.of(year, month, day).atStartOfDay().toInstant(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,133 @@
+package freeswitch.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Heap retained while reading a DID assignment upload of 500k rows with {@link XlsxRowReader}, the workbook written
+ * once with inline strings (streaming writers) and once with a shared strings table (Excel), against the
+ * WorkbookFactory DOM the import used before on a tenth of the rows. Retained heap is sampled after a full GC
+ * every 50k rows. Not part of the regular test run:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=XlsxRowReaderHeapBenchmark [-Dbenchmark.rows=500000 -Dbenchmark.dom-rows=50000]
+ * </pre>
+ */
+public class XlsxRowReaderHeapBenchmark {
+
+    private static final long MB = 1024 * 1024;
+    private static final int SAMPLE_EVERY = 50_000;
+
+    private final int rows = Integer.getInteger("benchmark.rows", 500_000);
+    private final int domRows = Integer.getInteger("benchmark.dom-rows", 50_000);
+
+    @Test
+    @DisplayName("Inline string upload is read in bounded heap")
+    void testInlineStrings() throws IOException {
+        long retained = measure(rows, false);
+        assertTrue(retained < 64 * MB, "retained " + retained / MB + " MB reading " + rows + " rows");
+    }
+
+    @Test
+    @DisplayName("Shared string upload retains only the strings table")
+    void testSharedStrings() throws IOException {
+        measure(rows, true);
+    }
+
+    @Test
+    @DisplayName("WorkbookFactory DOM of the same upload, for comparison")
+    void testDom() throws IOException {
+        Path file = write(domRows, true);
+        try {
+            long baseline = usedAfterGc();
+            long startedAt = System.nanoTime();
+            try (InputStream in = Files.newInputStream(file); Workbook workbook = WorkbookFactory.create(in)) {
+                long retained = usedAfterGc() - baseline;
+                report("DOM, shared strings", domRows, file, retained, System.nanoTime() - startedAt);
+                assertEquals(domRows, workbook.getSheetAt(0).getLastRowNum());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private long measure(int rowCount, boolean sharedStrings) throws IOException {
+        Path file = write(rowCount, sharedStrings);
+        try {
+            long baseline = usedAfterGc();
+            long[] retained = {0};
+            int[] read = {0};
+            long startedAt = System.nanoTime();
+            try (InputStream in = Files.newInputStream(file)) {
+                XlsxRowReader.read(in, row -> {
+                    if (++read[0] % SAMPLE_EVERY == 0) {
+                        retained[0] = Math.max(retained[0], usedAfterGc() - baseline);
+                    }
+                });
+            }
+            report(sharedStrings ? "streaming, shared strings" : "streaming, inline strings", rowCount, file,
+                    retained[0], System.nanoTime() - startedAt);
+            assertEquals(rowCount + 1, read[0], "every row and the header");
+            return retained[0];
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void report(String name, int rowCount, Path file, long retained, long nanos) throws IOException {
+        System.out.println("\n=== " + name + ": " + rowCount + " rows, " + Files.size(file) / 1024 + " KB xlsx ===");
+        System.out.println("retained heap: " + retained / 1024 + " KB at most");
+        System.out.println("read in:       " + nanos / 1_000_000 + " ms");
+        System.out.println("==========================================\n");
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * An upload in the import's layout: did_number, partner_id, start_date, expiry_date, description
+     */
+    private static Path write(int rowCount, boolean sharedStrings) throws IOException {
+        Path file = Files.createTempFile("did-upload-", ".xlsx");
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(new XSSFWorkbook(), 1000, true, sharedStrings);
+             OutputStream out = Files.newOutputStream(file)) {
+            Sheet sheet = workbook.createSheet();
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+            Row header = sheet.createRow(0);
+            String[] columns = {"did_number", "partner_id", "start_date", "expiry_date", "description"};
+            for (int i = 0; i < columns.length; i++) header.createCell(i).setCellValue(columns[i]);
+
+            Date start = new Date();
+            for (int i = 1; i <= rowCount; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(Long.toString(1711000000L + i));
+                row.createCell(1).setCellValue(1 + i % 50);
+                row.createCell(2).setCellValue(start);
+                row.getCell(2).setCellStyle(dateStyle);
+                row.createCell(4).setCellValue("bulk import batch " + i / 10_000);
+            }
+            workbook.write(out);
+            workbook.dispose();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,161 @@
+package freeswitch.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRst;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rows read back from workbooks written with POI, with the cells Excel and other writers produce that POI's own
+ * writer doesn't: inline strings split into rich text runs and rows and cells without their r attribute.
+ */
+public class XlsxRowReaderTest {
+
+    private static final Date START = Date.from(LocalDate.of(2026, 1, 1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+
+    @Test
+    @DisplayName("Shared strings, numbers and dates are read with their row numbers")
+    void testSharedStrings() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        XSSFSheet sheet = workbook.createSheet();
+        XSSFRow header = sheet.createRow(0);
+        header.createCell(0).setCellValue("didNumber");
+        header.createCell(1).setCellValue("idPartner");
+        header.createCell(2).setCellValue("startDate");
+        XSSFRow row = sheet.createRow(1);
+        row.createCell(0).setCellValue("8801711000001");
+        row.createCell(1).setCellValue(5);
+        XSSFCell date = row.createCell(2);
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        date.setCellStyle(dateStyle);
+        date.setCellValue(START);
+        // a repeated shared string
+        sheet.createRow(2).createCell(0).setCellValue("didNumber");
+
+        List<ReadRow> rows = read(workbook);
+        assertEquals(3, rows.size());
+        assertEquals(new ReadRow(1, List.of("didNumber", "idPartner", "startDate")), rows.get(0).withoutNumbers());
+        ReadRow first = rows.get(1);
+        assertEquals(2, first.rowNumber);
+        assertEquals("8801711000001", first.values.get(0));
+        assertFalse(first.numeric[0], "a numeric looking string stays text");
+        assertTrue(first.numeric[1]);
+        assertEquals(5.0, first.number1);
+        assertEquals(START, first.date2);
+        assertEquals(new ReadRow(3, List.of("didNumber")), rows.get(2).withoutNumbers());
+    }
+
+    @Test
+    @DisplayName("Inline strings are read whole, rich text runs joined")
+    void testInlineStrings() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        XSSFSheet sheet = workbook.createSheet();
+        XSSFRow row = sheet.createRow(0);
+        inline(row.createCell(0), "8801711000001");
+        inline(row.createCell(1), "88017", "11", "000002");
+        row.createCell(2).setCellValue(7);
+
+        List<ReadRow> rows = read(workbook);
+        assertEquals(1, rows.size());
+        // numbers are raw, as the writer stored them
+        assertEquals(new ReadRow(1, List.of("8801711000001", "8801711000002", "7.0")), rows.get(0).withoutNumbers());
+        assertFalse(rows.get(0).numeric[0]);
+        assertFalse(rows.get(0).numeric[1]);
+        assertTrue(rows.get(0).numeric[2]);
+    }
+
+    @Test
+    @DisplayName("Rows and cells without an r attribute follow the previous one, empty rows are skipped")
+    void testMissingReference() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        XSSFSheet sheet = workbook.createSheet();
+        sheet.createRow(0).createCell(0).setCellValue("a1");
+        // empty row 2, a row with no cells
+        sheet.createRow(1);
+        XSSFRow row3 = sheet.createRow(2);
+        row3.createCell(0).setCellValue("a3");
+        XSSFCell b3 = row3.createCell(1);
+        b3.setCellValue("b3");
+        b3.getCTCell().unsetR();
+        row3.createCell(3).setCellValue("d3");
+        XSSFCell e3 = row3.createCell(4);
+        e3.setCellValue("e3");
+        e3.getCTCell().unsetR();
+        XSSFRow row4 = sheet.createRow(3);
+        row4.getCTRow().unsetR();
+        XSSFCell a4 = row4.createCell(0);
+        a4.setCellValue("a4");
+        a4.getCTCell().unsetR();
+
+        List<ReadRow> rows = read(workbook);
+        assertEquals(List.of(
+                new ReadRow(1, List.of("a1")),
+                new ReadRow(3, Arrays.asList("a3", "b3", null, "d3", "e3")),
+                new ReadRow(4, List.of("a4"))), rows.stream().map(ReadRow::withoutNumbers).toList());
+    }
+
+    @Test
+    @DisplayName("A file that isn't an XLSX is refused")
+    void testUnreadable() {
+        assertThrows(IOException.class, () ->
+                XlsxRowReader.read(new ByteArrayInputStream("didNumber,idPartner".getBytes()), row -> fail()));
+    }
+
+    private static void inline(XSSFCell cell, String... runs) {
+        CTCell ctCell = cell.getCTCell();
+        ctCell.setT(STCellType.INLINE_STR);
+        CTRst is = ctCell.addNewIs();
+        if (runs.length == 1) {
+            is.setT(runs[0]);
+        } else {
+            for (String run : runs) is.addNewR().setT(run);
+        }
+    }
+
+    private static List<ReadRow> read(XSSFWorkbook workbook) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        workbook.close();
+        List<ReadRow> rows = new ArrayList<>();
+        XlsxRowReader.read(new ByteArrayInputStream(out.toByteArray()), row -> {
+            // the row is reused, copy it out
+            List<String> values = new ArrayList<>();
+            boolean[] numeric = new boolean[row.getCellCount()];
+            for (int column = 0; column < row.getCellCount(); column++) {
+                values.add(row.getString(column));
+                numeric[column] = row.isNumeric(column);
+            }
+            rows.add(new ReadRow(row.getRowNumber(), values, numeric, row.getNumber(1), row.getDate(2)));
+        });
+        return rows;
+    }
+
+    private record ReadRow(int rowNumber, List<String> values, boolean[] numeric, Double number1, Date date2) {
+        ReadRow(int rowNumber, List<String> values) {
+            this(rowNumber, values, null, null, null);
+        }
+
+        ReadRow withoutNumbers() {
+            return new ReadRow(rowNumber, values);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.telcobright.routesphere.balance;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live balance of one package account as a scaled long ({@link ReservationEngine#SCALE} decimals), updated
+ * lock-free: concurrent reservations on the same account retry a compare-and-set instead of queueing on a lock.
+ *
+ * The live balance is the table's balanceAfter less the open reservations and the committed usage not yet
+ * written. The table balance it was last reconciled with is kept alongside, so a reload applies only what changed
+ * in the table since (a top-up, a manual correction) and the holds and unwritten usage stay on top of it.
+ */
+public final class AccountBalance {
+    private final long idPackageAccount;
+    private final long idPackagePurchase;
+    private final String name;
+    private final String uom;
+    private final AtomicLong available;
+    // balanceAfter of the table as of the last load and the usage written since, guarded by the writer
+    private long tableBalance;
+
+    AccountBalance(long idPackageAccount, long idPackagePurchase, String name, String uom, long balance) {
+        this.idPackageAccount = idPackageAccount;
+        this.idPackagePurchase = idPackagePurchase;
+        this.name = name;
+        this.uom = uom;
+        this.available = new AtomicLong(balance);
+        this.tableBalance = balance;
+    }
+
+    /**
+     * Takes {@code amount} off the balance if it covers it.
+     */
+    boolean tryReserve(long amount) {
+        long current;
+        do {
+            current = available.get();
+            if (current < amount) return false;
+        } while (!available.compareAndSet(current, current - amount));
+        return true;
+    }
+
+    /**
+     * Takes {@code amount} off even if the balance goes negative: replayed reserves and usage beyond the reserve
+     * were granted already.
+     */
+    void debit(long amount) {
+        available.addAndGet(-amount);
+    }
+
+    void credit(long amount) {
+        available.addAndGet(amount);
+    }
+
+    /**
+     * Reconciles with {@code balance} just read from the table: the difference to the table balance known so far
+     * is applied to the live balance. Must not run concurrently with the writer persisting usage.
+     */
+    void rebase(long balance) {
+        long changed = balance - tableBalance;
+        tableBalance = balance;
+        if (changed != 0) available.addAndGet(changed);
+    }
+
+    /**
+     * Committed usage written to the table, already taken off the live balance when it was committed.
+     */
+    void persisted(long used) {
+        tableBalance -= used;
+    }
+
+    public long getIdPackageAccount() {
+        return idPackageAccount;
+    }
+
+    public long getIdPackagePurchase() {
+        return idPackagePurchase;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUom() {
+        return uom;
+    }
+
+    /**
+     * @return balance left after all open reservations, scaled
+     */
+    public long getAvailable() {
+        return available.get();
+    }
+}
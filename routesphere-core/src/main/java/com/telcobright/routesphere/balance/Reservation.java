@@ -0,0 +1,56 @@
+package com.telcobright.routesphere.balance;
+
+/**
+ * Amount held on one account for one call until the call commits or releases it.
+ */
+public final class Reservation {
+    private final String channelCallUuid;
+    private final AccountBalance account;
+    private final long amount;
+    private final long ratePerMinute;
+    private final long reservedAt;
+
+    Reservation(String channelCallUuid, AccountBalance account, long amount, long ratePerMinute, long reservedAt) {
+        this.channelCallUuid = channelCallUuid;
+        this.account = account;
+        this.amount = amount;
+        this.ratePerMinute = ratePerMinute;
+        this.reservedAt = reservedAt;
+    }
+
+    public String getChannelCallUuid() {
+        return channelCallUuid;
+    }
+
+    public AccountBalance getAccount() {
+        return account;
+    }
+
+    /**
+     * @return reserved amount, scaled
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * @return amount charged per minute of the call in the account's unit, scaled
+     */
+    public long getRatePerMinute() {
+        return ratePerMinute;
+    }
+
+    /**
+     * @return usage of a call billed for {@code billedSeconds}, scaled and rounded up
+     */
+    public long usageFor(long billedSeconds) {
+        return billedSeconds <= 0 ? 0 : Math.ceilDiv(Math.multiplyExact(ratePerMinute, billedSeconds), 60);
+    }
+
+    /**
+     * @return epoch millis of the reservation
+     */
+    public long getReservedAt() {
+        return reservedAt;
+    }
+}
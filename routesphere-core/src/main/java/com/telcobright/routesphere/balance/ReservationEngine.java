@@ -0,0 +1,400 @@
+package com.telcobright.routesphere.balance;
+
+import com.telcobright.routesphere.config.deployment.DeploymentConfigService;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reserves package account balance for calls in memory.
+ *
+ * Balances of the deployment database's active package accounts are held per partner in selection order (on-select
+ * priority, earliest expiry, latest purchase) and moved with compare-and-set only, so the call path never waits on
+ * the database. Every reservation is keyed by channel_call_uuid, ends with {@link #commit} of the used amount or
+ * {@link #release} when the call hangs up (see {@link #settle}), and is persisted to packageaccountreserve behind
+ * the call path by {@link ReserveWriter}. The change of a reservation is queued for the writer in the same atomic
+ * map operation that adds or removes it, so the writer sees the changes of one call in order. A call that ended
+ * is remembered for the settled retention and can't reserve again, so an event of the call handled after its
+ * hangup holds nothing. On startup the reserves still in the table are replayed against the loaded balances, so
+ * a restart neither loses open holds nor grants their amount twice.
+ *
+ * Amounts are longs scaled by {@link #SCALE} decimals, the scale of the balance columns; convert at the
+ * boundary with {@link #scale} and {@link #unscale}.
+ */
+@ApplicationScoped
+public class ReservationEngine {
+
+    private static final Logger LOG = Logger.getLogger(ReservationEngine.class);
+
+    public static final int SCALE = 6;
+
+    private static final String ACCOUNTS = "SELECT pa.id_packageaccount, pa.id_PackagePurchase, pa.name, pa.uom, "
+            + "pa.balanceAfter, pp.id_Partner FROM packageaccount pa "
+            + "JOIN packagepurchase pp ON pp.id = pa.id_PackagePurchase "
+            + "WHERE pp.expireDate > ? "
+            + "ORDER BY pp.id_Partner, CASE WHEN pp.onSelectPriority > 0 THEN pp.onSelectPriority ELSE 2147483647 END, "
+            + "pp.expireDate, pp.purchaseDate DESC, pp.id, pa.id_packageaccount";
+    private static final String RESERVES = "SELECT channel_call_uuid, id_packageaccount, reserveUnit, time "
+            + "FROM packageaccountreserve";
+
+    @Inject
+    DeploymentConfigService deploymentConfig;
+
+    @ConfigProperty(name = "routesphere.reservation.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "routesphere.reservation.flush-interval-ms", defaultValue = "200")
+    long flushIntervalMs;
+
+    @ConfigProperty(name = "routesphere.reservation.batch-size", defaultValue = "500")
+    int batchSize;
+
+    @ConfigProperty(name = "routesphere.reservation.max-hold", defaultValue = "4h")
+    Duration maxHold;
+
+    // charged per minute by reservations that don't set a rate, and by the reserves replayed on startup
+    @ConfigProperty(name = "routesphere.reservation.default-rate-per-minute", defaultValue = "1")
+    BigDecimal defaultRatePerMinute;
+
+    @ConfigProperty(name = "routesphere.reservation.settled-retention", defaultValue = "5m")
+    Duration settledRetention;
+
+    // accounts of each partner in selection order, each array replaced as a whole on reload
+    private final Map<Long, AccountBalance[]> partnerAccounts = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    // calls that ended, by epoch millis of the end
+    private final Map<String, Long> settled = new ConcurrentHashMap<>();
+
+    ReserveWriter writer;
+    private ScheduledExecutorService writerThread;
+    private volatile boolean ready;
+
+    void onStart(@Observes @Priority(10) StartupEvent event) {
+        if (!enabled) return;
+        DeploymentConfigService.DatabaseConfig db = deploymentConfig.getDatabaseConfig();
+        writer = new ReserveWriter(() -> DriverManager.getConnection(db.getUrl(), db.getUsername(), db.getPassword()),
+                batchSize);
+        try {
+            Map<Long, AccountBalance> accounts = loadAccounts();
+            int replayed = replayReserves(accounts);
+            ready = true;
+            LOG.infof("Reservation engine ready: %d accounts of %d partners, %d open reserves replayed",
+                    accounts.size(), partnerAccounts.size(), replayed);
+        } catch (SQLException e) {
+            LOG.errorf("Reservation engine disabled, loading package accounts failed: %s", e.getMessage());
+            return;
+        }
+        writerThread = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("reserve-writer").daemon().factory());
+        writerThread.scheduleWithFixedDelay(this::flushWrites, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushWrites() {
+        // an exception escaping the task would cancel it and stop the write-behind for good
+        try {
+            writer.flush();
+        } catch (RuntimeException e) {
+            LOG.errorf(e, "Flushing reservation changes failed, retrying on next flush");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (writerThread == null) return;
+        writerThread.shutdown();
+        try {
+            writerThread.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // whatever is still queued is written here, the writer thread is gone
+        if (!writer.flush()) {
+            LOG.errorf("%d reservation changes not persisted on shutdown", writer.backlog());
+        }
+        writer.close();
+    }
+
+    /**
+     * @return whether accounts are loaded and reservations are served
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Holds {@code amount} on the first account of the partner in selection order that has the unit and covers it.
+     * Reserving again for the same call returns the reservation it already holds.
+     *
+     * @param ratePerMinute charged per minute once the call is answered, scaled
+     * @return the reservation, null if no single account covers the amount or the call already ended
+     */
+    public Reservation reserve(String channelCallUuid, long idPartner, String uom, long amount, long ratePerMinute) {
+        Reservation held = reservations.get(channelCallUuid);
+        if (held != null) return held;
+        if (isSettled(channelCallUuid)) return null;
+        AccountBalance[] accounts = partnerAccounts.get(idPartner);
+        if (accounts == null) return null;
+        for (AccountBalance account : accounts) {
+            if (!Objects.equals(account.getUom(), uom) || !account.tryReserve(amount)) continue;
+            Reservation reservation = new Reservation(channelCallUuid, account, amount, ratePerMinute,
+                    System.currentTimeMillis());
+            held = reservations.computeIfAbsent(channelCallUuid, uuid -> {
+                // checked again under the key's lock, the end of the call records it there
+                if (settled.containsKey(uuid)) return null;
+                writer.enqueue(new ReserveWriter.Change(ReserveWriter.Kind.RESERVE, reservation, 0));
+                return reservation;
+            });
+            if (held != reservation) {
+                // the same call reserved concurrently and won, or ended meanwhile
+                account.credit(amount);
+            }
+            return held;
+        }
+        return null;
+    }
+
+    /**
+     * Ends the call's reservation charging {@code used}: the unused part goes back to the account, usage beyond
+     * the reservation is taken from it as well.
+     *
+     * @return false if the call holds no reservation
+     */
+    public boolean commit(String channelCallUuid, long used) {
+        Reservation reservation = end(channelCallUuid, ReserveWriter.Kind.COMMIT, used);
+        if (reservation == null) return false;
+        reservation.getAccount().credit(reservation.getAmount() - used);
+        return true;
+    }
+
+    /**
+     * Ends the call's reservation without charging anything.
+     *
+     * @return false if the call holds no reservation
+     */
+    public boolean release(String channelCallUuid) {
+        Reservation reservation = end(channelCallUuid, ReserveWriter.Kind.RELEASE, 0);
+        if (reservation == null) return false;
+        reservation.getAccount().credit(reservation.getAmount());
+        return true;
+    }
+
+    /**
+     * Ends the reservation of a call that hung up: an answered call commits its billed seconds at the reservation's
+     * rate, a failed or unanswered one releases it.
+     *
+     * @return false if the call holds no reservation
+     */
+    public boolean settle(String channelCallUuid, boolean answered, long billedSeconds) {
+        Reservation reservation = answered ? reservations.get(channelCallUuid) : null;
+        return reservation != null
+                ? commit(channelCallUuid, reservation.usageFor(billedSeconds))
+                : release(channelCallUuid);
+    }
+
+    /**
+     * @return whether the call ended within the settled retention, a reserve for it is refused
+     */
+    public boolean isSettled(String channelCallUuid) {
+        return settled.containsKey(channelCallUuid);
+    }
+
+    /**
+     * @return rate per minute of reservations that don't set one, scaled
+     */
+    public long getDefaultRatePerMinute() {
+        return scale(defaultRatePerMinute);
+    }
+
+    /**
+     * @return balance of the partner's accounts in {@code uom} left after open reservations, scaled
+     */
+    public long available(long idPartner, String uom) {
+        AccountBalance[] accounts = partnerAccounts.get(idPartner);
+        if (accounts == null) return 0;
+        long total = 0;
+        for (AccountBalance account : accounts) {
+            if (Objects.equals(account.getUom(), uom)) total += Math.max(0, account.getAvailable());
+        }
+        return total;
+    }
+
+    public Reservation getReservation(String channelCallUuid) {
+        return reservations.get(channelCallUuid);
+    }
+
+    public int getOpenReservations() {
+        return reservations.size();
+    }
+
+    /**
+     * Releases reservations held longer than the max hold, calls that ended without committing, and forgets the
+     * calls settled before the settled retention.
+     */
+    @Scheduled(every = "${routesphere.reservation.sweep-interval:60s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void releaseStale() {
+        if (!ready) return;
+        long settledBefore = System.currentTimeMillis() - settledRetention.toMillis();
+        settled.values().removeIf(endedAt -> endedAt < settledBefore);
+        long cutoff = System.currentTimeMillis() - maxHold.toMillis();
+        int released = 0;
+        for (Reservation reservation : reservations.values()) {
+            if (reservation.getReservedAt() < cutoff && release(reservation.getChannelCallUuid())) released++;
+        }
+        if (released > 0) LOG.warnf("Released %d reservations held longer than %s", released, maxHold);
+    }
+
+    /**
+     * Picks up new and expired purchases, and changes to the balance of the accounts already loaded: those keep
+     * their open reservations and the usage not yet written on top of the balance read, see
+     * {@link AccountBalance#rebase}.
+     */
+    @Scheduled(every = "${routesphere.reservation.account-refresh:60s}", delayed = "${routesphere.reservation.account-refresh:60s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void reloadAccounts() {
+        if (!ready) return;
+        try {
+            loadAccounts();
+        } catch (SQLException e) {
+            LOG.errorf("Reloading package accounts failed, keeping the loaded ones: %s", e.getMessage());
+        }
+    }
+
+    private Reservation end(String channelCallUuid, ReserveWriter.Kind kind, long used) {
+        Reservation[] ended = new Reservation[1];
+        reservations.compute(channelCallUuid, (uuid, reservation) -> {
+            // recorded under the key's lock, a reserve of the call can't get in after its end
+            settled.put(uuid, System.currentTimeMillis());
+            if (reservation != null) {
+                writer.enqueue(new ReserveWriter.Change(kind, reservation, used));
+                ended[0] = reservation;
+            }
+            return null;
+        });
+        return ended[0];
+    }
+
+    public static long scale(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal unscale(long amount) {
+        return BigDecimal.valueOf(amount, SCALE);
+    }
+
+    private Map<Long, AccountBalance> loadAccounts() throws SQLException {
+        // read and applied while the writer is idle, so the balances read include exactly the usage it persisted
+        synchronized (writer) {
+            List<AccountRow> rows = new ArrayList<>();
+            try (Connection conn = openConnection();
+                 PreparedStatement statement = conn.prepareStatement(ACCOUNTS)) {
+                statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        BigDecimal balance = rs.getBigDecimal(5);
+                        rows.add(new AccountRow(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4),
+                                balance == null ? 0 : scale(balance), rs.getLong(6)));
+                    }
+                }
+            }
+            return applyAccounts(rows);
+        }
+    }
+
+    /**
+     * Replaces the partners' account lists with {@code rows}, in selection order. Accounts already loaded are
+     * kept and rebased on the balance read.
+     *
+     * @return the accounts by id
+     */
+    Map<Long, AccountBalance> applyAccounts(List<AccountRow> rows) {
+        Map<Long, AccountBalance> loaded = new HashMap<>();
+        partnerAccounts.values().forEach(accounts -> {
+            for (AccountBalance account : accounts) loaded.put(account.getIdPackageAccount(), account);
+        });
+
+        Map<Long, List<AccountBalance>> byPartner = new LinkedHashMap<>();
+        Map<Long, AccountBalance> accounts = new HashMap<>();
+        for (AccountRow row : rows) {
+            AccountBalance account = loaded.get(row.idPackageAccount());
+            if (account == null) {
+                account = new AccountBalance(row.idPackageAccount(), row.idPackagePurchase(), row.name(), row.uom(),
+                        row.balance());
+            } else {
+                account.rebase(row.balance());
+            }
+            accounts.put(row.idPackageAccount(), account);
+            byPartner.computeIfAbsent(row.idPartner(), idPartner -> new ArrayList<>()).add(account);
+        }
+        byPartner.forEach((idPartner, list) -> partnerAccounts.put(idPartner, list.toArray(new AccountBalance[0])));
+        partnerAccounts.keySet().retainAll(byPartner.keySet());
+        return accounts;
+    }
+
+    private int replayReserves(Map<Long, AccountBalance> accounts) throws SQLException {
+        int replayed = 0;
+        try (Connection conn = openConnection();
+             PreparedStatement statement = conn.prepareStatement(RESERVES);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                String channelCallUuid = rs.getString(1);
+                AccountBalance account = accounts.get(rs.getLong(2));
+                long amount = rs.getBigDecimal(3) == null ? 0 : scale(rs.getBigDecimal(3));
+                Reservation reservation = new Reservation(channelCallUuid, account, amount, getDefaultRatePerMinute(),
+                        reservedAt(rs.getString(4)));
+                if (account == null) {
+                    // purchase expired or account removed while the call was up, nothing left to hold
+                    writer.enqueue(new ReserveWriter.Change(ReserveWriter.Kind.RELEASE, reservation, 0));
+                    continue;
+                }
+                account.debit(amount);
+                // a second row of the same call stays held until restart, only one reservation is kept per call
+                if (reservations.putIfAbsent(channelCallUuid, reservation) != null) {
+                    LOG.warnf("Call %s holds more than one reserve, keeping the first", channelCallUuid);
+                }
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    private static long reservedAt(String time) {
+        if (time != null) {
+            try {
+                return Timestamp.valueOf(LocalDateTime.parse(time)).getTime();
+            } catch (DateTimeParseException ignored) {
+                // written by something else, counts as reserved now
+            }
+        }
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * One package account as read from the table, balance scaled
+     */
+    record AccountRow(long idPackageAccount, long idPackagePurchase, String name, String uom, long balance,
+                      long idPartner) {
+    }
+
+    private Connection openConnection() throws SQLException {
+        DeploymentConfigService.DatabaseConfig db = deploymentConfig.getDatabaseConfig();
+        return DriverManager.getConnection(db.getUrl(), db.getUsername(), db.getPassword());
+    }
+}
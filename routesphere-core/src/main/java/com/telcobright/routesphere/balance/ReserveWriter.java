@@ -0,0 +1,203 @@
+package com.telcobright.routesphere.balance;
+
+import org.jboss.logging.Logger;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind of the reservation changes to packageaccountreserve and packageaccount.
+ *
+ * The call path only enqueues; {@link #flush()} runs on the engine's writer thread and writes up to
+ * {@code batchSize} changes per transaction: new reserves as one multi-row INSERT, ended reserves as one DELETE
+ * by channel_call_uuid and committed usage as batched balance UPDATEs. A reserve that ends within the same batch
+ * is never written at all. A failed batch, whatever it failed on, is rolled back and retried first on the next
+ * flush, so the table never holds a partial batch and a crash loses at most the changes not yet flushed. A flush
+ * holds the writer's lock, which the engine takes to read balances consistent with the usage written so far.
+ */
+final class ReserveWriter {
+
+    private static final Logger LOG = Logger.getLogger(ReserveWriter.class);
+
+    private static final String INSERT = "INSERT INTO packageaccountreserve "
+            + "(id_packageaccount, channel_call_uuid, id_PackagePurchase, name, reserveUnit, uom, time) VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE = "DELETE FROM packageaccountreserve WHERE channel_call_uuid IN ";
+    private static final String UPDATE_BALANCE = "UPDATE packageaccount "
+            + "SET lastAmount = ?, balanceBefore = balanceAfter, balanceAfter = balanceAfter - ? "
+            + "WHERE id_packageaccount = ?";
+
+    enum Kind { RESERVE, COMMIT, RELEASE }
+
+    static final class Change {
+        final Kind kind;
+        final Reservation reservation;
+        // committed usage, scaled
+        final long used;
+
+        Change(Kind kind, Reservation reservation, long used) {
+            this.kind = kind;
+            this.reservation = reservation;
+            this.used = used;
+        }
+    }
+
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final ConnectionFactory connections;
+    private final int batchSize;
+    private final Queue<Change> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    // changes of a failed batch, written before anything newer; touched by the writer thread only
+    private final List<Change> retry = new ArrayList<>();
+    private Connection connection;
+
+    ReserveWriter(ConnectionFactory connections, int batchSize) {
+        this.connections = connections;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    void enqueue(Change change) {
+        queue.add(change);
+        queued.incrementAndGet();
+    }
+
+    int backlog() {
+        return queued.get() + retry.size();
+    }
+
+    /**
+     * Writes everything queued so far, one transaction per batch.
+     *
+     * @return false if a batch failed and is kept for the next flush
+     */
+    synchronized boolean flush() {
+        while (!retry.isEmpty() || !queue.isEmpty()) {
+            List<Change> batch = new ArrayList<>(retry);
+            retry.clear();
+            Change change;
+            while (batch.size() < batchSize && (change = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(change);
+            }
+            try {
+                write(batch);
+            } catch (SQLException | RuntimeException e) {
+                LOG.errorf("Writing %d reservation changes failed, retrying on next flush: %s", batch.size(), e.getMessage());
+                retry.addAll(batch);
+                closeConnection();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void close() {
+        closeConnection();
+    }
+
+    private void write(List<Change> batch) throws SQLException {
+        Map<String, Reservation> inserts = new LinkedHashMap<>();
+        List<String> deletes = new ArrayList<>();
+        List<Change> commits = new ArrayList<>();
+        for (Change change : batch) {
+            String uuid = change.reservation.getChannelCallUuid();
+            if (change.kind == Kind.RESERVE) {
+                inserts.put(uuid, change.reservation);
+                continue;
+            }
+            // reserved and ended within the batch: nothing to persist for the reserve row
+            if (inserts.remove(uuid) == null) deletes.add(uuid);
+            if (change.kind == Kind.COMMIT && change.used != 0) commits.add(change);
+        }
+        if (inserts.isEmpty() && deletes.isEmpty() && commits.isEmpty()) return;
+
+        Connection conn = connection();
+        try {
+            if (!inserts.isEmpty()) insert(conn, inserts.values());
+            if (!deletes.isEmpty()) delete(conn, deletes);
+            if (!commits.isEmpty()) updateBalances(conn, commits);
+            conn.commit();
+            commits.forEach(commit -> commit.reservation.getAccount().persisted(commit.used));
+        } catch (SQLException | RuntimeException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ignored) {
+                // the connection is dropped anyway
+            }
+            throw e;
+        }
+    }
+
+    private void insert(Connection conn, Collection<Reservation> reservations) throws SQLException {
+        String sql = INSERT + String.join(", ", Collections.nCopies(reservations.size(), INSERT_ROW));
+        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+            int parameter = 1;
+            for (Reservation reservation : reservations) {
+                AccountBalance account = reservation.getAccount();
+                statement.setLong(parameter++, account.getIdPackageAccount());
+                statement.setString(parameter++, reservation.getChannelCallUuid());
+                statement.setLong(parameter++, account.getIdPackagePurchase());
+                statement.setString(parameter++, account.getName());
+                statement.setBigDecimal(parameter++, unscaled(reservation.getAmount()));
+                statement.setString(parameter++, account.getUom());
+                statement.setString(parameter++, LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(reservation.getReservedAt()), ZoneId.systemDefault()).toString());
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private void delete(Connection conn, List<String> channelCallUuids) throws SQLException {
+        String sql = DELETE + "(" + String.join(", ", Collections.nCopies(channelCallUuids.size(), "?")) + ")";
+        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+            for (int i = 0; i < channelCallUuids.size(); i++) statement.setString(i + 1, channelCallUuids.get(i));
+            statement.executeUpdate();
+        }
+    }
+
+    private void updateBalances(Connection conn, List<Change> commits) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(UPDATE_BALANCE)) {
+            for (Change commit : commits) {
+                BigDecimal used = unscaled(commit.used);
+                statement.setBigDecimal(1, used);
+                statement.setBigDecimal(2, used);
+                statement.setLong(3, commit.reservation.getAccount().getIdPackageAccount());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = connections.open();
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+
+    private void closeConnection() {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // reopened on the next flush
+        }
+        connection = null;
+    }
+
+    private static BigDecimal unscaled(long amount) {
+        return BigDecimal.valueOf(amount, ReservationEngine.SCALE);
+    }
+}
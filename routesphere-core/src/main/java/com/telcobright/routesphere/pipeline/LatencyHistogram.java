@@ -0,0 +1,69 @@
+package com.telcobright.routesphere.pipeline;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with power-of-two nanosecond buckets, recorded without locks from any number of threads.
+ * Percentiles are reported as the upper bound of their bucket, so they are accurate to within a factor of two.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        // bucket i holds [2^i, 2^(i+1)), zero goes with one
+        buckets.incrementAndGet(Math.max(0, BUCKETS - 1 - Long.numberOfLeadingZeros(nanos)));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return upper bound in nanos of the bucket holding the given percentile (0-100)
+     */
+    public long percentileNanos(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * @return count, mean, p50, p99, p999 and max in microseconds
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long n = count.sum();
+        snapshot.put("count", n);
+        snapshot.put("meanUs", n == 0 ? 0 : totalNanos.sum() / n / 1_000);
+        snapshot.put("p50Us", percentileNanos(50) / 1_000);
+        snapshot.put("p99Us", percentileNanos(99) / 1_000);
+        snapshot.put("p999Us", percentileNanos(99.9) / 1_000);
+        snapshot.put("maxUs", maxNanos.get() / 1_000);
+        return snapshot;
+    }
+}
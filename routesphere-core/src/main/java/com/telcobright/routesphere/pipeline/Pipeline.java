@@ -0,0 +1,90 @@
+package com.telcobright.routesphere.pipeline;
+
+import com.telcobright.routesphere.rules.api.PipelineContext;
+import org.jboss.logging.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named, ordered list of stages an event runs through. Shared by every channel naming it and safe to run from
+ * any number of threads; the stages keep no per-event state outside the context.
+ */
+public final class Pipeline {
+
+    private static final Logger LOG = Logger.getLogger(Pipeline.class);
+
+    private final String name;
+    private final PipelineStage[] stages;
+    private final LatencyHistogram[] stageLatency;
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder stopped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    Pipeline(String name, List<PipelineStage> stages) {
+        this.name = name;
+        this.stages = stages.toArray(new PipelineStage[0]);
+        this.stageLatency = new LatencyHistogram[this.stages.length];
+        for (int i = 0; i < stageLatency.length; i++) stageLatency[i] = new LatencyHistogram();
+    }
+
+    /**
+     * Run the context through the stages in order
+     *
+     * @return false if a stage ended the pipeline or failed
+     */
+    public boolean run(PipelineContext context) {
+        long start = System.nanoTime();
+        try {
+            long stageStart = start;
+            for (int i = 0; i < stages.length; i++) {
+                boolean proceed;
+                try {
+                    proceed = stages[i].process(context);
+                } finally {
+                    long now = System.nanoTime();
+                    stageLatency[i].record(now - stageStart);
+                    stageStart = now;
+                }
+                if (!proceed) {
+                    stopped.increment();
+                    return false;
+                }
+            }
+            completed.increment();
+            return true;
+        } catch (Exception e) {
+            failed.increment();
+            LOG.errorf("Pipeline %s failed: %s", name, e.getMessage());
+            return false;
+        } finally {
+            totalLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStageCount() {
+        return stages.length;
+    }
+
+    /**
+     * Outcome counters and latency histograms, total and per stage
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("completed", completed.sum());
+        stats.put("stopped", stopped.sum());
+        stats.put("failed", failed.sum());
+        stats.put("latency", totalLatency.snapshot());
+        Map<String, Object> perStage = new LinkedHashMap<>();
+        for (int i = 0; i < stages.length; i++) perStage.put(stages[i].getName(), stageLatency[i].snapshot());
+        stats.put("stages", perStage);
+        return stats;
+    }
+}
@@ -0,0 +1,126 @@
+package com.telcobright.routesphere.pipeline;
+
+import com.telcobright.routesphere.protocols.base.ChannelConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the named pipelines channels run their events through and the executor feeding each channel's pipeline.
+ *
+ * A pipeline is built from the processors listed in the pipeline section of the first channel config naming it,
+ * each processor resolved to the {@link PipelineStage} bean of that name; processors without a stage are skipped.
+ * A pipeline left without stages gets no executor, its channels run no pipeline.
+ * The section may also set the executor of its channel: queue-capacity, workers, worker-type (virtual or
+ * platform), backpressure (block or drop) and offer-timeout-ms, falling back to the routesphere.pipeline defaults.
+ */
+@ApplicationScoped
+public class PipelineEngine {
+
+    private static final Logger LOG = Logger.getLogger(PipelineEngine.class);
+
+    @Inject
+    Instance<PipelineStage> stageInstances;
+
+    @ConfigProperty(name = "routesphere.pipeline.queue-capacity", defaultValue = "10000")
+    int defaultQueueCapacity;
+
+    @ConfigProperty(name = "routesphere.pipeline.workers", defaultValue = "4")
+    int defaultWorkers;
+
+    @ConfigProperty(name = "routesphere.pipeline.worker-type", defaultValue = "virtual")
+    String defaultWorkerType;
+
+    @ConfigProperty(name = "routesphere.pipeline.backpressure", defaultValue = "block")
+    String defaultBackpressure;
+
+    @ConfigProperty(name = "routesphere.pipeline.offer-timeout-ms", defaultValue = "50")
+    long defaultOfferTimeoutMs;
+
+    private final Map<String, PipelineStage> stages = new HashMap<>();
+    private final Map<String, Pipeline> pipelines = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        for (PipelineStage stage : stageInstances) {
+            stages.put(stage.getName(), stage);
+        }
+        LOG.infof("Registered %d pipeline stages: %s", stages.size(), stages.keySet());
+    }
+
+    /**
+     * Executor running the channel's events through its pipeline
+     *
+     * @return null if the channel names no pipeline
+     */
+    public PipelineExecutor executorFor(String tenant, ChannelConfig config) {
+        String pipelineName = config.getPipelineName();
+        Map<String, Object> settings = config.getPipelineSettings() != null ? config.getPipelineSettings() : Map.of();
+        if (pipelineName == null) {
+            if (!settings.containsKey("processors")) return null;
+            pipelineName = config.getName() + "-pipeline";
+        }
+        Pipeline pipeline = pipelines.computeIfAbsent(pipelineName, name -> build(name, settings));
+        if (pipeline.getStageCount() == 0) {
+            LOG.warnf("Channel %s: pipeline %s has no stages, events are not run through it", config.getName(),
+                    pipelineName);
+            return null;
+        }
+
+        boolean virtualThreads = !"platform".equalsIgnoreCase(setting(settings, "worker-type", defaultWorkerType));
+        PipelineExecutor.Backpressure backpressure = PipelineExecutor.Backpressure.valueOf(
+                setting(settings, "backpressure", defaultBackpressure).toUpperCase(Locale.ROOT));
+        int capacity = Integer.parseInt(setting(settings, "queue-capacity", String.valueOf(defaultQueueCapacity)));
+        int workers = Integer.parseInt(setting(settings, "workers", String.valueOf(defaultWorkers)));
+        long offerTimeoutMs = Long.parseLong(setting(settings, "offer-timeout-ms", String.valueOf(defaultOfferTimeoutMs)));
+
+        LOG.infof("Channel %s runs pipeline %s (%d stages): %d %s workers, queue %d, backpressure %s",
+                config.getName(), pipelineName, pipeline.getStageCount(), workers,
+                virtualThreads ? "virtual" : "platform", capacity, backpressure);
+        return new PipelineExecutor(config.getName(), tenant, pipeline, capacity, workers, virtualThreads,
+                backpressure, offerTimeoutMs);
+    }
+
+    public Pipeline getPipeline(String name) {
+        return pipelines.get(name);
+    }
+
+    /**
+     * Stats of every pipeline built so far, by name
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        pipelines.forEach((name, pipeline) -> stats.put(name, pipeline.getStats()));
+        return stats;
+    }
+
+    private Pipeline build(String name, Map<String, Object> settings) {
+        List<PipelineStage> resolved = new ArrayList<>();
+        Object processors = settings.get("processors");
+        if (processors instanceof List<?> names) {
+            for (Object processor : names) {
+                PipelineStage stage = stages.get(String.valueOf(processor));
+                if (stage == null) {
+                    LOG.warnf("Pipeline %s: no stage for processor %s, skipped", name, processor);
+                    continue;
+                }
+                resolved.add(stage.configure(settings));
+            }
+        }
+        if (resolved.isEmpty()) {
+            LOG.warnf("Pipeline %s has no processors with a stage (processors: %s)", name, processors);
+        }
+        return new Pipeline(name, resolved);
+    }
+
+    private static String setting(Map<String, Object> settings, String key, String defaultValue) {
+        Object value = settings.get(key);
+        return value != null ? value.toString() : defaultValue;
+    }
+}
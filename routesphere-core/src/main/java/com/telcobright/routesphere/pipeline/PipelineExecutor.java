@@ -0,0 +1,230 @@
+package com.telcobright.routesphere.pipeline;
+
+import com.telcobright.routesphere.protocols.esl.EslEvent;
+import com.telcobright.routesphere.protocols.esl.EslHeader;
+import com.telcobright.routesphere.rules.api.PipelineContext;
+import org.jboss.logging.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the events of one channel through its pipeline on a set of worker threads, each draining its own bounded
+ * queue; the capacity is split evenly between them.
+ *
+ * An event submitted with a key goes to the worker the key hashes to, so events of one key (the Channel-Call-UUID
+ * of an ESL event) run one at a time in the order submitted while different keys run in parallel. Events without
+ * a key are spread over the workers in turn. When a worker's queue is full, {@link Backpressure#BLOCK} holds the
+ * submitting thread up to the offer timeout, slowing the channel's source down to what the workers keep up with,
+ * and {@link Backpressure#DROP} rejects the event at once. Rejected events are counted, never queued beyond the
+ * capacity.
+ */
+public final class PipelineExecutor {
+
+    private static final Logger LOG = Logger.getLogger(PipelineExecutor.class);
+
+    public enum Backpressure {
+        BLOCK,
+        DROP
+    }
+
+    private final String channelName;
+    private final String tenant;
+    private final Pipeline pipeline;
+    private final Worker[] workers;
+    private final Backpressure backpressure;
+    private final long offerTimeoutMs;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean running = true;
+
+    PipelineExecutor(String channelName, String tenant, Pipeline pipeline, int capacity, int workerCount,
+                     boolean virtualThreads, Backpressure backpressure, long offerTimeoutMs) {
+        this.channelName = channelName;
+        this.tenant = tenant;
+        this.pipeline = pipeline;
+        this.backpressure = backpressure;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.workers = new Worker[Math.max(1, workerCount)];
+        int workerCapacity = Math.max(1, Math.ceilDiv(capacity, workers.length));
+        Thread.Builder builder = virtualThreads
+                ? Thread.ofVirtual().name(channelName + "-pipeline-", 0)
+                : Thread.ofPlatform().daemon().name(channelName + "-pipeline-", 0);
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(workerCapacity);
+            workers[i].thread = builder.start(workers[i]::work);
+        }
+    }
+
+    /**
+     * Queue the event for the next worker in turn
+     *
+     * @return false if the worker's queue stayed full and the event was rejected
+     */
+    public boolean submit(Object event) {
+        return submit(event, workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)]);
+    }
+
+    /**
+     * Queue the event for the worker of {@code key}, behind the events submitted earlier with the same key
+     *
+     * @return false if the worker's queue stayed full and the event was rejected
+     */
+    public boolean submit(Object event, String key) {
+        if (key == null || key.isEmpty()) return submit(event);
+        int hash = key.hashCode();
+        return submit(event, workers[Math.floorMod(hash ^ (hash >>> 16), workers.length)]);
+    }
+
+    private boolean submit(Object event, Worker worker) {
+        Task task = new Task(event, System.nanoTime());
+        boolean queued;
+        try {
+            queued = running && (backpressure == Backpressure.BLOCK
+                    ? worker.queue.offer(task, offerTimeoutMs, TimeUnit.MILLISECONDS)
+                    : worker.queue.offer(task));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (queued) {
+            submitted.increment();
+        } else {
+            rejected.increment();
+            LOG.debugf("Channel %s pipeline queue full, event rejected", channelName);
+        }
+        return queued;
+    }
+
+    /**
+     * Run the event through the pipeline on the calling thread, for channels that need the outcome
+     */
+    public boolean execute(Object event) {
+        return pipeline.run(newContext(event));
+    }
+
+    /**
+     * Stop taking events, let the workers finish what is queued and wait for them
+     */
+    public void close() {
+        running = false;
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (worker.thread.isAlive()) worker.thread.interrupt();
+        }
+        int unprocessed = getQueueDepth();
+        if (unprocessed > 0) LOG.warnf("Channel %s closed with %d events unprocessed", channelName, unprocessed);
+    }
+
+    private PipelineContext newContext(Object event) {
+        PipelineContext context = new PipelineContext(tenant);
+        if (event instanceof Map<?, ?> fields) {
+            fields.forEach((key, value) -> context.setData(String.valueOf(key), value));
+            // protocol headers readable through PipelineContext#getHeader
+            if (fields.get("data") instanceof Map<?, ?> headers) context.setData("headers", headers);
+            // rules read the partner as a number
+            Object idPartner = fields.get("idPartner");
+            if (idPartner != null && !(idPartner instanceof Number)) context.setData("idPartner", parseId(idPartner.toString()));
+        } else if (event instanceof EslEvent eslEvent) {
+            context.setData("type", "esl");
+            context.setData("eventName", eslEvent.getEventName());
+            context.setData("channelId", eslEvent.getChannelId());
+            context.setData("headers", eslEvent.getEventData());
+            // the call the event belongs to, and its partner once the dialplan exported the routing
+            context.setData("channelCallUuid", eslEvent.getChannelCallUuid());
+            Long idPartner = parseId(eslEvent.header(EslHeader.ROUTESPHERE_PARTNER));
+            if (idPartner != null) context.setData("idPartner", idPartner);
+        }
+        context.setData("event", event);
+        context.setMetadata("channel", channelName);
+        context.setMetadata("pipeline", pipeline.getName());
+        return context;
+    }
+
+    private static Long parseId(String value) {
+        if (value == null) return null;
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public Pipeline getPipeline() {
+        return pipeline;
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Worker worker : workers) depth += worker.queue.size();
+        return depth;
+    }
+
+    /**
+     * Queue depth (total and deepest worker queue), submitted and rejected counts and queue wait histogram
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int depth = 0, maxDepth = 0, capacity = 0;
+        for (Worker worker : workers) {
+            int workerDepth = worker.queue.size();
+            depth += workerDepth;
+            maxDepth = Math.max(maxDepth, workerDepth);
+            capacity += workerDepth + worker.queue.remainingCapacity();
+        }
+        stats.put("pipeline", pipeline.getName());
+        stats.put("workers", workers.length);
+        stats.put("queueDepth", depth);
+        stats.put("maxWorkerQueueDepth", maxDepth);
+        stats.put("queueCapacity", capacity);
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("queueWait", queueWait.snapshot());
+        return stats;
+    }
+
+    private final class Worker {
+        final BlockingQueue<Task> queue;
+        Thread thread;
+
+        Worker(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void work() {
+            while (running || !queue.isEmpty()) {
+                Task task;
+                try {
+                    task = queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (task == null) continue;
+                queueWait.record(System.nanoTime() - task.enqueuedAt);
+                execute(task.event);
+            }
+        }
+    }
+
+    private static final class Task {
+        final Object event;
+        final long enqueuedAt;
+
+        Task(Object event, long enqueuedAt) {
+            this.event = event;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
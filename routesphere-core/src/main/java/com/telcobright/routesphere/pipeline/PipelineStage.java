@@ -0,0 +1,32 @@
+package com.telcobright.routesphere.pipeline;
+
+import com.telcobright.routesphere.rules.api.PipelineContext;
+
+import java.util.Map;
+
+/**
+ * One step of a pipeline. Stages are CDI beans looked up by {@link #getName()} from the processors a channel's
+ * pipeline lists, see {@link PipelineEngine}.
+ */
+public interface PipelineStage {
+
+    /**
+     * Name the stage is listed under in a pipeline's processors
+     */
+    String getName();
+
+    /**
+     * Process the event held by the context
+     *
+     * @return false to end the pipeline for this event
+     */
+    boolean process(PipelineContext context);
+
+    /**
+     * Stage to run in a pipeline with the given settings, the pipeline section of the channel config.
+     * Stages without settings of their own return themselves.
+     */
+    default PipelineStage configure(Map<String, Object> settings) {
+        return this;
+    }
+}
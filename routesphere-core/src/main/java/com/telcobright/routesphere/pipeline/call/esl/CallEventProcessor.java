@@ -1,18 +1,31 @@
 package com.telcobright.routesphere.pipeline.call.esl;
 
+import com.telcobright.routesphere.pipeline.call.state.CallStateStore;
+import com.telcobright.routesphere.protocols.esl.EslEvent;
+import com.telcobright.routesphere.protocols.esl.EslHeader;
+import com.telcobright.routesphere.protocols.esl.EslEventType;
 import io.quarkus.arc.Unremovable;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * Processes call events received from FreeSWITCH ESL.
- * This class handles incoming call events, prints them for debugging,
- * and will be gradually developed to process call flows.
+ * This class handles incoming call events, keeps the call state in {@link CallStateStore},
+ * prints them for debugging, and will be gradually developed to process call flows.
+ *
+ * Logging follows routesphere.call-events.log-mode: verbose prints a banner and the handler lines for every
+ * event (dev), structured writes one key=value line per call lifecycle event (create, answer, bridge, unbridge,
+ * hangup complete) for the calls sampled and within the per-second line cap, off writes nothing. Nothing is
+ * formatted for a mode or level that doesn't log it.
  */
 @ApplicationScoped
 @Unremovable  // Prevent Quarkus from removing this bean during build-time optimization
@@ -21,13 +34,122 @@ public class CallEventProcessor {
     private static final Logger LOG = Logger.getLogger(CallEventProcessor.class);
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
 
+    public enum LogMode {
+        VERBOSE,
+        STRUCTURED,
+        OFF
+    }
+
+    @Inject
+    CallStateStore callStateStore;
+
+    @ConfigProperty(name = "routesphere.call-events.log-mode", defaultValue = "verbose")
+    String logModeName;
+
+    // structured mode logs the calls whose Channel-Call-UUID hashes to 0 modulo this, all events of all legs of a call or none
+    @ConfigProperty(name = "routesphere.call-events.sample-every", defaultValue = "1")
+    int sampleEvery;
+
+    // structured lines per second across all calls, 0 for no cap
+    @ConfigProperty(name = "routesphere.call-events.max-lines-per-second", defaultValue = "0")
+    int maxLinesPerSecond;
+
+    private LogMode logMode = LogMode.VERBOSE;
+    private LogRateLimiter rateLimiter;
+
+    @PostConstruct
+    void init() {
+        logMode = LogMode.valueOf(logModeName.trim().toUpperCase(Locale.ROOT));
+        rateLimiter = new LogRateLimiter(maxLinesPerSecond);
+        LOG.infof("Call event logging: %s, sampling 1 in %d calls, %s lines/s", logMode, Math.max(1, sampleEvery),
+                maxLinesPerSecond > 0 ? String.valueOf(maxLinesPerSecond) : "unlimited");
+    }
+
+    /**
+     * Process a call event received from FreeSWITCH through a channel of {@code tenant}
+     */
+    public void processCallEvent(String tenant, EslEvent event) {
+        callStateStore.apply(tenant, event);
+
+        switch (logMode) {
+            case VERBOSE:
+                if (LOG.isInfoEnabled()) {
+                    printEventBanner(event);
+                    // Handle specific event types
+                    handleSpecificEvent(event);
+                }
+                break;
+            case STRUCTURED:
+                if (isLifecycleEvent(event.getType()) && LOG.isInfoEnabled() && isSampled(event)) {
+                    logStructured(event);
+                }
+                break;
+            case OFF:
+                break;
+        }
+    }
+
+    private static boolean isLifecycleEvent(EslEventType type) {
+        return type == EslEventType.CHANNEL_CREATE || type == EslEventType.CHANNEL_ANSWER
+                || type == EslEventType.CHANNEL_BRIDGE || type == EslEventType.CHANNEL_UNBRIDGE
+                || type == EslEventType.CHANNEL_HANGUP_COMPLETE;
+    }
+
+    private boolean isSampled(EslEvent event) {
+        if (sampleEvery <= 1) return true;
+        // legs of one call share the call uuid, a leg without it is sampled on its own
+        return Math.floorMod(event.getChannelCallUuid().hashCode(), sampleEvery) == 0;
+    }
+
+    /**
+     * One line per lifecycle event, e.g.
+     * call_event type=CHANNEL_HANGUP_COMPLETE uuid=... direction=inbound from=1001 to=880... cause=NORMAL_CLEARING billsec=42
+     */
+    private void logStructured(EslEvent event) {
+        if (!rateLimiter.tryAcquire()) return;
+        StringBuilder line = new StringBuilder(192).append("call_event type=").append(event.getEventName());
+        append(line, "uuid", event.getChannelId());
+        append(line, "direction", event.header(EslHeader.CALL_DIRECTION));
+        append(line, "from", event.header(EslHeader.CALLER_ID_NUMBER));
+        append(line, "to", event.header(EslHeader.DESTINATION_NUMBER));
+        append(line, "state", event.header(EslHeader.CHANNEL_STATE));
+        switch (event.getType()) {
+            case CHANNEL_BRIDGE:
+            case CHANNEL_UNBRIDGE:
+                append(line, "other_leg", event.header(EslHeader.OTHER_LEG_UNIQUE_ID));
+                break;
+            case CHANNEL_HANGUP_COMPLETE:
+                append(line, "cause", event.header(EslHeader.HANGUP_CAUSE));
+                append(line, "duration", event.header(EslHeader.DURATION));
+                append(line, "billsec", event.header(EslHeader.BILLSEC));
+                append(line, "sip_status", event.header(EslHeader.SIP_TERM_STATUS));
+                break;
+            default:
+                break;
+        }
+        long suppressed = rateLimiter.takeSuppressed();
+        if (suppressed > 0) line.append(" suppressed=").append(suppressed);
+        LOG.info(line);
+    }
+
+    private static void append(StringBuilder line, String key, String value) {
+        if (value == null || value.isEmpty()) return;
+        line.append(' ').append(key).append('=');
+        // values with spaces quoted so the line stays splittable on spaces
+        if (value.indexOf(' ') >= 0) {
+            line.append('"').append(value.replace("\"", "'")).append('"');
+        } else {
+            line.append(value);
+        }
+    }
+
     /**
-     * Process a call event received from FreeSWITCH
+     * Multi-line event dump of verbose mode
      */
-    public void processCallEvent(Map<String, Object> event) {
-        String eventType = (String) event.get("eventName");
-        String channelId = (String) event.get("channelId");
-        Long timestamp = (Long) event.get("timestamp");
+    private void printEventBanner(EslEvent event) {
+        String eventType = event.getEventName();
+        String channelId = event.getChannelId();
+        long timestamp = event.getTimestamp();
 
         // Print event header
         LOG.info("╔════════════════════════════════════════════════════════════════╗");
@@ -35,7 +157,7 @@ public class CallEventProcessor {
         LOG.info("╠════════════════════════════════════════════════════════════════╣");
 
         // Print timestamp
-        if (timestamp != null) {
+        if (timestamp > 0) {
             LocalDateTime eventTime = LocalDateTime.ofInstant(
                 Instant.ofEpochMilli(timestamp), ZoneId.systemDefault()
             );
@@ -43,292 +165,230 @@ public class CallEventProcessor {
         }
 
         // Print channel ID
-        if (channelId != null) {
+        if (!channelId.isEmpty()) {
             LOG.infof("║ Channel ID: %-51s ║", truncateString(channelId, 51));
         }
 
         // Print event data
-        Map<String, ?> eventData = (Map<String, ?>) event.get("data");
+        Map<String, String> eventData = event.getEventData();
         if (eventData != null && !eventData.isEmpty()) {
             LOG.info("║                                                                  ║");
             LOG.info("║ Event Data:                                                     ║");
             LOG.info("║ ──────────────────────────────────────────────────────────────  ║");
 
-            eventData.forEach((key, value) -> {
-                if (value != null && isImportantField(key)) {
-                    String formattedKey = formatFieldName(key);
-                    String formattedValue = truncateString(value.toString(), 40);
+            for (EslHeader header : EslHeader.values()) {
+                String value = header.isImportant() ? event.header(header) : null;
+                if (value != null) {
+                    String formattedKey = formatFieldName(header.getHeaderName());
+                    String formattedValue = truncateString(value, 40);
                     LOG.infof("║   %-25s : %-35s ║", formattedKey, formattedValue);
                 }
-            });
+            }
         }
 
         LOG.info("╚════════════════════════════════════════════════════════════════╝");
-
-        // Handle specific event types
-        handleSpecificEvent(eventType, channelId, eventData);
     }
 
 
-    private void handleSpecificEvent(String eventType, String channelId, Map<String, ?> eventData) {
-        if (eventType == null) {
-            return;
-        }
+    private void handleSpecificEvent(EslEvent event) {
+        String channelId = event.getChannelId();
 
-        switch (eventType) {
-            case "CHANNEL_CREATE":
-                handleChannelCreate(channelId, eventData);
+        switch (event.getType()) {
+            case CHANNEL_CREATE:
+                handleChannelCreate(channelId, event);
                 break;
-            case "CHANNEL_ANSWER":
-                handleChannelAnswer(channelId, eventData);
+            case CHANNEL_ANSWER:
+                handleChannelAnswer(channelId, event);
                 break;
-            case "CHANNEL_HANGUP":
-                handleChannelHangup(channelId, eventData);
+            case CHANNEL_HANGUP:
+                handleChannelHangup(channelId, event);
                 break;
-            case "CHANNEL_HANGUP_COMPLETE":
-                handleChannelHangupComplete(channelId, eventData);
+            case CHANNEL_HANGUP_COMPLETE:
+                handleChannelHangupComplete(channelId, event);
                 break;
-            case "CHANNEL_PARK":
-                handleChannelPark(channelId, eventData);
+            case CHANNEL_PARK:
+                handleChannelPark(channelId, event);
                 break;
-            case "CHANNEL_UNPARK":
-                handleChannelUnpark(channelId, eventData);
+            case CHANNEL_UNPARK:
+                handleChannelUnpark(channelId, event);
                 break;
-            case "CHANNEL_BRIDGE":
-                handleChannelBridge(channelId, eventData);
+            case CHANNEL_BRIDGE:
+                handleChannelBridge(channelId, event);
                 break;
-            case "CHANNEL_UNBRIDGE":
-                handleChannelUnbridge(channelId, eventData);
+            case CHANNEL_UNBRIDGE:
+                handleChannelUnbridge(channelId, event);
                 break;
-            case "CHANNEL_EXECUTE":
-                handleChannelExecute(channelId, eventData);
+            case CHANNEL_EXECUTE:
+                handleChannelExecute(channelId, event);
                 break;
-            case "CHANNEL_EXECUTE_COMPLETE":
-                handleChannelExecuteComplete(channelId, eventData);
+            case CHANNEL_EXECUTE_COMPLETE:
+                handleChannelExecuteComplete(channelId, event);
                 break;
-            case "CHANNEL_PROGRESS":
-                handleChannelProgress(channelId, eventData);
+            case CHANNEL_PROGRESS:
+                handleChannelProgress(channelId, event);
                 break;
-            case "CHANNEL_PROGRESS_MEDIA":
-                handleChannelProgressMedia(channelId, eventData);
+            case CHANNEL_PROGRESS_MEDIA:
+                handleChannelProgressMedia(channelId, event);
                 break;
-            case "CHANNEL_OUTGOING":
-                handleChannelOutgoing(channelId, eventData);
+            case CHANNEL_OUTGOING:
+                handleChannelOutgoing(channelId, event);
                 break;
-            case "CHANNEL_ORIGINATE":
-                handleChannelOriginate(channelId, eventData);
+            case CHANNEL_ORIGINATE:
+                handleChannelOriginate(channelId, event);
                 break;
-            case "HEARTBEAT":
+            case HEARTBEAT:
                 // Log heartbeats at DEBUG level to reduce noise
                 LOG.debugf("FreeSWITCH Heartbeat received");
                 break;
-            case "CUSTOM":
-                handleCustomEvent(channelId, eventData);
+            case CUSTOM:
+                handleCustomEvent(channelId, event);
                 break;
-            case "DTMF":
-                handleDtmfEvent(channelId, eventData);
+            case DTMF:
+                handleDtmfEvent(channelId, event);
                 break;
-            case "RE_SCHEDULE":
+            case RE_SCHEDULE:
                 LOG.debugf("Re-schedule event received for channel: %s", channelId);
                 break;
-            case "API":
-                handleApiEvent(channelId, eventData);
+            case API:
+                handleApiEvent(channelId, event);
                 break;
             default:
                 // Log unknown events for discovery
-                if (!eventType.equals("HEARTBEAT")) {
-                    LOG.debugf("Unhandled event type: %s", eventType);
-                }
+                LOG.debugf("Unhandled event type: %s", event.getEventName());
         }
     }
 
-    private void handleChannelCreate(String channelId, Map<String, ?> eventData) {
+    private void handleChannelCreate(String channelId, EslEvent event) {
         LOG.infof("📞 NEW CALL INITIATED - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String callerIdNumber = (String) eventData.get("Caller-Caller-ID-Number");
-            String destinationNumber = (String) eventData.get("Caller-Destination-Number");
-            String channelState = (String) eventData.get("Channel-State");
+        String callerIdNumber = event.header(EslHeader.CALLER_ID_NUMBER);
+        String destinationNumber = event.header(EslHeader.DESTINATION_NUMBER);
+        String channelState = event.header(EslHeader.CHANNEL_STATE);
 
-            LOG.infof("   From: %s → To: %s (State: %s)",
-                callerIdNumber, destinationNumber, channelState);
-        }
+        LOG.infof("   From: %s → To: %s (State: %s)",
+            callerIdNumber, destinationNumber, channelState);
     }
 
-    private void handleChannelAnswer(String channelId, Map<String, ?> eventData) {
+    private void handleChannelAnswer(String channelId, EslEvent event) {
         LOG.infof("✅ CALL ANSWERED - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String answerState = (String) eventData.get("Answer-State");
-            String channelName = (String) eventData.get("Channel-Name");
-            LOG.infof("   Answer State: %s, Channel: %s", answerState, channelName);
-        }
+        String answerState = event.header(EslHeader.ANSWER_STATE);
+        String channelName = event.header(EslHeader.CHANNEL_NAME);
+        LOG.infof("   Answer State: %s, Channel: %s", answerState, channelName);
     }
 
-    private void handleChannelHangup(String channelId, Map<String, ?> eventData) {
+    private void handleChannelHangup(String channelId, EslEvent event) {
         LOG.infof("📴 CALL HANGUP INITIATED - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String hangupCause = (String) eventData.get("Hangup-Cause");
-            String channelState = (String) eventData.get("Channel-State");
-            LOG.infof("   Cause: %s, State: %s", hangupCause, channelState);
-        }
+        String hangupCause = event.header(EslHeader.HANGUP_CAUSE);
+        String channelState = event.header(EslHeader.CHANNEL_STATE);
+        LOG.infof("   Cause: %s, State: %s", hangupCause, channelState);
     }
 
-    private void handleChannelHangupComplete(String channelId, Map<String, ?> eventData) {
+    private void handleChannelHangupComplete(String channelId, EslEvent event) {
         LOG.infof("🔚 CALL ENDED - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String hangupCause = (String) eventData.get("Hangup-Cause");
-            String duration = (String) eventData.get("variable_duration");
-            String billsec = (String) eventData.get("variable_billsec");
+        String hangupCause = event.header(EslHeader.HANGUP_CAUSE);
+        String duration = event.header(EslHeader.DURATION);
+        String billsec = event.header(EslHeader.BILLSEC);
 
-            LOG.infof("   Duration: %ss, Billable: %ss, Cause: %s",
-                duration, billsec, hangupCause);
-        }
+        LOG.infof("   Duration: %ss, Billable: %ss, Cause: %s",
+            duration, billsec, hangupCause);
     }
 
-    private void handleCustomEvent(String channelId, Map<String, ?> eventData) {
-        if (eventData != null) {
-            String subclass = (String) eventData.get("Event-Subclass");
-            LOG.infof("🔧 CUSTOM EVENT - Subclass: %s, Channel: %s", subclass, channelId);
-        }
+    private void handleCustomEvent(String channelId, EslEvent event) {
+        String subclass = event.header(EslHeader.EVENT_SUBCLASS);
+        LOG.infof("🔧 CUSTOM EVENT - Subclass: %s, Channel: %s", subclass, channelId);
     }
 
-    private void handleChannelPark(String channelId, Map<String, ?> eventData) {
+    private void handleChannelPark(String channelId, EslEvent event) {
         LOG.infof("⏸️ CALL PARKED - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String parkingSlot = (String) eventData.get("variable_park_slot");
-            String parkedBy = (String) eventData.get("variable_park_by");
-            LOG.infof("   Parking Slot: %s, Parked By: %s", parkingSlot, parkedBy);
-        }
+        String parkingSlot = event.header(EslHeader.PARK_SLOT);
+        String parkedBy = event.header(EslHeader.PARK_BY);
+        LOG.infof("   Parking Slot: %s, Parked By: %s", parkingSlot, parkedBy);
     }
 
-    private void handleChannelUnpark(String channelId, Map<String, ?> eventData) {
+    private void handleChannelUnpark(String channelId, EslEvent event) {
         LOG.infof("▶️ CALL UNPARKED - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String retrievedBy = (String) eventData.get("variable_retrieved_by");
-            LOG.infof("   Retrieved By: %s", retrievedBy);
-        }
+        String retrievedBy = event.header(EslHeader.RETRIEVED_BY);
+        LOG.infof("   Retrieved By: %s", retrievedBy);
     }
 
-    private void handleChannelBridge(String channelId, Map<String, ?> eventData) {
+    private void handleChannelBridge(String channelId, EslEvent event) {
         LOG.infof("🔗 CALL BRIDGED - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String otherLegUuid = (String) eventData.get("Other-Leg-Unique-ID");
-            String bridgeState = (String) eventData.get("variable_bridge_channel");
-            LOG.infof("   Other Leg: %s, Bridge Channel: %s",
-                truncateString(otherLegUuid, 20), bridgeState);
-        }
+        String otherLegUuid = event.header(EslHeader.OTHER_LEG_UNIQUE_ID);
+        String bridgeState = event.header(EslHeader.BRIDGE_CHANNEL);
+        LOG.infof("   Other Leg: %s, Bridge Channel: %s",
+            truncateString(otherLegUuid, 20), bridgeState);
     }
 
-    private void handleChannelUnbridge(String channelId, Map<String, ?> eventData) {
+    private void handleChannelUnbridge(String channelId, EslEvent event) {
         LOG.infof("🔓 CALL UNBRIDGED - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String unbridgeCause = (String) eventData.get("variable_bridge_hangup_cause");
-            LOG.infof("   Unbridge Cause: %s", unbridgeCause);
-        }
+        String unbridgeCause = event.header(EslHeader.BRIDGE_HANGUP_CAUSE);
+        LOG.infof("   Unbridge Cause: %s", unbridgeCause);
     }
 
-    private void handleChannelExecute(String channelId, Map<String, ?> eventData) {
-        if (eventData != null) {
-            String application = (String) eventData.get("Application");
-            String applicationData = (String) eventData.get("Application-Data");
-            LOG.debugf("⚡ EXECUTING: %s(%s) on Channel: %s",
-                application, applicationData, channelId);
-        }
+    private void handleChannelExecute(String channelId, EslEvent event) {
+        String application = event.header(EslHeader.APPLICATION);
+        String applicationData = event.header(EslHeader.APPLICATION_DATA);
+        LOG.debugf("⚡ EXECUTING: %s(%s) on Channel: %s",
+            application, applicationData, channelId);
     }
 
-    private void handleChannelExecuteComplete(String channelId, Map<String, ?> eventData) {
-        if (eventData != null) {
-            String application = (String) eventData.get("Application");
-            String response = (String) eventData.get("Application-Response");
-            LOG.debugf("✓ EXECUTED: %s - Response: %s, Channel: %s",
-                application, response, channelId);
-        }
+    private void handleChannelExecuteComplete(String channelId, EslEvent event) {
+        String application = event.header(EslHeader.APPLICATION);
+        String response = event.header(EslHeader.APPLICATION_RESPONSE);
+        LOG.debugf("✓ EXECUTED: %s - Response: %s, Channel: %s",
+            application, response, channelId);
     }
 
-    private void handleChannelProgress(String channelId, Map<String, ?> eventData) {
+    private void handleChannelProgress(String channelId, EslEvent event) {
         LOG.infof("📡 CALL PROGRESS - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String progressIndication = (String) eventData.get("variable_progress_indication");
-            LOG.infof("   Progress Indication: %s", progressIndication);
-        }
+        String progressIndication = event.header(EslHeader.PROGRESS_INDICATION);
+        LOG.infof("   Progress Indication: %s", progressIndication);
     }
 
-    private void handleChannelProgressMedia(String channelId, Map<String, ?> eventData) {
+    private void handleChannelProgressMedia(String channelId, EslEvent event) {
         LOG.infof("🎵 EARLY MEDIA - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String codecName = (String) eventData.get("variable_rtp_use_codec_name");
-            String codecRate = (String) eventData.get("variable_rtp_use_codec_rate");
-            LOG.infof("   Codec: %s @ %s", codecName, codecRate);
-        }
+        String codecName = event.header(EslHeader.RTP_CODEC_NAME);
+        String codecRate = event.header(EslHeader.RTP_CODEC_RATE);
+        LOG.infof("   Codec: %s @ %s", codecName, codecRate);
     }
 
-    private void handleChannelOutgoing(String channelId, Map<String, ?> eventData) {
+    private void handleChannelOutgoing(String channelId, EslEvent event) {
         LOG.infof("📤 OUTGOING CALL - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String destinationNumber = (String) eventData.get("Caller-Destination-Number");
-            String gateway = (String) eventData.get("variable_sip_gateway");
-            LOG.infof("   To: %s via Gateway: %s", destinationNumber, gateway);
-        }
+        String destinationNumber = event.header(EslHeader.DESTINATION_NUMBER);
+        String gateway = event.header(EslHeader.SIP_GATEWAY);
+        LOG.infof("   To: %s via Gateway: %s", destinationNumber, gateway);
     }
 
-    private void handleChannelOriginate(String channelId, Map<String, ?> eventData) {
+    private void handleChannelOriginate(String channelId, EslEvent event) {
         LOG.infof("🚀 CALL ORIGINATED - Channel: %s", channelId);
 
-        if (eventData != null) {
-            String originateDisposition = (String) eventData.get("variable_originate_disposition");
-            String dialedExtension = (String) eventData.get("variable_dialed_extension");
-            LOG.infof("   Disposition: %s, Dialed: %s", originateDisposition, dialedExtension);
-        }
+        String originateDisposition = event.header(EslHeader.ORIGINATE_DISPOSITION);
+        String dialedExtension = event.header(EslHeader.DIALED_EXTENSION);
+        LOG.infof("   Disposition: %s, Dialed: %s", originateDisposition, dialedExtension);
     }
 
-    private void handleDtmfEvent(String channelId, Map<String, ?> eventData) {
-        if (eventData != null) {
-            String dtmfDigit = (String) eventData.get("DTMF-Digit");
-            String dtmfDuration = (String) eventData.get("DTMF-Duration");
-            LOG.infof("☎️ DTMF RECEIVED - Digit: %s, Duration: %sms, Channel: %s",
-                dtmfDigit, dtmfDuration, channelId);
-        }
+    private void handleDtmfEvent(String channelId, EslEvent event) {
+        String dtmfDigit = event.header(EslHeader.DTMF_DIGIT);
+        String dtmfDuration = event.header(EslHeader.DTMF_DURATION);
+        LOG.infof("☎️ DTMF RECEIVED - Digit: %s, Duration: %sms, Channel: %s",
+            dtmfDigit, dtmfDuration, channelId);
     }
 
-    private void handleApiEvent(String channelId, Map<String, ?> eventData) {
-        if (eventData != null) {
-            String apiCommand = (String) eventData.get("API-Command");
-            String apiResponse = (String) eventData.get("API-Response");
-            LOG.debugf("🔌 API EVENT - Command: %s, Response: %s",
-                apiCommand, truncateString(apiResponse, 100));
-        }
-    }
-
-    /**
-     * Check if a field is important enough to display
-     */
-    private boolean isImportantField(String fieldName) {
-        // List of important fields to display
-        String[] importantFields = {
-            "Caller-Caller-ID-Number", "Caller-Caller-ID-Name",
-            "Caller-Destination-Number", "Channel-State",
-            "Channel-Name", "Call-Direction", "Answer-State",
-            "Hangup-Cause", "Event-Subclass", "variable_duration",
-            "variable_billsec", "variable_sip_term_status",
-            "variable_sip_hangup_disposition"
-        };
-
-        for (String field : importantFields) {
-            if (fieldName.equals(field)) {
-                return true;
-            }
-        }
-        return false;
+    private void handleApiEvent(String channelId, EslEvent event) {
+        String apiCommand = event.header(EslHeader.API_COMMAND);
+        String apiResponse = event.header(EslHeader.API_RESPONSE);
+        LOG.debugf("🔌 API EVENT - Command: %s, Response: %s",
+            apiCommand, truncateString(apiResponse, 100));
     }
 
     /**
@@ -0,0 +1,40 @@
+package com.telcobright.routesphere.pipeline.call.esl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps log lines per wall-clock second across threads, counting what it turns away so the next line
+ * let through can report it.
+ */
+final class LogRateLimiter {
+
+    private final int perSecond;
+    private final AtomicLong second = new AtomicLong();
+    private final AtomicInteger used = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * @param perSecond lines allowed per second, 0 or less for no cap
+     */
+    LogRateLimiter(int perSecond) {
+        this.perSecond = perSecond;
+    }
+
+    boolean tryAcquire() {
+        if (perSecond <= 0) return true;
+        long now = System.currentTimeMillis() / 1000;
+        long current = second.get();
+        if (now != current && second.compareAndSet(current, now)) used.set(0);
+        if (used.incrementAndGet() <= perSecond) return true;
+        suppressed.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return lines suppressed since the last call, resetting the count
+     */
+    long takeSuppressed() {
+        return suppressed.get() == 0 ? 0 : suppressed.getAndSet(0);
+    }
+}
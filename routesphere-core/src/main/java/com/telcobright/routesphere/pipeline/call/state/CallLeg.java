@@ -0,0 +1,189 @@
+package com.telcobright.routesphere.pipeline.call.state;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * State of one FreeSWITCH channel (call leg), keyed by its Channel-Unique-ID.
+ *
+ * The leg's events all arrive on the same ESL lane, so the event fields have a single writer and are volatile for
+ * the readers. Only the bridge partner, written from the other leg's lane, and the partner/route assignment,
+ * written by routing, come from other threads; both are single reference swaps.
+ */
+public final class CallLeg {
+
+    private final String uuid;
+    private final String tenant;
+    private final String callUuid;
+    private final boolean callRoot;
+    private final long createdAt;
+    private final AtomicReferenceArray<Long> stateEnteredAt = new AtomicReferenceArray<>(CallState.values().length);
+    // null until assigned, marked ended once the leg is over
+    final AtomicReference<Assignment> assignment = new AtomicReference<>();
+    final AtomicBoolean ended = new AtomicBoolean();
+
+    private volatile CallState state = CallState.CREATED;
+    private volatile String direction;
+    private volatile String from;
+    private volatile String to;
+    private volatile String bridgedWith;
+    private volatile String codec;
+    private volatile String hangupCause;
+    private volatile long lastEventAt;
+    private volatile long endedAt;
+
+    CallLeg(String uuid, String tenant, String callUuid, long createdAt) {
+        this.uuid = uuid;
+        this.tenant = tenant;
+        this.callUuid = callUuid != null ? callUuid : uuid;
+        // the leg a call starts with carries its own uuid as Channel-Call-UUID
+        this.callRoot = this.callUuid.equals(uuid);
+        this.createdAt = createdAt;
+        this.lastEventAt = createdAt;
+        stateEnteredAt.set(CallState.CREATED.ordinal(), createdAt);
+    }
+
+    /**
+     * Move to {@code next} unless the leg hung up already; unbridging steps back to answered.
+     */
+    void moveTo(CallState next, long at) {
+        if (state == CallState.HUNG_UP) return;
+        state = next;
+        stateEnteredAt.set(next.ordinal(), at);
+    }
+
+    void touch(long at) {
+        lastEventAt = at;
+    }
+
+    void setParties(String direction, String from, String to) {
+        if (direction != null) this.direction = direction;
+        if (from != null) this.from = from;
+        if (to != null) this.to = to;
+    }
+
+    void setBridgedWith(String bridgedWith) {
+        this.bridgedWith = bridgedWith;
+    }
+
+    void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+    void setHangupCause(String hangupCause) {
+        this.hangupCause = hangupCause;
+    }
+
+    void setEndedAt(long endedAt) {
+        this.endedAt = endedAt;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * Channel-Call-UUID, the uuid of the leg the call started with
+     */
+    public String getCallUuid() {
+        return callUuid;
+    }
+
+    /**
+     * Whether this is the leg the call started with, the one active calls are counted on
+     */
+    public boolean isCallRoot() {
+        return callRoot;
+    }
+
+    public CallState getState() {
+        return state;
+    }
+
+    /**
+     * @return epoch millis the leg last entered the state, null if it never did
+     */
+    public Long getStateEnteredAt(CallState state) {
+        return stateEnteredAt.get(state.ordinal());
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastEventAt() {
+        return lastEventAt;
+    }
+
+    /**
+     * @return epoch millis of hangup complete, 0 while the leg is up
+     */
+    public long getEndedAt() {
+        return endedAt;
+    }
+
+    public boolean isEnded() {
+        return ended.get();
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getBridgedWith() {
+        return bridgedWith;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public String getHangupCause() {
+        return hangupCause;
+    }
+
+    public Long getIdPartner() {
+        Assignment current = assignment.get();
+        return current != null ? current.idPartner : null;
+    }
+
+    public String getRoute() {
+        Assignment current = assignment.get();
+        return current != null ? current.route : null;
+    }
+
+    /**
+     * Partner and route a call was routed to
+     */
+    static final class Assignment {
+        static final Assignment NONE_ENDED = new Assignment(null, null, true);
+
+        final Long idPartner;
+        final String route;
+        // the leg ended, the assignment is final and no longer counted
+        final boolean ended;
+
+        Assignment(Long idPartner, String route, boolean ended) {
+            this.idPartner = idPartner;
+            this.route = route;
+            this.ended = ended;
+        }
+
+        Assignment asEnded() {
+            return new Assignment(idPartner, route, true);
+        }
+    }
+}
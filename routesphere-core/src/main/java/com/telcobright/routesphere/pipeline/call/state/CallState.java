@@ -0,0 +1,13 @@
+package com.telcobright.routesphere.pipeline.call.state;
+
+/**
+ * States of one call leg, in the order a leg normally goes through them.
+ */
+public enum CallState {
+    CREATED,
+    PROGRESS,
+    EARLY_MEDIA,
+    ANSWERED,
+    BRIDGED,
+    HUNG_UP
+}
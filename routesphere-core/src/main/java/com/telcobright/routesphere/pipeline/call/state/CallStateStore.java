@@ -0,0 +1,339 @@
+package com.telcobright.routesphere.pipeline.call.state;
+
+import com.telcobright.routesphere.balance.ReservationEngine;
+import com.telcobright.routesphere.protocols.esl.EslEvent;
+import com.telcobright.routesphere.protocols.esl.EslHeader;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * State of the calls up on FreeSWITCH, built from the ESL events so routing and billing can look a call up
+ * without asking FreeSWITCH.
+ *
+ * Legs are kept by Channel-Unique-ID, at most max-legs of them; legs beyond that are not tracked and counted as
+ * dropped. A leg is ended on CHANNEL_HANGUP_COMPLETE (or CHANNEL_DESTROY if that was missed) and kept for the
+ * linger time for late lookups, a leg without any event for the ttl is taken as orphaned (hangup missed) and
+ * ended by the sweep, which also removes the ended legs once the linger time is over. Active calls are counted on
+ * the leg each call started with, per tenant, and per partner and route once the call is assigned one, from
+ * routing through {@link #assign} or from the routesphere_partner and routesphere_route channel variables. When the leg a call started with ends, the call's balance reservation is settled by its
+ * Channel-Call-UUID: committed for the billed seconds if the call was answered, released otherwise.
+ */
+@ApplicationScoped
+public class CallStateStore {
+
+    private static final Logger LOG = Logger.getLogger(CallStateStore.class);
+
+    @Inject
+    ReservationEngine reservationEngine;
+
+    @ConfigProperty(name = "routesphere.call-state.max-legs", defaultValue = "200000")
+    int maxLegs;
+
+    @ConfigProperty(name = "routesphere.call-state.ttl", defaultValue = "4h")
+    Duration ttl;
+
+    @ConfigProperty(name = "routesphere.call-state.linger", defaultValue = "30s")
+    Duration linger;
+
+    private final Map<String, CallLeg> legs = new ConcurrentHashMap<>(4096);
+    // slots taken in legs, reserved before a leg is put so concurrent opens can't go past max-legs
+    private final AtomicInteger trackedLegs = new AtomicInteger();
+    private final AtomicInteger activeLegs = new AtomicInteger();
+    private final AtomicInteger activeCalls = new AtomicInteger();
+    private final Map<String, AtomicInteger> tenantCalls = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> partnerCalls = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> routeCalls = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder orphaned = new LongAdder();
+
+    /**
+     * Apply a channel event to the state of its leg. Events of one leg must come in order from one thread,
+     * as the ESL lanes deliver them.
+     */
+    public void apply(String tenant, EslEvent event) {
+        String uuid = event.getChannelId();
+        if (uuid.isEmpty()) return;
+        long now = event.getTimestamp();
+
+        CallLeg leg = legs.get(uuid);
+        if (leg == null) {
+            switch (event.getType()) {
+                case CHANNEL_HANGUP_COMPLETE:
+                case CHANNEL_DESTROY:
+                    // leg not seen while up, nothing to end
+                    return;
+                default:
+                    // only channel events open a leg, a leg first seen mid-call is picked up from there
+                    if (!event.getType().name().startsWith("CHANNEL_")) return;
+                    leg = open(tenant, uuid, event, now);
+                    if (leg == null) return;
+            }
+        }
+        leg.touch(now);
+        leg.setParties(event.header(EslHeader.CALL_DIRECTION), event.header(EslHeader.CALLER_ID_NUMBER),
+                event.header(EslHeader.DESTINATION_NUMBER));
+        String codec = event.header(EslHeader.READ_CODEC_NAME);
+        if (codec == null) codec = event.header(EslHeader.RTP_CODEC_NAME);
+        if (codec != null) leg.setCodec(codec);
+
+        switch (event.getType()) {
+            case CHANNEL_PROGRESS:
+                leg.moveTo(CallState.PROGRESS, now);
+                break;
+            case CHANNEL_PROGRESS_MEDIA:
+                leg.moveTo(CallState.EARLY_MEDIA, now);
+                break;
+            case CHANNEL_ANSWER:
+                leg.moveTo(CallState.ANSWERED, now);
+                break;
+            case CHANNEL_BRIDGE:
+                bridge(leg, otherLeg(event), now);
+                break;
+            case CHANNEL_UNBRIDGE:
+                unbridge(leg, now);
+                break;
+            case CHANNEL_HANGUP:
+                leg.setHangupCause(event.header(EslHeader.HANGUP_CAUSE));
+                leg.moveTo(CallState.HUNG_UP, now);
+                break;
+            case CHANNEL_HANGUP_COMPLETE:
+                leg.setHangupCause(event.header(EslHeader.HANGUP_CAUSE));
+                leg.moveTo(CallState.HUNG_UP, now);
+                end(leg, now, event.header(EslHeader.BILLSEC));
+                break;
+            case CHANNEL_DESTROY:
+                // follows hangup complete within milliseconds, the sweep removes the leg after the linger time
+                end(leg, now, event.header(EslHeader.BILLSEC));
+                break;
+            default:
+                break;
+        }
+
+        String route = event.header(EslHeader.ROUTESPHERE_ROUTE);
+        String partner = event.header(EslHeader.ROUTESPHERE_PARTNER);
+        if ((route != null || partner != null) && leg.assignment.get() == null) {
+            assign(uuid, parsePartner(partner), route);
+        }
+    }
+
+    /**
+     * Record the partner and route a call was routed to, replacing an earlier assignment. Any leg of the call
+     * may be given, the assignment is kept on the leg the call started with.
+     *
+     * @return false if the call is unknown or over
+     */
+    public boolean assign(String uuid, Long idPartner, String route) {
+        CallLeg leg = legs.get(uuid);
+        if (leg == null) return false;
+        if (!leg.isCallRoot()) {
+            CallLeg root = legs.get(leg.getCallUuid());
+            if (root != null) leg = root;
+        }
+        CallLeg.Assignment next = new CallLeg.Assignment(idPartner, route, false);
+        while (true) {
+            CallLeg.Assignment current = leg.assignment.get();
+            if (current != null && current.ended) return false;
+            if (leg.assignment.compareAndSet(current, next)) {
+                if (leg.isCallRoot()) {
+                    count(current, -1);
+                    count(next, 1);
+                }
+                return true;
+            }
+        }
+    }
+
+    public CallLeg getLeg(String uuid) {
+        return legs.get(uuid);
+    }
+
+    public Collection<CallLeg> getLegs() {
+        return Collections.unmodifiableCollection(legs.values());
+    }
+
+    public int getActiveLegs() {
+        return activeLegs.get();
+    }
+
+    public int getActiveCalls() {
+        return activeCalls.get();
+    }
+
+    public int getActiveCallsOfTenant(String tenant) {
+        return read(tenantCalls.get(tenant));
+    }
+
+    public int getActiveCallsOfPartner(long idPartner) {
+        return read(partnerCalls.get(idPartner));
+    }
+
+    public int getActiveCallsOfRoute(String route) {
+        return read(routeCalls.get(route));
+    }
+
+    /**
+     * Active calls, legs and counts per tenant, partner and route, plus the legs dropped and found orphaned
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("activeCalls", activeCalls.get());
+        stats.put("activeLegs", activeLegs.get());
+        stats.put("trackedLegs", trackedLegs.get());
+        stats.put("byTenant", snapshot(tenantCalls));
+        stats.put("byPartner", snapshot(partnerCalls));
+        stats.put("byRoute", snapshot(routeCalls));
+        stats.put("dropped", dropped.sum());
+        stats.put("orphaned", orphaned.sum());
+        return stats;
+    }
+
+    /**
+     * End legs without events for the ttl, drop ended legs after the linger time
+     */
+    @Scheduled(every = "${routesphere.call-state.sweep-interval:30s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void sweep() {
+        long now = System.currentTimeMillis();
+        long orphanedBefore = now - ttl.toMillis();
+        long endedBefore = now - linger.toMillis();
+        int found = 0;
+        for (CallLeg leg : legs.values()) {
+            if (!leg.isEnded() && leg.getLastEventAt() < orphanedBefore) {
+                end(leg, now, null);
+                found++;
+            }
+            if (leg.isEnded() && leg.getEndedAt() < endedBefore) {
+                remove(leg);
+            }
+        }
+        if (found > 0) {
+            orphaned.add(found);
+            LOG.warnf("Ended %d call legs without events for %s", found, ttl);
+        }
+    }
+
+    private CallLeg open(String tenant, String uuid, EslEvent event, long now) {
+        if (trackedLegs.incrementAndGet() > maxLegs) {
+            trackedLegs.decrementAndGet();
+            dropped.increment();
+            return null;
+        }
+        CallLeg created = new CallLeg(uuid, tenant, event.header(EslHeader.CHANNEL_CALL_UUID), now);
+        CallLeg leg = legs.putIfAbsent(uuid, created);
+        if (leg != null) {
+            // opened by another thread, give the slot back
+            trackedLegs.decrementAndGet();
+            return leg;
+        }
+        activeLegs.incrementAndGet();
+        if (created.isCallRoot()) {
+            activeCalls.incrementAndGet();
+            if (tenant != null) counter(tenantCalls, tenant).incrementAndGet();
+        }
+        return created;
+    }
+
+    private void remove(CallLeg leg) {
+        if (legs.remove(leg.getUuid(), leg)) trackedLegs.decrementAndGet();
+    }
+
+    private void bridge(CallLeg leg, String otherUuid, long now) {
+        leg.moveTo(CallState.BRIDGED, now);
+        if (otherUuid == null) return;
+        leg.setBridgedWith(otherUuid);
+        CallLeg other = legs.get(otherUuid);
+        if (other != null) other.setBridgedWith(leg.getUuid());
+    }
+
+    private void unbridge(CallLeg leg, long now) {
+        if (leg.getState() == CallState.BRIDGED) leg.moveTo(CallState.ANSWERED, now);
+        leg.setBridgedWith(null);
+    }
+
+    private static String otherLeg(EslEvent event) {
+        String other = event.header(EslHeader.OTHER_LEG_UNIQUE_ID);
+        if (other != null) return other;
+        String a = event.header(EslHeader.BRIDGE_A_UNIQUE_ID);
+        return event.getChannelId().equals(a) ? event.header(EslHeader.BRIDGE_B_UNIQUE_ID) : a;
+    }
+
+    private void end(CallLeg leg, long now, String billsec) {
+        if (!leg.ended.compareAndSet(false, true)) return;
+        leg.setEndedAt(now);
+        activeLegs.decrementAndGet();
+        CallLeg.Assignment last = leg.assignment.getAndUpdate(
+                current -> current != null ? current.asEnded() : CallLeg.Assignment.NONE_ENDED);
+        if (!leg.isCallRoot()) return;
+        activeCalls.decrementAndGet();
+        if (leg.getTenant() != null) counter(tenantCalls, leg.getTenant()).decrementAndGet();
+        count(last, -1);
+        settle(leg, billsec);
+    }
+
+    private void settle(CallLeg leg, String billsec) {
+        if (!reservationEngine.isReady()) return;
+        Long answeredAt = leg.getStateEnteredAt(CallState.ANSWERED);
+        if (answeredAt == null) {
+            reservationEngine.settle(leg.getCallUuid(), false, 0);
+            return;
+        }
+        // FreeSWITCH's billsec when the hangup carries it, otherwise answer to the last event seen, which for an
+        // orphaned leg is as far as the call is known to have lasted
+        Long billedSeconds = parseSeconds(billsec);
+        if (billedSeconds == null) billedSeconds = Math.max(0, Math.ceilDiv(leg.getLastEventAt() - answeredAt, 1000L));
+        reservationEngine.settle(leg.getCallUuid(), true, billedSeconds);
+    }
+
+    private void count(CallLeg.Assignment assignment, int delta) {
+        if (assignment == null || assignment.ended) return;
+        if (assignment.idPartner != null) counter(partnerCalls, assignment.idPartner).addAndGet(delta);
+        if (assignment.route != null) counter(routeCalls, assignment.route).addAndGet(delta);
+    }
+
+    private static <K> AtomicInteger counter(Map<K, AtomicInteger> counters, K key) {
+        return counters.computeIfAbsent(key, k -> new AtomicInteger());
+    }
+
+    private static int read(AtomicInteger counter) {
+        // an assignment racing the end of its call may leave a counter briefly below zero
+        return counter == null ? 0 : Math.max(0, counter.get());
+    }
+
+    private static <K> Map<K, Integer> snapshot(Map<K, AtomicInteger> counters) {
+        Map<K, Integer> snapshot = new HashMap<>();
+        counters.forEach((key, counter) -> {
+            int value = read(counter);
+            if (value > 0) snapshot.put(key, value);
+        });
+        return snapshot;
+    }
+
+    private static Long parseSeconds(String seconds) {
+        if (seconds == null) return null;
+        try {
+            return Long.valueOf(seconds.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long parsePartner(String idPartner) {
+        if (idPartner == null) return null;
+        try {
+            return Long.valueOf(idPartner.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.telcobright.routesphere.pipeline.stage;
+
+import com.telcobright.routesphere.pipeline.PipelineStage;
+import com.telcobright.routesphere.rules.api.PipelineContext;
+import com.telcobright.routesphere.rules.processor.HierarchicalRuleProcessor;
+import com.telcobright.routesphere.rules.processor.HierarchicalRuleProcessor.PipelineResult;
+import com.telcobright.routesphere.rules.processor.HierarchicalRuleProcessor.RuleDefinition;
+import com.telcobright.routesphere.rules.processor.HierarchicalRuleProcessor.TenantLevel;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the business rules through {@link HierarchicalRuleProcessor}. The hierarchy is taken from the context's
+ * ruleHierarchy when an earlier stage resolved one, otherwise from the rules of the pipeline section: a list of
+ * rule ids or of {id, config} entries, run as a single level.
+ */
+@ApplicationScoped
+public class BusinessRulesStage implements PipelineStage {
+
+    @Inject
+    HierarchicalRuleProcessor ruleProcessor;
+
+    private List<TenantLevel> defaultHierarchy = List.of();
+
+    public BusinessRulesStage() {
+    }
+
+    private BusinessRulesStage(HierarchicalRuleProcessor ruleProcessor, List<TenantLevel> defaultHierarchy) {
+        this.ruleProcessor = ruleProcessor;
+        this.defaultHierarchy = defaultHierarchy;
+    }
+
+    @Override
+    public String getName() {
+        return "business-rules";
+    }
+
+    @Override
+    public boolean process(PipelineContext context) {
+        List<TenantLevel> hierarchy = context.getData("ruleHierarchy");
+        if (hierarchy == null) hierarchy = defaultHierarchy;
+        if (hierarchy.isEmpty()) return true;
+
+        PipelineResult result = ruleProcessor.process(context, hierarchy);
+        if (!result.isSuccess()) {
+            context.setData("abortReason", result.getAbortReason());
+            context.setData("abortLevel", result.getAbortLevel());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public PipelineStage configure(Map<String, Object> settings) {
+        Object rules = settings.get("rules");
+        if (!(rules instanceof List<?> entries)) return this;
+
+        List<RuleDefinition> definitions = new ArrayList<>();
+        for (Object entry : entries) {
+            if (entry instanceof Map<?, ?> rule) {
+                Object config = rule.get("config");
+                definitions.add(new RuleDefinition(String.valueOf(rule.get("id")),
+                        config instanceof Map ? (Map<String, Object>) config : Map.of()));
+            } else {
+                definitions.add(new RuleDefinition(String.valueOf(entry), Map.of()));
+            }
+        }
+        return new BusinessRulesStage(ruleProcessor, List.of(new TenantLevel(0, null, definitions)));
+    }
+}
@@ -1,5 +1,7 @@
 package com.telcobright.routesphere.protocols;
 
+import com.telcobright.routesphere.pipeline.PipelineEngine;
+import com.telcobright.routesphere.pipeline.call.state.CallStateStore;
 import com.telcobright.routesphere.protocols.base.AbstractChannel;
 import com.telcobright.routesphere.protocols.base.ChannelConfig;
 import com.telcobright.routesphere.protocols.base.ChannelConfigLoader;
@@ -32,6 +34,12 @@ public class ChannelManager {
     @Inject
     ChannelConfigLoader configLoader;
 
+    @Inject
+    PipelineEngine pipelineEngine;
+
+    @Inject
+    CallStateStore callStateStore;
+
     // Map of tenant -> list of channels
     private final Map<String, List<AbstractChannel>> tenantChannels = new ConcurrentHashMap<>();
 
@@ -81,6 +89,7 @@ public class ChannelManager {
                         if (channel != null) {
                             channels.add(channel);
                             channelRegistry.put(config.getName(), channel);
+                            channel.attachPipeline(pipelineEngine.executorFor(tenant, config));
 
                             // Initialize the enabled channel
                             channel.initialize();
@@ -208,6 +217,24 @@ public class ChannelManager {
         }
         report.put("tenantStats", tenantStats);
 
+        Map<String, Object> channelPipelines = new HashMap<>();
+        for (AbstractChannel channel : channelRegistry.values()) {
+            if (channel.getPipelineExecutor() != null) {
+                channelPipelines.put(channel.getName(), channel.getPipelineExecutor().getStats());
+            }
+        }
+        report.put("channelPipelines", channelPipelines);
+
+        Map<String, Object> eslDispatch = new HashMap<>();
+        for (AbstractChannel channel : channelRegistry.values()) {
+            if (channel instanceof EslChannel eslChannel) {
+                eslDispatch.put(channel.getName(), eslChannel.getDispatchStats());
+            }
+        }
+        report.put("eslDispatch", eslDispatch);
+        report.put("calls", callStateStore.getStats());
+        report.put("pipelines", pipelineEngine.getStats());
+
         return report;
     }
 
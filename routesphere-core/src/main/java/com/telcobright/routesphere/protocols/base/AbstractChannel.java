@@ -1,5 +1,6 @@
 package com.telcobright.routesphere.protocols.base;
 
+import com.telcobright.routesphere.pipeline.PipelineExecutor;
 import io.quarkus.runtime.Startup;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -22,6 +23,7 @@ public abstract class AbstractChannel {
     protected boolean enabled;
     protected ChannelConfig config;
     protected ChannelStatus status = ChannelStatus.STOPPED;
+    protected PipelineExecutor pipelineExecutor;
 
     /**
      * Channel operating modes
@@ -86,21 +88,48 @@ public abstract class AbstractChannel {
                 LOG.errorf("Error shutting down %s channel %s: %s", protocol, name, e.getMessage());
             }
         }
+        // after the source is stopped, so the events already queued still run
+        if (pipelineExecutor != null) {
+            pipelineExecutor.close();
+            pipelineExecutor = null;
+        }
+    }
+
+    /**
+     * Set the executor running this channel's events through its pipeline, before the channel is initialized
+     */
+    public void attachPipeline(PipelineExecutor pipelineExecutor) {
+        this.pipelineExecutor = pipelineExecutor;
+    }
+
+    /**
+     * Process an incoming event and trigger pipeline.
+     * Async channels queue the event for the pipeline workers, the caller is held only while the queue is full
+     * (see {@link PipelineExecutor}); other channels run the pipeline on the calling thread.
+     *
+     * @return false if the event was rejected or the pipeline did not complete
+     */
+    protected boolean processEvent(Object event) {
+        if (pipelineExecutor == null) {
+            LOG.debugf("Channel %s has no pipeline, event dropped", name);
+            return false;
+        }
+        return config.isAsync() ? pipelineExecutor.submit(event) : pipelineExecutor.execute(event);
     }
 
     /**
-     * Process an incoming event and trigger pipeline
+     * Process an incoming event whose order matters within {@code key}: async channels queue it behind the earlier
+     * events of the key, which run on the same pipeline worker one at a time
+     * (see {@link PipelineExecutor#submit(Object, String)}).
+     *
+     * @return false if the event was rejected or the pipeline did not complete
      */
-    protected void processEvent(Object event) {
-        LOG.debugf("Channel %s received event: %s", name, event.getClass().getSimpleName());
-
-        // TODO: Trigger pipeline processing
-        // This will be implemented when pipeline framework is ready
-        String pipelineName = config.getPipelineName();
-        if (pipelineName != null) {
-            LOG.debugf("Triggering pipeline: %s", pipelineName);
-            // pipelineService.execute(pipelineName, event);
+    protected boolean processEvent(Object event, String key) {
+        if (pipelineExecutor == null) {
+            LOG.debugf("Channel %s has no pipeline, event dropped", name);
+            return false;
         }
+        return config.isAsync() ? pipelineExecutor.submit(event, key) : pipelineExecutor.execute(event);
     }
 
     /**
@@ -138,4 +167,8 @@ public abstract class AbstractChannel {
     public ChannelConfig getConfig() {
         return config;
     }
+
+    public PipelineExecutor getPipelineExecutor() {
+        return pipelineExecutor;
+    }
 }
\ No newline at end of file
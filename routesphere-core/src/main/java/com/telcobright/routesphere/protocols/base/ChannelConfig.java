@@ -8,11 +8,13 @@ import java.util.Map;
 public class ChannelConfig {
 
     private String name;
+    private String tenant;
     private String mode;  // "server" or "client"
     private String protocol;
     private boolean enabled = true;
     private String pipelineName;
     private boolean async = true;
+    private Map<String, Object> pipelineSettings;
     private Map<String, Object> connectionConfig;
     private Map<String, Object> protocolSpecificConfig;
 
@@ -25,6 +27,14 @@ public class ChannelConfig {
         this.name = name;
     }
 
+    public String getTenant() {
+        return tenant;
+    }
+
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+
     public String getMode() {
         return mode;
     }
@@ -65,6 +75,14 @@ public class ChannelConfig {
         this.async = async;
     }
 
+    public Map<String, Object> getPipelineSettings() {
+        return pipelineSettings;
+    }
+
+    public void setPipelineSettings(Map<String, Object> pipelineSettings) {
+        this.pipelineSettings = pipelineSettings;
+    }
+
     public Map<String, Object> getConnectionConfig() {
         return connectionConfig;
     }
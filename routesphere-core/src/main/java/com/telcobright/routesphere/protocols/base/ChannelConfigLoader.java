@@ -83,6 +83,7 @@ public class ChannelConfigLoader {
                         .forEach(protocolDir -> {
                             String protocol = protocolDir.getFileName().toString();
                             List<ChannelConfig> protocolChannels = loadProtocolChannels(protocolDir, protocol);
+                            protocolChannels.forEach(channel -> channel.setTenant(tenantName));
                             channels.addAll(protocolChannels);
                         });
             }
@@ -155,6 +156,8 @@ public class ChannelConfigLoader {
         Map<String, Object> pipeline = (Map<String, Object>) channelData.get("pipeline");
         if (pipeline != null) {
             config.setPipelineName((String) pipeline.get("name"));
+            // processors and executor settings, read by PipelineEngine
+            config.setPipelineSettings(pipeline);
             Object async = pipeline.get("async");
             if (async != null) {
                 config.setAsync(Boolean.parseBoolean(async.toString()));
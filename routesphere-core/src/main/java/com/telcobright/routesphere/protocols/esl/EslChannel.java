@@ -24,6 +24,10 @@ public class EslChannel extends ClientChannel implements IEslEventListener {
     private EslClient eslClient;
     private String password;
     private List<String> subscriptions;
+    private int laneCount = Runtime.getRuntime().availableProcessors();
+    private int laneCapacity = 4096;
+    private long laneOfferTimeoutMs = 50;
+    private EslEventLanes lanes;
 
     public EslChannel() {
         super("esl-default", "esl", new ChannelConfig());
@@ -39,6 +43,14 @@ public class EslChannel extends ClientChannel implements IEslEventListener {
 
         if (config.getProtocolSpecificConfig() != null) {
             this.subscriptions = (List<String>) config.getProtocolSpecificConfig().get("subscriptions");
+
+            // dispatch: lanes, lane-capacity, offer-timeout-ms
+            Map<String, Object> dispatch = (Map<String, Object>) config.getProtocolSpecificConfig().get("dispatch");
+            if (dispatch != null) {
+                if (dispatch.get("lanes") != null) laneCount = Integer.parseInt(dispatch.get("lanes").toString());
+                if (dispatch.get("lane-capacity") != null) laneCapacity = Integer.parseInt(dispatch.get("lane-capacity").toString());
+                if (dispatch.get("offer-timeout-ms") != null) laneOfferTimeoutMs = Long.parseLong(dispatch.get("offer-timeout-ms").toString());
+            }
         }
 
         // Get CallEventProcessor from CDI when created manually
@@ -60,6 +72,9 @@ public class EslChannel extends ClientChannel implements IEslEventListener {
         LOG.infof("Password: %s", password != null ? "***" : "not set");
         LOG.infof("========================================");
 
+        lanes = new EslEventLanes(name, laneCount, laneCapacity, laneOfferTimeoutMs, this::handleDispatched);
+        LOG.infof("Dispatching events on %d lanes of %d", laneCount, laneCapacity);
+
         // BREAKPOINT 1: Set breakpoint here to debug ESL connection
         eslClient = new EslClient(this, remoteHost, remotePort, password);
         eslClient.setEventHandler(this::handleEslEvent);
@@ -90,6 +105,10 @@ public class EslChannel extends ClientChannel implements IEslEventListener {
             eslClient.disconnect();
             eslClient = null;
         }
+        if (lanes != null) {
+            lanes.close();
+            lanes = null;
+        }
     }
 
     /**
@@ -97,35 +116,7 @@ public class EslChannel extends ClientChannel implements IEslEventListener {
      */
     private void handleEslEvent(com.telcobright.routesphere.protocols.esl.EslEvent event) {
         LOG.debugf("Received ESL event: %s", event.getEventName());
-
-        // Convert ESL event to pipeline event
-        Map<String, Object> pipelineEvent = Map.of(
-            "type", "esl",
-            "eventName", event.getEventName(),
-            "channelId", event.getChannelId(),
-            "timestamp", System.currentTimeMillis(),
-            "data", event.getEventData()
-        );
-
-        // Send to CallEventProcessor for detailed logging and processing
-        if (callEventProcessor == null) {
-            // Try to get it from CDI if not already set
-            try {
-                callEventProcessor = CDI.current().select(CallEventProcessor.class).get();
-                LOG.debug("CallEventProcessor obtained from CDI in event handler");
-            } catch (Exception e) {
-                LOG.warn("Could not obtain CallEventProcessor from CDI: " + e.getMessage());
-            }
-        }
-
-        if (callEventProcessor != null) {
-            callEventProcessor.processCallEvent(pipelineEvent);
-        } else {
-            LOG.warn("CallEventProcessor is not available, event not processed");
-        }
-
-        // Also trigger pipeline processing
-        processEvent(pipelineEvent);
+        dispatch(event);
     }
 
     // IEslEventListener implementation
@@ -138,15 +129,27 @@ public class EslChannel extends ClientChannel implements IEslEventListener {
             LOG.debugf("Received FreeSWITCH event: %s", eventName);
         }
 
-        // Convert FreeSWITCH event directly to pipeline event format
-        Map<String, Object> pipelineEvent = Map.of(
-            "type", "esl",
-            "eventName", eventName,
-            "channelId", eslEvent.getEventHeaders().getOrDefault("Channel-Unique-ID", ""),
-            "timestamp", System.currentTimeMillis(),
-            "data", eslEvent.getEventHeaders()
-        );
+        // Typed view over the client's headers, nothing copied
+        dispatch(com.telcobright.routesphere.protocols.esl.EslEvent.wrap(eventName, eslEvent.getEventHeaders()));
+    }
+
+    /**
+     * Hand the event to its channel's lane, the I/O thread delivering it returns right away
+     */
+    private void dispatch(com.telcobright.routesphere.protocols.esl.EslEvent event) {
+        EslEventLanes current = lanes;
+        if (current != null) {
+            current.dispatch(event);
+        } else {
+            // not connected through this channel, nothing to hand off to
+            handleDispatched(event);
+        }
+    }
 
+    /**
+     * Runs on the event's lane, one event of a channel at a time
+     */
+    private void handleDispatched(com.telcobright.routesphere.protocols.esl.EslEvent event) {
         // Send to CallEventProcessor for detailed logging and processing
         if (callEventProcessor == null) {
             // Try to get it from CDI if not already set
@@ -159,13 +162,16 @@ public class EslChannel extends ClientChannel implements IEslEventListener {
         }
 
         if (callEventProcessor != null) {
-            callEventProcessor.processCallEvent(pipelineEvent);
+            callEventProcessor.processCallEvent(config.getTenant(), event);
         } else {
             LOG.warn("CallEventProcessor is not available, event not processed");
         }
 
-        // Also trigger pipeline processing
-        processEvent(pipelineEvent);
+        // Also trigger pipeline processing: an async channel queues the event on the pipeline worker of its call,
+        // behind the call's earlier events, so each leg's events run in the order of its lane
+        if (pipelineExecutor != null) {
+            processEvent(event, event.getChannelCallUuid());
+        }
     }
 
     @Override
@@ -187,4 +193,12 @@ public class EslChannel extends ClientChannel implements IEslEventListener {
     public List<String> getSubscriptions() {
         return subscriptions;
     }
+
+    /**
+     * Lane depth, handled and rejected counts and dispatch lag, empty while not connected
+     */
+    public Map<String, Object> getDispatchStats() {
+        EslEventLanes current = lanes;
+        return current != null ? current.getStats() : Map.of();
+    }
 }
\ No newline at end of file
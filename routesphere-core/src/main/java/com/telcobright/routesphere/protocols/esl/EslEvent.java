@@ -5,10 +5,22 @@ import java.util.Map;
 
 /**
  * Represents an event received from FreeSWITCH ESL.
+ *
+ * Events from the ESL client are wrapped around the client's header map without copying it ({@link #wrap}).
+ * The event type is resolved to an {@link EslEventType} once, and headers RouteSphere reads are looked up through
+ * {@link #header(EslHeader)}, each resolved on first use into a slot indexed by the header's ordinal. The slots
+ * are only allocated for events whose headers are read.
  */
 public class EslEvent {
 
+    // slot of a header looked up and found missing
+    private static final String ABSENT = new String("");
+    // values() clones the constants on every call, the slot count is taken once
+    private static final int HEADER_COUNT = EslHeader.values().length;
+
     private String eventName;
+    private EslEventType type;
+    private String[] headers;
     private String channelId;
     private String callerId;
     private String destination;
@@ -20,6 +32,42 @@ public class EslEvent {
         this.timestamp = System.currentTimeMillis();
     }
 
+    /**
+     * View of an event the ESL client parsed, sharing its header map
+     */
+    public static EslEvent wrap(String eventName, Map<String, String> eventHeaders) {
+        EslEvent event = new EslEvent(eventName);
+        event.eventData = eventHeaders;
+        return event;
+    }
+
+    public EslEventType getType() {
+        EslEventType resolved = type;
+        if (resolved == null) {
+            resolved = EslEventType.of(eventName);
+            type = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * Value of the header, null if the event doesn't carry it
+     */
+    public String header(EslHeader header) {
+        String[] slots = headers;
+        if (slots == null) {
+            slots = new String[HEADER_COUNT];
+            headers = slots;
+        }
+        String value = slots[header.ordinal()];
+        if (value == null) {
+            value = eventData.get(header.getHeaderName());
+            slots[header.ordinal()] = value != null ? value : ABSENT;
+            return value;
+        }
+        return value == ABSENT ? null : value;
+    }
+
     // Builder pattern for easy event creation
     public static Builder builder(String eventName) {
         return new Builder(eventName);
@@ -69,18 +117,35 @@ public class EslEvent {
 
     public void setEventName(String eventName) {
         this.eventName = eventName;
+        this.type = null;
     }
 
+    /**
+     * Channel-Unique-ID of the event unless set explicitly, empty for events without a channel
+     */
     public String getChannelId() {
+        if (channelId == null) {
+            String uniqueId = header(EslHeader.CHANNEL_UNIQUE_ID);
+            channelId = uniqueId != null ? uniqueId : "";
+        }
         return channelId;
     }
 
+    /**
+     * Channel-Call-UUID of the event, the uuid of the leg its call started with; the channel id for events that
+     * don't carry it
+     */
+    public String getChannelCallUuid() {
+        String callUuid = header(EslHeader.CHANNEL_CALL_UUID);
+        return callUuid != null ? callUuid : getChannelId();
+    }
+
     public void setChannelId(String channelId) {
         this.channelId = channelId;
     }
 
     public String getCallerId() {
-        return callerId;
+        return callerId != null ? callerId : header(EslHeader.CALLER_ID_NUMBER);
     }
 
     public void setCallerId(String callerId) {
@@ -88,7 +153,7 @@ public class EslEvent {
     }
 
     public String getDestination() {
-        return destination;
+        return destination != null ? destination : header(EslHeader.DESTINATION_NUMBER);
     }
 
     public void setDestination(String destination) {
@@ -109,6 +174,7 @@ public class EslEvent {
 
     public void setEventData(Map<String, String> eventData) {
         this.eventData = eventData;
+        this.headers = null;
     }
 
     @Override
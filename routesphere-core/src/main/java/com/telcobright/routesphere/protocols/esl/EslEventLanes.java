@@ -0,0 +1,180 @@
+package com.telcobright.routesphere.protocols.esl;
+
+import com.telcobright.routesphere.pipeline.LatencyHistogram;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Dispatches ESL events off the ESL client's I/O thread onto a fixed set of lanes, each a bounded
+ * {@link MpscRingBuffer} drained by one thread. Events are sharded by Channel-Unique-ID, so the events of one
+ * channel are handled one at a time in the order FreeSWITCH sent them while different channels run in parallel.
+ * Events without a channel (HEARTBEAT, API, ...) share lane 0. The two legs of a bridged call are separate
+ * channels and may land on different lanes.
+ *
+ * A full lane holds the I/O thread up to the offer timeout, which in turn stops reading the socket, then the
+ * event is counted as rejected.
+ */
+final class EslEventLanes {
+
+    private static final Logger LOG = Logger.getLogger(EslEventLanes.class);
+
+    // spins of an idle lane before it parks
+    private static final int IDLE_SPINS = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Lane[] lanes;
+    private final Consumer<EslEvent> handler;
+    private final long offerTimeoutNanos;
+    private volatile boolean running = true;
+
+    EslEventLanes(String channelName, int laneCount, int laneCapacity, long offerTimeoutMs,
+                  Consumer<EslEvent> handler) {
+        this.handler = handler;
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        this.lanes = new Lane[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(laneCapacity);
+            lanes[i].thread = Thread.ofPlatform().daemon().name(channelName + "-lane-" + i).start(lanes[i]::drain);
+        }
+    }
+
+    /**
+     * Queue the event on the lane of its channel
+     *
+     * @return false if the lane stayed full and the event was rejected
+     */
+    boolean dispatch(EslEvent event) {
+        String channelUniqueId = event.getChannelId();
+        Lane lane = lanes[laneOf(channelUniqueId)];
+        Dispatched dispatched = new Dispatched(event, System.nanoTime());
+        if (!lane.offer(dispatched)) {
+            lane.rejected.increment();
+            LOG.debugf("ESL lane full, event %s of %s rejected", event.getEventName(), channelUniqueId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stop the lanes once they have handled what is queued
+     */
+    void close() {
+        running = false;
+        for (Lane lane : lanes) {
+            LockSupport.unpark(lane.thread);
+            try {
+                lane.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!lane.queue.isEmpty()) LOG.warnf("ESL lane closed with %d events unhandled", lane.queue.size());
+        }
+    }
+
+    /**
+     * Depth, handled and rejected counts and dispatch lag (queued to handled) per lane, plus the totals
+     */
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Map<String, Object>> perLane = new ArrayList<>();
+        long depth = 0, maxDepth = 0, handled = 0, rejected = 0;
+        for (Lane lane : lanes) {
+            Map<String, Object> laneStats = new LinkedHashMap<>();
+            int laneDepth = lane.queue.size();
+            laneStats.put("depth", laneDepth);
+            laneStats.put("handled", lane.handled.sum());
+            laneStats.put("rejected", lane.rejected.sum());
+            laneStats.put("lag", lane.lag.snapshot());
+            perLane.add(laneStats);
+            depth += laneDepth;
+            maxDepth = Math.max(maxDepth, laneDepth);
+            handled += lane.handled.sum();
+            rejected += lane.rejected.sum();
+        }
+        stats.put("lanes", lanes.length);
+        stats.put("laneCapacity", lanes[0].queue.capacity());
+        stats.put("depth", depth);
+        stats.put("maxLaneDepth", maxDepth);
+        stats.put("handled", handled);
+        stats.put("rejected", rejected);
+        stats.put("perLane", perLane);
+        return stats;
+    }
+
+    private int laneOf(String channelUniqueId) {
+        if (channelUniqueId == null || channelUniqueId.isEmpty()) return 0;
+        int hash = channelUniqueId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    private final class Lane {
+        final MpscRingBuffer<Dispatched> queue;
+        final LatencyHistogram lag = new LatencyHistogram();
+        final LongAdder handled = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        Thread thread;
+        volatile boolean parked;
+
+        Lane(int capacity) {
+            this.queue = new MpscRingBuffer<>(capacity);
+        }
+
+        boolean offer(Dispatched dispatched) {
+            boolean queued = queue.offer(dispatched);
+            if (!queued) {
+                long deadline = System.nanoTime() + offerTimeoutNanos;
+                while (!(queued = queue.offer(dispatched)) && running && System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(10_000);
+                }
+            }
+            if (queued && parked) LockSupport.unpark(thread);
+            return queued;
+        }
+
+        void drain() {
+            int idle = 0;
+            while (running || !queue.isEmpty()) {
+                Dispatched dispatched = queue.poll();
+                if (dispatched == null) {
+                    if (++idle < IDLE_SPINS) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    parked = true;
+                    // re-check after announcing the park, a producer that missed the flag has queued by now
+                    if (queue.isEmpty() && running) LockSupport.parkNanos(MAX_PARK_NANOS);
+                    parked = false;
+                    idle = 0;
+                    continue;
+                }
+                idle = 0;
+                lag.record(System.nanoTime() - dispatched.queuedAt);
+                try {
+                    handler.accept(dispatched.event);
+                } catch (Exception e) {
+                    LOG.errorf("ESL event %s failed: %s", dispatched.event.getEventName(), e.getMessage());
+                }
+                handled.increment();
+            }
+        }
+    }
+
+    private static final class Dispatched {
+        final EslEvent event;
+        final long queuedAt;
+
+        Dispatched(EslEvent event, long queuedAt) {
+            this.event = event;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.telcobright.routesphere.protocols.esl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FreeSWITCH event names RouteSphere handles, resolved once per event instead of compared as strings.
+ */
+public enum EslEventType {
+    CHANNEL_CREATE,
+    CHANNEL_ANSWER,
+    CHANNEL_HANGUP,
+    CHANNEL_HANGUP_COMPLETE,
+    CHANNEL_PARK,
+    CHANNEL_UNPARK,
+    CHANNEL_BRIDGE,
+    CHANNEL_UNBRIDGE,
+    CHANNEL_EXECUTE,
+    CHANNEL_EXECUTE_COMPLETE,
+    CHANNEL_PROGRESS,
+    CHANNEL_PROGRESS_MEDIA,
+    CHANNEL_OUTGOING,
+    CHANNEL_ORIGINATE,
+    CHANNEL_DESTROY,
+    HEARTBEAT,
+    CUSTOM,
+    DTMF,
+    RE_SCHEDULE,
+    API,
+    BACKGROUND_JOB,
+    // any other event name
+    UNKNOWN;
+
+    private static final Map<String, EslEventType> BY_NAME = new HashMap<>();
+
+    static {
+        for (EslEventType type : values()) {
+            if (type != UNKNOWN) BY_NAME.put(type.name(), type);
+        }
+    }
+
+    public static EslEventType of(String eventName) {
+        if (eventName == null) return UNKNOWN;
+        return BY_NAME.getOrDefault(eventName, UNKNOWN);
+    }
+}
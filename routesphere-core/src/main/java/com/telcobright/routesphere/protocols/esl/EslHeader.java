@@ -0,0 +1,88 @@
+package com.telcobright.routesphere.protocols.esl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Event headers RouteSphere reads, each resolved at most once per event into the slot of its ordinal,
+ * see {@link EslEvent#header(EslHeader)}. Headers flagged important are shown in the event dump.
+ */
+public enum EslHeader {
+    EVENT_NAME("Event-Name"),
+    EVENT_SUBCLASS("Event-Subclass", true),
+    EVENT_DATE_TIMESTAMP("Event-Date-Timestamp"),
+    CHANNEL_UNIQUE_ID("Channel-Unique-ID"),
+    CHANNEL_CALL_UUID("Channel-Call-UUID"),
+    UNIQUE_ID("Unique-ID"),
+    OTHER_LEG_UNIQUE_ID("Other-Leg-Unique-ID"),
+    BRIDGE_A_UNIQUE_ID("Bridge-A-Unique-ID"),
+    BRIDGE_B_UNIQUE_ID("Bridge-B-Unique-ID"),
+    CHANNEL_NAME("Channel-Name", true),
+    CHANNEL_STATE("Channel-State", true),
+    CALL_DIRECTION("Call-Direction", true),
+    ANSWER_STATE("Answer-State", true),
+    CALLER_ID_NUMBER("Caller-Caller-ID-Number", true),
+    CALLER_ID_NAME("Caller-Caller-ID-Name", true),
+    DESTINATION_NUMBER("Caller-Destination-Number", true),
+    READ_CODEC_NAME("Channel-Read-Codec-Name"),
+    WRITE_CODEC_NAME("Channel-Write-Codec-Name"),
+    HANGUP_CAUSE("Hangup-Cause", true),
+    APPLICATION("Application"),
+    APPLICATION_DATA("Application-Data"),
+    APPLICATION_RESPONSE("Application-Response"),
+    DTMF_DIGIT("DTMF-Digit"),
+    DTMF_DURATION("DTMF-Duration"),
+    API_COMMAND("API-Command"),
+    API_RESPONSE("API-Response"),
+    DURATION("variable_duration", true),
+    BILLSEC("variable_billsec", true),
+    SIP_TERM_STATUS("variable_sip_term_status", true),
+    SIP_HANGUP_DISPOSITION("variable_sip_hangup_disposition", true),
+    SIP_GATEWAY("variable_sip_gateway"),
+    PARK_SLOT("variable_park_slot"),
+    PARK_BY("variable_park_by"),
+    RETRIEVED_BY("variable_retrieved_by"),
+    BRIDGE_CHANNEL("variable_bridge_channel"),
+    BRIDGE_HANGUP_CAUSE("variable_bridge_hangup_cause"),
+    PROGRESS_INDICATION("variable_progress_indication"),
+    RTP_CODEC_NAME("variable_rtp_use_codec_name"),
+    RTP_CODEC_RATE("variable_rtp_use_codec_rate"),
+    ORIGINATE_DISPOSITION("variable_originate_disposition"),
+    DIALED_EXTENSION("variable_dialed_extension"),
+    // exported by the dialplan once a call is routed
+    ROUTESPHERE_PARTNER("variable_routesphere_partner"),
+    ROUTESPHERE_ROUTE("variable_routesphere_route");
+
+    private static final Map<String, EslHeader> BY_NAME = new HashMap<>();
+
+    static {
+        for (EslHeader header : values()) BY_NAME.put(header.headerName, header);
+    }
+
+    private final String headerName;
+    private final boolean important;
+
+    EslHeader(String headerName) {
+        this(headerName, false);
+    }
+
+    EslHeader(String headerName, boolean important) {
+        this.headerName = headerName;
+        this.important = important;
+    }
+
+    public String getHeaderName() {
+        return headerName;
+    }
+
+    public boolean isImportant() {
+        return important;
+    }
+
+    /**
+     * @return the header of that name, null if RouteSphere doesn't read it
+     */
+    public static EslHeader of(String headerName) {
+        return BY_NAME.get(headerName);
+    }
+}
@@ -1,22 +1,45 @@
 package com.telcobright.routesphere.rules.common;
 
+import com.telcobright.routesphere.balance.Reservation;
+import com.telcobright.routesphere.balance.ReservationEngine;
+import com.telcobright.routesphere.pipeline.call.state.CallLeg;
+import com.telcobright.routesphere.pipeline.call.state.CallStateStore;
 import com.telcobright.routesphere.rules.api.BizRule;
 import com.telcobright.routesphere.rules.api.PipelineContext;
 import com.telcobright.routesphere.rules.api.RuleResult;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import java.math.BigDecimal;
 import java.util.Map;
 import java.util.logging.Logger;
 
 /**
- * Rule to check if tenant has sufficient credit balance
+ * Rule to check if the call's partner has sufficient credit balance.
+ *
+ * The check is made against the partner's package accounts in the configured uom and holds reserveAmount
+ * (minCredit if not set) for the call, charged at ratePerMinute once the call is answered, see
+ * {@link ReservationEngine}. The call is identified by the context's channelCallUuid and idPartner, the partner
+ * falling back to the one routing assigned the call in {@link CallStateStore}. A call without a partner is
+ * aborted; with the reservation engine disabled the rule passes without checking.
+ *
+ * An ESL event is checked only if it is the setup event of the leg the call started with, reserveOn
+ * (CHANNEL_CREATE if not set); the call's other events pass unchecked, so the hangup and the other legs of a call
+ * never reserve for it again. A call that has settled already is aborted without reserving.
  */
 @ApplicationScoped
 public class CreditCheckRule implements BizRule {
 
     private static final Logger LOG = Logger.getLogger(CreditCheckRule.class.getName());
 
+    private static final String DEFAULT_RESERVE_ON = "CHANNEL_CREATE";
+
+    @Inject
+    ReservationEngine reservationEngine;
+
+    @Inject
+    CallStateStore callStateStore;
+
     @Override
     public String getRuleId() {
         return "credit_check";
@@ -24,30 +47,70 @@ public class CreditCheckRule implements BizRule {
 
     @Override
     public RuleResult execute(PipelineContext context, Map<String, Object> config) {
-        String tenantId = context.getTenantId();
-        BigDecimal minCredit = getConfigValue(config, "minCredit", BigDecimal.ZERO);
-
-        // In real implementation, this would query the database
-        BigDecimal availableCredit = getAvailableCredit(tenantId);
-
-        LOG.fine("Credit check for tenant " + tenantId + ": available=" + availableCredit + ", required=" + minCredit);
+        if ("esl".equals(context.getData("type")) && !isCallSetup(context, config)) {
+            return RuleResult.continueWithData(Map.of("creditChecked", false));
+        }
+        if (!reservationEngine.isReady()) {
+            LOG.fine("Credit check skipped for tenant " + context.getTenantId() + ", reservations are disabled");
+            return RuleResult.continueWithData(Map.of("creditChecked", false));
+        }
 
-        if (availableCredit.compareTo(minCredit) < 0) {
-            return RuleResult.abort("INSUFFICIENT_CREDIT");
+        String channelCallUuid = context.getData("channelCallUuid");
+        Long idPartner = partnerOf(context, channelCallUuid);
+        if (channelCallUuid == null || idPartner == null) {
+            return RuleResult.abort("UNKNOWN_PARTNER");
+        }
+        if (reservationEngine.isSettled(channelCallUuid)) {
+            return RuleResult.abort("CALL_ENDED");
         }
 
-        context.setData("availableCredit", availableCredit);
-        return RuleResult.continueWithData(Map.of("creditChecked", true));
+        BigDecimal minCredit = getConfigValue(config, "minCredit", BigDecimal.ZERO);
+        Object ratePerMinute = config.get("ratePerMinute");
+        return reserve(context, idPartner, channelCallUuid, getConfigValue(config, "uom", null), minCredit,
+                getConfigValue(config, "reserveAmount", minCredit), ratePerMinute != null
+                        ? ReservationEngine.scale(new BigDecimal(ratePerMinute.toString()))
+                        : reservationEngine.getDefaultRatePerMinute());
     }
 
     @Override
     public boolean validateConfig(Map<String, Object> config) {
-        return config != null && config.containsKey("minCredit");
+        return config != null && config.containsKey("minCredit") && config.containsKey("uom");
     }
 
-    private BigDecimal getAvailableCredit(String tenantId) {
-        // TODO: Query from database
-        return new BigDecimal("100.00");
+    private static boolean isCallSetup(PipelineContext context, Map<String, Object> config) {
+        Object reserveOn = config.get("reserveOn");
+        String setupEvent = reserveOn != null ? reserveOn.toString() : DEFAULT_RESERVE_ON;
+        String channelId = context.getData("channelId");
+        return setupEvent.equals(context.getData("eventName"))
+                && channelId != null && channelId.equals(context.getData("channelCallUuid"));
+    }
+
+    private Long partnerOf(PipelineContext context, String channelCallUuid) {
+        Number idPartner = context.getData("idPartner");
+        if (idPartner != null) return idPartner.longValue();
+        CallLeg leg = channelCallUuid == null ? null : callStateStore.getLeg(channelCallUuid);
+        return leg == null ? null : leg.getIdPartner();
+    }
+
+    private RuleResult reserve(PipelineContext context, long idPartner, String channelCallUuid, String uom,
+                               BigDecimal minCredit, BigDecimal reserveAmount, long ratePerMinute) {
+        BigDecimal availableCredit = ReservationEngine.unscale(reservationEngine.available(idPartner, uom));
+        LOG.fine("Credit check for partner " + idPartner + ": available=" + availableCredit + " " + uom
+                + ", required=" + minCredit);
+        if (availableCredit.compareTo(minCredit) < 0) {
+            return RuleResult.abort("INSUFFICIENT_CREDIT");
+        }
+
+        Reservation reservation = reservationEngine.reserve(channelCallUuid, idPartner, uom,
+                ReservationEngine.scale(reserveAmount), ratePerMinute);
+        if (reservation == null) {
+            return RuleResult.abort("INSUFFICIENT_CREDIT");
+        }
+
+        context.setData("availableCredit", availableCredit);
+        context.setData("reservedAmount", ReservationEngine.unscale(reservation.getAmount()));
+        context.setData("idPackageAccount", reservation.getAccount().getIdPackageAccount());
+        return RuleResult.continueWithData(Map.of("creditChecked", true, "creditReserved", true));
     }
 
     private <T> T getConfigValue(Map<String, Object> config, String key, T defaultValue) {
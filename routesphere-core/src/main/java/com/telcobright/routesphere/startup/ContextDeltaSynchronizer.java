@@ -0,0 +1,154 @@
+package com.telcobright.routesphere.startup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.telcobright.rtc.domainmodel.nonentity.ContextDeltaApplier;
+import com.telcobright.rtc.domainmodel.nonentity.Tenant;
+import com.telcobright.routesphere.config.deployment.DeploymentConfigService;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+
+/**
+ * Keeps the tenant tree fetched by {@link TenantHierarchyInitializer} current by polling ConfigManager
+ * for the context changes since the version held and publishing the patched tree in one swap. Falls back to a full
+ * snapshot reload only when ConfigManager says the deltas can no longer be served (fullResyncRequired: restart, full
+ * reload, too far behind) or they name a tenant created after our snapshot.
+ *
+ * A failed poll or snapshot load is retried after an exponential backoff, the interval doubled per failure up to
+ * max-backoff. A tree that came from the unversioned JSON endpoint takes no deltas; the snapshot is tried for it
+ * json-fallback-snapshot-retries times and after that the JSON tree is kept as is.
+ */
+@ApplicationScoped
+public class ContextDeltaSynchronizer {
+
+    private static final String DELTA_ENDPOINT = "/get-context-delta?since=";
+
+    @Inject
+    DeploymentConfigService deploymentConfig;
+
+    @Inject
+    TenantHierarchyInitializer initializer;
+
+    @ConfigProperty(name = "routesphere.config-sync.interval", defaultValue = "5s")
+    Duration interval;
+
+    @ConfigProperty(name = "routesphere.config-sync.max-backoff", defaultValue = "5m")
+    Duration maxBackoff;
+
+    @ConfigProperty(name = "routesphere.config-sync.json-fallback-snapshot-retries", defaultValue = "5")
+    int jsonFallbackSnapshotRetries;
+
+    private ContextDeltaApplier applier;
+
+    // consecutive failed polls or snapshot loads, and when the next one may run
+    private int failures;
+    private long nextAttemptAt;
+    private int jsonFallbackSnapshotAttempts;
+
+    @Scheduled(every = "${routesphere.config-sync.interval:5s}", delayed = "${routesphere.config-sync.interval:5s}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void sync() {
+        sync(System.currentTimeMillis());
+    }
+
+    void sync(long now) {
+        if (now < nextAttemptAt) return;
+        long version = initializer.getSnapshotVersion();
+        Tenant root = initializer.getRootTenant();
+        if (root == null) {
+            // nothing loaded at startup, keep trying the snapshot
+            loadSnapshot(now);
+            return;
+        }
+        if (version < 0) {
+            // tree came from the unversioned JSON endpoint, deltas can't be applied to it
+            if (jsonFallbackSnapshotAttempts >= jsonFallbackSnapshotRetries) return;
+            if (++jsonFallbackSnapshotAttempts == jsonFallbackSnapshotRetries) {
+                System.err.println("Last snapshot attempt for the JSON tenant tree, it is kept without updates after this");
+            }
+            loadSnapshot(now);
+            return;
+        }
+        try {
+            JsonNode response = fetchDeltas(version);
+            long toVersion = response.path("toVersion").asLong(version);
+            boolean fullResyncRequired = response.path("fullResyncRequired").asBoolean(false);
+            if (toVersion == version && !fullResyncRequired) {
+                succeeded();
+                return;
+            }
+
+            Tenant patched = fullResyncRequired ? null : getApplier().apply(root, response);
+            if (patched != null) {
+                initializer.publish(patched, toVersion);
+                System.out.println("Applied " + response.path("deltas").size() + " context deltas, v"
+                        + version + " -> v" + toVersion);
+                succeeded();
+            } else {
+                loadSnapshot(now);
+            }
+        } catch (Exception e) {
+            // nothing was published, the same deltas are asked for again after the backoff
+            failed(now, "Failed to apply context deltas since v" + version + ": " + e.getMessage());
+        }
+    }
+
+    private void loadSnapshot(long now) {
+        if (initializer.resync()) {
+            succeeded();
+        } else {
+            failed(now, "Failed to load the tenant snapshot");
+        }
+    }
+
+    private void succeeded() {
+        failures = 0;
+        nextAttemptAt = 0;
+    }
+
+    private void failed(long now, String message) {
+        failures++;
+        long backoff = backoffMillis(failures);
+        nextAttemptAt = now + backoff;
+        System.err.println(message + ", retrying in " + backoff + " ms");
+    }
+
+    /**
+     * @return the wait after {@code failures} consecutive failures: the poll interval doubled per failure after
+     * the first, capped at max-backoff
+     */
+    long backoffMillis(int failures) {
+        long backoff = interval.toMillis() << Math.min(failures - 1, 20);
+        return Math.min(backoff, maxBackoff.toMillis());
+    }
+
+    JsonNode fetchDeltas(long since) throws IOException {
+        String apiUrl = deploymentConfig.getConfigManagerUrl() + DELTA_ENDPOINT + since;
+        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+            HttpPost httpPost = new HttpPost(apiUrl);
+            httpPost.setHeader("Accept", "application/json");
+            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                if (response.getCode() != 200 || response.getEntity() == null) {
+                    throw new IOException("ConfigManager delta API returned status: " + response.getCode());
+                }
+                try (InputStream body = response.getEntity().getContent()) {
+                    return initializer.getObjectMapper().readTree(body);
+                }
+            }
+        }
+    }
+
+    private ContextDeltaApplier getApplier() {
+        if (applier == null) applier = new ContextDeltaApplier(initializer.getObjectMapper());
+        return applier;
+    }
+}
@@ -2,6 +2,7 @@ package com.telcobright.routesphere.startup;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.telcobright.rtc.domainmodel.nonentity.Tenant;
+import com.telcobright.rtc.domainmodel.nonentity.TenantSnapshotReader;
 import com.telcobright.routesphere.config.deployment.DeploymentConfigService;
 import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -13,7 +14,9 @@ import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Simple initializer to fetch Tenant from ConfigManager API
@@ -26,10 +29,15 @@ public class TenantHierarchyInitializer {
 
     private final ObjectMapper objectMapper = new ObjectMapper()
             .findAndRegisterModules(); // Register JSR310 module for Java 8 date/time
-    private Tenant rootTenant;
+    private volatile Tenant rootTenant;
+
+    private final TenantSnapshotReader snapshotReader = new TenantSnapshotReader(objectMapper);
+    // version of the tree held, moved forward by ContextDeltaSynchronizer as deltas are applied
+    private volatile long snapshotVersion = -1;
 
     // API endpoint path
     private static final String TENANT_API_ENDPOINT = "/get-tenant-root";
+    private static final String TENANT_SNAPSHOT_ENDPOINT = "/get-tenant-snapshot?gzip=true";
 
     /**
      * Initialize by fetching tenant from ConfigManager
@@ -39,9 +47,14 @@ public class TenantHierarchyInitializer {
         System.out.println(" Fetching Tenant from ConfigManager");
         System.out.println("========================================\n");
 
-        // Always try to load from ConfigManager if available
+        // Always try to load from ConfigManager if available, binary snapshot first
+        try {
+            rootTenant = loadSnapshotFromConfigManager();
+        } catch (Exception e) {
+            System.err.println("Failed to load tenant snapshot, falling back to JSON: " + e.getMessage());
+        }
         try {
-            rootTenant = loadFromConfigManager();
+            if (rootTenant == null) rootTenant = loadFromConfigManager();
             if (rootTenant != null) {
                 System.out.println("Successfully received Tenant: " + rootTenant.getDbName());
             }
@@ -50,6 +63,51 @@ public class TenantHierarchyInitializer {
         }
     }
 
+    /**
+     * Replaces the whole tree with a fresh snapshot, used when the deltas since our version are no longer available.
+     *
+     * @return true if a new tree was loaded
+     */
+    public synchronized boolean resync() {
+        try {
+            Tenant tenant = loadSnapshotFromConfigManager();
+            if (tenant == null) return false;
+            rootTenant = tenant;
+            System.out.println("Resynced tenant tree to snapshot v" + snapshotVersion);
+            return true;
+        } catch (Exception e) {
+            System.err.println("Failed to resync tenant snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Load tenant tree from the versioned binary snapshot, decoded while it streams in
+     */
+    private Tenant loadSnapshotFromConfigManager() throws IOException {
+        String apiUrl = deploymentConfig.getConfigManagerUrl() + TENANT_SNAPSHOT_ENDPOINT;
+        System.out.println("Loading tenant snapshot from: " + apiUrl);
+
+        long startedAt = System.currentTimeMillis();
+        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+            HttpPost httpPost = new HttpPost(apiUrl);
+            httpPost.setHeader("Accept", TenantSnapshotReader.CONTENT_TYPE);
+
+            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                if (response.getCode() != 200 || response.getEntity() == null) {
+                    System.err.println("ConfigManager snapshot API returned status: " + response.getCode());
+                    return null;
+                }
+                CountingInputStream body = new CountingInputStream(response.getEntity().getContent());
+                TenantSnapshotReader.Snapshot snapshot = snapshotReader.read(body);
+                snapshotVersion = snapshot.getVersion();
+                System.out.println("Decoded tenant snapshot v" + snapshot.getVersion() + ": "
+                        + body.getCount() + " bytes in " + (System.currentTimeMillis() - startedAt) + " ms");
+                return snapshot.getRoot();
+            }
+        }
+    }
+
     /**
      * Load tenant from ConfigManager API
      */
@@ -69,13 +127,15 @@ public class TenantHierarchyInitializer {
                 System.out.println("API Response Status Code: " + statusCode);
 
                 if (statusCode == 200) {
+                    long startedAt = System.currentTimeMillis();
                     String responseBody = EntityUtils.toString(response.getEntity());
                     System.out.println("API Response Body (first 500 chars): " +
                         (responseBody.length() > 500 ? responseBody.substring(0, 500) + "..." : responseBody));
 
                     // Parse JSON response directly to Tenant from rtc.domainmodel.nonentity
                     Tenant tenant = objectMapper.readValue(responseBody, Tenant.class);
-                    System.out.println("Successfully parsed Tenant object: " + tenant.getDbName());
+                    System.out.println("Successfully parsed Tenant object: " + tenant.getDbName() + " from "
+                            + responseBody.length() + " chars in " + (System.currentTimeMillis() - startedAt) + " ms");
                     System.out.println("Tenant has " + (tenant.getChildren() != null ? tenant.getChildren().size() : 0) + " children");
                     return tenant;
                 } else {
@@ -97,4 +157,49 @@ public class TenantHierarchyInitializer {
     public Tenant getRootTenant() {
         return rootTenant;
     }
+
+    /**
+     * @return version of the tree held, -1 if the tree came from the JSON endpoint
+     */
+    public long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+
+    /**
+     * Swaps in a tree patched to {@code version}, readers see either the old or the new tree as a whole.
+     */
+    synchronized void publish(Tenant root, long version) {
+        this.rootTenant = root;
+        this.snapshotVersion = version;
+    }
+
+    ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Patches an in-memory tenant tree with the deltas published by ConfigManager on /get-context-delta.
+ *
+ * Response layout (DeltaResponse on the ConfigManager side):
+ * <pre>
+ * {"fromVersion":N,"toVersion":M,"fullResyncRequired":false,
+ *  "deltas":[{"version":V,"dbName":..,"maps":[{"map":"prefixWisePartners","upserts":{..},"deletes":[..],"replacement":null}]}]}
+ * </pre>
+ * Every patched tenant gets a new immutable {@link DynamicContext} in a new tree: untouched maps (and their prefix indexes)
+ * are shared with the old context, changed maps are copied and patched. Upserts and deletes are absolute, so applying a delta
+ * twice leaves the tree as applying it once.
+ */
+public class ContextDeltaApplier {
+
+    private final ObjectMapper objectMapper;
+
+    public ContextDeltaApplier(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Builds the patched context of every tenant in the response first and only then copies the tree around them,
+     * so the caller publishes all changes of the response with a single swap of the root.
+     * Tenants without deltas keep their context instance.
+     *
+     * @return the patched tree, or null if the response can't be applied to this tree and it has to be
+     * reloaded from the snapshot
+     */
+    public Tenant apply(Tenant root, JsonNode response) throws IOException {
+        if (root == null || response.path("fullResyncRequired").asBoolean(false)) {
+            return null;
+        }
+        Map<String, DynamicContext> patched = new HashMap<>();
+        for (JsonNode delta : response.path("deltas")) {
+            String dbName = delta.path("dbName").asText();
+            Tenant tenant = findTenant(root, dbName);
+            if (tenant == null) {
+                // a tenant created after our snapshot, only a full reload brings it in
+                return null;
+            }
+            long version = delta.path("version").asLong();
+            // later deltas of the same tenant patch the context built for the earlier ones
+            DynamicContext current = patched.getOrDefault(dbName, tenant.getContext());
+            Map<String, Object> values = current.toValues();
+            Map<String, Long> mapVersions = new HashMap<>(current.getMapVersions());
+
+            for (JsonNode mapDelta : delta.path("maps")) {
+                String field = mapDelta.path("map").asText();
+                TypeReference<?> typeRef = DynamicContextDeserializer.fieldType(field);
+                if (typeRef == null) {
+                    continue; // a map this node does not keep
+                }
+                JavaType type = objectMapper.getTypeFactory().constructType(typeRef);
+                values.put(field, patch(values.get(field), mapDelta, type));
+                mapVersions.put(field, version);
+            }
+            values.put("mapVersions", Collections.unmodifiableMap(mapVersions));
+            patched.put(dbName, new DynamicContext(values, current));
+        }
+        return patched.isEmpty() ? root : withContexts(root, patched);
+    }
+
+    private Tenant withContexts(Tenant tenant, Map<String, DynamicContext> contexts) {
+        Tenant copy = new Tenant(tenant.getDbName());
+        copy.setParent(tenant.getParent());
+        copy.setContext(contexts.getOrDefault(tenant.getDbName(), tenant.getContext()));
+        if (tenant.getChildren() != null) {
+            tenant.getChildren().forEach((dbName, child) -> copy.addChild(dbName, withContexts(child, contexts)));
+        }
+        return copy;
+    }
+
+    private Object patch(Object current, JsonNode mapDelta, JavaType type) throws IOException {
+        if (!type.isMapLikeType()) {
+            JsonNode replacement = mapDelta.path("replacement");
+            if (replacement.isMissingNode() || replacement.isNull()) {
+                return Collections.emptyList();
+            }
+            List<?> list = objectMapper.readerFor(type).readValue(replacement);
+            return Collections.unmodifiableList(list);
+        }
+
+        Map<Object, Object> patched = current instanceof Map<?, ?> map ? new HashMap<>(map) : new HashMap<>();
+        JsonNode upserts = mapDelta.path("upserts");
+        if (upserts.isObject() && !upserts.isEmpty()) {
+            Map<?, ?> entries = objectMapper.readerFor(type).readValue(upserts);
+            patched.putAll(entries);
+        }
+        JavaType keyType = type.getKeyType();
+        for (JsonNode key : mapDelta.path("deletes")) {
+            patched.remove(objectMapper.convertValue(key, keyType));
+        }
+        return Collections.unmodifiableMap(patched);
+    }
+
+    private Tenant findTenant(Tenant tenant, String dbName) {
+        if (dbName.equals(tenant.getDbName())) return tenant;
+        if (tenant.getChildren() == null) return null;
+        for (Tenant child : tenant.getChildren().values()) {
+            Tenant found = findTenant(child, dbName);
+            if (found != null) return found;
+        }
+        return null;
+    }
+}
@@ -2,6 +2,7 @@ package com.telcobright.rtc.domainmodel.nonentity;
 
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -10,6 +11,7 @@ import com.telcobright.rtc.domainmodel.mysqlentity.sms.Campaign;
 import com.telcobright.rtc.domainmodel.mysqlentity.sms.SmsQueue;
 import lombok.Getter;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -21,20 +23,21 @@ public final class DynamicContext {
     private final Map<Integer, CallSrc> callSourceMap;
     @JsonProperty("partners")
     private final Map<Integer, Partner> partners;
+    // partner keyed index maps arrive as idPartner references into partners and resolve to its instances
     @JsonProperty("prefixWisePartners")
-    private final Map<String, Partner> prefixWisePartners;
+    private final PartnerReferenceMap prefixWisePartners;
     @JsonProperty("prefixWisePartnerPrefixes")
     private final Map<String, PartnerPrefix> prefixWisePartnerPrefixes;
     @JsonProperty("dppWiseDialplanMapping")
     private final Map<Integer, List<DialplanMapping>> dppWiseDialplanMapping;
     @JsonProperty("routeWisePartners")
-    private final Map<String, Partner> routeWisePartners;
+    private final PartnerReferenceMap routeWisePartners;
     @JsonProperty("callerIdWisePartners")
-    private final Map<String, Partner> callerIdWisePartners;
+    private final PartnerReferenceMap callerIdWisePartners;
     @JsonProperty("prefixVsPartners")
-    private final Map<String, Partner> prefixVsPartners;
+    private final PartnerReferenceMap prefixVsPartners;
     @JsonProperty("sipAccountWisePartners")
-    private final Map<String, Partner> sipAccountWisePartners;
+    private final PartnerReferenceMap sipAccountWisePartners;
     @JsonProperty("partnerWiseDidNumbers")
     private final Map<Integer, List<String>> partnerWiseDidNumbers;
     @JsonProperty("prefixWiseDialplanPrefixes")
@@ -44,7 +47,7 @@ public final class DynamicContext {
     @JsonProperty("rPartnerVsDidAssignments")
     private final Map<String, List<DidAssignment>> rPartnerVsDidAssignments;
     @JsonProperty("didNumbVsPartners")
-    private final Map<String, Partner> didNumbVsPartners;
+    private final PartnerReferenceMap didNumbVsPartners;
     @JsonProperty("didNumVsRpartners")
     private final Map<String, List<RetailPartner>> didNumVsRpartners;
     @JsonProperty("partnerWiseRatePlans")
@@ -52,7 +55,7 @@ public final class DynamicContext {
     @JsonProperty("ratePlans")
     private final Map<Integer, RatePlan> ratePlans;
     @JsonProperty("ratePlanWiseTodaysRates")
-    private final Map<Integer, Map<String, Rate>> ratePlanWiseTodaysRates;
+    private final Map<Integer, RateTable> ratePlanWiseTodaysRates;
     @JsonProperty("rateAssignsCustomer")
     private final List<RateAssign> rateAssignsCustomer;
     @JsonProperty("rateAssignsSupplier")
@@ -68,32 +71,107 @@ public final class DynamicContext {
     @JsonProperty("enumJobStatus")
     private final Map<String, Integer> enumJobStatus;
 
+    // version each map was last rebuilt in by config-manager, keyed by property name
+    @JsonProperty("mapVersions")
+    private final Map<String, Long> mapVersions;
+
+    // longest-prefix-match indexes over the prefix keyed maps, built once per context
+    private final PrefixTrie<Partner> prefixWisePartnersIndex;
+    private final PrefixTrie<Partner> prefixVsPartnersIndex;
+    private final PrefixTrie<DialplanPrefix> prefixWiseDialplanPrefixesIndex;
+    private final PrefixTrie<PartnerPrefix> prefixWisePartnerPrefixesIndex;
+
     // Default constructor for empty context
     public DynamicContext() {
-        this.callSourceMap = Collections.emptyMap();
-        this.partners = Collections.emptyMap();
-        this.prefixWisePartners = Collections.emptyMap();
-        this.prefixWisePartnerPrefixes = Collections.emptyMap();
-        this.dppWiseDialplanMapping = Collections.emptyMap();
-        this.routeWisePartners = Collections.emptyMap();
-        this.callerIdWisePartners = Collections.emptyMap();
-        this.prefixVsPartners = Collections.emptyMap();
-        this.sipAccountWisePartners = Collections.emptyMap();
-        this.partnerWiseDidNumbers = Collections.emptyMap();
-        this.prefixWiseDialplanPrefixes = Collections.emptyMap();
-        this.idVsDialplan = Collections.emptyMap();
-        this.rPartnerVsDidAssignments = Collections.emptyMap();
-        this.didNumbVsPartners = Collections.emptyMap();
-        this.didNumVsRpartners = Collections.emptyMap();
-        this.partnerWiseRatePlans = Collections.emptyMap();
-        this.ratePlans = Collections.emptyMap();
-        this.ratePlanWiseTodaysRates = Collections.emptyMap();
-        this.rateAssignsCustomer = Collections.emptyList();
-        this.rateAssignsSupplier = Collections.emptyList();
-        this.partnerVsRoutes = Collections.emptyMap();
-        this.campaigns = Collections.emptyMap();
-        this.smsQueue = Collections.emptyMap();
-        this.enumJobStatus = Collections.emptyMap();
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * Builds the context from already decoded field values keyed by their JSON property name,
+     * missing fields become empty collections. Used by the streaming deserializers.
+     */
+    DynamicContext(Map<String, Object> values) {
+        this(values, null);
+    }
+
+    /**
+     * Same as {@link #DynamicContext(Map)}, reusing the prefix indexes of {@code previous} for maps that are
+     * carried over unchanged, so patching one map does not rebuild the index of a large rate deck.
+     */
+    @SuppressWarnings("unchecked")
+    DynamicContext(Map<String, Object> values, DynamicContext previous) {
+        this.callSourceMap = (Map<Integer, CallSrc>) values.getOrDefault("callSourceMap", Collections.emptyMap());
+        this.partners = (Map<Integer, Partner>) values.getOrDefault("partners", Collections.emptyMap());
+        this.prefixWisePartners = partnerReferences(values, "prefixWisePartners");
+        this.prefixWisePartnerPrefixes = (Map<String, PartnerPrefix>) values.getOrDefault("prefixWisePartnerPrefixes", Collections.emptyMap());
+        this.dppWiseDialplanMapping = (Map<Integer, List<DialplanMapping>>) values.getOrDefault("dppWiseDialplanMapping", Collections.emptyMap());
+        this.routeWisePartners = partnerReferences(values, "routeWisePartners");
+        this.callerIdWisePartners = partnerReferences(values, "callerIdWisePartners");
+        this.prefixVsPartners = partnerReferences(values, "prefixVsPartners");
+        this.sipAccountWisePartners = partnerReferences(values, "sipAccountWisePartners");
+        this.partnerWiseDidNumbers = (Map<Integer, List<String>>) values.getOrDefault("partnerWiseDidNumbers", Collections.emptyMap());
+        this.prefixWiseDialplanPrefixes = (Map<String, DialplanPrefix>) values.getOrDefault("prefixWiseDialplanPrefixes", Collections.emptyMap());
+        this.idVsDialplan = (Map<Integer, Dialplan>) values.getOrDefault("idVsDialplan", Collections.emptyMap());
+        this.rPartnerVsDidAssignments = (Map<String, List<DidAssignment>>) values.getOrDefault("rPartnerVsDidAssignments", Collections.emptyMap());
+        this.didNumbVsPartners = partnerReferences(values, "didNumbVsPartners");
+        this.didNumVsRpartners = (Map<String, List<RetailPartner>>) values.getOrDefault("didNumVsRpartners", Collections.emptyMap());
+        this.partnerWiseRatePlans = (Map<String, List<RatePlan>>) values.getOrDefault("partnerWiseRatePlans", Collections.emptyMap());
+        this.ratePlans = (Map<Integer, RatePlan>) values.getOrDefault("ratePlans", Collections.emptyMap());
+        this.ratePlanWiseTodaysRates = (Map<Integer, RateTable>) values.getOrDefault("ratePlanWiseTodaysRates", Collections.emptyMap());
+        this.rateAssignsCustomer = (List<RateAssign>) values.getOrDefault("rateAssignsCustomer", Collections.emptyList());
+        this.rateAssignsSupplier = (List<RateAssign>) values.getOrDefault("rateAssignsSupplier", Collections.emptyList());
+        this.partnerVsRoutes = (Map<Integer, List<Route>>) values.getOrDefault("partnerVsRoutes", Collections.emptyMap());
+        this.campaigns = (Map<Integer, Campaign>) values.getOrDefault("campaigns", Collections.emptyMap());
+        this.smsQueue = (Map<Integer, SmsQueue>) values.getOrDefault("smsQueue", Collections.emptyMap());
+        this.enumJobStatus = (Map<String, Integer>) values.getOrDefault("enumJobStatus", Collections.emptyMap());
+        this.mapVersions = (Map<String, Long>) values.getOrDefault("mapVersions", Collections.emptyMap());
+
+        this.prefixWisePartnersIndex = previous != null && prefixWisePartners.sameAs(previous.prefixWisePartners)
+                ? previous.prefixWisePartnersIndex : PrefixTrie.of(prefixWisePartners);
+        this.prefixVsPartnersIndex = previous != null && prefixVsPartners.sameAs(previous.prefixVsPartners)
+                ? previous.prefixVsPartnersIndex : PrefixTrie.of(prefixVsPartners);
+        this.prefixWiseDialplanPrefixesIndex = previous != null && previous.prefixWiseDialplanPrefixes == prefixWiseDialplanPrefixes
+                ? previous.prefixWiseDialplanPrefixesIndex : PrefixTrie.of(prefixWiseDialplanPrefixes);
+        this.prefixWisePartnerPrefixesIndex = previous != null && previous.prefixWisePartnerPrefixes == prefixWisePartnerPrefixes
+                ? previous.prefixWisePartnerPrefixesIndex : PrefixTrie.of(prefixWisePartnerPrefixes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private PartnerReferenceMap partnerReferences(Map<String, Object> values, String field) {
+        return new PartnerReferenceMap((Map<String, Integer>) values.getOrDefault(field, Collections.emptyMap()), partners);
+    }
+
+    /**
+     * @return all fields keyed by their JSON property name, the inverse of {@link #DynamicContext(Map)}
+     */
+    Map<String, Object> toValues() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("callSourceMap", callSourceMap);
+        values.put("partners", partners);
+        values.put("prefixWisePartners", prefixWisePartners.partnerIds());
+        values.put("prefixWisePartnerPrefixes", prefixWisePartnerPrefixes);
+        values.put("dppWiseDialplanMapping", dppWiseDialplanMapping);
+        values.put("routeWisePartners", routeWisePartners.partnerIds());
+        values.put("callerIdWisePartners", callerIdWisePartners.partnerIds());
+        values.put("prefixVsPartners", prefixVsPartners.partnerIds());
+        values.put("sipAccountWisePartners", sipAccountWisePartners.partnerIds());
+        values.put("partnerWiseDidNumbers", partnerWiseDidNumbers);
+        values.put("prefixWiseDialplanPrefixes", prefixWiseDialplanPrefixes);
+        values.put("idVsDialplan", idVsDialplan);
+        values.put("rPartnerVsDidAssignments", rPartnerVsDidAssignments);
+        values.put("didNumbVsPartners", didNumbVsPartners.partnerIds());
+        values.put("didNumVsRpartners", didNumVsRpartners);
+        values.put("partnerWiseRatePlans", partnerWiseRatePlans);
+        values.put("ratePlans", ratePlans);
+        values.put("ratePlanWiseTodaysRates", ratePlanWiseTodaysRates);
+        values.put("rateAssignsCustomer", rateAssignsCustomer);
+        values.put("rateAssignsSupplier", rateAssignsSupplier);
+        values.put("partnerVsRoutes", partnerVsRoutes);
+        values.put("campaigns", campaigns);
+        values.put("smsQueue", smsQueue);
+        values.put("enumJobStatus", enumJobStatus);
+        values.put("mapVersions", mapVersions);
+        return values;
     }
 
 
@@ -114,6 +192,55 @@ public final class DynamicContext {
         return rPartnerVsDidAssignments;
     }
 
+    public Map<String, Long> getMapVersions() {
+        return mapVersions;
+    }
+
+    /**
+     * Longest-prefix-match view of prefixWisePartners, e.g. {@code prefixWisePartnersIndex().longestMatch(dialedNumber)}
+     */
+    @JsonIgnore
+    public PrefixTrie<Partner> prefixWisePartnersIndex() {
+        return prefixWisePartnersIndex;
+    }
+
+    @JsonIgnore
+    public PrefixTrie<Partner> prefixVsPartnersIndex() {
+        return prefixVsPartnersIndex;
+    }
+
+    @JsonIgnore
+    public PrefixTrie<DialplanPrefix> prefixWiseDialplanPrefixesIndex() {
+        return prefixWiseDialplanPrefixesIndex;
+    }
+
+    @JsonIgnore
+    public PrefixTrie<PartnerPrefix> prefixWisePartnerPrefixesIndex() {
+        return prefixWisePartnerPrefixesIndex;
+    }
+
+    /**
+     * @return current and future dated rates of a rate plan, see {@link RateTable#rateAt}; empty if the plan has none
+     */
+    @JsonIgnore
+    public RateTable ratesOf(Integer ratePlanId) {
+        return ratePlanWiseTodaysRates.getOrDefault(ratePlanId, RateTable.empty());
+    }
+
+    /**
+     * @return the first rate plan, in assignment priority order, assigned to {@code key} at {@code at}; current and
+     * future dated assignments are all published, so the one in effect is picked at call time. Null if none is
+     */
+    @JsonIgnore
+    public RatePlan ratePlanAt(String key, LocalDateTime at) {
+        for (RatePlan ratePlan : partnerWiseRatePlans.getOrDefault(key, Collections.emptyList())) {
+            if (ratePlan.getStartDate() != null && ratePlan.getStartDate().isAfter(at)) continue;
+            if (ratePlan.getEndDate() != null && ratePlan.getEndDate().isBefore(at)) continue;
+            return ratePlan;
+        }
+        return null;
+    }
+
     /**
      * Catch-all setter that ignores any attempts to set properties during deserialization.
      * This allows Jackson to deserialize without errors while keeping the object immutable.
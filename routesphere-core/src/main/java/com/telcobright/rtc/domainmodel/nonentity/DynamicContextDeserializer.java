@@ -1,107 +1,92 @@
 package com.telcobright.rtc.domainmodel.nonentity;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.telcobright.rtc.domainmodel.mysqlentity.*;
 import com.telcobright.rtc.domainmodel.mysqlentity.sms.Campaign;
 import com.telcobright.rtc.domainmodel.mysqlentity.sms.SmsQueue;
 
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.util.*;
 
 /**
  * Custom deserializer for DynamicContext that properly deserializes all fields.
- * Uses reflection to set final fields since DynamicContext is immutable.
+ * Binds every field straight from the token stream into its target map, without materializing
+ * a JsonNode tree first, so it works the same for the JSON payload and the binary (Smile) snapshot.
  */
 public class DynamicContextDeserializer extends JsonDeserializer<DynamicContext> {
 
-    @Override
-    public DynamicContext deserialize(JsonParser p, DeserializationContext ctxt)
-            throws IOException {
+    private static final Map<String, TypeReference<?>> FIELD_TYPES = new HashMap<>();
+    // partner keyed index maps carry idPartner references into "partners", see PartnerReferenceMap
+    private static final TypeReference<Map<String, Integer>> PARTNER_REFERENCES = new TypeReference<>() {};
 
-        ObjectMapper mapper = (ObjectMapper) p.getCodec();
-        JsonNode node = mapper.readTree(p);
+    static {
+        FIELD_TYPES.put("callSourceMap", new TypeReference<Map<Integer, CallSrc>>() {});
+        FIELD_TYPES.put("partners", new TypeReference<Map<Integer, Partner>>() {});
+        FIELD_TYPES.put("prefixWisePartners", PARTNER_REFERENCES);
+        FIELD_TYPES.put("prefixWisePartnerPrefixes", new TypeReference<Map<String, PartnerPrefix>>() {});
+        FIELD_TYPES.put("dppWiseDialplanMapping", new TypeReference<Map<Integer, List<DialplanMapping>>>() {});
+        FIELD_TYPES.put("routeWisePartners", PARTNER_REFERENCES);
+        FIELD_TYPES.put("callerIdWisePartners", PARTNER_REFERENCES);
+        FIELD_TYPES.put("prefixVsPartners", PARTNER_REFERENCES);
+        FIELD_TYPES.put("sipAccountWisePartners", PARTNER_REFERENCES);
+        FIELD_TYPES.put("partnerWiseDidNumbers", new TypeReference<Map<Integer, List<String>>>() {});
+        FIELD_TYPES.put("prefixWiseDialplanPrefixes", new TypeReference<Map<String, DialplanPrefix>>() {});
+        FIELD_TYPES.put("idVsDialplan", new TypeReference<Map<Integer, Dialplan>>() {});
+        FIELD_TYPES.put("rPartnerVsDidAssignments", new TypeReference<Map<String, List<DidAssignment>>>() {});
+        FIELD_TYPES.put("didNumbVsPartners", PARTNER_REFERENCES);
+        FIELD_TYPES.put("didNumVsRpartners", new TypeReference<Map<String, List<RetailPartner>>>() {});
+        FIELD_TYPES.put("partnerWiseRatePlans", new TypeReference<Map<String, List<RatePlan>>>() {});
+        FIELD_TYPES.put("ratePlans", new TypeReference<Map<Integer, RatePlan>>() {});
+        FIELD_TYPES.put("ratePlanWiseTodaysRates", new TypeReference<Map<Integer, RateTable>>() {});
+        FIELD_TYPES.put("rateAssignsCustomer", new TypeReference<List<RateAssign>>() {});
+        FIELD_TYPES.put("rateAssignsSupplier", new TypeReference<List<RateAssign>>() {});
+        FIELD_TYPES.put("partnerVsRoutes", new TypeReference<Map<Integer, List<Route>>>() {});
+        FIELD_TYPES.put("campaigns", new TypeReference<Map<Integer, Campaign>>() {});
+        FIELD_TYPES.put("smsQueue", new TypeReference<Map<Integer, SmsQueue>>() {});
+        FIELD_TYPES.put("enumJobStatus", new TypeReference<Map<String, Integer>>() {});
+        FIELD_TYPES.put("mapVersions", new TypeReference<Map<String, Long>>() {});
+    }
 
-        // Create empty DynamicContext instance
-        DynamicContext context = new DynamicContext();
+    /**
+     * @return declared type of the given DynamicContext field, null if there is no such field
+     */
+    static TypeReference<?> fieldType(String fieldName) {
+        return FIELD_TYPES.get(fieldName);
+    }
 
-        try {
-            // Use reflection to set the final fields
-            setFieldValue(context, "callSourceMap", deserializeMap(node, "callSourceMap", mapper, new TypeReference<Map<Integer, CallSrc>>() {}));
-            setFieldValue(context, "partners", deserializeMap(node, "partners", mapper, new TypeReference<Map<Integer, Partner>>() {}));
-            setFieldValue(context, "prefixWisePartners", deserializeMap(node, "prefixWisePartners", mapper, new TypeReference<Map<String, Partner>>() {}));
-            setFieldValue(context, "prefixWisePartnerPrefixes", deserializeMap(node, "prefixWisePartnerPrefixes", mapper, new TypeReference<Map<String, PartnerPrefix>>() {}));
-            setFieldValue(context, "dppWiseDialplanMapping", deserializeMap(node, "dppWiseDialplanMapping", mapper, new TypeReference<Map<Integer, List<DialplanMapping>>>() {}));
-            setFieldValue(context, "routeWisePartners", deserializeMap(node, "routeWisePartners", mapper, new TypeReference<Map<String, Partner>>() {}));
-            setFieldValue(context, "callerIdWisePartners", deserializeMap(node, "callerIdWisePartners", mapper, new TypeReference<Map<String, Partner>>() {}));
-            setFieldValue(context, "prefixVsPartners", deserializeMap(node, "prefixVsPartners", mapper, new TypeReference<Map<String, Partner>>() {}));
-            setFieldValue(context, "sipAccountWisePartners", deserializeMap(node, "sipAccountWisePartners", mapper, new TypeReference<Map<String, Partner>>() {}));
-            setFieldValue(context, "partnerWiseDidNumbers", deserializeMap(node, "partnerWiseDidNumbers", mapper, new TypeReference<Map<Integer, List<String>>>() {}));
-            setFieldValue(context, "prefixWiseDialplanPrefixes", deserializeMap(node, "prefixWiseDialplanPrefixes", mapper, new TypeReference<Map<String, DialplanPrefix>>() {}));
-            setFieldValue(context, "idVsDialplan", deserializeMap(node, "idVsDialplan", mapper, new TypeReference<Map<Integer, Dialplan>>() {}));
-            setFieldValue(context, "rPartnerVsDidAssignments", deserializeMap(node, "rPartnerVsDidAssignments", mapper, new TypeReference<Map<String, List<DidAssignment>>>() {}));
-            setFieldValue(context, "didNumbVsPartners", deserializeMap(node, "didNumbVsPartners", mapper, new TypeReference<Map<String, Partner>>() {}));
-            setFieldValue(context, "didNumVsRpartners", deserializeMap(node, "didNumVsRpartners", mapper, new TypeReference<Map<String, List<RetailPartner>>>() {}));
-            setFieldValue(context, "partnerWiseRatePlans", deserializeMap(node, "partnerWiseRatePlans", mapper, new TypeReference<Map<String, List<RatePlan>>>() {}));
-            setFieldValue(context, "ratePlans", deserializeMap(node, "ratePlans", mapper, new TypeReference<Map<Integer, RatePlan>>() {}));
-            setFieldValue(context, "ratePlanWiseTodaysRates", deserializeMap(node, "ratePlanWiseTodaysRates", mapper, new TypeReference<Map<Integer, Map<String, Rate>>>() {}));
-            setFieldValue(context, "rateAssignsCustomer", deserializeList(node, "rateAssignsCustomer", mapper, new TypeReference<List<RateAssign>>() {}));
-            setFieldValue(context, "rateAssignsSupplier", deserializeList(node, "rateAssignsSupplier", mapper, new TypeReference<List<RateAssign>>() {}));
-            setFieldValue(context, "partnerVsRoutes", deserializeMap(node, "partnerVsRoutes", mapper, new TypeReference<Map<Integer, List<Route>>>() {}));
-            setFieldValue(context, "campaigns", deserializeMap(node, "campaigns", mapper, new TypeReference<Map<Integer, Campaign>>() {}));
-            setFieldValue(context, "smsQueue", deserializeMap(node, "smsQueue", mapper, new TypeReference<Map<Integer, SmsQueue>>() {}));
-            setFieldValue(context, "enumJobStatus", deserializeMap(node, "enumJobStatus", mapper, new TypeReference<Map<String, Integer>>() {}));
+    @Override
+    public DynamicContext deserialize(JsonParser p, DeserializationContext ctxt)
+            throws IOException {
 
-        } catch (Exception e) {
-            System.err.println("Error deserializing DynamicContext: " + e.getMessage());
-            e.printStackTrace();
-            // Return context with whatever fields were successfully set
+        Map<String, Object> values = new HashMap<>();
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = p.nextToken();
         }
 
-        return context;
-    }
-
-    private <T> T deserializeMap(JsonNode node, String fieldName, ObjectMapper mapper, TypeReference<T> typeRef) {
-        if (node.has(fieldName) && !node.get(fieldName).isNull()) {
-            try {
-                return mapper.convertValue(node.get(fieldName), typeRef);
-            } catch (Exception e) {
-                System.err.println("Error deserializing field '" + fieldName + "': " + e.getMessage());
-                // Return appropriate empty collection
-                if (typeRef.getType().toString().contains("Map")) {
-                    return (T) Collections.emptyMap();
-                }
-                return null;
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            String fieldName = p.currentName();
+            JsonToken valueToken = p.nextToken();
+            TypeReference<?> typeRef = FIELD_TYPES.get(fieldName);
+            if (typeRef == null || valueToken == JsonToken.VALUE_NULL) {
+                // unknown or empty field: leave it to the empty default
+                p.skipChildren();
+                continue;
             }
-        }
-        // Return appropriate empty collection if field is missing
-        if (typeRef.getType().toString().contains("Map")) {
-            return (T) Collections.emptyMap();
-        }
-        return null;
-    }
-
-    private <T> T deserializeList(JsonNode node, String fieldName, ObjectMapper mapper, TypeReference<T> typeRef) {
-        if (node.has(fieldName) && !node.get(fieldName).isNull()) {
             try {
-                return mapper.convertValue(node.get(fieldName), typeRef);
-            } catch (Exception e) {
+                values.put(fieldName, ctxt.readValue(p, ctxt.getTypeFactory().constructType(typeRef)));
+            } catch (JsonMappingException e) {
+                // the parser is mid-value at this point, so the field can't be skipped safely
                 System.err.println("Error deserializing field '" + fieldName + "': " + e.getMessage());
-                return (T) Collections.emptyList();
+                throw e;
             }
         }
-        return (T) Collections.emptyList();
-    }
 
-    private void setFieldValue(Object target, String fieldName, Object value) throws Exception {
-        Field field = target.getClass().getDeclaredField(fieldName);
-        field.setAccessible(true);
-        field.set(target, value);
+        return new DynamicContext(values);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.Partner;
+
+import java.util.*;
+
+/**
+ * Read-only view of a partner keyed index map as ConfigManager ships it: keys mapped to idPartner
+ * references into the partners map of the same context. Lookups resolve through the partners map, so every
+ * index hands out the one canonical Partner instance and only holds an id per entry.
+ *
+ * Entries whose partner is missing from the partners map are left out of the view.
+ */
+final class PartnerReferenceMap extends AbstractMap<String, Partner> {
+
+    private final Map<String, Integer> partnerIds;
+    private final Map<Integer, Partner> partners;
+    private final int size;
+    private Set<Entry<String, Partner>> entrySet;
+
+    PartnerReferenceMap(Map<String, Integer> partnerIds, Map<Integer, Partner> partners) {
+        this.partnerIds = partnerIds;
+        this.partners = partners;
+        int resolved = 0;
+        for (Integer idPartner : partnerIds.values()) {
+            if (idPartner != null && partners.containsKey(idPartner)) resolved++;
+        }
+        this.size = resolved;
+    }
+
+    /**
+     * @return the references as received, what ContextDeltaApplier patches
+     */
+    Map<String, Integer> partnerIds() {
+        return partnerIds;
+    }
+
+    /**
+     * @return true if this view resolves the same references against the same partners map,
+     * i.e. any index built over {@code other} still holds the current instances
+     */
+    boolean sameAs(PartnerReferenceMap other) {
+        return other != null && other.partnerIds == partnerIds && other.partners == partners;
+    }
+
+    @Override
+    public Partner get(Object key) {
+        Integer idPartner = partnerIds.get(key);
+        return idPartner == null ? null : partners.get(idPartner);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Partner>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Partner>> iterator() {
+                    Iterator<Entry<String, Integer>> references = partnerIds.entrySet().iterator();
+                    return new Iterator<>() {
+                        private Entry<String, Partner> next = advance();
+
+                        private Entry<String, Partner> advance() {
+                            while (references.hasNext()) {
+                                Entry<String, Integer> reference = references.next();
+                                Partner partner = reference.getValue() == null ? null : partners.get(reference.getValue());
+                                if (partner != null) return new SimpleImmutableEntry<>(reference.getKey(), partner);
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Entry<String, Partner> next() {
+                            if (next == null) throw new NoSuchElementException();
+                            Entry<String, Partner> current = next;
+                            next = advance();
+                            return current;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+}
@@ -0,0 +1,181 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import java.util.*;
+
+/**
+ * Immutable prefix index over the keys of a prefix map (partner prefixes, dialplan prefixes, rate prefixes),
+ * answering longest-prefix-match lookups in one walk over the dialed number instead of a scan over all prefixes.
+ *
+ * Nodes are numbered breadth first, so the children of a node are consecutive ids sorted by their label.
+ * The whole trie is held in a few flat arrays:
+ * <pre>
+ * label[n]       char on the edge into node n
+ * firstChild[n]  id of the first child of n, childCount[n] children follow it
+ * valueIndex[n]  index into values of the key ending at n, -1 if none
+ * </pre>
+ */
+public final class PrefixTrie<V> {
+
+    private static final PrefixTrie<?> EMPTY = new PrefixTrie<>(new String[0], new Object[0]);
+
+    private final char[] label;
+    private final int[] firstChild;
+    private final char[] childCount;
+    private final int[] valueIndex;
+    private final Object[] values;
+
+    @SuppressWarnings("unchecked")
+    public static <V> PrefixTrie<V> empty() {
+        return (PrefixTrie<V>) EMPTY;
+    }
+
+    public static <V> PrefixTrie<V> of(Map<String, ? extends V> prefixWiseValues) {
+        if (prefixWiseValues == null || prefixWiseValues.isEmpty()) return empty();
+        String[] keys = prefixWiseValues.keySet().stream()
+                .filter(Objects::nonNull)
+                .sorted()
+                .toArray(String[]::new);
+        Object[] values = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) values[i] = prefixWiseValues.get(keys[i]);
+        return new PrefixTrie<>(keys, values);
+    }
+
+    /**
+     * Index over keys that are already sorted and distinct, answering with positions in {@code sortedKeys}
+     * through {@link #longestMatchIndex(String)}; used by stores that keep their values column-wise.
+     */
+    static PrefixTrie<Void> overSortedKeys(String[] sortedKeys) {
+        return new PrefixTrie<>(sortedKeys, new Object[sortedKeys.length]);
+    }
+
+    private PrefixTrie(String[] keys, Object[] values) {
+        this.values = values;
+
+        // sorted keys sharing a prefix are contiguous, so every node covers a key range [lo, hi)
+        // and its children split that range by the char at the node's depth
+        int capacity = Math.max(16, keys.length * 2);
+        char[] labels = new char[capacity];
+        int[] firstChildren = new int[capacity];
+        char[] childCounts = new char[capacity];
+        int[] valueIndexes = new int[capacity];
+        int[] rangeLo = new int[capacity];
+        int[] rangeHi = new int[capacity];
+        int[] depths = new int[capacity];
+
+        int nodeCount = 1;
+        rangeLo[0] = 0;
+        rangeHi[0] = keys.length;
+        for (int node = 0; node < nodeCount; node++) {
+            int lo = rangeLo[node], hi = rangeHi[node], depth = depths[node];
+            valueIndexes[node] = -1;
+            if (lo < hi && keys[lo].length() == depth) {
+                valueIndexes[node] = lo;
+                lo++;
+            }
+            firstChildren[node] = nodeCount;
+            int children = 0;
+            while (lo < hi) {
+                char c = keys[lo].charAt(depth);
+                int end = lo + 1;
+                while (end < hi && keys[end].charAt(depth) == c) end++;
+
+                if (nodeCount == labels.length) {
+                    int grown = labels.length * 2;
+                    labels = Arrays.copyOf(labels, grown);
+                    firstChildren = Arrays.copyOf(firstChildren, grown);
+                    childCounts = Arrays.copyOf(childCounts, grown);
+                    valueIndexes = Arrays.copyOf(valueIndexes, grown);
+                    rangeLo = Arrays.copyOf(rangeLo, grown);
+                    rangeHi = Arrays.copyOf(rangeHi, grown);
+                    depths = Arrays.copyOf(depths, grown);
+                }
+                labels[nodeCount] = c;
+                rangeLo[nodeCount] = lo;
+                rangeHi[nodeCount] = end;
+                depths[nodeCount] = depth + 1;
+                nodeCount++;
+                children++;
+                lo = end;
+            }
+            childCounts[node] = (char) children;
+        }
+
+        label = Arrays.copyOf(labels, nodeCount);
+        firstChild = Arrays.copyOf(firstChildren, nodeCount);
+        childCount = Arrays.copyOf(childCounts, nodeCount);
+        valueIndex = Arrays.copyOf(valueIndexes, nodeCount);
+    }
+
+    /**
+     * @return the value of the longest key that is a prefix of {@code number}, null if none is
+     */
+    @SuppressWarnings("unchecked")
+    public V longestMatch(String number) {
+        int best = longestMatchIndex(number);
+        return best < 0 ? null : (V) values[best];
+    }
+
+    /**
+     * @return position in sorted key order of the longest key that is a prefix of {@code number}, -1 if none is
+     */
+    public int longestMatchIndex(String number) {
+        if (number == null) return -1;
+        int best = valueIndex[0];
+        int node = 0;
+        for (int i = 0; i < number.length(); i++) {
+            node = child(node, number.charAt(i));
+            if (node < 0) break;
+            if (valueIndex[node] >= 0) best = valueIndex[node];
+        }
+        return best;
+    }
+
+    /**
+     * @return the values of all keys that are a prefix of {@code number}, shortest key first
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> allMatches(String number) {
+        if (number == null) return Collections.emptyList();
+        List<V> matches = new ArrayList<>();
+        if (valueIndex[0] >= 0) matches.add((V) values[valueIndex[0]]);
+        int node = 0;
+        for (int i = 0; i < number.length(); i++) {
+            node = child(node, number.charAt(i));
+            if (node < 0) break;
+            if (valueIndex[node] >= 0) matches.add((V) values[valueIndex[node]]);
+        }
+        return matches;
+    }
+
+    /**
+     * @return positions in sorted key order of all keys that are a prefix of {@code number}, shortest key first
+     */
+    public int[] allMatchIndexes(String number) {
+        if (number == null) return new int[0];
+        int[] matches = new int[number.length() + 1];
+        int count = 0;
+        if (valueIndex[0] >= 0) matches[count++] = valueIndex[0];
+        int node = 0;
+        for (int i = 0; i < number.length(); i++) {
+            node = child(node, number.charAt(i));
+            if (node < 0) break;
+            if (valueIndex[node] >= 0) matches[count++] = valueIndex[node];
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    private int child(int node, char c) {
+        // at most a dozen children per node for dialed digits, a linear scan beats a binary search here
+        int from = firstChild[node];
+        int to = from + childCount[node];
+        for (int i = from; i < to; i++) {
+            if (label[i] == c) return i;
+            if (label[i] > c) return -1;
+        }
+        return -1;
+    }
+}
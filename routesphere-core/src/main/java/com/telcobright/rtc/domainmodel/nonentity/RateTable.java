@@ -0,0 +1,201 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rates of one rate plan as published by ConfigManager: one row per rate held column-wise in primitive
+ * arrays, rows sorted by prefix and start date. Rows are read through {@link RateView} flyweights, so a
+ * lookup allocates one small view instead of keeping a Rate entity per row on the heap.
+ *
+ * The table holds current and future dated rates with their validity intervals, and lookups pick the row
+ * valid at the given instant: a rate change takes effect at its start date without any reload. A row also
+ * applies only on its week days and times of day, so peak and off-peak rows of a prefix can overlap in dates.
+ *
+ * Encodings (see RateTable on the ConfigManager side):
+ * <pre>
+ * amounts       scaled longs with {@link #AMOUNT_SCALE} decimals
+ * dates         LocalDateTime as epoch seconds read at UTC, {@link #OPEN_END} for a null end date
+ * week days     1..7 as in WeekDayStart/WeekDayEnd
+ * times of day  seconds of day, -1 if not set
+ * </pre>
+ */
+public final class RateTable {
+    public static final int AMOUNT_SCALE = 8;
+    public static final long OPEN_END = Long.MAX_VALUE;
+
+    private static final RateTable EMPTY = new RateTable(new String[0], new long[0], new long[0], new int[0],
+            new float[0], new int[0], new long[0], new long[0], new long[0], new byte[0], new byte[0],
+            new int[0], new int[0]);
+
+    final String[] prefixes;
+    final long[] ids;
+    final long[] rateAmounts;
+    final int[] resolutions;
+    final float[] minDurationsSec;
+    final int[] surchargeTimes;
+    final long[] surchargeAmounts;
+    final long[] startDates;
+    final long[] endDates;
+    final byte[] weekDayStarts;
+    final byte[] weekDayEnds;
+    final int[] startTimes;
+    final int[] endTimes;
+
+    // distinct prefixes and the first row of each, rows of prefix k are keyFirstRow[k] .. keyFirstRow[k + 1] - 1
+    private final int[] keyFirstRow;
+    private final PrefixTrie<Void> prefixIndex;
+
+    @JsonCreator
+    RateTable(@JsonProperty("prefixes") String[] prefixes,
+              @JsonProperty("ids") long[] ids,
+              @JsonProperty("rateAmounts") long[] rateAmounts,
+              @JsonProperty("resolutions") int[] resolutions,
+              @JsonProperty("minDurationsSec") float[] minDurationsSec,
+              @JsonProperty("surchargeTimes") int[] surchargeTimes,
+              @JsonProperty("surchargeAmounts") long[] surchargeAmounts,
+              @JsonProperty("startDates") long[] startDates,
+              @JsonProperty("endDates") long[] endDates,
+              @JsonProperty("weekDayStarts") byte[] weekDayStarts,
+              @JsonProperty("weekDayEnds") byte[] weekDayEnds,
+              @JsonProperty("startTimes") int[] startTimes,
+              @JsonProperty("endTimes") int[] endTimes) {
+        this.prefixes = prefixes;
+        this.ids = ids;
+        this.rateAmounts = rateAmounts;
+        this.resolutions = resolutions;
+        this.minDurationsSec = minDurationsSec;
+        this.surchargeTimes = surchargeTimes;
+        this.surchargeAmounts = surchargeAmounts;
+        this.startDates = startDates;
+        this.endDates = endDates;
+        this.weekDayStarts = weekDayStarts;
+        this.weekDayEnds = weekDayEnds;
+        this.startTimes = startTimes;
+        this.endTimes = endTimes;
+
+        int[] firstRows = new int[prefixes.length + 1];
+        String[] keys = new String[prefixes.length];
+        int keyCount = 0;
+        for (int row = 0; row < prefixes.length; row++) {
+            if (keyCount == 0 || !prefixes[row].equals(keys[keyCount - 1])) {
+                keys[keyCount] = prefixes[row];
+                firstRows[keyCount++] = row;
+            }
+        }
+        firstRows[keyCount] = prefixes.length;
+        this.keyFirstRow = Arrays.copyOf(firstRows, keyCount + 1);
+        this.prefixIndex = PrefixTrie.overSortedKeys(Arrays.copyOf(keys, keyCount));
+    }
+
+    public static RateTable empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the rate valid now for the longest prefix of {@code number}, null if none
+     */
+    public RateView longestMatch(String number) {
+        return rateAt(number, LocalDateTime.now());
+    }
+
+    /**
+     * @return the rate valid at {@code at} for the longest prefix of {@code number} that has one, null if none.
+     * A prefix whose rates are all expired, not yet started or outside their week days and times of day
+     * falls back to the next shorter prefix.
+     */
+    public RateView rateAt(String number, LocalDateTime at) {
+        long instant = toEpochSecond(at);
+        int weekDay = at.getDayOfWeek().getValue();
+        int secondOfDay = at.toLocalTime().toSecondOfDay();
+        int[] keys = prefixIndex.allMatchIndexes(number);
+        for (int i = keys.length - 1; i >= 0; i--) {
+            int row = rowValidAt(keys[i], instant, weekDay, secondOfDay);
+            if (row >= 0) return new RateView(this, row);
+        }
+        return null;
+    }
+
+    /**
+     * @return the rates valid now for all prefixes of {@code number} that have one, shortest prefix first
+     */
+    public List<RateView> allMatches(String number) {
+        LocalDateTime now = LocalDateTime.now();
+        long instant = toEpochSecond(now);
+        int weekDay = now.getDayOfWeek().getValue();
+        int secondOfDay = now.toLocalTime().toSecondOfDay();
+        int[] keys = prefixIndex.allMatchIndexes(number);
+        List<RateView> matches = new ArrayList<>(keys.length);
+        for (int key : keys) {
+            int row = rowValidAt(key, instant, weekDay, secondOfDay);
+            if (row >= 0) matches.add(new RateView(this, row));
+        }
+        return matches;
+    }
+
+    /**
+     * Rows of a prefix are sorted by start date: binary search the last row started by {@code instant},
+     * then walk back to the latest started row that has not ended yet and covers the week day and time of day.
+     * Only rows of the same prefix with overlapping dates are walked over, e.g. peak and off-peak rows.
+     */
+    private int rowValidAt(int key, long instant, int weekDay, int secondOfDay) {
+        int from = keyFirstRow[key];
+        int lo = from, hi = keyFirstRow[key + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (startDates[mid] <= instant) lo = mid + 1;
+            else hi = mid;
+        }
+        for (int row = lo - 1; row >= from; row--) {
+            if (endDates[row] >= instant && coversWeekDay(row, weekDay) && coversTimeOfDay(row, secondOfDay)) return row;
+        }
+        return -1;
+    }
+
+    /**
+     * WeekDayStart..WeekDayEnd inclusive, 1 = Monday as {@link java.time.DayOfWeek#getValue()};
+     * a start after the end wraps over the week end, e.g. 6..1 is Saturday to Monday.
+     */
+    private boolean coversWeekDay(int row, int weekDay) {
+        int start = weekDayStarts[row], end = weekDayEnds[row];
+        return start <= end
+                ? weekDay >= start && weekDay <= end
+                : weekDay >= start || weekDay <= end;
+    }
+
+    /**
+     * StartTime..EndTime inclusive, a missing bound is open; a start after the end wraps over midnight,
+     * e.g. 18:00..07:59:59 for an off-peak rate.
+     */
+    private boolean coversTimeOfDay(int row, int secondOfDay) {
+        int start = startTimes[row], end = endTimes[row];
+        if (start < 0 && end < 0) return true;
+        if (start < 0) return secondOfDay <= end;
+        if (end < 0) return secondOfDay >= start;
+        return start <= end
+                ? secondOfDay >= start && secondOfDay <= end
+                : secondOfDay >= start || secondOfDay <= end;
+    }
+
+    public RateView row(int row) {
+        return new RateView(this, row);
+    }
+
+    public int size() {
+        return prefixes.length;
+    }
+
+    public static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
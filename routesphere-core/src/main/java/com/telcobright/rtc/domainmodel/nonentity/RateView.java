@@ -0,0 +1,97 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flyweight over one row of a {@link RateTable}, reading the columns on access.
+ * Amounts are available both as exact scaled longs and as BigDecimal.
+ */
+public final class RateView {
+    private final RateTable table;
+    private final int row;
+
+    RateView(RateTable table, int row) {
+        this.table = table;
+        this.row = row;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public long getId() {
+        return table.ids[row];
+    }
+
+    public String getPrefix() {
+        return table.prefixes[row];
+    }
+
+    /**
+     * @return the rate amount scaled by 10^{@link RateTable#AMOUNT_SCALE}
+     */
+    public long getRateAmountScaled() {
+        return table.rateAmounts[row];
+    }
+
+    public BigDecimal getRateAmount() {
+        return BigDecimal.valueOf(table.rateAmounts[row], RateTable.AMOUNT_SCALE);
+    }
+
+    public int getResolution() {
+        return table.resolutions[row];
+    }
+
+    public float getMinDurationSec() {
+        return table.minDurationsSec[row];
+    }
+
+    public int getSurchargeTime() {
+        return table.surchargeTimes[row];
+    }
+
+    public long getSurchargeAmountScaled() {
+        return table.surchargeAmounts[row];
+    }
+
+    public BigDecimal getSurchargeAmount() {
+        return BigDecimal.valueOf(table.surchargeAmounts[row], RateTable.AMOUNT_SCALE);
+    }
+
+    public LocalDateTime getStartDate() {
+        return RateTable.fromEpochSecond(table.startDates[row]);
+    }
+
+    /**
+     * @return the end of validity, null if the rate is open ended
+     */
+    public LocalDateTime getEndDate() {
+        long endDate = table.endDates[row];
+        return endDate == RateTable.OPEN_END ? null : RateTable.fromEpochSecond(endDate);
+    }
+
+    public int getWeekDayStart() {
+        return table.weekDayStarts[row];
+    }
+
+    public int getWeekDayEnd() {
+        return table.weekDayEnds[row];
+    }
+
+    /**
+     * @return start of the daily time window in seconds of day, -1 if the rate has none
+     */
+    public int getStartTimeSec() {
+        return table.startTimes[row];
+    }
+
+    public int getEndTimeSec() {
+        return table.endTimes[row];
+    }
+
+    @Override
+    public String toString() {
+        return "RateView{id=" + getId() + ", prefix=" + getPrefix() + ", rateAmount=" + getRateAmount() + "}";
+    }
+}
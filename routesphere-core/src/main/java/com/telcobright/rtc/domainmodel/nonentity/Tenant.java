@@ -19,7 +19,7 @@ public class Tenant {
     private Map<String, Tenant> children = new HashMap<>();
     @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
-    private DynamicContext context;
+    private volatile DynamicContext context;
 
     @JsonCreator
     public Tenant(@JsonProperty("dbName") String dbName) {
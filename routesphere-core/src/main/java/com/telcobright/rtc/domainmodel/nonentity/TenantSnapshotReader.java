@@ -0,0 +1,119 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the binary tenant snapshot published by ConfigManager on /get-tenant-snapshot.
+ *
+ * Layout (see TenantSnapshotWriter on the ConfigManager side), optionally gzip compressed as a whole:
+ * <pre>
+ * Smile header value : {"format":"tenant-snapshot","formatVersion":1,"version":N,"createdAt":millis,"tenantCount":K}
+ * K tenant values    : {"dbName":..,"parent":..,"context":{ DynamicContext fields }}, parents before children
+ * </pre>
+ * Tenants are decoded one at a time from the stream and their contexts bound directly into
+ * their maps by {@link DynamicContextDeserializer}.
+ */
+public class TenantSnapshotReader {
+    public static final String FORMAT = "tenant-snapshot";
+    public static final int FORMAT_VERSION = 1;
+    public static final String CONTENT_TYPE = "application/x-jackson-smile";
+
+    private final ObjectMapper smileMapper;
+
+    public TenantSnapshotReader(ObjectMapper objectMapper) {
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+    }
+
+    public Snapshot read(InputStream in) throws IOException {
+        try (JsonParser parser = smileMapper.getFactory().createParser(decompressIfNeeded(in))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Tenant snapshot is empty");
+            }
+            Map<?, ?> header = smileMapper.readValue(parser, Map.class);
+            if (!FORMAT.equals(header.get("format"))) {
+                throw new IOException("Not a tenant snapshot: " + header.get("format"));
+            }
+            int formatVersion = ((Number) header.get("formatVersion")).intValue();
+            if (formatVersion > FORMAT_VERSION) {
+                throw new IOException("Unsupported tenant snapshot format version " + formatVersion);
+            }
+            long version = ((Number) header.get("version")).longValue();
+            int tenantCount = ((Number) header.get("tenantCount")).intValue();
+
+            Tenant root = null;
+            Map<String, Tenant> tenants = new HashMap<>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Tenant tenant = readTenant(parser);
+                Tenant parent = tenant.getParent() == null ? null : tenants.get(tenant.getParent());
+                if (parent != null) {
+                    parent.addChild(tenant.getDbName(), tenant);
+                } else if (root == null) {
+                    root = tenant;
+                }
+                tenants.put(tenant.getDbName(), tenant);
+            }
+            if (tenants.size() != tenantCount) {
+                throw new IOException("Tenant snapshot truncated: expected " + tenantCount + " tenants, got " + tenants.size());
+            }
+            return new Snapshot(version, root);
+        }
+    }
+
+    private Tenant readTenant(JsonParser parser) throws IOException {
+        String dbName = null;
+        String parent = null;
+        DynamicContext context = null;
+        for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "dbName" -> dbName = parser.getValueAsString();
+                case "parent" -> parent = parser.getValueAsString();
+                case "context" -> context = smileMapper.readValue(parser, DynamicContext.class);
+                default -> parser.skipChildren();
+            }
+        }
+        Tenant tenant = new Tenant(dbName);
+        tenant.setParent(parent);
+        if (context != null) tenant.setContext(context);
+        return tenant;
+    }
+
+    private InputStream decompressIfNeeded(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        boolean gzip = first == 0x1f && second == 0x8b;
+        return gzip ? new GZIPInputStream(buffered, 64 * 1024) : buffered;
+    }
+
+    public static class Snapshot {
+        private final long version;
+        private final Tenant root;
+
+        public Snapshot(long version, Tenant root) {
+            this.version = version;
+            this.root = root;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Tenant getRoot() {
+            return root;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.telcobright.routesphere.balance;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reservation engine over accounts applied directly and a writer recording its statements instead of a database.
+ */
+public class ReservationEngineTest {
+
+    private static final long PARTNER = 5;
+
+    // uuids of the reserve rows in the table, replayed from the statements in the order they ran
+    private final Set<String> reserveRows = Collections.synchronizedSet(new LinkedHashSet<>());
+    private final List<BigDecimal> balanceUpdates = Collections.synchronizedList(new ArrayList<>());
+    // statements to fail with a driver bug instead of an SQLException
+    private final AtomicInteger failingStatements = new AtomicInteger();
+    private ReservationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ReservationEngine();
+        engine.defaultRatePerMinute = BigDecimal.ONE;
+        engine.writer = new ReserveWriter(this::recordingConnection, 1000);
+        engine.applyAccounts(List.of(
+                account(1, 10, "sms", 50),
+                account(2, 10, "min", 20),
+                account(3, 11, "min", 100)));
+    }
+
+    @Test
+    @DisplayName("Reserve takes the first account in selection order that has the unit and covers the amount")
+    void testReserveSelectionOrder() {
+        Reservation first = engine.reserve("call-1", PARTNER, "min", units(15), units(1));
+        assertEquals(2, first.getAccount().getIdPackageAccount());
+        // account 2 has 5 left, the next reservation falls through to account 3
+        Reservation second = engine.reserve("call-2", PARTNER, "min", units(10), units(1));
+        assertEquals(3, second.getAccount().getIdPackageAccount());
+
+        assertSame(first, engine.reserve("call-1", PARTNER, "min", units(15), units(1)), "same call reserves once");
+        assertNull(engine.reserve("call-3", PARTNER, "min", units(200), units(1)));
+        assertNull(engine.reserve("call-4", 99, "min", units(1), units(1)));
+        assertEquals(units(95), engine.available(PARTNER, "min"));
+        assertEquals(units(50), engine.available(PARTNER, "sms"));
+    }
+
+    @Test
+    @DisplayName("Commit charges the usage and returns the rest, release returns everything")
+    void testCommitAndRelease() {
+        engine.reserve("call-1", PARTNER, "min", units(10), units(1));
+        engine.reserve("call-2", PARTNER, "min", units(5), units(1));
+        assertEquals(units(105), engine.available(PARTNER, "min"));
+
+        assertTrue(engine.commit("call-1", units(3)));
+        assertTrue(engine.release("call-2"));
+        assertFalse(engine.commit("call-1", units(3)), "a reservation ends once");
+        assertFalse(engine.release("call-unknown"));
+
+        assertEquals(units(117), engine.available(PARTNER, "min"));
+        assertEquals(0, engine.getOpenReservations());
+    }
+
+    @Test
+    @DisplayName("Hangup commits the billed seconds of an answered call and releases an unanswered one")
+    void testSettle() {
+        engine.reserve("answered", PARTNER, "min", units(10), units(2));
+        engine.reserve("unanswered", PARTNER, "min", units(10), units(2));
+
+        // 2 per minute for 90 seconds
+        assertTrue(engine.settle("answered", true, 90));
+        assertTrue(engine.settle("unanswered", false, 0));
+        assertFalse(engine.settle("answered", true, 90));
+
+        // 3 of the 10 reserved charged
+        assertEquals(units(117), engine.available(PARTNER, "min"));
+        // usage is rounded up to the scale
+        assertEquals(16_667, new Reservation("call-x", null, 0, units(1), 0).usageFor(1));
+        assertEquals(0, new Reservation("call-x", null, 0, units(1), 0).usageFor(0));
+    }
+
+    @Test
+    @DisplayName("An event of the call handled after its hangup doesn't reserve again")
+    void testReserveAfterSettle() {
+        engine.reserve("call-1", PARTNER, "min", units(10), units(1));
+        assertTrue(engine.writer.flush());
+        assertTrue(engine.settle("call-1", true, 60));
+
+        // the setup event of call-2 reaches the pipeline after its hangup settled it
+        assertFalse(engine.settle("call-2", false, 0));
+        assertTrue(engine.isSettled("call-2"));
+
+        assertNull(engine.reserve("call-1", PARTNER, "min", units(10), units(1)));
+        assertNull(engine.reserve("call-2", PARTNER, "min", units(10), units(1)));
+        assertEquals(0, engine.getOpenReservations());
+        assertEquals(units(119), engine.available(PARTNER, "min"));
+        assertTrue(engine.writer.flush());
+        assertTrue(reserveRows.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Accounts without a unit are skipped")
+    void testAccountWithoutUom() {
+        engine.applyAccounts(List.of(account(4, 12, null, 100), account(3, 11, "min", 100)));
+        assertEquals(3, engine.reserve("call-1", PARTNER, "min", units(10), units(1)).getAccount().getIdPackageAccount());
+        assertEquals(units(90), engine.available(PARTNER, "min"));
+    }
+
+    @Test
+    @DisplayName("A batch failing on a runtime exception is kept and written on the next flush")
+    void testFlushRetriesRuntimeFailure() {
+        engine.reserve("call-1", PARTNER, "min", units(1), units(1));
+        failingStatements.set(1);
+        assertFalse(engine.writer.flush());
+        assertEquals(1, engine.writer.backlog());
+        assertTrue(reserveRows.isEmpty());
+
+        assertTrue(engine.writer.flush());
+        assertEquals(Set.of("call-1"), reserveRows);
+        assertEquals(0, engine.writer.backlog());
+    }
+
+    @Test
+    @DisplayName("Reload applies balance changes of the table under the open reservations and unwritten usage")
+    void testReloadKeepsHolds() {
+        engine.reserve("call-1", PARTNER, "min", units(30), units(1));
+        AccountBalance account = engine.getReservation("call-1").getAccount();
+        assertEquals(3, account.getIdPackageAccount());
+        assertEquals(units(70), account.getAvailable());
+
+        // topped up from 100 to 150 in the table
+        engine.applyAccounts(List.of(account(2, 10, "min", 20), account(3, 11, "min", 150)));
+        assertEquals(units(120), account.getAvailable());
+        assertSame(account, engine.getReservation("call-1").getAccount(), "loaded accounts are kept");
+
+        // usage committed but not written yet: the table still shows 150
+        engine.commit("call-1", units(10));
+        assertEquals(units(140), account.getAvailable());
+        engine.applyAccounts(List.of(account(2, 10, "min", 20), account(3, 11, "min", 150)));
+        assertEquals(units(140), account.getAvailable());
+
+        // written: the table shows 140 and nothing changes
+        assertTrue(engine.writer.flush());
+        assertEquals(List.of(new BigDecimal("10.000000")), balanceUpdates);
+        engine.applyAccounts(List.of(account(2, 10, "min", 20), account(3, 11, "min", 140)));
+        assertEquals(units(140), account.getAvailable());
+
+        // purchase of account 2 expired
+        engine.applyAccounts(List.of(account(3, 11, "min", 140)));
+        assertEquals(units(140), engine.available(PARTNER, "min"));
+    }
+
+    @Test
+    @DisplayName("A reserve ended within one flush is never written, one ended later is deleted")
+    void testWriteBehind() {
+        engine.reserve("call-1", PARTNER, "min", units(1), units(1));
+        engine.release("call-1");
+        engine.reserve("call-2", PARTNER, "min", units(1), units(1));
+        assertTrue(engine.writer.flush());
+        assertEquals(Set.of("call-2"), reserveRows);
+
+        engine.release("call-2");
+        assertTrue(engine.writer.flush());
+        assertTrue(reserveRows.isEmpty());
+        assertEquals(0, engine.writer.backlog());
+    }
+
+    @Test
+    @DisplayName("Reserve and end of one call from different threads are written in order")
+    void testConcurrentReserveAndEnd() throws Exception {
+        engine.applyAccounts(List.of(account(3, 11, "min", 1_000_000)));
+        int calls = 20_000;
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService threads = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> flusher = threads.submit(() -> {
+                while (!done.get()) engine.writer.flush();
+            });
+            Future<?> enders = threads.submit(() -> {
+                for (int i = 0; i < calls; i++) {
+                    String uuid = "call-" + i;
+                    // ends the call as soon as its reservation is visible, an end before it would settle the call
+                    while (engine.getReservation(uuid) == null) Thread.onSpinWait();
+                    assertTrue(engine.release(uuid));
+                }
+            });
+            for (int i = 0; i < calls; i++) {
+                assertNotNull(engine.reserve("call-" + i, PARTNER, "min", units(1), units(1)));
+            }
+            enders.get(30, TimeUnit.SECONDS);
+            done.set(true);
+            flusher.get(30, TimeUnit.SECONDS);
+        } finally {
+            threads.shutdownNow();
+        }
+        assertTrue(engine.writer.flush());
+
+        assertTrue(reserveRows.isEmpty(), reserveRows.size() + " reserve rows left behind");
+        assertEquals(units(1_000_000), engine.available(PARTNER, "min"));
+    }
+
+    private static long units(long amount) {
+        return ReservationEngine.scale(BigDecimal.valueOf(amount));
+    }
+
+    private static ReservationEngine.AccountRow account(long id, long idPurchase, String uom, long balance) {
+        return new ReservationEngine.AccountRow(id, idPurchase, "account-" + id, uom, units(balance), PARTNER);
+    }
+
+    /**
+     * Connection keeping only what the writer's statements do to the reserve rows and balances.
+     */
+    private Connection recordingConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> recordingStatement((String) args[0]);
+                    case "isClosed" -> false;
+                    default -> null;
+                });
+    }
+
+    private PreparedStatement recordingStatement(String sql) {
+        List<String> uuids = new ArrayList<>();
+        List<BigDecimal> amounts = new ArrayList<>();
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "setString" -> {
+                        if (args[1] instanceof String value && value.startsWith("call-")) uuids.add(value);
+                        yield null;
+                    }
+                    case "setBigDecimal" -> {
+                        amounts.add((BigDecimal) args[1]);
+                        yield null;
+                    }
+                    case "executeUpdate" -> {
+                        if (failingStatements.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                            throw new IllegalStateException("driver failure");
+                        }
+                        if (sql.startsWith("INSERT")) reserveRows.addAll(uuids);
+                        if (sql.startsWith("DELETE")) uuids.forEach(reserveRows::remove);
+                        yield uuids.size();
+                    }
+                    case "executeBatch" -> {
+                        // lastAmount and the amount taken off, once per committed call
+                        for (int i = 0; i < amounts.size(); i += 2) balanceUpdates.add(amounts.get(i));
+                        yield new int[amounts.size() / 2];
+                    }
+                    default -> null;
+                });
+    }
+}
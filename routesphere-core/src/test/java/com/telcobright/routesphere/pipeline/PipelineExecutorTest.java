@@ -0,0 +1,90 @@
+package com.telcobright.routesphere.pipeline;
+
+import com.telcobright.routesphere.rules.api.PipelineContext;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pipeline workers over a stage recording the events it runs.
+ */
+public class PipelineExecutorTest {
+
+    private final Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    @Test
+    @DisplayName("Events of one key run one at a time in the order submitted")
+    void testKeyedOrder() {
+        PipelineExecutor executor = executor(1000, 4, PipelineExecutor.Backpressure.BLOCK);
+        int calls = 200;
+        int eventsPerCall = 50;
+        for (int seq = 0; seq < eventsPerCall; seq++) {
+            for (int call = 0; call < calls; call++) {
+                assertTrue(executor.submit(event("call-" + call, seq), "call-" + call));
+            }
+        }
+        executor.close();
+
+        assertEquals(calls, seen.size());
+        List<Integer> expected = new ArrayList<>();
+        for (int seq = 0; seq < eventsPerCall; seq++) expected.add(seq);
+        seen.forEach((call, order) -> assertEquals(expected, order, call));
+        assertEquals((long) calls * eventsPerCall, executor.getStats().get("submitted"));
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("A full worker queue rejects with drop backpressure and the capacity is split between the workers")
+    void testDrop() throws InterruptedException {
+        PipelineExecutor executor = executor(4, 2, PipelineExecutor.Backpressure.DROP);
+        assertEquals(4, executor.getStats().get("queueCapacity"));
+        // the worker takes the first event and holds it, two more fill its queue
+        running.set(-1);
+        assertTrue(executor.submit(event("held", 0), "held"));
+        while (running.get() != -2) Thread.onSpinWait();
+        assertTrue(executor.submit(event("held", 1), "held"));
+        assertTrue(executor.submit(event("held", 2), "held"));
+        assertFalse(executor.submit(event("held", 3), "held"));
+        assertEquals(1L, executor.getStats().get("rejected"));
+
+        running.set(0);
+        executor.close();
+        assertEquals(List.of(0, 1, 2), seen.get("held"));
+    }
+
+    private PipelineExecutor executor(int capacity, int workers, PipelineExecutor.Backpressure backpressure) {
+        PipelineStage recorder = new PipelineStage() {
+            @Override
+            public String getName() {
+                return "recorder";
+            }
+
+            @Override
+            public boolean process(PipelineContext context) {
+                // -1 asks the first event to hold its worker until reset
+                if (running.compareAndSet(-1, -2)) {
+                    while (running.get() == -2) Thread.onSpinWait();
+                }
+                String call = context.getData("call");
+                seen.computeIfAbsent(call, key -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(context.getData("seq"));
+                return true;
+            }
+        };
+        return new PipelineExecutor("test", "tenant", new Pipeline("test-pipeline", List.of(recorder)), capacity,
+                workers, false, backpressure, 5_000);
+    }
+
+    private static Map<String, Object> event(String call, int seq) {
+        return Map.of("call", call, "seq", seq);
+    }
+}
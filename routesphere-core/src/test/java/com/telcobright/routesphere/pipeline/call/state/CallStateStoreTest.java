@@ -0,0 +1,194 @@
+package com.telcobright.routesphere.pipeline.call.state;
+
+import com.telcobright.routesphere.balance.ReservationEngine;
+import com.telcobright.routesphere.protocols.esl.EslEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Call state built from ESL events, with a reservation engine that never loaded and so settles nothing.
+ */
+public class CallStateStoreTest {
+
+    private static final String TENANT = "ccl";
+
+    private CallStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new CallStateStore();
+        store.reservationEngine = new ReservationEngine();
+        store.maxLegs = 100;
+        store.ttl = Duration.ofHours(4);
+        store.linger = Duration.ofSeconds(30);
+    }
+
+    @Test
+    @DisplayName("A leg moves through the call states and is counted until hangup complete")
+    void testLifecycle() {
+        store.apply(TENANT, event("CHANNEL_CREATE", "a", "a").data("Caller-Caller-ID-Number", "1001").build());
+        store.apply(TENANT, event("CHANNEL_PROGRESS", "a", "a").build());
+        store.apply(TENANT, event("CHANNEL_ANSWER", "a", "a").build());
+
+        CallLeg leg = store.getLeg("a");
+        assertEquals(CallState.ANSWERED, leg.getState());
+        assertNotNull(leg.getStateEnteredAt(CallState.PROGRESS));
+        assertNull(leg.getStateEnteredAt(CallState.EARLY_MEDIA));
+        assertEquals(1, store.getActiveCalls());
+        assertEquals(1, store.getActiveCallsOfTenant(TENANT));
+
+        store.apply(TENANT, event("CHANNEL_HANGUP_COMPLETE", "a", "a")
+                .data("Hangup-Cause", "NORMAL_CLEARING").data("variable_billsec", "42").build());
+        assertTrue(leg.isEnded());
+        assertEquals(CallState.HUNG_UP, leg.getState());
+        assertEquals("NORMAL_CLEARING", leg.getHangupCause());
+        assertEquals(0, store.getActiveCalls());
+        assertEquals(0, store.getActiveLegs());
+        assertSame(leg, store.getLeg("a"), "ended legs linger for late lookups");
+
+        store.apply(TENANT, event("CHANNEL_DESTROY", "a", "a").build());
+        assertSame(leg, store.getLeg("a"), "destroy doesn't cut the linger time short");
+        assertEquals(1, store.getStats().get("trackedLegs"));
+
+        store.linger = Duration.ofSeconds(-1);
+        store.sweep();
+        assertNull(store.getLeg("a"));
+        assertEquals(0, store.getStats().get("trackedLegs"));
+    }
+
+    @Test
+    @DisplayName("Destroy ends a leg whose hangup complete was missed")
+    void testDestroyWithoutHangupComplete() {
+        store.apply(TENANT, event("CHANNEL_CREATE", "a", "a").build());
+        store.apply(TENANT, event("CHANNEL_DESTROY", "a", "a").build());
+        assertTrue(store.getLeg("a").isEnded());
+        assertEquals(0, store.getActiveCalls());
+    }
+
+    @Test
+    @DisplayName("Legs of one call are counted as one call, on the leg the call started with")
+    void testBridgedCall() {
+        store.apply(TENANT, event("CHANNEL_CREATE", "a", "a").build());
+        store.apply(TENANT, event("CHANNEL_CREATE", "b", "a").build());
+        store.apply(TENANT, event("CHANNEL_BRIDGE", "a", "a").data("Other-Leg-Unique-ID", "b").build());
+        assertEquals(2, store.getActiveLegs());
+        assertEquals(1, store.getActiveCalls());
+        assertEquals("b", store.getLeg("a").getBridgedWith());
+        assertEquals("a", store.getLeg("b").getBridgedWith());
+        assertEquals(CallState.BRIDGED, store.getLeg("a").getState());
+
+        assertTrue(store.assign("b", 7L, "route-1"), "assigned through the other leg");
+        assertEquals(1, store.getActiveCallsOfPartner(7));
+        assertEquals(1, store.getActiveCallsOfRoute("route-1"));
+
+        store.apply(TENANT, event("CHANNEL_UNBRIDGE", "a", "a").build());
+        assertEquals(CallState.ANSWERED, store.getLeg("a").getState());
+        assertNull(store.getLeg("a").getBridgedWith());
+
+        store.apply(TENANT, event("CHANNEL_HANGUP_COMPLETE", "b", "a").build());
+        assertEquals(1, store.getActiveCalls(), "the call is up while its first leg is");
+        store.apply(TENANT, event("CHANNEL_HANGUP_COMPLETE", "a", "a").build());
+        assertEquals(0, store.getActiveCalls());
+        assertEquals(0, store.getActiveCallsOfPartner(7));
+        assertFalse(store.assign("a", 8L, "route-2"), "a call that is over keeps its assignment");
+    }
+
+    @Test
+    @DisplayName("Events of a leg never seen up and non-channel events don't open a leg")
+    void testNoLegOpened() {
+        store.apply(TENANT, event("CHANNEL_HANGUP_COMPLETE", "a", "a").build());
+        store.apply(TENANT, event("CHANNEL_DESTROY", "b", "b").build());
+        store.apply(TENANT, event("HEARTBEAT", "c", "c").build());
+        assertTrue(store.getLegs().isEmpty());
+        assertEquals(0, store.getStats().get("trackedLegs"));
+    }
+
+    @Test
+    @DisplayName("Concurrent opens never track more than max-legs and a leg removed by the sweep frees its slot")
+    void testMaxLegs() throws Exception {
+        int threads = 8;
+        int perThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        String uuid = "leg-" + thread + "-" + i;
+                        store.apply(TENANT, event("CHANNEL_CREATE", uuid, uuid).build());
+                        // every thread opens the shared leg too, only one of them puts it
+                        store.apply(TENANT, event("CHANNEL_CREATE", "shared", "shared").build());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(100, store.getLegs().size());
+        assertEquals(100, store.getActiveLegs());
+        assertEquals(100, store.getStats().get("trackedLegs"));
+        assertEquals(threads * perThread + 1 - 100L, store.getStats().get("dropped"));
+
+        String tracked = store.getLegs().iterator().next().getUuid();
+        store.apply(TENANT, event("CHANNEL_DESTROY", tracked, tracked).build());
+        store.apply(TENANT, event("CHANNEL_CREATE", "late", "late").build());
+        assertNull(store.getLeg("late"), "the destroyed leg lingers in its slot");
+        store.linger = Duration.ofSeconds(-1);
+        store.sweep();
+        store.apply(TENANT, event("CHANNEL_CREATE", "late", "late").build());
+        assertNotNull(store.getLeg("late"));
+        store.apply(TENANT, event("CHANNEL_CREATE", "later", "later").build());
+        assertNull(store.getLeg("later"));
+    }
+
+    @Test
+    @DisplayName("Sweep ends legs without events for the ttl and drops ended legs after the linger time")
+    void testSweep() {
+        store.apply(TENANT, event("CHANNEL_CREATE", "ended", "ended").build());
+        store.apply(TENANT, event("CHANNEL_HANGUP_COMPLETE", "ended", "ended").build());
+        store.apply(TENANT, event("CHANNEL_CREATE", "orphan", "orphan").build());
+
+        // ended legs are past the linger time, live legs within the ttl
+        store.linger = Duration.ofSeconds(-1);
+        store.sweep();
+        assertNull(store.getLeg("ended"));
+        assertFalse(store.getLeg("orphan").isEnded());
+        assertEquals(1, store.getStats().get("trackedLegs"));
+
+        store.ttl = Duration.ofSeconds(-1);
+        store.linger = Duration.ofSeconds(30);
+        store.sweep();
+        CallLeg orphan = store.getLeg("orphan");
+        assertTrue(orphan.isEnded());
+        assertEquals(0, store.getActiveCalls());
+        assertEquals(1L, store.getStats().get("orphaned"));
+
+        store.linger = Duration.ofSeconds(-1);
+        store.sweep();
+        assertTrue(store.getLegs().isEmpty());
+        assertEquals(0, store.getStats().get("trackedLegs"));
+    }
+
+    private static EslEvent.Builder event(String name, String uuid, String callUuid) {
+        return EslEvent.builder(name).data("Channel-Unique-ID", uuid).data("Channel-Call-UUID", callUuid);
+    }
+}
@@ -0,0 +1,76 @@
+package com.telcobright.routesphere.protocols.esl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation of wrapping a parsed ESL event and reading the headers a lane reads from it, with the gc
+ * profiler's gc.alloc.rate.norm giving the bytes allocated per event:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=EslEventBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EslEventBenchmark {
+
+    private Map<String, String> headers;
+
+    @Setup
+    public void setUp() {
+        // a CHANNEL_HANGUP_COMPLETE carries some 200 headers, most of them never read
+        headers = new HashMap<>();
+        headers.put("Event-Name", "CHANNEL_HANGUP_COMPLETE");
+        headers.put("Channel-Unique-ID", "0f1b5c2e-8d61-4c1f-9a57-2f6f0c1d7e10");
+        headers.put("Channel-Call-UUID", "0f1b5c2e-8d61-4c1f-9a57-2f6f0c1d7e10");
+        headers.put("Caller-Caller-ID-Number", "8801711000000");
+        headers.put("Caller-Destination-Number", "8801911000000");
+        headers.put("Hangup-Cause", "NORMAL_CLEARING");
+        headers.put("variable_billsec", "42");
+        for (int i = 0; i < 200; i++) headers.put("variable_header_" + i, "value-" + i);
+    }
+
+    // the event is returned so it escapes as it does into a lane, else its allocations are optimized away
+    @Benchmark
+    public EslEvent wrapAndRead(Blackhole blackhole) {
+        EslEvent event = EslEvent.wrap("CHANNEL_HANGUP_COMPLETE", headers);
+        blackhole.consume(event.getType());
+        blackhole.consume(event.getChannelId());
+        blackhole.consume(event.getChannelCallUuid());
+        blackhole.consume(event.header(EslHeader.HANGUP_CAUSE));
+        blackhole.consume(event.header(EslHeader.BILLSEC));
+        return event;
+    }
+
+    @Test
+    @DisplayName("Wrapping an event and reading its headers")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EslEventBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
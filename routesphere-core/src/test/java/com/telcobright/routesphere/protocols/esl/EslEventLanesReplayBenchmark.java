@@ -0,0 +1,143 @@
+package com.telcobright.routesphere.protocols.esl;
+
+import com.telcobright.routesphere.pipeline.LatencyHistogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays bridged calls at a fixed call rate through {@link EslEventLanes}, the way the ESL client's I/O thread
+ * feeds them, and reports the lane lag (queued to handled), how long the I/O thread was held on full lanes and how
+ * many events were rejected. The handler reads the headers the call state reads and checks every leg's events
+ * arrive in order, plus an optional busy time per event standing in for the pipeline hand-off.
+ * Not part of the regular test run:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=EslEventLanesReplayBenchmark [-Dbenchmark.cps=5000 -Dbenchmark.seconds=10
+ *     -Dbenchmark.lanes=4 -Dbenchmark.lane-capacity=4096 -Dbenchmark.hold-ms=3000 -Dbenchmark.handler-micros=0]
+ * </pre>
+ * Every call is two legs with ten events: both creates, progress and answer of the b leg, answer and bridge of the
+ * a leg, and after the hold time the hangup complete and destroy of both.
+ */
+public class EslEventLanesReplayBenchmark {
+
+    private final int cps = Integer.getInteger("benchmark.cps", 5000);
+    private final int seconds = Integer.getInteger("benchmark.seconds", 10);
+    private final int laneCount = Integer.getInteger("benchmark.lanes", Runtime.getRuntime().availableProcessors());
+    private final int laneCapacity = Integer.getInteger("benchmark.lane-capacity", 4096);
+    private final long offerTimeoutMs = Long.getLong("benchmark.offer-timeout-ms", 50);
+    private final long holdMs = Long.getLong("benchmark.hold-ms", 3000);
+    private final long handlerNanos = TimeUnit.MICROSECONDS.toNanos(Long.getLong("benchmark.handler-micros", 0));
+
+    // events handled per leg, checked against the sequence number each event carries
+    private final Map<String, Integer> legEvents = new ConcurrentHashMap<>();
+    private final LongAdder outOfOrder = new LongAdder();
+
+    @Test
+    @DisplayName("Lanes keep up with the call rate without rejecting events")
+    void replay() {
+        List<Scheduled> script = script();
+        EslEventLanes lanes = new EslEventLanes("replay", laneCount, laneCapacity, offerTimeoutMs, this::handle);
+        LatencyHistogram dispatchTime = new LatencyHistogram();
+        long behind = 0;
+        long startedAt = System.nanoTime();
+        for (Scheduled scheduled : script) {
+            long due = startedAt + scheduled.atNanos;
+            long now = System.nanoTime();
+            if (due - now > 50_000) {
+                LockSupport.parkNanos(due - now);
+                now = System.nanoTime();
+            }
+            behind = Math.max(behind, now - due);
+            lanes.dispatch(scheduled.event);
+            dispatchTime.record(System.nanoTime() - now);
+        }
+        long replayedIn = System.nanoTime() - startedAt;
+        lanes.close();
+
+        Map<String, Object> stats = lanes.getStats();
+        long handled = (long) stats.get("handled");
+        long rejected = (long) stats.get("rejected");
+        System.out.println("\n=== ESL lane replay: " + cps + " calls/s for " + seconds + " s, " + laneCount
+                + " lanes of " + laneCapacity + " ===");
+        System.out.println("events:        " + script.size() + " in " + TimeUnit.NANOSECONDS.toMillis(replayedIn)
+                + " ms, " + script.size() * 1_000_000_000L / replayedIn + " events/s");
+        System.out.println("handled:       " + handled + ", rejected: " + rejected);
+        System.out.println("dispatch:      " + dispatchTime.snapshot());
+        System.out.println("behind:        " + TimeUnit.NANOSECONDS.toMicros(behind) + " us at most");
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> perLane = (List<Map<String, Object>>) stats.get("perLane");
+        for (int i = 0; i < perLane.size(); i++) {
+            System.out.println("lane " + i + " lag:    " + perLane.get(i).get("lag"));
+        }
+        System.out.println("out of order:  " + outOfOrder.sum());
+        System.out.println("==========================================\n");
+
+        assertEquals(script.size(), handled + rejected);
+        assertEquals(0, rejected, "events rejected at " + cps + " calls/s");
+        assertEquals(0, outOfOrder.sum(), "events of a leg handled out of order");
+    }
+
+    private void handle(EslEvent event) {
+        event.getType();
+        event.getChannelCallUuid();
+        event.header(EslHeader.HANGUP_CAUSE);
+        int seq = Integer.parseInt(event.getEventData().get("Bench-Seq"));
+        int handled = legEvents.merge(event.getChannelId(), 1, Integer::sum);
+        if (handled != seq + 1) outOfOrder.increment();
+        if (handlerNanos > 0) {
+            long until = System.nanoTime() + handlerNanos;
+            while (System.nanoTime() < until) Thread.onSpinWait();
+        }
+    }
+
+    private List<Scheduled> script() {
+        long interval = TimeUnit.SECONDS.toNanos(1) / cps;
+        long hold = TimeUnit.MILLISECONDS.toNanos(holdMs);
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        List<Scheduled> script = new ArrayList<>(cps * seconds * 10);
+        for (int call = 0; call < cps * seconds; call++) {
+            long at = call * interval;
+            String a = "a-" + call;
+            String b = "b-" + call;
+            script.add(new Scheduled(at, event("CHANNEL_CREATE", a, a, 0)));
+            script.add(new Scheduled(at + ms, event("CHANNEL_CREATE", b, a, 0)));
+            script.add(new Scheduled(at + 100 * ms, event("CHANNEL_PROGRESS", b, a, 1)));
+            script.add(new Scheduled(at + 500 * ms, event("CHANNEL_ANSWER", b, a, 2)));
+            script.add(new Scheduled(at + 500 * ms, event("CHANNEL_ANSWER", a, a, 1)));
+            script.add(new Scheduled(at + 501 * ms, event("CHANNEL_BRIDGE", a, a, 2, "Other-Leg-Unique-ID", b)));
+            script.add(new Scheduled(at + hold, event("CHANNEL_HANGUP_COMPLETE", b, a, 3,
+                    "Hangup-Cause", "NORMAL_CLEARING")));
+            script.add(new Scheduled(at + hold, event("CHANNEL_HANGUP_COMPLETE", a, a, 3,
+                    "Hangup-Cause", "NORMAL_CLEARING")));
+            script.add(new Scheduled(at + hold + ms, event("CHANNEL_DESTROY", b, a, 4)));
+            script.add(new Scheduled(at + hold + ms, event("CHANNEL_DESTROY", a, a, 4)));
+        }
+        // stable sort, the events of one leg due at the same time stay in order
+        script.sort(Comparator.comparingLong(scheduled -> scheduled.atNanos));
+        return script;
+    }
+
+    private static EslEvent event(String name, String uuid, String callUuid, int seq, String... data) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Event-Name", name);
+        headers.put("Channel-Unique-ID", uuid);
+        headers.put("Channel-Call-UUID", callUuid);
+        headers.put("Bench-Seq", Integer.toString(seq));
+        for (int i = 0; i < data.length; i += 2) headers.put(data[i], data[i + 1]);
+        return EslEvent.wrap(name, headers);
+    }
+
+    private record Scheduled(long atNanos, EslEvent event) {
+    }
+}
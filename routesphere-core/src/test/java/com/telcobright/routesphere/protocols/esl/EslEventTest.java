@@ -0,0 +1,89 @@
+package com.telcobright.routesphere.protocols.esl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Event type resolution and header lookups over a wrapped ESL header map.
+ */
+public class EslEventTest {
+
+    @Test
+    @DisplayName("Event names resolve to their type, any other name to UNKNOWN")
+    void testType() {
+        assertEquals(EslEventType.CHANNEL_ANSWER, EslEvent.builder("CHANNEL_ANSWER").build().getType());
+        assertEquals(EslEventType.UNKNOWN, EslEvent.builder("PRESENCE_IN").build().getType());
+        assertEquals(EslEventType.UNKNOWN, EslEvent.builder(null).build().getType());
+    }
+
+    @Test
+    @DisplayName("Renaming an event resolves its type again")
+    void testTypeAfterRename() {
+        EslEvent event = EslEvent.builder("CHANNEL_CREATE").build();
+        assertEquals(EslEventType.CHANNEL_CREATE, event.getType());
+        event.setEventName("CHANNEL_DESTROY");
+        assertEquals(EslEventType.CHANNEL_DESTROY, event.getType());
+    }
+
+    @Test
+    @DisplayName("Headers are read from the wrapped map, missing ones are null")
+    void testHeader() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Channel-Unique-ID", "leg-b");
+        headers.put("Channel-Call-UUID", "leg-a");
+        headers.put("Hangup-Cause", "NORMAL_CLEARING");
+        EslEvent event = EslEvent.wrap("CHANNEL_HANGUP_COMPLETE", headers);
+
+        assertEquals("NORMAL_CLEARING", event.header(EslHeader.HANGUP_CAUSE));
+        assertNull(event.header(EslHeader.BILLSEC));
+        assertEquals("leg-b", event.getChannelId());
+        assertEquals("leg-a", event.getChannelCallUuid());
+        assertSame(headers, event.getEventData(), "the client's map is wrapped, not copied");
+    }
+
+    @Test
+    @DisplayName("A header is resolved once, the first and last header slots included")
+    void testHeaderResolvedOnce() {
+        EslHeader[] all = EslHeader.values();
+        Map<String, String> headers = new HashMap<>();
+        headers.put(all[0].getHeaderName(), "first");
+        headers.put(all[all.length - 1].getHeaderName(), "last");
+        EslEvent event = EslEvent.wrap("CHANNEL_CREATE", headers);
+
+        assertEquals("first", event.header(all[0]));
+        assertEquals("last", event.header(all[all.length - 1]));
+        assertNull(event.header(EslHeader.SIP_GATEWAY));
+
+        // later changes to the map don't reach headers already read, found or missing
+        headers.put(all[0].getHeaderName(), "changed");
+        headers.put(EslHeader.SIP_GATEWAY.getHeaderName(), "gw1");
+        assertEquals("first", event.header(all[0]));
+        assertNull(event.header(EslHeader.SIP_GATEWAY));
+    }
+
+    @Test
+    @DisplayName("Replacing the event data drops the headers already read")
+    void testSetEventData() {
+        EslEvent event = EslEvent.wrap("CHANNEL_CREATE", Map.of("Hangup-Cause", "USER_BUSY"));
+        assertEquals("USER_BUSY", event.header(EslHeader.HANGUP_CAUSE));
+        event.setEventData(Map.of("Hangup-Cause", "NO_ANSWER"));
+        assertEquals("NO_ANSWER", event.header(EslHeader.HANGUP_CAUSE));
+    }
+
+    @Test
+    @DisplayName("Without a channel the channel id is empty and the call uuid falls back to it")
+    void testNoChannel() {
+        EslEvent event = EslEvent.builder("HEARTBEAT").build();
+        assertEquals("", event.getChannelId());
+        assertEquals("", event.getChannelCallUuid());
+
+        EslEvent leg = EslEvent.builder("CHANNEL_CREATE").data("Channel-Unique-ID", "leg-a").build();
+        assertEquals("leg-a", leg.getChannelCallUuid());
+        assertEquals("explicit", EslEvent.builder("CHANNEL_CREATE").channelId("explicit").build().getChannelId());
+    }
+}
@@ -0,0 +1,106 @@
+package com.telcobright.routesphere.protocols.esl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ring buffer bounds, order across laps, and many producers against one consumer.
+ */
+public class MpscRingBufferTest {
+
+    @Test
+    @DisplayName("Capacity is rounded up to a power of two")
+    void testCapacity() {
+        assertEquals(4096, new MpscRingBuffer<>(4096).capacity());
+        assertEquals(8, new MpscRingBuffer<>(5).capacity());
+        assertTrue(new MpscRingBuffer<>(1).capacity() >= 1);
+    }
+
+    @Test
+    @DisplayName("Full buffer refuses the offer until the consumer takes an element")
+    void testFull() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) assertTrue(buffer.offer(i));
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertFalse(buffer.offer(5));
+    }
+
+    @Test
+    @DisplayName("Elements come out in offer order over many laps")
+    void testOrderAcrossLaps() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(8);
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+
+        int next = 0;
+        int expected = 0;
+        for (int lap = 0; lap < 1000; lap++) {
+            // uneven batches so the head and tail wrap at different slots
+            for (int i = 0; i < 5; i++) assertTrue(buffer.offer(next++));
+            for (int i = 0; i < 4 + lap % 3; i++) {
+                Integer element = buffer.poll();
+                if (element == null) break;
+                assertEquals(expected++, element);
+            }
+        }
+        Integer element;
+        while ((element = buffer.poll()) != null) assertEquals(expected++, element);
+        assertEquals(next, expected);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Every element of concurrent producers is taken once, each producer's in its own order")
+    void testConcurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 200_000;
+        MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!buffer.offer(element)) Thread.onSpinWait();
+                }
+            }));
+        }
+
+        start.countDown();
+        long[] nextOf = new long[producers];
+        long taken = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (taken < (long) producers * perProducer) {
+            long[] element = buffer.poll();
+            if (element == null) {
+                assertTrue(System.nanoTime() < deadline, "consumer stalled after " + taken + " elements");
+                Thread.onSpinWait();
+                continue;
+            }
+            int producer = (int) element[0];
+            assertEquals(nextOf[producer]++, element[1], "order of producer " + producer);
+            taken++;
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertNull(buffer.poll());
+        for (long count : nextOf) assertEquals(perProducer, count);
+    }
+}
@@ -0,0 +1,145 @@
+package com.telcobright.routesphere.startup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.telcobright.rtc.domainmodel.nonentity.Tenant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Delta polling against scripted ConfigManager responses and a tree holder that counts snapshot loads.
+ */
+public class ContextDeltaSynchronizerTest {
+
+    private final Deque<Object> responses = new ArrayDeque<>();
+    private StubInitializer initializer;
+    private ContextDeltaSynchronizer synchronizer;
+
+    @BeforeEach
+    void setUp() {
+        initializer = new StubInitializer();
+        synchronizer = new ContextDeltaSynchronizer() {
+            @Override
+            JsonNode fetchDeltas(long since) throws IOException {
+                Object response = responses.poll();
+                if (response instanceof IOException e) throw e;
+                return initializer.getObjectMapper().readTree((String) response);
+            }
+        };
+        synchronizer.initializer = initializer;
+        synchronizer.interval = Duration.ofSeconds(5);
+        synchronizer.maxBackoff = Duration.ofSeconds(60);
+        synchronizer.jsonFallbackSnapshotRetries = 3;
+    }
+
+    @Test
+    @DisplayName("Transport errors back off exponentially and never load the snapshot")
+    void testBackoff() {
+        for (int i = 0; i < 3; i++) responses.add(new IOException("connection refused"));
+        responses.add("{\"fromVersion\":7,\"toVersion\":7,\"deltas\":[]}");
+
+        synchronizer.sync(0);
+        assertEquals(3, responses.size());
+        synchronizer.sync(4_999);
+        assertEquals(3, responses.size(), "within the first backoff");
+        synchronizer.sync(5_000);
+        synchronizer.sync(14_999);
+        assertEquals(2, responses.size(), "the backoff doubled");
+        synchronizer.sync(15_000);
+        synchronizer.sync(35_000);
+        assertTrue(responses.isEmpty());
+        assertEquals(0, initializer.resyncs);
+
+        // a successful poll resets the backoff
+        responses.add("{\"fromVersion\":7,\"toVersion\":7,\"deltas\":[]}");
+        synchronizer.sync(35_000);
+        assertTrue(responses.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Backoff is capped at max-backoff")
+    void testBackoffCap() {
+        assertEquals(5_000, synchronizer.backoffMillis(1));
+        assertEquals(40_000, synchronizer.backoffMillis(4));
+        assertEquals(60_000, synchronizer.backoffMillis(5));
+        assertEquals(60_000, synchronizer.backoffMillis(100));
+    }
+
+    @Test
+    @DisplayName("Only fullResyncRequired reloads the snapshot, deltas are applied in place")
+    void testFullResyncRequired() {
+        responses.add("{\"fromVersion\":7,\"toVersion\":9,\"deltas\":[]}");
+        synchronizer.sync(0);
+        assertEquals(9, initializer.getSnapshotVersion());
+        assertEquals(0, initializer.resyncs);
+
+        responses.add("{\"fromVersion\":9,\"toVersion\":12,\"fullResyncRequired\":true,\"deltas\":[]}");
+        synchronizer.sync(0);
+        assertEquals(1, initializer.resyncs);
+    }
+
+    @Test
+    @DisplayName("A tree from the JSON endpoint tries the snapshot a limited number of times, backing off between them")
+    void testJsonFallback() {
+        initializer.snapshotVersion = -1;
+        initializer.snapshotAvailable = false;
+        long now = 0;
+        for (int i = 0; i < 20; i++) {
+            synchronizer.sync(now);
+            now += 60_000;
+        }
+        assertEquals(3, initializer.resyncs);
+        assertTrue(responses.isEmpty());
+    }
+
+    @Test
+    @DisplayName("A tree from the JSON endpoint takes deltas once the snapshot loads")
+    void testJsonFallbackRecovers() {
+        initializer.snapshotVersion = -1;
+        synchronizer.sync(0);
+        assertEquals(1, initializer.resyncs);
+        assertEquals(7, initializer.getSnapshotVersion());
+
+        responses.add("{\"fromVersion\":7,\"toVersion\":8,\"deltas\":[]}");
+        synchronizer.sync(0);
+        assertEquals(8, initializer.getSnapshotVersion());
+    }
+
+    private static class StubInitializer extends TenantHierarchyInitializer {
+        private Tenant root = new Tenant("root");
+        private long snapshotVersion = 7;
+        private boolean snapshotAvailable = true;
+        private int resyncs;
+
+        @Override
+        public boolean resync() {
+            resyncs++;
+            if (!snapshotAvailable) return false;
+            snapshotVersion = 7;
+            return true;
+        }
+
+        @Override
+        public Tenant getRootTenant() {
+            return root;
+        }
+
+        @Override
+        public long getSnapshotVersion() {
+            return snapshotVersion;
+        }
+
+        @Override
+        void publish(Tenant root, long version) {
+            this.root = root;
+            this.snapshotVersion = version;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.RatePlan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rate plan assignments published with their intervals and picked at call time.
+ */
+public class DynamicContextTest {
+
+    private static final LocalDateTime MIDNIGHT = LocalDateTime.of(2026, 10, 18, 0, 0);
+
+    /**
+     * 880  plan 1  priority 1, until the end of 2026-10-17
+     * 880  plan 2  priority 2, open ended       (fallback)
+     * 880  plan 3  priority 3, from 2026-10-18  never reached, plan 2 covers it
+     * 881  plan 1  from 2026-10-18, open ended  future dated
+     */
+    private final DynamicContext context = new DynamicContext(Map.of("partnerWiseRatePlans", Map.of(
+            "880", List.of(
+                    ratePlan(1, null, MIDNIGHT.minusSeconds(1)),
+                    ratePlan(2, null, null),
+                    ratePlan(3, MIDNIGHT, null)),
+            "881", List.of(ratePlan(1, MIDNIGHT, null)))));
+
+    @Test
+    @DisplayName("The first plan in priority order whose interval covers the time applies")
+    void testPriority() {
+        assertEquals(1, context.ratePlanAt("880", MIDNIGHT.minusHours(1)).getId());
+        assertEquals(1, context.ratePlanAt("880", MIDNIGHT.minusSeconds(1)).getId());
+        assertEquals(2, context.ratePlanAt("880", MIDNIGHT).getId(), "an ended assignment gives way without a reload");
+    }
+
+    @Test
+    @DisplayName("A future dated assignment takes effect at its start")
+    void testFutureDated() {
+        assertNull(context.ratePlanAt("881", MIDNIGHT.minusSeconds(1)));
+        assertEquals(1, context.ratePlanAt("881", MIDNIGHT).getId());
+        assertEquals(1, context.ratePlanAt("881", MIDNIGHT.plusYears(1)).getId());
+    }
+
+    @Test
+    @DisplayName("A key without assignments has no plan")
+    void testUnknownKey() {
+        assertNull(context.ratePlanAt("882", MIDNIGHT));
+        assertNull(new DynamicContext().ratePlanAt("880", MIDNIGHT));
+    }
+
+    private static RatePlan ratePlan(int id, LocalDateTime start, LocalDateTime end) {
+        RatePlan ratePlan = new RatePlan();
+        ratePlan.setId(id);
+        ratePlan.setStartDate(start);
+        ratePlan.setEndDate(end);
+        return ratePlan;
+    }
+}
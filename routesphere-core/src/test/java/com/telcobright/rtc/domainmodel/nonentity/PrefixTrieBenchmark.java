@@ -0,0 +1,121 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Longest prefix match of a dialed number against a rate deck: {@link PrefixTrie} against the longest-first scan
+ * of the length sorted LinkedHashMap getPrefixWisePartner1 used to return, and against probing a HashMap with ever
+ * shorter prefixes of the number. Not part of the regular test run:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=PrefixTrieBenchmark
+ * </pre>
+ * The deck is 200k prefixes of 3 to 9 digits spread over 250 country codes, the dialed numbers 13 digits, a
+ * quarter of them matching no prefix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class PrefixTrieBenchmark {
+
+    private static final int NUMBERS = 4096;
+
+    @Param("200000")
+    public int prefixes;
+
+    private PrefixTrie<Integer> trie;
+    private LinkedHashMap<String, Integer> sortedByLength;
+    private HashMap<String, Integer> byPrefix;
+    private String[] numbers;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] countryCodes = new String[250];
+        for (int i = 0; i < countryCodes.length; i++) countryCodes[i] = Integer.toString(1 + random.nextInt(999));
+
+        byPrefix = new HashMap<>();
+        while (byPrefix.size() < prefixes) {
+            StringBuilder prefix = new StringBuilder(countryCodes[random.nextInt(countryCodes.length)]);
+            int length = 3 + random.nextInt(7);
+            while (prefix.length() < length) prefix.append((char) ('0' + random.nextInt(10)));
+            byPrefix.put(prefix.toString(), byPrefix.size());
+        }
+        trie = PrefixTrie.of(byPrefix);
+        sortedByLength = new LinkedHashMap<>();
+        byPrefix.entrySet().stream()
+                .sorted((entry1, entry2) -> Integer.compare(entry2.getKey().length(), entry1.getKey().length()))
+                .forEach(entry -> sortedByLength.put(entry.getKey(), entry.getValue()));
+
+        String[] keys = byPrefix.keySet().toArray(new String[0]);
+        numbers = new String[NUMBERS];
+        for (int i = 0; i < NUMBERS; i++) {
+            StringBuilder number = new StringBuilder(i % 4 == 0 ? "0" : keys[random.nextInt(keys.length)]);
+            while (number.length() < 13) number.append((char) ('0' + random.nextInt(10)));
+            numbers[i] = number.toString();
+        }
+    }
+
+    private String nextNumber() {
+        return numbers[next++ & (NUMBERS - 1)];
+    }
+
+    @Benchmark
+    public Integer trie() {
+        return trie.longestMatch(nextNumber());
+    }
+
+    @Benchmark
+    public Integer sortedScan() {
+        String number = nextNumber();
+        for (Map.Entry<String, Integer> entry : sortedByLength.entrySet()) {
+            if (number.startsWith(entry.getKey())) return entry.getValue();
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Integer hashProbe() {
+        String number = nextNumber();
+        for (int length = number.length(); length > 0; length--) {
+            Integer value = byPrefix.get(number.substring(0, length));
+            if (value != null) return value;
+        }
+        return null;
+    }
+
+    @Test
+    @DisplayName("Longest prefix match over a 200k prefix rate deck")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PrefixTrieBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,172 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import com.telcobright.rtc.domainmodel.mysqlentity.Rate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Heap retained by today's rates of a tenant, held as Rate entities per prefix with a prefix trie per plan as
+ * ratePlanWiseTodaysRates was before, against a {@link RateTable} per plan. Retained heap is the difference in
+ * used heap after a full GC with and without the structure. Not part of the regular test run:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=RateTableHeapBenchmark [-Dbenchmark.rows=1000000 -Dbenchmark.plans=10]
+ * </pre>
+ * The entities carry the columns a rate row loaded from MySQL has set, comments and conflict lists left null.
+ */
+public class RateTableHeapBenchmark {
+
+    private static final long MB = 1024 * 1024;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private final int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+    private final int plans = Integer.getInteger("benchmark.plans", 10);
+
+    @Test
+    @DisplayName("Rate entities per prefix with a prefix trie per plan")
+    void testEntities() {
+        long retained = measure("Rate entities + prefix trie", () -> {
+            Map<Integer, Map<String, Rate>> planWiseRates = new HashMap<>();
+            Map<Integer, PrefixTrie<Rate>> planWiseIndexes = new HashMap<>();
+            for (int plan = 0; plan < plans; plan++) {
+                Map<String, Rate> rates = new HashMap<>();
+                String[] prefixes = prefixes(plan);
+                for (int row = 0; row < prefixes.length; row++) rates.put(prefixes[row], rate(plan, row, prefixes[row]));
+                planWiseRates.put(plan, rates);
+                planWiseIndexes.put(plan, PrefixTrie.of(rates));
+            }
+            return new Object[]{planWiseRates, planWiseIndexes};
+        });
+        assertTrue(retained > 0);
+    }
+
+    @Test
+    @DisplayName("A rate table per plan")
+    void testRateTables() {
+        long retained = measure("RateTable", () -> {
+            Map<Integer, RateTable> planWiseRates = new HashMap<>();
+            for (int plan = 0; plan < plans; plan++) planWiseRates.put(plan, table(plan, prefixes(plan)));
+            return planWiseRates;
+        });
+        assertTrue(retained > 0);
+    }
+
+    private long measure(String name, Supplier<Object> build) {
+        long baseline = usedAfterGc();
+        long startedAt = System.nanoTime();
+        Object rates = build.get();
+        long builtIn = System.nanoTime() - startedAt;
+        long retained = usedAfterGc() - baseline;
+        System.out.println("\n=== " + name + ": " + rows + " rates in " + plans + " plans ===");
+        System.out.println("retained heap: " + retained / MB + " MB, " + retained / rows + " bytes per rate");
+        System.out.println("built in:      " + builtIn / 1_000_000 + " ms");
+        System.out.println("==========================================\n");
+        assertNotNull(rates);
+        return retained;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Distinct, sorted prefixes of one plan, 4 to 10 digits under a few hundred country codes; new strings per
+     * plan as each plan's rows come from their own result set.
+     */
+    private String[] prefixes(int plan) {
+        Random random = new Random(plan);
+        int count = rows / plans;
+        TreeSet<String> prefixes = new TreeSet<>();
+        while (prefixes.size() < count) {
+            StringBuilder prefix = new StringBuilder(Integer.toString(1 + random.nextInt(999)));
+            int length = 4 + random.nextInt(7);
+            while (prefix.length() < length) prefix.append((char) ('0' + random.nextInt(10)));
+            prefixes.add(prefix.toString());
+        }
+        return prefixes.toArray(new String[0]);
+    }
+
+    private static Rate rate(int plan, int row, String prefix) {
+        Rate rate = new Rate();
+        rate.setId((long) plan * 10_000_000 + row);
+        rate.setProductId(1);
+        rate.setPrefix(prefix);
+        rate.setDescription("Destination " + prefix.substring(0, 3) + " mobile");
+        rate.setRateAmount(new BigDecimal("0.0" + (1000000 + row % 9000000)));
+        rate.setWeekDayStart(1);
+        rate.setWeekDayEnd(7);
+        rate.setStartTime("00:00:00");
+        rate.setEndTime("23:59:59");
+        rate.setResolution(60);
+        rate.setMinDurationSec(0f);
+        rate.setSurchargeTime(0);
+        rate.setSurchargeAmount(new BigDecimal("0.00000000"));
+        rate.setIdRatePlan(plan);
+        rate.setCountryCode(prefix.substring(0, 3));
+        rate.setStartDate(START.plusDays(row % 30));
+        rate.setInactive(0);
+        rate.setRouteDisabled(0);
+        rate.setType(1);
+        rate.setCurrency(1);
+        rate.setOtherAmount1(new BigDecimal("0.00000000"));
+        rate.setOtherAmount2(new BigDecimal("0.00000000"));
+        rate.setOtherAmount3(new BigDecimal("0.00000000"));
+        rate.setOtherAmount4(new BigDecimal("0.00000000"));
+        rate.setOtherAmount5(new BigDecimal("0.00000000"));
+        rate.setOtherAmount6(new BigDecimal("0.00000000"));
+        rate.setOtherAmount7(0f);
+        rate.setOtherAmount8(0f);
+        rate.setOtherAmount9(0f);
+        rate.setOtherAmount10(0f);
+        rate.setTimeZoneOffsetSec(new BigDecimal("21600"));
+        rate.setRatePosition(1);
+        rate.setIgwPercentageIn(0f);
+        rate.setChangedByTaskId(1L);
+        rate.setChangedOn(START.plusDays(row % 30));
+        rate.setStatus(1);
+        rate.setCategory(1);
+        rate.setSubCategory(1);
+        rate.setChangeCommitted(1);
+        rate.setBillingSpan(0);
+        rate.setRateAmountRoundupDecimal(8);
+        return rate;
+    }
+
+    private static RateTable table(int plan, String[] prefixes) {
+        int count = prefixes.length;
+        long[] ids = new long[count];
+        long[] rateAmounts = new long[count];
+        int[] resolutions = new int[count];
+        long[] startDates = new long[count];
+        long[] endDates = new long[count];
+        byte[] weekDayStarts = new byte[count];
+        byte[] weekDayEnds = new byte[count];
+        int[] startTimes = new int[count];
+        int[] endTimes = new int[count];
+        for (int row = 0; row < count; row++) {
+            ids[row] = (long) plan * 10_000_000 + row;
+            rateAmounts[row] = 1000000 + row % 9000000;
+            resolutions[row] = 60;
+            startDates[row] = RateTable.toEpochSecond(START.plusDays(row % 30));
+            endDates[row] = RateTable.OPEN_END;
+            weekDayStarts[row] = 1;
+            weekDayEnds[row] = 7;
+        }
+        Arrays.fill(startTimes, -1);
+        Arrays.fill(endTimes, -1);
+        return new RateTable(prefixes, ids, rateAmounts, resolutions, new float[count], new int[count],
+                new long[count], startDates, endDates, weekDayStarts, weekDayEnds, startTimes, endTimes);
+    }
+}
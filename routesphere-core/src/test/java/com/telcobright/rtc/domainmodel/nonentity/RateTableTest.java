@@ -0,0 +1,91 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lookups over rows of one prefix that overlap in dates and differ by week day and time of day.
+ */
+public class RateTableTest {
+
+    private static final long FROM = RateTable.toEpochSecond(LocalDateTime.of(2026, 1, 1, 0, 0));
+    private static final long UNTIL = RateTable.toEpochSecond(LocalDateTime.of(2026, 12, 31, 23, 59, 59));
+
+    // 2026-10-12 is a Monday, 2026-10-17 a Saturday
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2026, 10, 12, 0, 0);
+    private static final LocalDateTime SATURDAY = LocalDateTime.of(2026, 10, 17, 0, 0);
+
+    /**
+     * 88    id 1  every day, all day            (fallback)
+     * 880   id 2  Mon-Fri 08:00:00-17:59:59     peak
+     * 880   id 3  Mon-Fri 18:00:00-07:59:59     off-peak, wraps over midnight
+     * 880   id 4  Sat-Sun, all day, until 2026  weekend
+     * 8801  id 5  Fri-Mon 08:00:00-, no end     wraps over the week end, open end time
+     */
+    private final RateTable table = new RateTable(
+            new String[]{"88", "880", "880", "880", "8801"},
+            new long[]{1, 2, 3, 4, 5},
+            new long[]{100, 200, 150, 120, 300},
+            new int[]{60, 60, 60, 60, 60},
+            new float[]{0, 0, 0, 0, 0},
+            new int[]{0, 0, 0, 0, 0},
+            new long[]{0, 0, 0, 0, 0},
+            new long[]{FROM, FROM, FROM, FROM, FROM},
+            new long[]{RateTable.OPEN_END, RateTable.OPEN_END, RateTable.OPEN_END, UNTIL, RateTable.OPEN_END},
+            new byte[]{1, 1, 1, 6, 5},
+            new byte[]{7, 5, 5, 7, 1},
+            new int[]{-1, 8 * 3600, 18 * 3600, -1, 8 * 3600},
+            new int[]{-1, 18 * 3600 - 1, 8 * 3600 - 1, -1, -1});
+
+    @Test
+    @DisplayName("Peak row applies inside its hours on week days")
+    void testPeak() {
+        assertEquals(2, table.rateAt("8805551234", MONDAY.withHour(8)).getId());
+        assertEquals(2, table.rateAt("8805551234", MONDAY.withHour(17).withMinute(59).withSecond(59)).getId());
+        assertEquals(2, table.rateAt("8805551234", MONDAY.plusDays(4).withHour(12)).getId());
+    }
+
+    @Test
+    @DisplayName("Off-peak row applies outside the peak hours, across midnight")
+    void testOffPeak() {
+        assertEquals(3, table.rateAt("8805551234", MONDAY.withHour(18)).getId());
+        assertEquals(3, table.rateAt("8805551234", MONDAY.withHour(23).withMinute(30)).getId());
+        assertEquals(3, table.rateAt("8805551234", MONDAY.plusDays(1).withHour(2)).getId());
+        assertEquals(3, table.rateAt("8805551234", MONDAY.plusDays(1).withHour(7).withMinute(59).withSecond(59)).getId());
+    }
+
+    @Test
+    @DisplayName("Week end row applies on Saturday and Sunday only")
+    void testWeekEnd() {
+        assertEquals(4, table.rateAt("8805551234", SATURDAY.withHour(12)).getId());
+        assertEquals(4, table.rateAt("8805551234", SATURDAY.plusDays(1).withHour(3)).getId());
+    }
+
+    @Test
+    @DisplayName("Prefix with no row valid at the instant falls back to the shorter prefix")
+    void testFallbackToShorterPrefix() {
+        // weekend row has ended, no 880 row covers a Saturday in 2027
+        LocalDateTime saturday2027 = LocalDateTime.of(2027, 1, 2, 12, 0);
+        assertEquals(1, table.rateAt("8805551234", saturday2027).getId());
+    }
+
+    @Test
+    @DisplayName("Week days wrap over the week end and a missing end time is open")
+    void testWrappingWeekDays() {
+        assertEquals(5, table.rateAt("88015551234", MONDAY.withHour(23)).getId());
+        assertEquals(5, table.rateAt("88015551234", SATURDAY.withHour(8)).getId());
+        // Tuesday is outside Fri-Mon, before 08:00 outside the time window: both fall back to 880
+        assertEquals(2, table.rateAt("88015551234", MONDAY.plusDays(1).withHour(9)).getId());
+        assertEquals(4, table.rateAt("88015551234", SATURDAY.withHour(7)).getId());
+    }
+
+    @Test
+    @DisplayName("No rate before any row starts")
+    void testNotStarted() {
+        assertNull(table.rateAt("8805551234", LocalDateTime.of(2025, 12, 31, 12, 0)));
+    }
+}
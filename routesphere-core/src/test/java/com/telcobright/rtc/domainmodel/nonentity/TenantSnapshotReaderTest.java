@@ -0,0 +1,174 @@
+package com.telcobright.rtc.domainmodel.nonentity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.telcobright.rtc.domainmodel.mysqlentity.Partner;
+import com.telcobright.rtc.domainmodel.mysqlentity.RatePlan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tenant snapshots encoded in the layout of TenantSnapshotWriter on the ConfigManager side, plain and gzip,
+ * decoded back into equal contexts.
+ */
+public class TenantSnapshotReaderTest {
+
+    private static final int PARTNERS = 2000;
+
+    private final ObjectMapper jsonMapper = new ObjectMapper().findAndRegisterModules();
+    private final ObjectMapper smileMapper = jsonMapper.copyWith(new SmileFactory());
+    private final TenantSnapshotReader reader = new TenantSnapshotReader(jsonMapper);
+
+    private final Tenant root = tree();
+
+    @Test
+    @DisplayName("Smile snapshot decodes into the tree it was written from")
+    void testRoundTrip() throws IOException {
+        assertDecoded(reader.read(new ByteArrayInputStream(write(root, 7, false))));
+    }
+
+    @Test
+    @DisplayName("Gzip snapshot is detected and decodes like the plain one")
+    void testGzipRoundTrip() throws IOException {
+        assertDecoded(reader.read(new ByteArrayInputStream(write(root, 7, true))));
+    }
+
+    @Test
+    @DisplayName("Smile snapshot is smaller than the JSON of the same contexts, gzip smaller still")
+    void testSize() throws IOException {
+        List<Map<String, Object>> json = new ArrayList<>();
+        Deque<Tenant> pending = new ArrayDeque<>(List.of(root));
+        while (!pending.isEmpty()) {
+            Tenant tenant = pending.poll();
+            json.add(tenant.getContext().toValues());
+            pending.addAll(tenant.getChildren().values());
+        }
+        int jsonSize = jsonMapper.writeValueAsBytes(json).length;
+        int smileSize = write(root, 7, false).length;
+        int gzipSize = write(root, 7, true).length;
+
+        assertTrue(smileSize < jsonSize, "Smile " + smileSize + " bytes vs JSON " + jsonSize);
+        assertTrue(gzipSize < smileSize, "gzip " + gzipSize + " bytes vs Smile " + smileSize);
+    }
+
+    @Test
+    @DisplayName("A snapshot cut short is refused")
+    void testTruncated() throws IOException {
+        byte[] snapshot = write(root, 7, false);
+        byte[] truncated = Arrays.copyOf(snapshot, snapshot.length / 2);
+        assertThrows(IOException.class, () -> reader.read(new ByteArrayInputStream(truncated)));
+    }
+
+    private void assertDecoded(TenantSnapshotReader.Snapshot snapshot) {
+        assertEquals(7, snapshot.getVersion());
+        Tenant decoded = snapshot.getRoot();
+        assertEquals("root", decoded.getDbName());
+        Tenant reseller = decoded.getChildren().get("reseller1");
+        assertNotNull(reseller);
+        assertEquals("root", reseller.getParent());
+        Tenant retail = reseller.getChildren().get("retail1");
+        assertNotNull(retail);
+        assertEquals("reseller1", retail.getParent());
+
+        assertContext(root, decoded);
+        assertContext(root.getChildren().get("reseller1"), reseller);
+        assertContext(root.getChildren().get("reseller1").getChildren().get("retail1"), retail);
+
+        // partner references resolve to the decoded partner instances
+        DynamicContext context = retail.getContext();
+        assertSame(context.getPartners().get(17), context.prefixWisePartnersIndex().longestMatch("88017"));
+        assertEquals(2, context.ratePlanAt("880", LocalDateTime.of(2026, 10, 18, 0, 0)).getId());
+    }
+
+    private void assertContext(Tenant expected, Tenant decoded) {
+        assertEquals(jsonMapper.valueToTree(expected.getContext().toValues()),
+                jsonMapper.valueToTree(decoded.getContext().toValues()), "context of " + expected.getDbName());
+    }
+
+    /**
+     * Same stream as TenantSnapshotWriter: a header value then one value per tenant, parents first, gzip as a whole.
+     */
+    private byte[] write(Tenant root, long version, boolean gzip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        try (JsonGenerator generator = smileMapper.getFactory().createGenerator(target)) {
+            generator.writeStartObject();
+            generator.writeStringField("format", TenantSnapshotReader.FORMAT);
+            generator.writeNumberField("formatVersion", TenantSnapshotReader.FORMAT_VERSION);
+            generator.writeNumberField("version", version);
+            generator.writeNumberField("createdAt", System.currentTimeMillis());
+            generator.writeNumberField("tenantCount", 3);
+            generator.writeEndObject();
+
+            Deque<Tenant> pending = new ArrayDeque<>(List.of(root));
+            while (!pending.isEmpty()) {
+                Tenant tenant = pending.poll();
+                generator.writeStartObject();
+                generator.writeStringField("dbName", tenant.getDbName());
+                generator.writeStringField("parent", tenant.getParent());
+                generator.writeFieldName("context");
+                smileMapper.writeValue(generator, tenant.getContext().toValues());
+                generator.writeEndObject();
+                pending.addAll(tenant.getChildren().values());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static Tenant tree() {
+        Tenant root = tenant("root", null, 0);
+        Tenant reseller = tenant("reseller1", "root", PARTNERS);
+        root.addChild("reseller1", reseller);
+        reseller.addChild("retail1", tenant("retail1", "reseller1", PARTNERS * 2));
+        return root;
+    }
+
+    private static Tenant tenant(String dbName, String parent, int partnerCount) {
+        Map<Integer, Partner> partners = new HashMap<>();
+        Map<String, Integer> prefixWisePartners = new HashMap<>();
+        for (int id = 1; id <= partnerCount; id++) {
+            Partner partner = new Partner();
+            partner.setIdPartner(id);
+            partner.setPartnerName(dbName + "-partner-" + id);
+            partner.setCustomerPrePaid(id % 2);
+            partner.setPartnerType(1 + id % 3);
+            partner.setCallSrcId(id % 10);
+            partners.put(id, partner);
+            prefixWisePartners.put("880" + id, id);
+        }
+
+        RatePlan ended = new RatePlan();
+        ended.setId(1);
+        ended.setStartDate(LocalDateTime.of(2026, 1, 1, 0, 0));
+        ended.setEndDate(LocalDateTime.of(2026, 10, 17, 23, 59, 59));
+        RatePlan current = new RatePlan();
+        current.setId(2);
+        current.setStartDate(LocalDateTime.of(2026, 1, 1, 0, 0));
+
+        Tenant tenant = new Tenant(dbName);
+        tenant.setParent(parent);
+        tenant.setContext(new DynamicContext(Map.of(
+                "partners", partners,
+                "prefixWisePartners", prefixWisePartners,
+                "partnerWiseRatePlans", Map.of("880", List.of(ended, current)),
+                "mapVersions", Map.of("partners", 7L))));
+        return tenant;
+    }
+}